@@ -441,7 +441,7 @@ public class ClassDecl_c extends Term_c implements ClassDecl, ClassDeclOps {
 
         if (superClass != null) {
             Type t = superClass.type();
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "setting superclass of " + this.type + " to "
                         + t);
             this.type.superType(t);
@@ -450,7 +450,7 @@ public class ClassDecl_c extends Term_c implements ClassDecl, ClassDeclOps {
                 || this.type.fullName().equals(ts.Object().fullName())
                 || this.flags.isInterface()) {
             // the type is an interface or ts.Object(), so it has no superclass.
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "setting superclass of " + this.type + " to "
                         + null);
             this.type.superType(null);
@@ -459,7 +459,7 @@ public class ClassDecl_c extends Term_c implements ClassDecl, ClassDeclOps {
             // the superclass was not specified, and the type is not the same
             // as ts.Object() (which is typically java.lang.Object)
             // As such, the default superclass is ts.Object().
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "setting superclass of " + this.type + " to "
                         + ts.Object());
             this.type.superType(ts.Object());
@@ -474,7 +474,7 @@ public class ClassDecl_c extends Term_c implements ClassDecl, ClassDeclOps {
         for (TypeNode tn : newInterfaces) {
             ClassType t = (ClassType) tn.type();
 
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "adding interface of " + this.type + " to "
                         + t);
 
@@ -27,7 +27,6 @@
 package polyglot.ast;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -43,7 +42,6 @@ import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.types.TypeSystem;
 import polyglot.util.CodeWriter;
-import polyglot.util.CollectionUtil;
 import polyglot.util.Position;
 import polyglot.util.SerialVersionUID;
 import polyglot.visit.AmbiguityRemover;
@@ -355,8 +353,8 @@ public class MethodDecl_c extends ProcedureDecl_c implements MethodDecl {
         return succs;
     }
 
-    private static final Collection<String> TOPICS =
-            CollectionUtil.list(Report.types, Report.context);
+    private static final Report.Topic TOPICS =
+            Report.topic(Report.types, Report.context);
 
     @Override
     public Node copy(NodeFactory nf) {
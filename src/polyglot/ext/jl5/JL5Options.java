@@ -44,6 +44,8 @@ public class JL5Options extends Options {
     public boolean morePermissiveCasts;
     public boolean skip524checks;
     public boolean leaveCovariantReturns;
+    public boolean preserveTypes;
+    public boolean validatePreservedTypes;
 
     public JL5Options(ExtensionInfo extension) {
         super(extension);
@@ -91,6 +93,13 @@ public class JL5Options extends Options {
         flags.add(new Switch(Kind.SECRET,
                              new String[] { "-skip524checks", "--skip524checks" },
                              "Don't type check the result of removeJava5isms"));
+        flags.add(new Switch(new String[] { "-preserveTypes",
+                                     "--preserveTypes" },
+                             "Carry the types of the source program over to the translated program"));
+        flags.add(new Switch(Kind.SECRET,
+                             new String[] { "-validatePreservedTypes",
+                                     "--validatePreservedTypes" },
+                             "Type check the translated program and check the types carried over"));
         flags.add(new Switch(Kind.SECRET,
                              new String[] { "-leaveCovariantReturns",
                                      "--leaveCovariantReturns" },
@@ -126,6 +135,12 @@ public class JL5Options extends Options {
         else if (arg.flag().ids().contains("-skip524checks")) {
             this.skip524checks = (Boolean) arg.value();
         }
+        else if (arg.flag().ids().contains("-preserveTypes")) {
+            this.preserveTypes = (Boolean) arg.value();
+        }
+        else if (arg.flag().ids().contains("-validatePreservedTypes")) {
+            this.validatePreservedTypes = (Boolean) arg.value();
+        }
         else if (arg.flag().ids().contains("-leaveCovariantReturns")) {
             this.leaveCovariantReturns = (Boolean) arg.value();
         }
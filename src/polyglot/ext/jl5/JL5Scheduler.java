@@ -51,12 +51,14 @@ import polyglot.frontend.Pass;
 import polyglot.frontend.Scheduler;
 import polyglot.frontend.goals.CodeGenerated;
 import polyglot.frontend.goals.EmptyGoal;
+import polyglot.frontend.goals.FusedVisitorGoal;
 import polyglot.frontend.goals.Goal;
 import polyglot.frontend.goals.VisitorGoal;
 import polyglot.main.Options;
 import polyglot.types.ParsedClassType;
 import polyglot.types.TypeSystem;
 import polyglot.util.InternalCompilerError;
+import polyglot.visit.FusedVisitor;
 
 public class JL5Scheduler extends JLScheduler {
 
@@ -128,10 +130,20 @@ public class JL5Scheduler extends JLScheduler {
 
     }
 
-    public Goal RemoveVarArgs(Job job) {
+    /**
+     * Remove variable-arity calls, extended for loops and compound
+     * assignments to boxed types.  The three rewrites are independent and
+     * are run in a single traversal.
+     */
+    public Goal RemoveJava5Syntax(Job job) {
         TypeSystem ts = extInfo.typeSystem();
         NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new RemoveVarargVisitor(job, ts, nf));
+        FusedVisitor v =
+                new FusedVisitor(nf.lang(),
+                                 new RemoveVarargVisitor(job, ts, nf),
+                                 new RemoveExtendedFors(job, ts, nf),
+                                 new SimplifyExpressionsForBoxing(nf, ts));
+        Goal g = new FusedVisitorGoal(job, "RemoveJava5Syntax", v);
         try {
             g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
         }
@@ -141,12 +153,27 @@ public class JL5Scheduler extends JLScheduler {
         return this.internGoal(g);
     }
 
-    public Goal SimplifyExpressionsForBoxing(Job job) {
+    /**
+     * Remove static imports, enums, variable-arity flags and annotations,
+     * in a single traversal after type erasure.  The nodes that RemoveEnums
+     * creates carry no variable-arity flags or annotations, so they need
+     * no visiting by the rewrites after it.
+     */
+    public Goal RemoveJava5Declarations(Job job) {
         TypeSystem ts = extInfo.typeSystem();
         NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new SimplifyExpressionsForBoxing(nf, ts));
+        FusedVisitor v =
+                new FusedVisitor(nf.lang(),
+                                 new RemoveStaticImports(job, ts, nf),
+                                 new RemoveEnums(job, ts, nf),
+                                 new RemoveVarArgsFlags(job, ts, nf),
+                                 new RemoveAnnotations(job, ts, nf));
+        Goal g = new FusedVisitorGoal(job, "RemoveJava5Declarations", v);
         try {
             g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
+            g.addPrerequisiteGoal(RemoveJava5Syntax(job), this);
+            g.addPrerequisiteGoal(AutoBoxing(job), this);
+            g.addPrerequisiteGoal(TypeErasureProcDecls(job), this);
         }
         catch (CyclicDependencyException e) {
             throw new InternalCompilerError(e);
@@ -154,77 +181,32 @@ public class JL5Scheduler extends JLScheduler {
         return this.internGoal(g);
     }
 
+    public Goal RemoveVarArgs(Job job) {
+        return RemoveJava5Syntax(job);
+    }
+
+    public Goal SimplifyExpressionsForBoxing(Job job) {
+        return RemoveJava5Syntax(job);
+    }
+
     public Goal RemoveEnums(Job job) {
-        TypeSystem ts = extInfo.typeSystem();
-        NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new RemoveEnums(job, ts, nf));
-        try {
-            g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
-            g.addPrerequisiteGoal(RemoveStaticImports(job), this);
-            g.addPrerequisiteGoal(RemoveVarArgs(job), this);
-            g.addPrerequisiteGoal(AutoBoxing(job), this);
-        }
-        catch (CyclicDependencyException e) {
-            throw new InternalCompilerError(e);
-        }
-        return this.internGoal(g);
+        return RemoveJava5Declarations(job);
     }
 
     public Goal RemoveVarArgsFlags(Job job) {
-        TypeSystem ts = extInfo.typeSystem();
-        NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new RemoveVarArgsFlags(job, ts, nf));
-        try {
-            g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
-            g.addPrerequisiteGoal(RemoveEnums(job), this);
-        }
-        catch (CyclicDependencyException e) {
-            throw new InternalCompilerError(e);
-        }
-        return this.internGoal(g);
+        return RemoveJava5Declarations(job);
     }
 
     public Goal RemoveExtendedFors(Job job) {
-        TypeSystem ts = extInfo.typeSystem();
-        NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new RemoveExtendedFors(job, ts, nf));
-        try {
-            g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
-        }
-        catch (CyclicDependencyException e) {
-            throw new InternalCompilerError(e);
-        }
-        return this.internGoal(g);
-
+        return RemoveJava5Syntax(job);
     }
 
     public Goal RemoveStaticImports(Job job) {
-        TypeSystem ts = extInfo.typeSystem();
-        NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new RemoveStaticImports(job, ts, nf));
-        try {
-            g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
-        }
-        catch (CyclicDependencyException e) {
-            throw new InternalCompilerError(e);
-        }
-        return this.internGoal(g);
-
+        return RemoveJava5Declarations(job);
     }
 
     public Goal RemoveAnnotations(Job job) {
-        TypeSystem ts = extInfo.typeSystem();
-        NodeFactory nf = extInfo.nodeFactory();
-        Goal g = new VisitorGoal(job, new RemoveAnnotations(job, ts, nf));
-        try {
-            g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
-            g.addPrerequisiteGoal(RemoveStaticImports(job), this);
-        }
-        catch (CyclicDependencyException e) {
-            throw new InternalCompilerError(e);
-        }
-        return this.internGoal(g);
-
+        return RemoveJava5Declarations(job);
     }
 
     public Goal PreRemoveJava5isms(Job job) {
@@ -333,6 +315,15 @@ public class JL5Scheduler extends JLScheduler {
         return this.internGoal(g);
     }
 
+    @Override
+    protected void initParallelParsing() {
+        super.initParallelParsing();
+        // Loaded by the actions of the parser.
+        JL5TypeSystem ts = (JL5TypeSystem) extInfo.typeSystem();
+        ts.Enum();
+        ts.Annotation();
+    }
+
     @Override
     public boolean runToCompletion() {
         boolean complete = super.runToCompletion();
@@ -41,6 +41,7 @@ import polyglot.frontend.goals.SourceFileGoal;
 import polyglot.main.OptFlag.Arg;
 import polyglot.main.Options;
 import polyglot.main.UsageError;
+import polyglot.types.TypeSystem_c;
 import polyglot.util.InternalCompilerError;
 
 /**
@@ -58,6 +59,16 @@ public class JL5OutputExtensionInfo extends JL5ExtensionInfo {
         this.parent = parent;
     }
 
+    @Override
+    protected void initTypeSystem() {
+        // Names are resolved in the type systems of both extensions while
+        // translating, so they share a resolution lock.
+        if (ts instanceof TypeSystem_c) {
+            ((TypeSystem_c) ts).shareResolutionLock(parent.typeSystem());
+        }
+        super.initTypeSystem();
+    }
+
     @Override
     public Scheduler createScheduler() {
         return new JL5OutputScheduler(this);
@@ -25,12 +25,23 @@
  ******************************************************************************/
 package polyglot.ext.jl5.translate;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import polyglot.ast.Assign;
+import polyglot.ast.Call;
+import polyglot.ast.Expr;
+import polyglot.ast.Field;
 import polyglot.ast.TypeNode;
 import polyglot.ext.jl5.types.JL5TypeSystem;
+import polyglot.ext.jl5.types.TypeVariable;
 import polyglot.ext.jl5.types.inference.LubType;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.Job;
 import polyglot.translate.ExtensionRewriter;
+import polyglot.types.MethodInstance;
+import polyglot.types.ReferenceType;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.util.Position;
@@ -45,13 +56,60 @@ public class JL5ToJLRewriter extends ExtensionRewriter {
 
     @Override
     public TypeNode typeToJava(Type t, Position pos) throws SemanticException {
+        return super.typeToJava(erasure(t), pos);
+    }
+
+    @Override
+    public Type carriedType(Expr e) {
+        // The translated methods and fields have the erasures of their
+        // declared types.
+        Type t = super.carriedType(e);
+        if (e instanceof Assign) {
+            // The type of a compound assignment to a boxed variable is that
+            // of the variable.
+            t = ((Assign) e).left().type();
+        }
+        else if (e instanceof Call && ((Call) e).methodInstance() != null) {
+            t = ((Call) e).methodInstance().orig().returnType();
+        }
+        else if (e instanceof Field && ((Field) e).fieldInstance() != null) {
+            t = ((Field) e).fieldInstance().orig().type();
+        }
+        return t != null ? erasure(t) : null;
+    }
+
+    @Override
+    public MethodInstance carriedMethodInstance(Call c) {
+        // The translated method is the erasure of its declaration.
+        MethodInstance mi = c.methodInstance();
+        if (mi == null) return null;
+        mi = mi.orig();
+        return jl5ts.methodInstance(mi.position(),
+                                    (ReferenceType) erasure(mi.container()),
+                                    mi.flags(),
+                                    erasure(mi.returnType()),
+                                    mi.name(),
+                                    erasures(mi.formalTypes()),
+                                    erasures(mi.throwTypes()),
+                                    Collections.<TypeVariable> emptyList());
+    }
+
+    protected List<Type> erasures(List<? extends Type> l) {
+        List<Type> erased = new ArrayList<>(l.size());
+        for (Type t : l) {
+            erased.add(erasure(t));
+        }
+        return erased;
+    }
+
+    protected Type erasure(Type t) {
         // TODO: disentangle erasureType from translated type
         t = jl5ts.erasureType(t);
         if (t instanceof LubType) {
             t = ((LubType) t).calculateLub();
             t = jl5ts.erasureType(t);
         }
-        return super.typeToJava(t, pos);
+        return t;
     }
 
 }
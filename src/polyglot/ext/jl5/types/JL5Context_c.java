@@ -62,6 +62,18 @@ public class JL5Context_c extends Context_c implements JL5Context {
         super(lang, ts);
     }
 
+    /**
+     * Create a context for a new scope within {@code outer}.  This is for
+     * contexts that push scopes without cloning.
+     */
+    protected JL5Context_c(JL5Context_c outer) {
+        super(outer);
+        this.typeVariable = outer.typeVariable;
+        this.switchType = outer.switchType;
+        this.declaringClass = outer.declaringClass;
+        this.ctorCall = outer.ctorCall;
+    }
+
     @Override
     public JL5TypeSystem typeSystem() {
         return (JL5TypeSystem) ts;
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.ext.jl5.types;
+
+import polyglot.ast.Lang;
+import polyglot.types.Context_c;
+import polyglot.types.FrameContext_c.Frame;
+import polyglot.types.Named;
+import polyglot.types.TypeSystem;
+import polyglot.types.VarInstance;
+
+/**
+ * A {@code JL5Context_c} whose scopes, including their type variables, are
+ * frames of names and entries as in {@code FrameContext_c}.
+ */
+public class JL5FrameContext_c extends JL5Context_c {
+    protected Frame<Named> typeFrame;
+    protected Frame<VarInstance> varFrame;
+    protected Frame<TypeVariable> typeVarFrame;
+
+    public JL5FrameContext_c(Lang lang, TypeSystem ts) {
+        super(lang, ts);
+    }
+
+    /**
+     * Create a context for a new scope within {@code outer}.
+     */
+    protected JL5FrameContext_c(JL5FrameContext_c outer) {
+        super(outer);
+    }
+
+    @Override
+    protected Context_c push() {
+        return new JL5FrameContext_c(this);
+    }
+
+    @Override
+    public Named findInThisScope(String name) {
+        if (typeFrame != null) {
+            Named t = typeFrame.get(name);
+            if (t != null) return t;
+        }
+        return super.findInThisScope(name);
+    }
+
+    @Override
+    public void addNamedToThisScope(Named type) {
+        if (typeFrame == null) typeFrame = new Frame<>();
+        typeFrame.put(type.name(), type);
+    }
+
+    @Override
+    public VarInstance findVariableInThisScope(String name) {
+        if (varFrame != null) {
+            VarInstance vi = varFrame.get(name);
+            if (vi != null) return vi;
+        }
+        return super.findVariableInThisScope(name);
+    }
+
+    @Override
+    public void addVariableToThisScope(VarInstance var) {
+        if (varFrame == null) varFrame = new Frame<>();
+        varFrame.put(var.name(), var);
+    }
+
+    @Override
+    public TypeVariable findTypeVariableInThisScope(String name) {
+        if (typeVariable != null && typeVariable.name().equals(name))
+            return typeVariable;
+        if (typeVarFrame != null) {
+            TypeVariable tv = typeVarFrame.get(name);
+            if (tv != null) return tv;
+        }
+        if (outer != null) {
+            return ((JL5Context) outer).findTypeVariableInThisScope(name);
+        }
+        return null;
+    }
+
+    @Override
+    public void addTypeVariable(TypeVariable type) {
+        if (typeVarFrame == null) typeVarFrame = new Frame<>();
+        typeVarFrame.put(type.name(), type);
+    }
+
+    @Override
+    protected String mapsToString() {
+        return "types=" + typeFrame + " vars=" + varFrame;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + kind + " " + mapsToString() + " " + outer + ")"
+                + "; type var: " + typeVariable + "; type vars: "
+                + typeVarFrame;
+    }
+}
@@ -157,7 +157,7 @@ public class JL5MethodInstance_c extends MethodInstance_c implements
 
         if (mi != mj && !mi.equals(mj) && mj.flags().isFinal()) {
             // mi can "override" a final method mj if mi and mj are the same method instance.
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, mj.flags() + " final");
             if (quiet) return false;
             throw new SemanticException(mi.signature() + " in "
@@ -180,7 +180,7 @@ public class JL5MethodInstance_c extends MethodInstance_c implements
         Type mjRet = mj.returnType();
 
         if (!ts.areReturnTypeSubstitutable(miRet, mjRet)) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "return type " + miRet + " != " + mjRet);
             if (quiet) return false;
             throw new SemanticException(mi.signature()
@@ -200,7 +200,7 @@ public class JL5MethodInstance_c extends MethodInstance_c implements
         }
 
         if (!ts.throwsSubset(mi, mj)) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3,
                               mi.throwTypes() + " not subset of "
                                       + mj.throwTypes());
@@ -220,7 +220,7 @@ public class JL5MethodInstance_c extends MethodInstance_c implements
         }
 
         if (mi.flags().moreRestrictiveThan(mj.flags())) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3,
                               mi.flags() + " more restrictive than "
                                       + mj.flags());
@@ -240,7 +240,7 @@ public class JL5MethodInstance_c extends MethodInstance_c implements
         }
 
         if (mi.flags().isStatic() != mj.flags().isStatic()) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, mi.signature() + " is "
                         + (mi.flags().isStatic() ? "" : "not") + " static but "
                         + mj.signature() + " is "
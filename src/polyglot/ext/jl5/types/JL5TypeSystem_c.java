@@ -38,6 +38,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import polyglot.ast.ClassLit;
 import polyglot.ast.Expr;
@@ -79,6 +80,8 @@ import polyglot.types.ProcedureInstance;
 import polyglot.types.ReferenceType;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
+import polyglot.types.TypeObject;
+import polyglot.types.UnknownType;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLazyClassInitializer;
 import polyglot.util.InternalCompilerError;
@@ -100,6 +103,21 @@ public class JL5TypeSystem_c extends
 
     protected ClassType ITERATOR_;
 
+    @Override
+    public boolean prepareRebuild() {
+        if (!super.prepareRebuild()) return false;
+        varargsArrayTypeCache.clear();
+        ENUM_ = null;
+        ANNOTATION_ = null;
+        OVERRIDE_ANNOTATION_ = null;
+        TARGET_ANNOTATION_ = null;
+        RETENTION_ANNOTATION_ = null;
+        ELEMENT_TYPE_ = null;
+        ITERABLE_ = null;
+        ITERATOR_ = null;
+        return true;
+    }
+
     @Override
     public ClassType Enum() {
         if (ENUM_ != null) {
@@ -386,6 +404,8 @@ public class JL5TypeSystem_c extends
 
     @Override
     public Context createContext() {
+        if (extInfo.getOptions().frame_contexts)
+            return new JL5FrameContext_c(J5Lang_c.instance, this);
         return new JL5Context_c(J5Lang_c.instance, this);
     }
 
@@ -567,14 +587,15 @@ public class JL5TypeSystem_c extends
         return new JL5ArrayType_c(this, pos, type, false);
     }
 
-    Map<Type, ArrayType> varargsArrayTypeCache = new HashMap<>();
+    Map<Type, ArrayType> varargsArrayTypeCache = new ConcurrentHashMap<>();
 
     protected ArrayType arrayType(Position pos, Type type, boolean isVarargs) {
         if (isVarargs) {
             ArrayType t = varargsArrayTypeCache.get(type);
             if (t == null) {
                 t = createArrayType(pos, type, isVarargs);
-                varargsArrayTypeCache.put(type, t);
+                ArrayType u = varargsArrayTypeCache.putIfAbsent(type, t);
+                if (u != null) t = u;
             }
             return t;
         }
@@ -672,7 +693,7 @@ public class JL5TypeSystem_c extends
             if (visitedTypes.contains(type)) continue;
             visitedTypes.add(type);
 
-            if (Report.should_report(Report.types, 2)) {
+            if (Report.should_report(Report.TYPES, 2)) {
                 Report.report(2, "Searching type " + type + " for method "
                         + name + "(" + listToString(argTypes) + ")");
             }
@@ -686,7 +707,7 @@ public class JL5TypeSystem_c extends
             List<JL5MethodInstance> methods =
                     (List<JL5MethodInstance>) type.toReference().methods();
             for (JL5MethodInstance mi : methods) {
-                if (Report.should_report(Report.types, 3))
+                if (Report.should_report(Report.TYPES, 3))
                     Report.report(3, "Trying " + mi);
 
                 // Method name must match
@@ -707,7 +728,7 @@ public class JL5TypeSystem_c extends
                                             container,
                                             currClass,
                                             fromClient)) {
-                        if (Report.should_report(Report.types, 3)) {
+                        if (Report.should_report(Report.TYPES, 3)) {
                             Report.report(3, "->acceptable: " + mi + " in "
                                     + mi.container());
                         }
@@ -1822,6 +1843,25 @@ public class JL5TypeSystem_c extends
         assert_(container);
         assert_(argTypes);
 
+        // Capture conversion of the container creates fresh type variables
+        // on each call, so such resolutions are not cached.
+        ResolutionKey key = null;
+        ResolutionDependencies deps = null;
+        if (!hasWildCardArgs(container)) {
+            key =
+                    resolutionKey("method",
+                                  container,
+                                  name,
+                                  argTypes,
+                                  typeArgs,
+                                  currClass,
+                                  expectedReturnType,
+                                  fromClient);
+            MethodInstance cached = (MethodInstance) cachedProcedure(key);
+            if (cached != null) return cached;
+            deps = resolutionDependencies(key);
+        }
+
         List<? extends MethodInstance> acceptable =
                 findAcceptableMethods(container,
                                       name,
@@ -1866,9 +1906,62 @@ public class JL5TypeSystem_c extends
         }
 
         MethodInstance mi = maximal.iterator().next();
+        if (key != null) cacheProcedure(key, deps, mi);
         return mi;
     }
 
+    /** Return true if {@code t} is a parameterized type with a wildcard. */
+    protected boolean hasWildCardArgs(Type t) {
+        if (t instanceof JL5SubstClassType) {
+            JL5SubstClassType ct = (JL5SubstClassType) t;
+            for (ReferenceType a : ct.subst().substitutions().values()) {
+                if (a instanceof WildCardType) return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean addResolutionDependencies(TypeObject t,
+            Set<Type> visited) {
+        if (t instanceof UnknownType) return false;
+        if (t instanceof JL5SubstType) {
+            JL5SubstType st = (JL5SubstType) t;
+            if (!visited.add(st)) return true;
+            if (!addResolutionDependencies(st.base(), visited)) return false;
+            for (ReferenceType a : st.subst().substitutions().values()) {
+                if (!addResolutionDependencies(a, visited)) return false;
+            }
+            return true;
+        }
+        if (t instanceof RawClass) {
+            RawClass rc = (RawClass) t;
+            return !visited.add(rc)
+                    || addResolutionDependencies(rc.base(), visited);
+        }
+        if (t instanceof TypeVariable) {
+            TypeVariable tv = (TypeVariable) t;
+            return !visited.add(tv)
+                    || addResolutionDependencies(tv.upperBound(), visited)
+                    && addResolutionDependencies(tv.lowerBound(), visited);
+        }
+        if (t instanceof WildCardType) {
+            WildCardType wc = (WildCardType) t;
+            return !visited.add(wc)
+                    || addResolutionDependencies(wc.upperBound(), visited)
+                    && addResolutionDependencies(wc.lowerBound(), visited);
+        }
+        if (t instanceof IntersectionType) {
+            IntersectionType it = (IntersectionType) t;
+            if (!visited.add(it)) return true;
+            for (ReferenceType b : it.bounds()) {
+                if (!addResolutionDependencies(b, visited)) return false;
+            }
+            return true;
+        }
+        return super.addResolutionDependencies(t, visited);
+    }
+
     @Override
     public ConstructorInstance findConstructor(ClassType container,
             List<? extends Type> argTypes, ClassType currClass,
@@ -1889,6 +1982,22 @@ public class JL5TypeSystem_c extends
         assert_(container);
         assert_(argTypes);
 
+        ResolutionKey key = null;
+        ResolutionDependencies deps = null;
+        if (!hasWildCardArgs(container)) {
+            key =
+                    resolutionKey("constructor",
+                                  container,
+                                  argTypes,
+                                  typeArgs,
+                                  currClass,
+                                  fromClient);
+            ConstructorInstance cached =
+                    (ConstructorInstance) cachedProcedure(key);
+            if (cached != null) return cached;
+            deps = resolutionDependencies(key);
+        }
+
         List<ConstructorInstance> acceptable =
                 findAcceptableConstructors(container,
                                            argTypes,
@@ -1915,6 +2024,7 @@ public class JL5TypeSystem_c extends
         }
 
         ConstructorInstance ci = maximal.iterator().next();
+        if (key != null) cacheProcedure(key, deps, ci);
         return ci;
     }
 
@@ -1954,7 +2064,7 @@ public class JL5TypeSystem_c extends
         // call relying on boxing/unboxing conversion and variable arity
         List<ConstructorInstance> phase3methods = new ArrayList<>();
 
-        if (Report.should_report(Report.types, 2))
+        if (Report.should_report(Report.TYPES, 2))
             Report.report(2, "Searching type " + container
                     + " for constructor " + container + "("
                     + listToString(argTypes) + ")");
@@ -1962,7 +2072,7 @@ public class JL5TypeSystem_c extends
         List<JL5ConstructorInstance> constructors =
                 (List<JL5ConstructorInstance>) container.constructors();
         for (JL5ConstructorInstance ci : constructors) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "Trying " + ci);
 
             JL5ConstructorInstance substCi =
@@ -1972,7 +2082,7 @@ public class JL5TypeSystem_c extends
             if (substCi != null) {
                 ci = substCi;
                 if (isAccessible(ci, currClass)) {
-                    if (Report.should_report(Report.types, 3))
+                    if (Report.should_report(Report.TYPES, 3))
                         Report.report(3, "->acceptable: " + ci);
                     if (varArgsRequired(ci))
                         phase3methods.add(ci);
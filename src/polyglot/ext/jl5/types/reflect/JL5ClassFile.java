@@ -81,14 +81,17 @@ public class JL5ClassFile extends ClassFile_c {
     }
 
     public JL5Signature getSignature() {
+        getAttrs();
         return signature;
     }
 
     public Annotations getRuntimeVisibleAnnotations() {
+        getAttrs();
         return this.runtimeVisibleAnnotations;
     }
 
     public Annotations getRuntimeInvisibleAnnotations() {
+        getAttrs();
         return this.runtimeInvisibleAnnotations;
     }
 
@@ -166,9 +166,8 @@ public class JL5ClassFileLazyClassInitializer extends
     @Override
     protected MethodInstance methodInstance(Method method_, ClassType ct) {
         JL5Method method = (JL5Method) method_;
-        Constant[] constants = clazz.getConstants();
-        String name = (String) constants[method.getName()].value();
-        String type = (String) constants[method.getType()].value();
+        String name = (String) clazz.constant(method.getName()).value();
+        String type = (String) clazz.constant(method.getType()).value();
         JL5Signature signature = method.getSignature();
 
         List<ReferenceType> excTypes = new ArrayList<>();
@@ -319,9 +318,8 @@ public class JL5ClassFileLazyClassInitializer extends
     @Override
     protected FieldInstance fieldInstance(Field field_, ClassType ct) {
         JL5Field field = (JL5Field) field_;
-        Constant[] constants = clazz.getConstants();
-        String name = (String) constants[field.getName()].value();
-        String type = (String) constants[field.getType()].value();
+        String name = (String) clazz.constant(field.getName()).value();
+        String type = (String) clazz.constant(field.getType()).value();
 
         JL5TypeSystem ts = ((JL5TypeSystem) this.ts);
 
@@ -488,9 +486,8 @@ public class JL5ClassFileLazyClassInitializer extends
 
     private AnnotationTypeElemInstance annotationElemInstance(JL5Method annot,
             ParsedClassType ct, boolean hasDefault) {
-        Constant[] constants = clazz.getConstants();
-        String name = (String) constants[annot.getName()].value();
-        String type = (String) constants[annot.getType()].value();
+        String name = (String) clazz.constant(annot.getName()).value();
+        String type = (String) clazz.constant(annot.getType()).value();
         if (type.charAt(0) != '(') {
             throw new ClassFormatError("Bad annotation type descriptor.");
         }
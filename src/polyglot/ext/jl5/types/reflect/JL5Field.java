@@ -59,7 +59,7 @@ public class JL5Field extends Field {
             int nameIndex = in.readUnsignedShort();
             int length = in.readInt();
 
-            Constant name = clazz.getConstants()[nameIndex];
+            Constant name = clazz.constant(nameIndex);
 
             if (name != null) {
                 if ("ConstantValue".equals(name.value())) {
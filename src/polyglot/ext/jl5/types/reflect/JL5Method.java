@@ -66,7 +66,7 @@ public class JL5Method extends Method {
             int nameIndex = in.readUnsignedShort();
             int length = in.readInt();
 
-            Constant name = clazz.getConstants()[nameIndex];
+            Constant name = clazz.constant(nameIndex);
 //            System.err.println("    " + name.value());
 
             if (name != null) {
@@ -802,7 +802,7 @@ public class JL5Signature extends Attribute {
     public void parseClassSignature(TypeSystem ts, Position pos) {
         this.ts = (JL5TypeSystem) ts;
         this.position = pos;
-        String sigValue = (String) cls.getConstants()[index].value();
+        String sigValue = (String) cls.constant(index).value();
         classSignature = classSig(sigValue, 0).result();
     }
 
@@ -810,7 +810,7 @@ public class JL5Signature extends Attribute {
             Position pos) {
         this.ts = (JL5TypeSystem) ts;
         this.position = pos;
-        String sigValue = (String) cls.getConstants()[index].value();
+        String sigValue = (String) cls.constant(index).value();
         char token = sigValue.charAt(0);
         ;
         List<TypeVariable> results = null;
@@ -825,7 +825,7 @@ public class JL5Signature extends Attribute {
         this.ts = (JL5TypeSystem) ts;
         this.position = pos;
         this.curClass = ct;
-        String sigValue = (String) cls.getConstants()[index].value();
+        String sigValue = (String) cls.constant(index).value();
         methodSignature = methodTypeSig(sigValue, 0).result();
     }
 
@@ -833,7 +833,7 @@ public class JL5Signature extends Attribute {
         this.ts = (JL5TypeSystem) ts;
         this.position = pos;
         this.curClass = ct;
-        String sigValue = (String) cls.getConstants()[index].value();
+        String sigValue = (String) cls.constant(index).value();
         fieldSignature = new FieldSig();
         fieldSignature.type = fieldTypeSig(sigValue, 0).result();
     }
@@ -874,7 +874,7 @@ public class JL5Signature extends Attribute {
 
     @Override
     public String toString() {
-        return (String) cls.getConstants()[index].value();
+        return (String) cls.constant(index).value();
     }
 
 }
@@ -55,6 +55,13 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
 
     protected ClassType AUTOCLOSEABLE_;
 
+    @Override
+    public boolean prepareRebuild() {
+        if (!super.prepareRebuild()) return false;
+        AUTOCLOSEABLE_ = null;
+        return true;
+    }
+
     @Override
     public ClassType AutoCloseable() {
         if (AUTOCLOSEABLE_ != null) return AUTOCLOSEABLE_;
@@ -88,6 +95,23 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
         assert_(container);
         assert_(argTypes);
 
+        ResolutionKey key = null;
+        ResolutionDependencies deps = null;
+        if (!hasWildCardArgs(container)) {
+            key =
+                    resolutionKey("constructor",
+                                  container,
+                                  argTypes,
+                                  typeArgs,
+                                  currClass,
+                                  expectedObjectType,
+                                  fromClient);
+            ConstructorInstance cached =
+                    (ConstructorInstance) cachedProcedure(key);
+            if (cached != null) return cached;
+            deps = resolutionDependencies(key);
+        }
+
         List<ConstructorInstance> acceptable =
                 findAcceptableConstructors(container,
                                            argTypes,
@@ -129,6 +153,7 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
         }
 
         ConstructorInstance ci = maximal.iterator().next();
+        if (key != null) cacheProcedure(key, deps, ci);
         return ci;
     }
 
@@ -176,7 +201,7 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
         // call relying on boxing/unboxing conversion and variable arity
         List<ConstructorInstance> phase3constructors = new ArrayList<>();
 
-        if (Report.should_report(Report.types, 2))
+        if (Report.should_report(Report.TYPES, 2))
             Report.report(2, "Searching type " + container
                     + " for constructor " + container + "("
                     + listToString(argTypes) + ")");
@@ -184,7 +209,7 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
         List<JL5ConstructorInstance> constructors =
                 (List<JL5ConstructorInstance>) container.constructors();
         for (JL5ConstructorInstance ci : constructors) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "Trying " + ci);
 
             JL5ConstructorInstance substCi =
@@ -195,7 +220,7 @@ public class JL7TypeSystem_c extends JL5TypeSystem_c implements JL7TypeSystem {
             if (substCi != null) {
                 ci = substCi;
                 if (isAccessible(ci, currClass, fromClient)) {
-                    if (Report.should_report(Report.types, 3))
+                    if (Report.should_report(Report.TYPES, 3))
                         Report.report(3, "->acceptable: " + ci);
                     if (varArgsRequired(ci))
                         phase3constructors.add(ci);
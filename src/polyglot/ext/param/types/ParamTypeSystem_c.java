@@ -47,6 +47,13 @@ public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends Typ
     protected Map<Map<Formal, ? extends Actual>, Subst<Formal, Actual>> substCache =
             new HashMap<>();
 
+    @Override
+    public boolean prepareRebuild() {
+        if (!super.prepareRebuild()) return false;
+        substCache.clear();
+        return true;
+    }
+
     @Override
     public MuPClass<Formal, Actual> mutablePClass(Position pos) {
         return new MuPClass_c<>(this, pos);
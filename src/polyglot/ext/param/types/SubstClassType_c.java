@@ -27,8 +27,11 @@
 package polyglot.ext.param.types;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import polyglot.frontend.Job;
@@ -43,6 +46,7 @@ import polyglot.types.ReferenceType;
 import polyglot.types.Resolver;
 import polyglot.types.Type;
 import polyglot.types.TypeObject;
+import polyglot.types.TypeSystem_c;
 import polyglot.util.Copy;
 import polyglot.util.Position;
 import polyglot.util.SerialVersionUID;
@@ -67,6 +71,12 @@ public class SubstClassType_c<Formal extends Param, Actual extends TypeObject>
     protected transient List<? extends MethodInstance> substMethods;
     protected transient List<? extends ConstructorInstance> substConstructors;
     protected transient List<? extends ClassType> substMemberClasses;
+    // indexes by name of substMethods and substFields, and the lists
+    // they were built from
+    protected transient Map<String, List<MethodInstance>> methodsByName;
+    protected transient List<? extends MethodInstance> methodsIndexed;
+    protected transient Map<String, FieldInstance> fieldsByName;
+    protected transient List<? extends FieldInstance> fieldsIndexed;
 
     /** The class type we are substituting into. */
     protected ClassType base;
@@ -140,6 +150,51 @@ public class SubstClassType_c<Formal extends Param, Actual extends TypeObject>
         return substMethods;
     }
 
+    @Override
+    public List<? extends MethodInstance> methodsNamed(String name) {
+        // Index the substituted methods, so that the lookup returns the
+        // same method instances as methods().
+        synchronized (ts.resolutionLock()) {
+            List<? extends MethodInstance> methods = methods();
+            if (methods != methodsIndexed) {
+                Map<String, List<MethodInstance>> m = new HashMap<>();
+                for (MethodInstance mi : methods) {
+                    List<MethodInstance> l = m.get(mi.name());
+                    if (l == null) {
+                        l = new ArrayList<>(1);
+                        m.put(mi.name(), l);
+                    }
+                    l.add(mi);
+                }
+                for (Entry<String, List<MethodInstance>> e : m.entrySet()) {
+                    e.setValue(Collections.unmodifiableList(e.getValue()));
+                }
+                methodsByName = m;
+                methodsIndexed = methods;
+            }
+            List<MethodInstance> l = methodsByName.get(name);
+            if (l == null) return Collections.emptyList();
+            return l;
+        }
+    }
+
+    @Override
+    public FieldInstance fieldNamed(String name) {
+        synchronized (ts.resolutionLock()) {
+            List<? extends FieldInstance> fields = fields();
+            if (fields != fieldsIndexed) {
+                Map<String, FieldInstance> m = new HashMap<>();
+                for (FieldInstance fi : fields) {
+                    // Keep the first field of a name, as a scan would.
+                    if (!m.containsKey(fi.name())) m.put(fi.name(), fi);
+                }
+                fieldsByName = m;
+                fieldsIndexed = fields;
+            }
+            return fieldsByName.get(name);
+        }
+    }
+
     @Override
     public List<? extends ConstructorInstance> constructors() {
         List<? extends ConstructorInstance> constructors = base.constructors();
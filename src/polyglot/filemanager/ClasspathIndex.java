@@ -0,0 +1,543 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.filemanager;
+
+import static java.io.File.separatorChar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import polyglot.main.Report;
+
+/**
+ * An index of the entries and packages of the archives on a path, so that
+ * finding the element of a path that holds a class is a single hash probe
+ * rather than a search through each archive.
+ *
+ * Archives are indexed once per VM and reindexed when their modification
+ * time or size changes.  If an index directory is given, the index of each
+ * archive is also saved there as a hash table and later runs probe the
+ * saved table in place, through a memory-mapped buffer.  Directories are
+ * not indexed, since the compiler may write into them; their listings are
+ * cached by the {@code PathIndex} until the file manager writes a file.
+ */
+public class ClasspathIndex {
+    protected static final int MAGIC = 0x50434958;
+    protected static final int VERSION = 2;
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    protected static final Report.Topic TOPICS =
+            Report.topic(Report.loader, "filemanager");
+
+    /** Catalogs of the archives indexed so far, by absolute file. */
+    protected static final Map<File, Catalog> catalogs = new HashMap<>();
+
+    /** Directory in which to save catalogs across runs, or null. */
+    protected final File directory;
+
+    public ClasspathIndex(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The entries and packages of an archive.  Entry names and package
+     * names are separated by '/'.
+     */
+    public static abstract class Catalog {
+        protected final long lastModified;
+        protected final long length;
+
+        /**
+         * False if the archive names other archives in its manifest class
+         * path, whose entries the file manager may also search.
+         */
+        protected final boolean complete;
+
+        protected Catalog(long lastModified, long length, boolean complete) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.complete = complete;
+        }
+
+        public abstract boolean contains(String entryName);
+
+        public abstract boolean containsPackage(String packageName);
+    }
+
+    /** The catalog of an archive whose entries were read from the archive. */
+    protected static class ScannedCatalog extends Catalog {
+        protected final Set<String> entries;
+        protected final Set<String> packages;
+
+        protected ScannedCatalog(long lastModified, long length,
+                Set<String> entries, boolean complete) {
+            super(lastModified, length, complete);
+            this.entries = entries;
+            this.packages = new HashSet<>();
+            for (String n : entries) {
+                int index = n.indexOf('/');
+                while (index >= 0) {
+                    packages.add(n.substring(0, index));
+                    index = n.indexOf('/', index + 1);
+                }
+            }
+        }
+
+        @Override
+        public boolean contains(String entryName) {
+            return entries.contains(entryName);
+        }
+
+        @Override
+        public boolean containsPackage(String packageName) {
+            return packages.contains(packageName);
+        }
+    }
+
+    /**
+     * The catalog of an archive saved in the index directory.  Entries and
+     * packages are looked up in the saved hash tables without decoding
+     * them.  A table that turns out to be malformed is taken to contain
+     * every name.
+     */
+    protected static class MappedCatalog extends Catalog {
+        protected final ByteBuffer buf;
+        protected final int entryTable;
+        protected final int entrySlots;
+        protected final int packageTable;
+        protected final int packageSlots;
+
+        protected MappedCatalog(long lastModified, long length,
+                boolean complete, ByteBuffer buf, int entryTable,
+                int entrySlots, int packageTable, int packageSlots) {
+            super(lastModified, length, complete);
+            this.buf = buf;
+            this.entryTable = entryTable;
+            this.entrySlots = entrySlots;
+            this.packageTable = packageTable;
+            this.packageSlots = packageSlots;
+        }
+
+        @Override
+        public boolean contains(String entryName) {
+            return probe(buf, entryTable, entrySlots, entryName);
+        }
+
+        @Override
+        public boolean containsPackage(String packageName) {
+            return probe(buf, packageTable, packageSlots, packageName);
+        }
+    }
+
+    /**
+     * The elements of a path with the catalogs of its archives, and a map
+     * from the entries looked up to the first element holding them.
+     */
+    public static class PathIndex {
+        /** Marks entries that no element of the path holds. */
+        protected static final File NOWHERE = new File("");
+
+        /** The maximum number of entries in each map of an index. */
+        protected static final int MAX_ENTRIES = 1 << 16;
+
+        protected final File[] elements;
+
+        /**
+         * The catalogs of the archives on the path; null for directories
+         * and for archives that could not be read.
+         */
+        protected final Catalog[] catalogs;
+
+        /** The files in each package directory of each directory. */
+        protected final List<Map<String, Set<String>>> listings;
+
+        /** The first element of the path holding each entry looked up. */
+        protected final Map<String, File> located =
+                new ConcurrentHashMap<>();
+
+        protected PathIndex(ClasspathIndex index, Iterable<? extends File> path) {
+            List<File> l = new ArrayList<>();
+            for (File f : path) {
+                l.add(f);
+            }
+            elements = l.toArray(new File[l.size()]);
+            catalogs = new Catalog[elements.length];
+            listings = new ArrayList<>(elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                if (elements[i].isFile()) {
+                    catalogs[i] = index.catalog(elements[i]);
+                }
+                listings.add(new ConcurrentHashMap<String, Set<String>>());
+            }
+        }
+
+        /**
+         * Return the first element of the path that holds the entry
+         * {@code entryName} or might, or null if none does.
+         */
+        public File locate(String entryName) {
+            File f = located.get(entryName);
+            if (f == null) {
+                f = search(entryName);
+                if (located.size() >= MAX_ENTRIES) located.clear();
+                located.put(entryName, f == null ? NOWHERE : f);
+            }
+            return f == NOWHERE ? null : f;
+        }
+
+        protected File search(String entryName) {
+            int slash = entryName.lastIndexOf('/');
+            String packagePath = slash < 0 ? "" : entryName.substring(0, slash);
+            String fileName = entryName.substring(slash + 1);
+            for (int i = 0; i < elements.length; i++) {
+                File f = elements[i];
+                Catalog c = catalogs[i];
+                if (c != null) {
+                    if (!c.complete || c.contains(entryName)) return f;
+                }
+                else if (f.isFile()) {
+                    // An archive that could not be indexed.
+                    return f;
+                }
+                else if (list(i, packagePath).contains(fileName)) {
+                    return f;
+                }
+            }
+            return null;
+        }
+
+        /** Return the names of the files in a package directory. */
+        protected Set<String> list(int element, String packagePath) {
+            Map<String, Set<String>> m = listings.get(element);
+            Set<String> names = m.get(packagePath);
+            if (names == null) {
+                File dir =
+                        new File(elements[element],
+                                 packagePath.replace('/', separatorChar));
+                String[] files = dir.list();
+                names =
+                        files == null
+                                ? Collections.<String> emptySet()
+                                : new HashSet<>(Arrays.asList(files));
+                if (m.size() >= MAX_ENTRIES) m.clear();
+                m.put(packagePath, names);
+            }
+            return names;
+        }
+
+        /**
+         * Forget the contents of the directories on the path, after a file
+         * may have been written into one of them.
+         */
+        public void invalidateDirectories() {
+            for (Map<String, Set<String>> m : listings) {
+                m.clear();
+            }
+            located.clear();
+        }
+    }
+
+    /** Return an index of the elements of {@code path}. */
+    public PathIndex pathIndex(Iterable<? extends File> path) {
+        return new PathIndex(this, path);
+    }
+
+    /**
+     * Return the catalog of the archive {@code archive}, or null if it
+     * cannot be read.
+     */
+    public Catalog catalog(File archive) {
+        File key = archive.getAbsoluteFile();
+        long lastModified = key.lastModified();
+        long length = key.length();
+
+        Catalog c;
+        synchronized (catalogs) {
+            c = catalogs.get(key);
+        }
+        if (c != null && c.lastModified == lastModified && c.length == length)
+            return c;
+
+        c = read(key, lastModified, length);
+        if (c == null) {
+            ScannedCatalog sc = scan(key, lastModified, length);
+            if (sc != null) write(key, sc);
+            c = sc;
+        }
+        if (c != null) {
+            synchronized (catalogs) {
+                catalogs.put(key, c);
+            }
+        }
+        return c;
+    }
+
+    /** Forget the catalog of the archive {@code archive}. */
+    public static void invalidate(File archive) {
+        synchronized (catalogs) {
+            catalogs.remove(archive.getAbsoluteFile());
+        }
+    }
+
+    /** Build the catalog of an archive by reading its entries. */
+    protected ScannedCatalog scan(File archive, long lastModified, long length) {
+        if (Report.should_report(TOPICS, 2))
+            Report.report(2, "Indexing " + archive);
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            Set<String> entries = new HashSet<>();
+            Enumeration<? extends ZipEntry> i = zip.entries();
+            while (i.hasMoreElements()) {
+                entries.add(i.nextElement().getName());
+            }
+
+            boolean complete = true;
+            ZipEntry me = zip.getEntry(JarFile.MANIFEST_NAME);
+            if (me != null) {
+                Manifest m = new Manifest(zip.getInputStream(me));
+                if (m.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null)
+                    complete = false;
+            }
+
+            return new ScannedCatalog(lastModified, length, entries, complete);
+        }
+        catch (IOException e) {
+            if (Report.should_report(TOPICS, 2))
+                Report.report(2, "Could not index " + archive + ": "
+                        + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Return the file in which the catalog of {@code archive} is saved. */
+    protected File indexFile(File archive) {
+        return new File(directory, archive.getName() + "-"
+                + Integer.toHexString(archive.getPath().hashCode()) + ".idx");
+    }
+
+    /*
+     * A saved catalog consists of a header, two hash tables and the names
+     * they refer to:
+     *
+     *   int magic, int version, long lastModified, long length,
+     *   string archive path, byte complete,
+     *   int entry slots, int package slots,
+     *   entry table, package table, names
+     *
+     * Each table has a power of two number of slots, at most half of
+     * which are used.  A slot holds the String hash code of a name and the
+     * offset of the name in the file, or 0 if the slot is empty; collisions
+     * are resolved by linear probing.  Strings are an unsigned short length
+     * followed by UTF-8 bytes.
+     */
+
+    /**
+     * Map the saved catalog of an archive, returning null if there is none
+     * or it is out of date.  Only the header is read.
+     */
+    protected Catalog read(File archive, long lastModified, long length) {
+        if (directory == null) return null;
+        File file = indexFile(archive);
+        if (!file.isFile()) return null;
+
+        try (FileChannel ch =
+                FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            if (buf.getLong() != lastModified || buf.getLong() != length)
+                return null;
+            if (!readString(buf).equals(archive.getPath())) return null;
+            boolean complete = buf.get() != 0;
+            int entrySlots = buf.getInt();
+            int packageSlots = buf.getInt();
+            if (Integer.bitCount(entrySlots) != 1
+                    || Integer.bitCount(packageSlots) != 1) return null;
+            int entryTable = buf.position();
+            long packageTable = entryTable + 8L * entrySlots;
+            if (packageTable + 8L * packageSlots > buf.limit()) return null;
+            return new MappedCatalog(lastModified,
+                                     length,
+                                     complete,
+                                     buf,
+                                     entryTable,
+                                     entrySlots,
+                                     (int) packageTable,
+                                     packageSlots);
+        }
+        catch (IOException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /** Save the catalog of an archive, if there is an index directory. */
+    protected void write(File archive, ScannedCatalog c) {
+        if (directory == null) return;
+        File file = indexFile(archive);
+        File tmp = null;
+        try {
+            directory.mkdirs();
+            tmp = File.createTempFile(file.getName(), ".tmp", directory);
+            byte[] path = archive.getPath().getBytes(UTF8);
+            int entrySlots = slots(c.entries.size());
+            int packageSlots = slots(c.packages.size());
+            int offset =
+                    4 + 4 + 8 + 8 + 2 + path.length + 1 + 4 + 4 + 8
+                            * entrySlots + 8 * packageSlots;
+            List<byte[]> names = new ArrayList<>();
+            int[] entryTable = new int[2 * entrySlots];
+            offset = fill(entryTable, c.entries, names, offset);
+            int[] packageTable = new int[2 * packageSlots];
+            fill(packageTable, c.packages, names, offset);
+
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(c.lastModified);
+                out.writeLong(c.length);
+                out.writeShort(path.length);
+                out.write(path);
+                out.writeByte(c.complete ? 1 : 0);
+                out.writeInt(entrySlots);
+                out.writeInt(packageSlots);
+                for (int i : entryTable) {
+                    out.writeInt(i);
+                }
+                for (int i : packageTable) {
+                    out.writeInt(i);
+                }
+                for (byte[] b : names) {
+                    out.writeShort(b.length);
+                    out.write(b);
+                }
+            }
+            // Replace the file atomically, so that concurrent compilers
+            // never see a partial index.
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file)) tmp.delete();
+            }
+        }
+        catch (IOException e) {
+            if (tmp != null) tmp.delete();
+            if (Report.should_report(TOPICS, 2))
+                Report.report(2, "Could not save index of " + archive + ": "
+                        + e.getMessage());
+        }
+    }
+
+    /** Return the number of slots of a table of {@code n} names. */
+    protected static int slots(int n) {
+        int slots = 1;
+        while (slots < 2 * n) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    /**
+     * Enter {@code strings} into {@code table}, appending their encodings
+     * to {@code names}, which start at {@code offset} in the file.  Return
+     * the offset following the names appended.
+     */
+    protected static int fill(int[] table, Set<String> strings,
+            List<byte[]> names, int offset) {
+        int mask = table.length / 2 - 1;
+        for (String s : strings) {
+            int h = s.hashCode();
+            int i = h & mask;
+            while (table[2 * i + 1] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[2 * i] = h;
+            table[2 * i + 1] = offset;
+            byte[] b = s.getBytes(UTF8);
+            names.add(b);
+            offset += 2 + b.length;
+        }
+        return offset;
+    }
+
+    /**
+     * Return true if the saved table at {@code table} contains
+     * {@code name}, or is malformed.
+     */
+    protected static boolean probe(ByteBuffer buf, int table, int slots,
+            String name) {
+        int h = name.hashCode();
+        int mask = slots - 1;
+        byte[] b = null;
+        try {
+            for (int n = 0, i = h & mask; n < slots; n++, i = (i + 1) & mask) {
+                int slot = table + 8 * i;
+                int offset = buf.getInt(slot + 4);
+                if (offset == 0) return false;
+                if (buf.getInt(slot) != h) continue;
+                if (b == null) b = name.getBytes(UTF8);
+                if ((buf.getShort(offset) & 0xffff) != b.length) continue;
+                boolean equal = true;
+                for (int j = 0; equal && j < b.length; j++) {
+                    equal = buf.get(offset + 2 + j) == b[j];
+                }
+                if (equal) return true;
+            }
+            return false;
+        }
+        catch (IndexOutOfBoundsException e) {
+            return true;
+        }
+    }
+
+    protected static String readString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getShort() & 0xffff];
+        buf.get(b);
+        return new String(b, UTF8);
+    }
+}
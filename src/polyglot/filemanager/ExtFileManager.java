@@ -33,16 +33,15 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarFile;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
@@ -54,6 +53,7 @@ import javax.tools.StandardJavaFileManager;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.FileSource;
 import polyglot.frontend.Source;
+import polyglot.frontend.Stats;
 import polyglot.main.Main;
 import polyglot.main.Report;
 import polyglot.types.reflect.ClassFile;
@@ -74,14 +74,12 @@ public class ExtFileManager extends
     protected final ExtensionInfo extInfo;
     /** Map of sources already loaded */
     protected final Map<String, FileSource> loadedSources;
-    /** A cache for package look ups */
-    protected static final Map<String, Boolean> packageCache = new HashMap<>();
-    /** A cache for the class files that don't exist */
-    protected static final Set<String> nocache = new HashSet<>();
-
-    protected static final Map<File, Object> zipCache = new HashMap<>();
-
-    protected static final Object not_found = new Object();
+    /**
+     * Cache of package lookups and of the class files that don't exist,
+     * shared with file managers on the same paths.  Null until the first
+     * lookup after the paths are set.
+     */
+    protected LookupCache lookups;
 
     protected static final int BUF_SIZE = 1024 * 8;
 
@@ -116,7 +114,23 @@ public class ExtFileManager extends
      */
     protected final boolean inMemory;
 
-    protected static List<Location> default_locations;
+    protected final List<Location> default_locations;
+
+    /** Index of the archives on the class and source paths. */
+    protected final ClasspathIndex classpathIndex;
+
+    /** Indexes of the paths of the locations searched, by location. */
+    protected final Map<Location, ClasspathIndex.PathIndex> pathIndexes =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The hits and misses of the lookup cache not yet added to the stats of
+     * the extension, whose counters are synchronized.
+     */
+    protected final AtomicLong packageLookupHits = new AtomicLong();
+    protected final AtomicLong packageLookupMisses = new AtomicLong();
+    protected final AtomicLong classLookupHits = new AtomicLong();
+    protected final AtomicLong classLookupMisses = new AtomicLong();
 
     public ExtFileManager(ExtensionInfo extInfo) {
         super(javaCompiler.getStandardFileManager(null, null, null));
@@ -124,17 +138,78 @@ public class ExtFileManager extends
         loadedSources = new HashMap<>();
         objectMap = new HashMap<>();
         inMemory = extInfo.getOptions().noOutputToFS;
-        List<Location> defaultLocations = extInfo.defaultLocations();
-        if (!defaultLocations.equals(default_locations)) {
-            default_locations = defaultLocations;
-            clearCache();
-        }
+        classpathIndex =
+                new ClasspathIndex(extInfo.getOptions().classpath_index);
+        default_locations = extInfo.defaultLocations();
+    }
+
+    /** Clear the package and class file caches of this file manager. */
+    /**
+     * Add the counts not yet added to {@code stats}, as at the end of a
+     * compilation.
+     */
+    public void publishStats(Stats stats) {
+        stats.accumCount("package lookup hits", packageLookupHits);
+        stats.accumCount("package lookup misses", packageLookupMisses);
+        stats.accumCount("class lookup hits", classLookupHits);
+        stats.accumCount("class lookup misses", classLookupMisses);
     }
 
     protected void clearCache() {
-        packageCache.clear();
-        nocache.clear();
-        zipCache.clear();
+        lookupCache().clear();
+    }
+
+    /**
+     * Clear the package and class file caches shared by all file managers,
+     * so that a later compilation in the same VM sees changes to the class
+     * path.
+     */
+    public static void clearCaches() {
+        LookupCache.clearAll();
+    }
+
+    /**
+     * Forget what is known about the files on {@code location}, after
+     * they have changed.
+     */
+    public void invalidate(Location location) {
+        clearCache();
+        pathIndexes.remove(location);
+        Iterable<? extends File> path = getLocation(location);
+        if (path != null) {
+            for (File f : path) {
+                ClasspathIndex.invalidate(f);
+            }
+        }
+    }
+
+    /**
+     * Return the lookup cache for the default locations and the source
+     * path of this file manager.
+     */
+    protected LookupCache lookupCache() {
+        if (lookups == null) {
+            List<Object> key = new ArrayList<>();
+            for (Location l : default_locations) {
+                key.add(l);
+                key.add(pathOf(l));
+            }
+            Location sp = extInfo.getOptions().source_path;
+            key.add(sp);
+            key.add(pathOf(sp));
+            lookups = LookupCache.forPath(key);
+        }
+        return lookups;
+    }
+
+    protected List<File> pathOf(Location location) {
+        Iterable<? extends File> files = getLocation(location);
+        if (files == null) return null;
+        List<File> l = new ArrayList<>();
+        for (File f : files) {
+            l.add(f);
+        }
+        return l;
     }
 
     @Override
@@ -188,6 +263,10 @@ public class ExtFileManager extends
             locMap.put(key, jfo);
             return jfo;
         }
+        // The file may be written into a directory on a searched path.
+        for (ClasspathIndex.PathIndex index : pathIndexes.values()) {
+            index.invalidateDirectories();
+        }
         return super.getFileForOutput(location,
                                       packageName,
                                       relativeName,
@@ -284,64 +363,28 @@ public class ExtFileManager extends
     public void setLocation(Location location, Iterable<? extends File> path)
             throws IOException {
         fileManager.setLocation(location, path);
+        lookups = null;
+        pathIndexes.remove(location);
     }
 
     @Override
     public boolean packageExists(String name) {
-        if (packageCache.containsKey(name)) return packageCache.get(name);
+        LookupCache cache = lookupCache();
+        Boolean b = cache.packageExists(name);
+        if (b != null) {
+            packageLookupHits.incrementAndGet();
+            return b;
+        }
+        packageLookupMisses.incrementAndGet();
         boolean exists = false;
         for (int i = default_locations.size() - 1; !exists && i >= 0; i--)
             exists = packageExists(default_locations.get(i), name);
         if (!exists)
             exists = packageExists(extInfo.getOptions().source_path, name);
-        packageCache.put(name, exists);
+        cache.putPackage(name, exists);
         return exists;
     }
 
-    protected static ZipFile loadZip(File dir) throws IOException {
-        Object o = zipCache.get(dir);
-        if (o != not_found) {
-            ZipFile zip = (ZipFile) o;
-            if (zip != null) {
-                return zip;
-            }
-            else {
-                // the zip is not in the cache.
-                // try to get it.
-                if (!dir.exists()) {
-                    // record that the file does not exist,
-                    zipCache.put(dir, not_found);
-                }
-                else {
-                    // get the zip and put it in the cache.
-                    if (Report.should_report(verbose, 2))
-                        Report.report(2, "Opening zip " + dir);
-                    if (dir.getName().endsWith(".jar")) {
-                        zip = new JarFile(dir);
-                    }
-                    else {
-                        zip = new ZipFile(dir);
-                    }
-                    zipCache.put(dir, zip);
-
-                    // Load the package cache
-                    Enumeration<? extends ZipEntry> i = zip.entries();
-                    while (i.hasMoreElements()) {
-                        ZipEntry ei = i.nextElement();
-                        String n = ei.getName();
-                        int index = n.indexOf('/');
-                        while (index >= 0) {
-                            packageCache.put(n.substring(0, index), true);
-                            index = n.indexOf('/', index + 1);
-                        }
-                    }
-                    return zip;
-                }
-            }
-        }
-        return null;
-    }
-
     @Override
     public boolean packageExists(Location location, String name) {
         Iterable<? extends File> files = getLocation(location);
@@ -350,14 +393,8 @@ public class ExtFileManager extends
             String fileName = f.getName();
             if (fileName.endsWith(".jar") || fileName.endsWith(".zip")) {
                 String entryName = name.replace('.', '/');
-                try {
-                    loadZip(f);
-                }
-                catch (IOException e) {
-                    throw new InternalCompilerError(e);
-                }
-                Boolean contains = packageCache.get(entryName);
-                if (contains != null && contains) return true;
+                ClasspathIndex.Catalog c = classpathIndex.catalog(f);
+                if (c != null && c.containsPackage(entryName)) return true;
             }
             else {
                 String filePath = name.replace('.', File.separatorChar);
@@ -377,13 +414,18 @@ public class ExtFileManager extends
 
     @Override
     public ClassFile loadFile(String name) {
-        if (nocache.contains(name)) return null;
+        LookupCache cache = lookupCache();
+        if (cache.isMissing(name)) {
+            classLookupHits.incrementAndGet();
+            return null;
+        }
+        classLookupMisses.incrementAndGet();
         ClassFile clazz = null;
         for (int i = default_locations.size() - 1; i >= 0; i--) {
             clazz = loadFile(default_locations.get(i), name);
             if (clazz != null) break;
         }
-        if (clazz == null) nocache.add(name);
+        if (clazz == null) cache.putMissing(name);
         return clazz;
     }
 
@@ -397,6 +439,17 @@ public class ExtFileManager extends
                     + getLocation(location));
         }
 
+        String pkg = StringUtil.getPackageComponent(name);
+        String relativeName =
+                StringUtil.getShortNameComponent(name) + Kind.CLASS.extension;
+        if (!mayContain(location, pkg, relativeName)) {
+            if (Report.should_report(report_topics, 4)) {
+                Report.report(4, "Class " + name + " not in index of "
+                        + location);
+            }
+            return null;
+        }
+
         try {
             JavaFileObject jfo = null;
             try {
@@ -538,7 +591,7 @@ public class ExtFileManager extends
             }
         }
 
-        if (Report.should_report(Report.loader, 2))
+        if (Report.should_report(Report.LOADER, 2))
             Report.report(2, "Loading class from " + sourceFile);
 
         if (sourceFile != null) {
@@ -585,6 +638,8 @@ public class ExtFileManager extends
                 return source;
             }
 
+            if (!mayContain(location, pkgName, fileName)) continue;
+
             FileObject fo;
             try {
                 fo = getFileForInput(location, pkgName, fileName);
@@ -596,7 +651,7 @@ public class ExtFileManager extends
 
             try {
                 source = extInfo.createFileSource(fo, Source.Kind.DEPENDENCY);
-                if (Report.should_report(Report.loader, 2))
+                if (Report.should_report(Report.LOADER, 2))
                     Report.report(2, "Loading " + className + " from " + source);
 
                 loadedSources.put(key, source);
@@ -608,6 +663,38 @@ public class ExtFileManager extends
         return null;
     }
 
+    /**
+     * Return false if the index of the path of {@code location} shows
+     * that it has no file {@code relativeName} in package
+     * {@code packageName}.
+     */
+    protected boolean mayContain(Location location, String packageName,
+            String relativeName) {
+        if (inMemory && objectMap.containsKey(location)) return true;
+        ClasspathIndex.PathIndex index = pathIndex(location);
+        // The platform classes may not be on a path of files.
+        if (index == null) return true;
+        String entryName = relativeName;
+        if (!packageName.isEmpty())
+            entryName = packageName.replace('.', '/') + "/" + relativeName;
+        return index.locate(entryName) != null;
+    }
+
+    /**
+     * Return the index of the path of {@code location}, or null if the
+     * location has no path of files.
+     */
+    protected ClasspathIndex.PathIndex pathIndex(Location location) {
+        ClasspathIndex.PathIndex index = pathIndexes.get(location);
+        if (index == null) {
+            Iterable<? extends File> path = getLocation(location);
+            if (path == null || !path.iterator().hasNext()) return null;
+            index = classpathIndex.pathIndex(path);
+            pathIndexes.put(location, index);
+        }
+        return index;
+    }
+
     protected String fileKey(Location location, String packageName,
             String fileName) {
         if (caseInsensitive())
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.filemanager;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The results of package and class file lookups on one combination of
+ * class and source paths.  Caches are shared by all file managers with
+ * the same paths and may be used concurrently; the number of caches and
+ * the number of entries in each are bounded.
+ */
+public class LookupCache {
+    /** The maximum number of paths for which lookups are cached. */
+    protected static final int MAX_PATHS = 16;
+
+    /**
+     * The maximum number of entries in each map of a cache, beyond which
+     * the map is cleared.
+     */
+    protected static final int MAX_ENTRIES = 1 << 16;
+
+    /** Caches by path, least recently used first. */
+    protected static final Map<List<Object>, LookupCache> caches =
+            new LinkedHashMap<>(MAX_PATHS, 0.75f, true);
+
+    /**
+     * Return the cache for {@code path}, a list of the locations searched
+     * and the files on each.
+     */
+    public static LookupCache forPath(List<Object> path) {
+        synchronized (caches) {
+            LookupCache c = caches.get(path);
+            if (c == null) {
+                c = new LookupCache();
+                caches.put(path, c);
+                if (caches.size() > MAX_PATHS) {
+                    Iterator<LookupCache> i = caches.values().iterator();
+                    i.next();
+                    i.remove();
+                }
+            }
+            return c;
+        }
+    }
+
+    /** Clear the caches of all paths. */
+    public static void clearAll() {
+        synchronized (caches) {
+            for (LookupCache c : caches.values()) {
+                c.clear();
+            }
+            caches.clear();
+        }
+    }
+
+    /** Whether each package looked up exists. */
+    protected final ConcurrentMap<String, Boolean> packages =
+            new ConcurrentHashMap<>();
+
+    /** Classes for which no class file exists. */
+    protected final Set<String> missingClasses =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Return whether package {@code name} exists, or null if it has not
+     * been looked up.
+     */
+    public Boolean packageExists(String name) {
+        return packages.get(name);
+    }
+
+    public void putPackage(String name, boolean exists) {
+        if (packages.size() >= MAX_ENTRIES) packages.clear();
+        packages.put(name, exists);
+    }
+
+    /** Return true if class {@code name} is known to have no class file. */
+    public boolean isMissing(String name) {
+        return missingClasses.contains(name);
+    }
+
+    public void putMissing(String name) {
+        if (missingClasses.size() >= MAX_ENTRIES) missingClasses.clear();
+        missingClasses.add(name);
+    }
+
+    public void clear() {
+        packages.clear();
+        missingClasses.clear();
+    }
+}
@@ -48,6 +48,7 @@ import polyglot.main.Version;
 import polyglot.translate.ext.ToExt;
 import polyglot.translate.ext.ToExt_c;
 import polyglot.types.TypeSystem;
+import polyglot.types.TypeSystem_c;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLoader;
 import polyglot.types.reflect.ClassFile_c;
@@ -310,13 +311,58 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
         return null;
     }
 
+    /**
+     * Prepare this extension to compile other sources with the same
+     * options in the same VM, as done by the compiler server.  The class
+     * types that the type system can keep are kept; the options, compiler,
+     * scheduler, and everything else that depends on the previous
+     * compilation are dropped, to be created again.  Return false if this
+     * extension cannot be reused, in which case a new one must be created.
+     */
+    public boolean prepareRebuild() {
+        ExtensionInfo out = outputExtensionInfo();
+        if (out != null
+                && !(out instanceof AbstractExtensionInfo && ((AbstractExtensionInfo) out).prepareRebuild())) {
+            return false;
+        }
+        // A type system dropped by cleanup() is simply created again.
+        if (ts != null
+                && !(ts instanceof TypeSystem_c && ((TypeSystem_c) ts).prepareRebuild())) {
+            return false;
+        }
+
+        compiler = null;
+        options = null;
+        target_factory = null;
+        stats = null;
+        scheduler = null;
+        extFM = null;
+        classFileLoader = null;
+        default_locations = null;
+        return true;
+    }
+
     @Override
     public void cleanup() {
         // Flush the outputFiles collection
         compiler().outputFiles().clear();
+        publishStats();
         ts = null;
     }
 
+    /**
+     * Add the counts kept by the type system and the file manager to the
+     * stats, as at the end of a compilation.
+     */
+    public void publishStats() {
+        if (ts instanceof TypeSystem_c) {
+            ((TypeSystem_c) ts).publishStats(getStats());
+        }
+        if (extFM instanceof ExtFileManager) {
+            ((ExtFileManager) extFM).publishStats(getStats());
+        }
+    }
+
     @Override
     public List<Location> defaultLocations() {
         if (default_locations == null) {
@@ -26,7 +26,9 @@
 
 package polyglot.frontend;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
@@ -45,6 +47,7 @@ import polyglot.util.CodeWriter;
 import polyglot.util.ErrorInfo;
 import polyglot.util.ErrorLimitError;
 import polyglot.util.ErrorQueue;
+import polyglot.util.FileTable;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.OptimalCodeWriter;
 import polyglot.util.SimpleCodeWriter;
@@ -65,6 +68,13 @@ public class Compiler {
     /** The error queue handles outputting error messages. */
     private ErrorQueue eq;
 
+    /**
+     * Error queues that replace {@code eq} on individual threads, used to
+     * buffer the errors of passes run concurrently.
+     */
+    private final ThreadLocal<ErrorQueue> threadErrorQueue =
+            new ThreadLocal<>();
+
     /**
      * Class file loader.  There should be only one of these so we can cache
      * across type systems.
@@ -77,6 +87,15 @@ public class Compiler {
      */
     private Collection<JavaFileObject> outputFiles = new LinkedHashSet<>();
 
+    /**
+     * The cache of unchanged sources, or null if incremental compilation is
+     * disabled.
+     */
+    private IncrementalCache incrementalCache;
+
+    /** The table of the source files of positions of this compilation. */
+    private final FileTable fileTable = new FileTable();
+
     /**
      * Initialize the compiler.
      *
@@ -101,6 +120,13 @@ public class Compiler {
 
         loader = extensionInfo.classFileLoader();
 
+        Options options = extensionInfo.getOptions();
+        if (options.incremental_cache != null && !options.noOutputToFS) {
+            incrementalCache =
+                    new IncrementalCache(extensionInfo,
+                                         options.incremental_cache);
+        }
+
         // This must be done last.
         extensionInfo.initCompiler(this);
     }
@@ -110,6 +136,19 @@ public class Compiler {
         return outputFiles;
     }
 
+    /** Return the table of the source files of positions. */
+    public FileTable fileTable() {
+        return fileTable;
+    }
+
+    /**
+     * Return the cache of unchanged sources, or null if incremental
+     * compilation is disabled.
+     */
+    public IncrementalCache incrementalCache() {
+        return incrementalCache;
+    }
+
     /**
      * Compile all the files listed in the set of strings {@code source}.
      * Return true on success. The method {@code outputFiles} can be
@@ -181,12 +220,30 @@ public class Compiler {
      * point for the compiler, called from main().
      */
     public boolean compile(Collection<FileSource> sources) {
-        return runToGoal(sources, new GoalFactory() {
+        if (incrementalCache != null) {
+            sources = incrementalCache.filterUnchanged(sources);
+        }
+
+        boolean okay = runToGoal(sources, new GoalFactory() {
             @Override
             public Goal getGoal(Job job) {
                 return sourceExtension().getCompileGoal(job);
             }
         });
+
+        if (okay && incrementalCache != null) {
+            try {
+                incrementalCache.save();
+            }
+            catch (IOException e) {
+                eq.enqueue(ErrorInfo.IO_ERROR,
+                           "Unable to write incremental cache: "
+                                   + e.getMessage());
+                eq.flush();
+            }
+        }
+
+        return okay;
     }
 
     /**
@@ -210,6 +267,7 @@ public class Compiler {
     private boolean runToGoal(Collection<? extends Source> sources,
             GoalFactory goalFactory) {
         boolean okay = false;
+        FileTable outerTable = FileTable.setCurrent(fileTable);
 
         try {
             try {
@@ -252,15 +310,48 @@ public class Compiler {
         }
         catch (ErrorLimitError e) {
         }
+        finally {
+            FileTable.setCurrent(outerTable);
+        }
 
         eq.flush();
 
-        for (ExtensionInfo ext : allExtensions)
+        for (ExtensionInfo ext : allExtensions) {
+            if (ext instanceof AbstractExtensionInfo)
+                ((AbstractExtensionInfo) ext).publishStats();
             ext.getStats().report();
+        }
+
+        File statsFile = extensionInfo.getOptions().stats_file;
+        if (statsFile != null) {
+            writeStats(statsFile);
+        }
 
         return okay;
     }
 
+    /**
+     * Write the statistics collected by the active extensions to
+     * {@code file} as a JSON array.
+     */
+    protected void writeStats(File file) {
+        try (Writer w = new FileWriter(file)) {
+            w.write("[");
+            String sep = "";
+            for (ExtensionInfo ext : allExtensions) {
+                w.write(sep);
+                ext.getStats().writeJSON(w);
+                sep = ",\n";
+            }
+            w.write("]\n");
+        }
+        catch (IOException e) {
+            eq.enqueue(ErrorInfo.IO_ERROR, "Unable to write statistics to "
+                    + file + ": " + e.getMessage());
+            eq.flush();
+        }
+    }
+
     /** Get the compiler's class file loader. */
     public ClassFileLoader loader() {
         return loader;
@@ -274,6 +365,9 @@ public class Compiler {
     /** Return a list of all languages extensions active in the compiler. */
     public void addExtension(ExtensionInfo ext) {
         allExtensions.add(ext);
+        if (extensionInfo.getOptions().stats_file != null) {
+            ext.getStats().setTelemetry(true);
+        }
     }
 
     /** Return a list of all languages extensions active in the compiler. */
@@ -298,9 +392,22 @@ public class Compiler {
 
     /** Get the compiler's error queue. */
     public ErrorQueue errorQueue() {
+        ErrorQueue q = threadErrorQueue.get();
+        if (q != null) return q;
         return eq;
     }
 
+    /**
+     * Redirect the errors reported on the current thread to {@code q}.
+     * If {@code q} is null, errors are again reported to the compiler's
+     * error queue.
+     */
+    public void setThreadErrorQueue(ErrorQueue q) {
+        if (q == null)
+            threadErrorQueue.remove();
+        else threadErrorQueue.set(q);
+    }
+
     static {
         // FIXME: if we get an io error (due to too many files open, for example)
         // it will throw an exception. but, we won't be able to do anything with
@@ -0,0 +1,581 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.frontend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import javax.tools.JavaFileObject;
+
+import polyglot.main.OptFlag.Arg;
+import polyglot.main.Options;
+import polyglot.main.Report;
+import polyglot.types.ClassType;
+import polyglot.types.Named;
+import polyglot.types.ParsedClassType;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.TypeEncoder;
+
+/**
+ * An {@code IncrementalCache} remembers, across compiler invocations, the
+ * content hash of each compiled source, the class types the source
+ * resolved through the system resolver, the files generated for it, and
+ * its encoded class types.
+ *
+ * A cached source is clean if its content and generated files are
+ * unchanged and no source defining a type it depends on is dirty.  Clean
+ * sources are omitted from the compilation; their types are decoded from
+ * the cache when other sources refer to them.  Types that no cached
+ * source defines are assumed to come from the class path, the names, sizes
+ * and modification times of whose entries are part of the cache key
+ * together with the other command-line options.
+ *
+ * Sources compiled by goals running concurrently under {@code -parallel}
+ * may be recorded at the same time, so the entries of the current run are
+ * kept in concurrent collections.
+ */
+public class IncrementalCache {
+    protected static final String MAGIC = "polyglot-incremental-cache-1";
+
+    protected static class Entry {
+        /** Hash of the source contents. */
+        protected String hash;
+
+        /** Names of the top-level class types the source resolved. */
+        protected final Set<String> dependencies =
+                new ConcurrentSkipListSet<>();
+
+        /** Paths of the files generated for the source. */
+        protected final Set<String> outputs = new ConcurrentSkipListSet<>();
+
+        /** Map from names of the types the source defines to their encoding. */
+        protected final Map<String, String> types = new TreeMap<>();
+    }
+
+    protected ExtensionInfo extInfo;
+    protected File file;
+    protected String key;
+
+    /** Entries read from the cache file, keyed by source path. */
+    protected Map<String, Entry> previous;
+
+    /** Paths of the sources in {@code previous} that are clean. */
+    protected Set<String> clean;
+
+    /** Map from type names to the paths of the cached sources defining them. */
+    protected Map<String, String> typeSources;
+
+    /** Entries for the sources compiled in this run, keyed by source path. */
+    protected ConcurrentMap<String, Entry> current;
+
+    /** Class types defined by the sources compiled in this run. */
+    protected ConcurrentMap<String, Map<String, ParsedClassType>> currentTypes;
+
+    public IncrementalCache(ExtensionInfo extInfo, File file) {
+        this.extInfo = extInfo;
+        this.file = file;
+        this.key = key(extInfo);
+        this.previous = new LinkedHashMap<>();
+        this.clean = new LinkedHashSet<>();
+        this.typeSources = new HashMap<>();
+        this.current = new ConcurrentHashMap<>();
+        this.currentTypes = new ConcurrentHashMap<>();
+        load();
+    }
+
+    /**
+     * Return the key identifying the configuration the cache was built
+     * with.
+     */
+    protected String key(ExtensionInfo extInfo) {
+        return configurationKey(extInfo);
+    }
+
+    /**
+     * Return a key identifying the configuration of {@code extInfo}: the
+     * compiler, its version, the non-source options that can affect the
+     * output, and the state of the class path.  Two compilations with the
+     * same key differ only in their sources.
+     */
+    public static String configurationKey(ExtensionInfo extInfo) {
+        return configurationKey(extInfo, true);
+    }
+
+    /**
+     * Return a key identifying the configuration of {@code extInfo}, as
+     * {@link #configurationKey(ExtensionInfo)}.  If {@code classFiles} is
+     * false, the class files in directories on the class path are not
+     * stamped, only the paths of the directories.
+     */
+    public static String configurationKey(ExtensionInfo extInfo,
+            boolean classFiles) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(extInfo.compilerName());
+        sb.append(' ');
+        sb.append(extInfo.version().name());
+        sb.append(' ');
+        sb.append(extInfo.version());
+        Options options = extInfo.getOptions();
+        for (Arg<?> arg : options.arguments()) {
+            if (arg.flag() != null && affectsOutput(arg)) {
+                sb.append(' ');
+                sb.append(arg);
+            }
+        }
+        sb.append(" classpath=");
+        sb.append(classpathStamp(options, classFiles));
+        return sb.toString();
+    }
+
+    /**
+     * Return a hash of the names, sizes and modification times of the
+     * archives on the class path and boot class path, and of the class
+     * files in their directories, so that a changed dependency changes the
+     * configuration key.  Output directories are skipped, since they change
+     * with every build and hold only the files the cache already tracks.
+     */
+    public static String classpathStamp(Options options) {
+        return classpathStamp(options, true);
+    }
+
+    /**
+     * Return a hash of the class path and boot class path, as
+     * {@link #classpathStamp(Options)}.  If {@code classFiles} is false,
+     * directories are stamped by their paths alone, so that no directory
+     * is walked.
+     */
+    public static String classpathStamp(Options options, boolean classFiles) {
+        Set<File> skip = new HashSet<>();
+        if (options.classOutputDirectory() != null)
+            skip.add(options.classOutputDirectory().getAbsoluteFile());
+        if (options.sourceOutputDirectory() != null)
+            skip.add(options.sourceOutputDirectory().getAbsoluteFile());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.getProperty("java.version"));
+        List<File> path = new ArrayList<>();
+        path.addAll(options.bootclasspathDirectories());
+        path.addAll(options.classpathDirectories());
+        for (File f : path) {
+            f = f.getAbsoluteFile();
+            if (!classFiles && f.isDirectory()) {
+                sb.append(' ');
+                sb.append(f.getPath());
+            }
+            else stamp(sb, f, skip);
+        }
+        return hash(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Append the name, size and modification time of {@code f} to
+     * {@code sb}, or of the class files below it if it is a directory not
+     * in {@code skip}.
+     */
+    protected static void stamp(StringBuilder sb, File f, Set<File> skip) {
+        if (f.isDirectory()) {
+            if (skip.contains(f)) return;
+            File[] files = f.listFiles();
+            if (files == null) return;
+            Arrays.sort(files);
+            for (File g : files) {
+                if (g.getName().startsWith(".")) continue;
+                if (g.isDirectory() || g.getName().endsWith(".class")) {
+                    stamp(sb, g, skip);
+                }
+            }
+        }
+        else {
+            sb.append(' ');
+            sb.append(f.getPath());
+            sb.append(':');
+            sb.append(f.length());
+            sb.append(':');
+            sb.append(f.lastModified());
+        }
+    }
+
+    /** Return false if {@code arg} only controls diagnostics or scheduling. */
+    protected static boolean affectsOutput(Arg<?> arg) {
+        Set<String> ids = arg.flag().ids();
+        for (String id : QUIET_FLAGS) {
+            if (ids.contains(id)) return false;
+        }
+        return true;
+    }
+
+    protected static final String[] QUIET_FLAGS =
+            { "-report", "-verbose", "-print-arguments", "-parallel",
+             "-incremental", "-classpath-index" };
+
+    /** Read the entries of the cache file, if it exists and matches the key. */
+    protected void load() {
+        if (!file.exists()) return;
+
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (!MAGIC.equals(readString(in)) || !key.equals(readString(in))) {
+                if (Report.should_report(Report.FRONTEND, 1))
+                    Report.report(1, "Ignoring incremental cache " + file
+                            + " built with other options or class path");
+                return;
+            }
+
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String path = readString(in);
+                Entry e = new Entry();
+                e.hash = readString(in);
+                int m = in.readInt();
+                for (int j = 0; j < m; j++)
+                    e.dependencies.add(readString(in));
+                m = in.readInt();
+                for (int j = 0; j < m; j++)
+                    e.outputs.add(readString(in));
+                m = in.readInt();
+                for (int j = 0; j < m; j++) {
+                    String name = readString(in);
+                    e.types.put(name, readString(in));
+                }
+                previous.put(path, e);
+            }
+        }
+        catch (IOException e) {
+            if (Report.should_report(Report.FRONTEND, 1))
+                Report.report(1, "Ignoring unreadable incremental cache "
+                        + file + ": " + e.getMessage());
+            previous.clear();
+            return;
+        }
+
+        for (Map.Entry<String, Entry> e : previous.entrySet()) {
+            for (String name : e.getValue().types.keySet()) {
+                typeSources.put(name, e.getKey());
+            }
+        }
+
+        computeClean();
+    }
+
+    /**
+     * Compute the set of clean sources: those whose contents and outputs
+     * are unchanged and whose dependencies are all clean.
+     */
+    protected void computeClean() {
+        for (Map.Entry<String, Entry> e : previous.entrySet()) {
+            String path = e.getKey();
+            Entry entry = e.getValue();
+            if (!entry.hash.equals(hash(path))) continue;
+            if (!outputsExist(entry)) continue;
+            clean.add(path);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String path : new ArrayList<>(clean)) {
+                for (String dep : previous.get(path).dependencies) {
+                    String depPath = typeSources.get(dep);
+                    if (depPath != null && !clean.contains(depPath)) {
+                        clean.remove(path);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (Report.should_report(Report.FRONTEND, 1))
+            Report.report(1, "Incremental cache: " + clean.size() + " of "
+                    + previous.size() + " sources unchanged");
+    }
+
+    protected boolean outputsExist(Entry entry) {
+        for (String output : entry.outputs) {
+            if (!new File(output).exists()) return false;
+        }
+        return true;
+    }
+
+    /** Return true if {@code source} is unchanged since it was cached. */
+    public boolean isClean(Source source) {
+        return clean.contains(source.path());
+    }
+
+    /**
+     * Return the sources of {@code sources} that must be compiled, omitting
+     * the clean ones.
+     */
+    public List<FileSource> filterUnchanged(Collection<FileSource> sources) {
+        List<FileSource> l = new ArrayList<>(sources.size());
+        for (FileSource source : sources) {
+            if (isClean(source)) {
+                if (Report.should_report(Report.FRONTEND, 2))
+                    Report.report(2, "Skipping unchanged " + source);
+            }
+            else l.add(source);
+        }
+        return l;
+    }
+
+    /**
+     * Return the encoded class type {@code name} if it is defined by a
+     * clean source, or null.
+     */
+    public String encodedType(String name) {
+        String path = typeSources.get(name);
+        if (path == null || !clean.contains(path)) return null;
+        return previous.get(path).types.get(name);
+    }
+
+    /**
+     * Return the names of the cached member classes of the class type
+     * {@code name}.  Deserialized class types do not record their member
+     * classes; they are added to the container when each member is loaded.
+     */
+    public List<String> memberTypes(String name) {
+        String path = typeSources.get(name);
+        if (path == null || !clean.contains(path))
+            return Collections.emptyList();
+
+        List<String> l = new ArrayList<>();
+        String prefix = name + ".";
+        for (String member : previous.get(path).types.keySet()) {
+            if (member.startsWith(prefix)
+                    && member.indexOf('.', prefix.length()) < 0) {
+                l.add(member);
+            }
+        }
+        return l;
+    }
+
+    /** Return a description of the origin of the cached type {@code name}. */
+    public String location(String name) {
+        return file + "@" + typeSources.get(name);
+    }
+
+    protected Entry entry(Source source) {
+        Entry e = current.get(source.path());
+        if (e == null) {
+            Entry old = current.putIfAbsent(source.path(), e = new Entry());
+            if (old != null) e = old;
+        }
+        return e;
+    }
+
+    /**
+     * Record that {@code job} resolved {@code n}.  Only class types are
+     * recorded, by the name of their top-level class.
+     */
+    public void addDependency(Job job, Named n) {
+        if (!(n instanceof ClassType)) return;
+        if (job.extensionInfo() != extInfo) return;
+
+        ClassType ct = (ClassType) n;
+        while (ct.isNested()) {
+            ct = ct.outer();
+        }
+        entry(job.source()).dependencies.add(ct.fullName());
+    }
+
+    /** Record the class type {@code ct} defined by a compiled source. */
+    public void addType(String name, ParsedClassType ct) {
+        Source source = ct.fromSource();
+        if (source == null) return;
+        if (!ct.isTopLevel() && !ct.isMember()) return;
+
+        entry(source);
+        Map<String, ParsedClassType> types = currentTypes.get(source.path());
+        if (types == null) {
+            types = new ConcurrentHashMap<>();
+            Map<String, ParsedClassType> old =
+                    currentTypes.putIfAbsent(source.path(), types);
+            if (old != null) types = old;
+        }
+        types.put(name, ct);
+    }
+
+    /** Record that {@code output} was generated for {@code source}. */
+    public void addOutput(Source source, JavaFileObject output) {
+        URI uri = output.toUri();
+        File f = uri.isAbsolute() ? new File(uri) : new File(uri.getPath());
+        entry(source).outputs.add(f.getPath());
+    }
+
+    /**
+     * Write the cache file, keeping the entries of clean sources and
+     * replacing those of the sources compiled in this run.
+     */
+    public void save() throws IOException {
+        Map<String, Entry> entries = new TreeMap<>();
+        for (String path : clean) {
+            entries.put(path, previous.get(path));
+        }
+
+        TypeEncoder te = new TypeEncoder(extInfo.typeSystem());
+        for (Map.Entry<String, Entry> e : current.entrySet()) {
+            String path = e.getKey();
+            Entry entry = e.getValue();
+            entry.hash = hash(path);
+            if (entry.hash == null) continue;
+
+            Map<String, ParsedClassType> types = currentTypes.get(path);
+            if (types != null) {
+                for (Map.Entry<String, ParsedClassType> t : types.entrySet()) {
+                    ParsedClassType ct = t.getValue();
+                    // Force the members to be created from the lazy class
+                    // initializer, as ClassSerializer does.
+                    ct.memberClasses();
+                    ct.constructors();
+                    ct.methods();
+                    ct.fields();
+                    ct.interfaces();
+                    ct.superType();
+                    entry.types.put(t.getKey(), te.encode(ct));
+                }
+            }
+            entries.put(path, entry);
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            writeString(out, MAGIC);
+            writeString(out, key);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                writeString(out, e.getKey());
+                writeString(out, entry.hash);
+                out.writeInt(entry.dependencies.size());
+                for (String dep : entry.dependencies)
+                    writeString(out, dep);
+                out.writeInt(entry.outputs.size());
+                for (String output : entry.outputs)
+                    writeString(out, output);
+                out.writeInt(entry.types.size());
+                for (Map.Entry<String, String> t : entry.types.entrySet()) {
+                    writeString(out, t.getKey());
+                    writeString(out, t.getValue());
+                }
+            }
+        }
+    }
+
+    /** Delete the cache file, so that the next build compiles every source. */
+    public void delete() {
+        file.delete();
+    }
+
+    /**
+     * Return the hash of the contents of the file at {@code path}, or null
+     * if the file cannot be read.
+     */
+    protected static String hash(String path) {
+        try (InputStream in = new FileInputStream(path)) {
+            MessageDigest md = digest();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+            return toHex(md.digest());
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Return the hash of {@code bytes}. */
+    protected static String hash(byte[] bytes) {
+        return toHex(digest().digest(bytes));
+    }
+
+    protected static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new InternalCompilerError(e);
+        }
+    }
+
+    protected static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    protected static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    @Override
+    public String toString() {
+        return "IncrementalCache(" + file + ")";
+    }
+}
@@ -26,6 +26,9 @@
 
 package polyglot.frontend;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import polyglot.ast.NodeFactory;
 import polyglot.frontend.goals.CodeGenerated;
 import polyglot.frontend.goals.ConstantsChecked;
@@ -68,6 +71,22 @@ public class JLScheduler extends Scheduler {
         super(extInfo);
     }
 
+    /**
+     * The dataflow and flow-insensitive checks that follow type checking
+     * only inspect the AST of the job they are run on.
+     */
+    @Override
+    public List<Goal> parallelizableGoals(Job job) {
+        List<Goal> l = new ArrayList<>();
+        l.add(ReachabilityChecked(job));
+        l.add(ExceptionsChecked(job));
+        l.add(ExitPathsChecked(job));
+        l.add(InitializationsChecked(job));
+        l.add(ConstructorCallsChecked(job));
+        l.add(ForwardReferencesChecked(job));
+        return l;
+    }
+
     @Override
     public Goal TypeExists(String name) {
         return TypeExists.create(this, name);
@@ -28,6 +28,7 @@ package polyglot.frontend;
 
 import polyglot.ast.Node;
 import polyglot.util.CodeWriter;
+import polyglot.visit.FlowGraphCache;
 
 /**
  * A {@code Job} encapsulates work done by the compiler for a single
@@ -62,6 +63,9 @@ public class Job {
     /** The {@code Source} that this {@code Job} represents. */
     protected Source source;
 
+    /** The flow graphs built for the code of the AST, or null. */
+    protected FlowGraphCache flowGraphCache;
+
     /**
      * Global constant representing a job that has been completed.
      */
@@ -118,9 +122,24 @@ public class Job {
 
     /** Set the state's AST. */
     public void ast(Node ast) {
+        if (ast != this.ast && flowGraphCache != null) {
+            // The flow graphs of the old AST will not be used again.
+            flowGraphCache.clear();
+        }
         this.ast = ast;
     }
 
+    /**
+     * The flow graphs built for the code of the AST, shared by the dataflow
+     * analyses run over the job.
+     */
+    public FlowGraphCache flowGraphCache() {
+        if (flowGraphCache == null) {
+            flowGraphCache = new FlowGraphCache();
+        }
+        return flowGraphCache;
+    }
+
     /** True if some pass reported an error. */
     public boolean reportedErrors() {
         return reportedErrors;
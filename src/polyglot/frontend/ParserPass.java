@@ -58,7 +58,7 @@ public class ParserPass extends AbstractPass {
 
             Parser p = goal.job().extensionInfo().parser(reader, source, eq);
 
-            if (Report.should_report(Report.frontend, 2))
+            if (Report.should_report(Report.FRONTEND, 2))
                 Report.report(2, "Using parser " + p);
 
             Node ast = p.parse();
@@ -36,6 +36,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import polyglot.ast.Lang;
 import polyglot.ast.Node;
@@ -47,9 +53,13 @@ import polyglot.main.Options;
 import polyglot.main.Report;
 import polyglot.types.FieldInstance;
 import polyglot.types.ParsedClassType;
+import polyglot.types.TypeSystem;
 import polyglot.util.ErrorInfo;
+import polyglot.util.ErrorLimitError;
 import polyglot.util.ErrorQueue;
+import polyglot.util.FileTable;
 import polyglot.util.InternalCompilerError;
+import polyglot.util.SilentErrorQueue;
 import polyglot.util.StringUtil;
 
 /**
@@ -74,6 +84,12 @@ import polyglot.util.StringUtil;
  * on this run so that it will be added back to the worklist; the pass
  * must also add any missing dependencies.
  *
+ * If the {@code -parallel} option requests more than one thread, the
+ * sources of the jobs in the worklist are first parsed concurrently, and
+ * then the goals returned by {@code parallelizableGoals} are run
+ * concurrently for those jobs, before the serial loop starts.  See
+ * {@code runParallelParsing} and {@code runParallelGoals}.
+ *
  * @author nystrom
  */
 public abstract class Scheduler {
@@ -100,23 +116,29 @@ public abstract class Scheduler {
     protected Map<Goal, Goal> goals;
 
     /** Map from goals to number of times a pass was run for the goal. */
-    protected Map<Goal, Integer> runCount;
+    protected ConcurrentMap<Goal, Integer> runCount;
 
     /** True if any pass has failed. */
-    protected boolean failed;
+    protected volatile boolean failed;
+
+    /**
+     * The pass currently running on each thread, or null if no pass is
+     * running on that thread.
+     */
+    protected ThreadLocal<Pass> currentPass;
 
-    /** The currently running pass, or null if no pass is running. */
-    protected Pass currentPass;
+    /** Report topic for dependence edges added to the goal graph. */
+    protected static final Report.Topic DEPS = Report.topic("deps");
 
     public Scheduler(ExtensionInfo extInfo) {
         this.extInfo = extInfo;
 
         jobs = new LinkedHashMap<>();
         goals = new LinkedHashMap<>();
-        runCount = new LinkedHashMap<>();
+        runCount = new ConcurrentHashMap<>();
         inWorklist = new LinkedHashSet<>();
         worklist = new LinkedList<>();
-        currentPass = null;
+        currentPass = new ThreadLocal<>();
     }
 
     public Collection<Job> commandLineJobs() {
@@ -148,8 +170,8 @@ public abstract class Scheduler {
      */
     public void addCorequisiteDependency(Goal goal, Goal subgoal) {
         if (!goal.corequisiteGoals(this).contains(subgoal)) {
-            if (Report.should_report(Report.frontend, 3)
-                    || Report.should_report("deps", 1))
+            if (Report.should_report(Report.FRONTEND, 3)
+                    || Report.should_report(DEPS, 1))
                 Report.report(3, "Adding coreq edge: " + subgoal + " -> "
                         + goal);
             goal.addCorequisiteGoal(subgoal, this);
@@ -189,8 +211,8 @@ public abstract class Scheduler {
     public void addPrerequisiteDependency(Goal goal, Goal subgoal)
             throws CyclicDependencyException {
         if (!goal.prerequisiteGoals(this).contains(subgoal)) {
-            if (Report.should_report(Report.frontend, 3)
-                    || Report.should_report("deps", 1))
+            if (Report.should_report(Report.FRONTEND, 3)
+                    || Report.should_report(DEPS, 1))
                 Report.report(3, "Adding prereq edge: " + subgoal + " => "
                         + goal);
             goal.addPrerequisiteGoal(subgoal, this);
@@ -218,16 +240,16 @@ public abstract class Scheduler {
         if (g == null) {
             g = goal;
             goals.put(g, g);
-            if (Report.should_report(Report.frontend, 4))
+            if (Report.should_report(Report.FRONTEND, 4))
                 Report.report(4, "new goal " + g);
-            if (Report.should_report(Report.frontend, 5))
+            if (Report.should_report(Report.FRONTEND, 5))
                 Report.report(5, "goals = " + goals.keySet());
         }
         return g;
     }
 
     /** Add {@code goal} to the worklist. */
-    public void addGoal(Goal goal) {
+    public synchronized void addGoal(Goal goal) {
         if (!inWorklist.contains(goal)) {
             inWorklist.add(goal);
             worklist.add(goal);
@@ -249,7 +271,7 @@ public abstract class Scheduler {
     protected void completeJob(Job job) {
         if (job != null) {
             jobs.put(job.source(), Job.COMPLETED);
-            if (Report.should_report(Report.frontend, 1)) {
+            if (Report.should_report(Report.FRONTEND, 1)) {
                 Report.report(1, "Completed job " + job);
             }
         }
@@ -327,11 +349,17 @@ public abstract class Scheduler {
 
         boolean okay = true;
 
+        int parallelism = extInfo.getOptions().parallelism;
+        if (parallelism > 1) {
+            runParallelParsing(parallelism);
+            okay = runParallelGoals(parallelism);
+        }
+
         while (okay && !reached(theEnd)) {
             okay = attemptGoal(theEnd);
         }
 
-        if (Report.should_report(Report.frontend, 1))
+        if (Report.should_report(Report.FRONTEND, 1))
             Report.report(1, "Finished all passes for "
                     + this.getClass().getName() + " -- "
                     + (okay ? "okay" : "failed"));
@@ -339,6 +367,281 @@ public abstract class Scheduler {
         return okay;
     }
 
+    /**
+     * Return the goals of {@code job} that, once their prerequisites outside
+     * the returned list are reached, depend on no other job.  The goals are
+     * returned in the order the serial scheduler reaches them.  When
+     * parallel scheduling is enabled, these goals are run concurrently for
+     * different jobs.  By default, no goals are run in parallel.
+     * <p>
+     * The passes of these goals run on worker threads.  Resolving names and
+     * reading the members of class types is safe, as both are done under
+     * the resolution lock of the type system; adding jobs and goals and
+     * reporting errors are synchronized as well.  Any other state shared among jobs that these
+     * passes touch, such as caches kept by the type system or the node
+     * factory of an extension, must be thread-safe; otherwise, the goals
+     * must not be returned here.
+     */
+    public List<Goal> parallelizableGoals(Job job) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Run the parallelizable goals of the jobs in the worklist on a
+     * fork-join pool of {@code parallelism} threads.  The remaining
+     * prerequisites of these goals are first reached serially, job by job,
+     * in worklist order.  Errors are buffered per job and replayed in the
+     * same order, stopping at the first failed goal, so the diagnostics
+     * are the same as those of the serial scheduler.  Jobs whose
+     * prerequisites cannot yet be reached are left to the serial loop.
+     *
+     * @return false if a goal failed.
+     */
+    protected boolean runParallelGoals(int parallelism) {
+        Compiler compiler = extInfo.compiler();
+        int limit = extInfo.getOptions().error_count;
+        String name = extInfo.compilerName();
+
+        Map<Job, List<Goal>> ready = new LinkedHashMap<>();
+        Map<Job, SilentErrorQueue> serialErrors = new LinkedHashMap<>();
+        boolean okay = true;
+
+        for (Goal goal : new ArrayList<>(worklist)) {
+            Job job = goal.job();
+            if (job == null) break;
+            if (serialErrors.containsKey(job)) continue;
+
+            List<Goal> goals = parallelizableGoals(job);
+            if (goals.isEmpty()) break;
+
+            SilentErrorQueue q = new SilentErrorQueue(limit, name);
+            serialErrors.put(job, q);
+
+            boolean runnable = true;
+            compiler.setThreadErrorQueue(q);
+            try {
+                for (Goal g : goals) {
+                    for (Goal subgoal : new ArrayList<>(g.prerequisiteGoals(this))) {
+                        if (goals.contains(subgoal)) continue;
+                        if (!attemptGoal(subgoal)) {
+                            okay = false;
+                        }
+                        else if (!reached(subgoal)) {
+                            runnable = false;
+                        }
+                        if (!okay || !runnable) break;
+                    }
+                    if (!okay || !runnable) break;
+                }
+            }
+            catch (ErrorLimitError e) {
+                // The limit is reached again when the errors are replayed.
+                okay = false;
+            }
+            finally {
+                compiler.setThreadErrorQueue(null);
+            }
+
+            if (!okay || !runnable) break;
+            ready.put(job, goals);
+        }
+
+        Map<Job, SilentErrorQueue> parallelErrors = new LinkedHashMap<>();
+        Map<Job, Future<Boolean>> results = new LinkedHashMap<>();
+
+        if (!ready.isEmpty()) {
+            // Load the standard exception classes here so that the
+            // workers do not contend for the resolution lock to load them.
+            TypeSystem ts = extInfo.typeSystem();
+            ts.Throwable();
+            ts.Error();
+            ts.RuntimeException();
+
+            List<Callable<Boolean>> tasks = new ArrayList<>(ready.size());
+            for (Map.Entry<Job, List<Goal>> e : ready.entrySet()) {
+                final List<Goal> goals = e.getValue();
+                final SilentErrorQueue q = new SilentErrorQueue(limit, name);
+                parallelErrors.put(e.getKey(), q);
+                tasks.add(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return runParallelGoals(goals, q);
+                    }
+                });
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<Future<Boolean>> futures = pool.invokeAll(tasks);
+                int i = 0;
+                for (Job job : ready.keySet()) {
+                    results.put(job, futures.get(i++));
+                }
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+
+        // Replay the errors in the order the serial scheduler reports them.
+        ErrorQueue eq = compiler.errorQueue();
+        for (Map.Entry<Job, SilentErrorQueue> e : serialErrors.entrySet()) {
+            Job job = e.getKey();
+            for (ErrorInfo error : e.getValue()) {
+                eq.enqueue(error);
+            }
+            if (ready.containsKey(job)) {
+                for (ErrorInfo error : parallelErrors.get(job)) {
+                    eq.enqueue(error);
+                }
+                if (!parallelResult(results.get(job))) {
+                    return false;
+                }
+            }
+        }
+
+        return okay;
+    }
+
+    /**
+     * Run {@code goals} in order on the current thread, reporting errors to
+     * {@code q}.  Stops at the first goal that cannot be reached yet.
+     *
+     * @return false if a goal failed.
+     */
+    protected boolean runParallelGoals(List<Goal> goals, ErrorQueue q) {
+        Compiler compiler = extInfo.compiler();
+        compiler.setThreadErrorQueue(q);
+        FileTable outerTable = FileTable.setCurrent(compiler.fileTable());
+        try {
+            for (Goal goal : goals) {
+                if (reached(goal)) continue;
+
+                for (Goal subgoal : goal.prerequisiteGoals(this)) {
+                    if (!reached(subgoal)) return true;
+                }
+
+                if (!runGoal(goal)) return false;
+                if (!reached(goal)) return true;
+            }
+            return true;
+        }
+        catch (ErrorLimitError e) {
+            return false;
+        }
+        finally {
+            FileTable.setCurrent(outerTable);
+            compiler.setThreadErrorQueue(null);
+        }
+    }
+
+    /**
+     * Parse the sources of the jobs in the worklist on a fork-join pool of
+     * {@code parallelism} threads, each job with its own parser, and mark
+     * their {@code Parsed} goals reached.  A job whose parse fails or
+     * reports any diagnostic is left unparsed, so that the serial loop
+     * parses it again at the point the serial scheduler would, reporting
+     * the same diagnostics in the same order.
+     */
+    protected void runParallelParsing(int parallelism) {
+        Options options = extInfo.getOptions();
+        final Compiler compiler = extInfo.compiler();
+        final int limit = options.error_count;
+        final String name = extInfo.compilerName();
+
+        Map<Job, Pass> passes = new LinkedHashMap<>();
+        for (Goal goal : worklist) {
+            Job job = goal.job();
+            if (job == null || passes.containsKey(job)) continue;
+            if (job.ast() != null || !job.status()) continue;
+
+            Goal parsed = Parsed(job);
+            if (reached(parsed) || !parsed.isReachable()) continue;
+            if (!parsed.prerequisiteGoals(this).isEmpty()) continue;
+
+            Pass pass = parsed.createPass(extInfo);
+            if (options.disable_passes.contains(pass.name())
+                    || options.print_ast.contains(pass.name())
+                    || options.dump_ast.contains(pass.name())) continue;
+
+            passes.put(job, pass);
+        }
+
+        if (passes.size() < 2) return;
+
+        initParallelParsing();
+
+        List<Callable<Boolean>> tasks = new ArrayList<>(passes.size());
+        for (final Pass pass : passes.values()) {
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    SilentErrorQueue q = new SilentErrorQueue(limit, name);
+                    compiler.setThreadErrorQueue(q);
+                    FileTable outerTable =
+                            FileTable.setCurrent(compiler.fileTable());
+                    currentPass.set(pass);
+                    try {
+                        return pass.run() && q.getErrors().isEmpty();
+                    }
+                    catch (RuntimeException e) {
+                        // Reported when the job is parsed again.
+                        return false;
+                    }
+                    finally {
+                        currentPass.set(null);
+                        FileTable.setCurrent(outerTable);
+                        compiler.setThreadErrorQueue(null);
+                    }
+                }
+            });
+        }
+
+        List<Future<Boolean>> futures;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            futures = pool.invokeAll(tasks);
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        int i = 0;
+        for (Map.Entry<Job, Pass> e : passes.entrySet()) {
+            Job job = e.getKey();
+            if (parallelResult(futures.get(i++)) && job.ast() != null) {
+                e.getValue().goal().setState(Goal.REACHED);
+            }
+            else {
+                job.ast(null);
+            }
+        }
+    }
+
+    /**
+     * Prepare the type system to be used by parsers running concurrently,
+     * for example by loading the classes that parser actions look up.
+     */
+    protected void initParallelParsing() {
+    }
+
+    private static boolean parallelResult(Future<Boolean> result) {
+        try {
+            return result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalCompilerError(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new InternalCompilerError(cause);
+        }
+    }
+
     /**
      * Load a source file and create a job for it.  Optionally add a goal
      * to compile the job to Java.
@@ -376,15 +679,17 @@ public abstract class Scheduler {
     }
 
     public Job currentJob() {
-        return currentPass != null ? currentPass.goal().job() : null;
+        Pass pass = currentPass.get();
+        return pass != null ? pass.goal().job() : null;
     }
 
     public Pass currentPass() {
-        return currentPass;
+        return currentPass.get();
     }
 
     public Goal currentGoal() {
-        return currentPass != null ? currentPass.goal() : null;
+        Pass pass = currentPass.get();
+        return pass != null ? pass.goal() : null;
     }
 
     /**
@@ -403,10 +708,10 @@ public abstract class Scheduler {
         if (Report.should_report("dump-dep-graph", 2))
             dumpInFlightDependenceGraph();
 
-        if (Report.should_report(Report.frontend, 2))
+        if (Report.should_report(Report.FRONTEND, 2))
             Report.report(2, "Running to goal " + goal);
 
-        if (Report.should_report(Report.frontend, 4)) {
+        if (Report.should_report(Report.FRONTEND, 4)) {
             Report.report(4, "  Reachable = " + goal.isReachable());
             Report.report(4,
                           "  Prerequisites for " + goal + " = "
@@ -417,7 +722,7 @@ public abstract class Scheduler {
         }
 
         if (above.contains(goal)) {
-            if (Report.should_report(Report.frontend, 4))
+            if (Report.should_report(Report.FRONTEND, 4))
                 Report.report(4, goal
                         + " is being attempted by a caller; returning");
             return true;
@@ -433,7 +738,7 @@ public abstract class Scheduler {
         while (progress && !reached(goal)) {
             progress = false;
 
-            if (Report.should_report(Report.frontend, 4))
+            if (Report.should_report(Report.FRONTEND, 4))
                 Report.report(4, "outer loop for " + goal);
 
             // Run the prereqs of the goal.
@@ -442,7 +747,7 @@ public abstract class Scheduler {
                     continue;
                 }
 
-                if (Report.should_report(Report.frontend, 4))
+                if (Report.should_report(Report.FRONTEND, 4))
                     Report.report(4, "running prereq: " + subgoal + "->" + goal);
 
                 if (!attemptGoal(subgoal, newAbove)) {
@@ -469,7 +774,7 @@ public abstract class Scheduler {
             }
 
             // Now, run the goal itself.
-            if (Report.should_report(Report.frontend, 4))
+            if (Report.should_report(Report.FRONTEND, 4))
                 Report.report(4, "running goal " + goal);
 
             boolean result = runGoal(goal);
@@ -493,7 +798,7 @@ public abstract class Scheduler {
                     continue;
                 }
 
-                if (Report.should_report(Report.frontend, 4))
+                if (Report.should_report(Report.FRONTEND, 4))
                     Report.report(4, "running coreq: " + subgoal + "->" + goal);
 
                 if (!attemptGoal(subgoal, newAbove)) {
@@ -515,13 +820,13 @@ public abstract class Scheduler {
 
     protected boolean runGoal(Goal goal) {
         if (reached(goal)) {
-            if (Report.should_report(Report.frontend, 3))
+            if (Report.should_report(Report.FRONTEND, 3))
                 Report.report(3, "Already reached goal " + goal);
             return true;
         }
 
         if (!goal.isReachable()) {
-            if (Report.should_report(Report.frontend, 3))
+            if (Report.should_report(Report.FRONTEND, 3))
                 Report.report(3, "Cannot reach goal " + goal);
             return false;
         }
@@ -541,14 +846,14 @@ public abstract class Scheduler {
         Job job = goal.job();
 
         if (extInfo.getOptions().disable_passes.contains(pass.name())) {
-            if (Report.should_report(Report.frontend, 1))
+            if (Report.should_report(Report.FRONTEND, 1))
                 Report.report(1, "Skipping pass " + pass);
 
             goal.setState(Goal.REACHED);
             return true;
         }
 
-        if (Report.should_report(Report.frontend, 1))
+        if (Report.should_report(Report.FRONTEND, 1))
             Report.report(1, "Running pass " + pass + " for " + goal);
 
         if (reached(goal)) {
@@ -556,10 +861,7 @@ public abstract class Scheduler {
                     + goal);
         }
 
-        Integer countObj = runCount.get(goal);
-        int count = countObj != null ? countObj.intValue() : 0;
-        count++;
-        runCount.put(goal, count);
+        int count = incrementRunCount(goal);
 
         if (count >= maxRunCount()) {
             String[] suffix = new String[] { "th", "st", "nd", "rd" };
@@ -613,8 +915,8 @@ public abstract class Scheduler {
         boolean result = false;
 
         if (job == null || job.status()) {
-            Pass oldPass = currentPass;
-            currentPass = pass;
+            Pass oldPass = currentPass.get();
+            currentPass.set(pass);
             Report.pushTopic(pass.name());
 
             // Stop the timer on the old pass. */
@@ -632,6 +934,7 @@ public abstract class Scheduler {
 
             long t = System.currentTimeMillis();
             String key = goal.toString();
+            Stats.Sample sample = extInfo.getStats().startSample();
 
             extInfo.getStats().accumPassTimes(key + " attempts", 1, 1);
             extInfo.getStats().accumPassTimes("total goal attempts", 1, 1);
@@ -646,7 +949,7 @@ public abstract class Scheduler {
                                                       1);
 
                     goal.setState(Goal.UNREACHABLE);
-                    if (Report.should_report(Report.frontend, 1))
+                    if (Report.should_report(Report.FRONTEND, 1))
                         Report.report(1, "Failed pass " + pass + " for " + goal);
                 }
                 else {
@@ -659,7 +962,7 @@ public abstract class Scheduler {
                                                           1);
 
                         goal.setState(Goal.REACHED);
-                        if (Report.should_report(Report.frontend, 1))
+                        if (Report.should_report(Report.FRONTEND, 1))
                             Report.report(1, "Completed pass " + pass + " for "
                                     + goal);
                     }
@@ -671,18 +974,18 @@ public abstract class Scheduler {
                                .accumPassTimes("total goal unreached", 1, 1);
 
                         goal.setState(Goal.ATTEMPTED);
-                        if (Report.should_report(Report.frontend, 1))
+                        if (Report.should_report(Report.FRONTEND, 1))
                             Report.report(1, "Completed (unreached) pass "
                                     + pass + " for " + goal);
                     }
                 }
             }
             catch (MissingDependencyException e) {
-                if (Report.should_report(Report.frontend, 1))
+                if (Report.should_report(Report.FRONTEND, 1))
                     Report.report(1, "Did not complete pass " + pass + " for "
                             + goal + " (missing " + e.goal() + ")");
 
-                if (Report.should_report(Report.frontend, 3))
+                if (Report.should_report(Report.FRONTEND, 3))
                     e.printStackTrace();
 
                 extInfo.getStats().accumPassTimes(key + " aborts", 1, 1);
@@ -694,7 +997,7 @@ public abstract class Scheduler {
                 result = true;
             }
             catch (SchedulerException e) {
-                if (Report.should_report(Report.frontend, 1))
+                if (Report.should_report(Report.FRONTEND, 1))
                     Report.report(1, "Did not complete pass " + pass + " for "
                             + goal);
 
@@ -707,6 +1010,10 @@ public abstract class Scheduler {
             finally {
                 t = System.currentTimeMillis() - t;
                 extInfo.getStats().accumPassTimes(key, t, t);
+                extInfo.getStats().finishSample(sample,
+                                                goal.name(),
+                                                job,
+                                                count > 1);
 
                 pass.toggleTimers(false);
 
@@ -715,7 +1022,7 @@ public abstract class Scheduler {
                 }
 
                 Report.popTopic();
-                currentPass = oldPass;
+                currentPass.set(oldPass);
 
                 // Restart the timer on the old pass. */
                 if (oldPass != null) {
@@ -768,14 +1075,14 @@ public abstract class Scheduler {
 
         // Record the progress made before running the pass and then update
         // the current progress.
-        if (Report.should_report(Report.time, 2)) {
+        if (Report.should_report(Report.TIME, 2)) {
             Report.report(2,
                           "Finished " + pass + " status="
                                   + statusString(result) + " inclusive_time="
                                   + pass.inclusiveTime() + " exclusive_time="
                                   + pass.exclusiveTime());
         }
-        else if (Report.should_report(Report.frontend, 1)) {
+        else if (Report.should_report(Report.FRONTEND, 1)) {
             Report.report(1, "Finished " + pass + " status="
                     + statusString(result));
         }
@@ -787,6 +1094,19 @@ public abstract class Scheduler {
         return result;
     }
 
+    /**
+     * Increment the number of times a pass was run for {@code goal}.
+     *
+     * @return the new count.
+     */
+    protected int incrementRunCount(Goal goal) {
+        while (true) {
+            Integer count = runCount.putIfAbsent(goal, 1);
+            if (count == null) return 1;
+            if (runCount.replace(goal, count, count + 1)) return count + 1;
+        }
+    }
+
     protected static String statusString(boolean okay) {
         if (okay) {
             return "done";
@@ -874,7 +1194,7 @@ public abstract class Scheduler {
      * and its job discarded to release resources, then {@code null}
      * will be returned.
      */
-    public Job addJob(Source source, Node ast) {
+    public synchronized Job addJob(Source source, Node ast) {
         Job job = jobs.get(source);
 
         if (job == Job.COMPLETED) {
@@ -891,9 +1211,9 @@ public abstract class Scheduler {
         // record the job in the map and the worklist.
         jobs.put(source, job);
 
-        if (Report.should_report(Report.frontend, 4)) {
+        if (Report.should_report(Report.FRONTEND, 4)) {
             Report.report(4, "Adding job for " + source + " at the "
-                    + "request of pass " + currentPass);
+                    + "request of pass " + currentPass.get());
         }
 
         return job;
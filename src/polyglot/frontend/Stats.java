@@ -26,17 +26,30 @@
 
 package polyglot.frontend;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import polyglot.main.Report;
 
 /**
  * Statistics collection and reporting object.
  * Extensions can override this to collect more stats or to change
- * reporting.
+ * reporting.  Times may be accumulated concurrently by passes run in
+ * parallel.
+ * <p>
+ * When telemetry is enabled (with the -stats-json command-line switch), the
+ * wall time, CPU time and bytes allocated by each pass run are also
+ * accumulated, by goal and by job, and can be written out as JSON.
  */
 public class Stats {
     protected static class Times {
@@ -44,6 +57,72 @@ public class Stats {
         public long exclusive;
     }
 
+    /**
+     * Resources used by the runs of the passes for a goal or a job.  Times
+     * and allocation exclude those of the passes run from within the pass,
+     * except for {@code inclusiveWallTime}.
+     */
+    protected static class Usage {
+        public long runs;
+        public long reruns;
+        public long wallTime;
+        public long inclusiveWallTime;
+        public long cpuTime;
+        public long allocated;
+    }
+
+    /** A pass run being measured on the current thread. */
+    public static class Sample {
+        protected final Sample outer;
+        protected final long wallTime;
+        protected final long cpuTime;
+        protected final long allocated;
+        protected long innerWallTime;
+        protected long innerCpuTime;
+        protected long innerAllocated;
+
+        protected Sample(Sample outer, long wallTime, long cpuTime,
+                long allocated) {
+            this.outer = outer;
+            this.wallTime = wallTime;
+            this.cpuTime = cpuTime;
+            this.allocated = allocated;
+        }
+    }
+
+    protected static final ThreadMXBean threads =
+            ManagementFactory.getThreadMXBean();
+
+    /**
+     * The {@code getThreadAllocatedBytes(long)} method of {@code threads},
+     * or null if allocation is not measured.  The method is declared by
+     * {@code com.sun.management.ThreadMXBean}, which not every JDK
+     * provides, and so is looked up reflectively.
+     */
+    protected static final Method threadAllocatedBytes =
+            threadAllocatedBytesMethod();
+
+    protected static Method threadAllocatedBytesMethod() {
+        try {
+            Class<?> c = Class.forName("com.sun.management.ThreadMXBean");
+            if (!c.isInstance(threads)) return null;
+            Object supported =
+                    c.getMethod("isThreadAllocatedMemorySupported")
+                     .invoke(threads);
+            Object enabled =
+                    c.getMethod("isThreadAllocatedMemoryEnabled")
+                     .invoke(threads);
+            if (!Boolean.TRUE.equals(supported)
+                    || !Boolean.TRUE.equals(enabled)) return null;
+            return c.getMethod("getThreadAllocatedBytes", long.class);
+        }
+        catch (ClassNotFoundException | NoSuchMethodException
+                | IllegalAccessException | InvocationTargetException
+                | LinkageError e) {
+            return null;
+        }
+    }
+
     /** Extension we're collecting stats for. */
     protected ExtensionInfo ext;
 
@@ -56,17 +135,32 @@ public class Stats {
      */
     protected List<Object> keys = new ArrayList<>(20);
 
+    /** Map from names of counters to their values, in order of creation. */
+    protected Map<String, Long> counts = new LinkedHashMap<>();
+
+    /** Whether pass runs are measured. */
+    protected volatile boolean telemetry;
+
+    /** Map from goal names to the resources used by their passes. */
+    protected Map<String, Usage> goalUsage = new LinkedHashMap<>();
+
+    /** Map from job names to the resources used by their passes. */
+    protected Map<String, Usage> jobUsage = new LinkedHashMap<>();
+
+    /** The innermost pass run being measured on each thread. */
+    protected final ThreadLocal<Sample> samples = new ThreadLocal<>();
+
     public Stats(ExtensionInfo ext) {
         this.ext = ext;
     }
 
     /** Reset the accumulated times for a pass. */
-    public void resetPassTimes(Object key) {
+    public synchronized void resetPassTimes(Object key) {
         passTimes.remove(key);
     }
 
     /** Return the accumulated times for a pass. */
-    public long passTime(Object key, boolean inclusive) {
+    public synchronized long passTime(Object key, boolean inclusive) {
         Times t = passTimes.get(key);
         if (t == null) {
             return 0;
@@ -76,9 +170,9 @@ public class Stats {
     }
 
     /** Accumulate inclusive and exclusive times for a pass. */
-    public void accumPassTimes(Object key, long in, long ex) {
+    public synchronized void accumPassTimes(Object key, long in, long ex) {
         // don't hold references if we aren't reporting timing.
-        if (Report.should_report(Report.time, 1)) {
+        if (Report.should_report(Report.TIME, 1)) {
             Times t = passTimes.get(key);
             if (t == null) {
                 keys.add(key);
@@ -90,9 +184,182 @@ public class Stats {
         }
     }
 
+    /** Add {@code n} to the counter {@code key}. */
+    public synchronized void accumCount(String key, long n) {
+        Long c = counts.get(key);
+        counts.put(key, c == null ? n : c + n);
+    }
+
+    /**
+     * Add the value of {@code n} to the counter {@code key}, and reset
+     * {@code n} to 0.  Counters incremented too often to be synchronized on
+     * this object are kept in an {@code AtomicLong} and added here at the
+     * end of a compilation.
+     */
+    public void accumCount(String key, AtomicLong n) {
+        long c = n.getAndSet(0);
+        if (c != 0) accumCount(key, c);
+    }
+
+    /** Return the value of the counter {@code key}. */
+    public synchronized long count(String key) {
+        Long c = counts.get(key);
+        return c == null ? 0 : c;
+    }
+
+    /** Set whether pass runs are measured. */
+    public void setTelemetry(boolean telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /** Return whether pass runs are measured. */
+    public boolean telemetry() {
+        return telemetry;
+    }
+
+    /**
+     * Start measuring a pass run on the current thread.  Return null if
+     * pass runs are not measured.
+     */
+    public Sample startSample() {
+        if (!telemetry) return null;
+        Sample s =
+                new Sample(samples.get(),
+                           System.nanoTime(),
+                           cpuTime(),
+                           allocatedBytes());
+        samples.set(s);
+        return s;
+    }
+
+    /**
+     * Finish measuring the pass run {@code s}, which ran a pass for the goal
+     * {@code goal} of {@code job}.  {@code rerun} is true if a pass was
+     * already run for the goal.
+     */
+    public void finishSample(Sample s, String goal, Job job, boolean rerun) {
+        if (s == null) return;
+
+        long wall = System.nanoTime() - s.wallTime;
+        long cpu = cpuTime() - s.cpuTime;
+        long allocated = allocatedBytes() - s.allocated;
+
+        samples.set(s.outer);
+        if (s.outer != null) {
+            s.outer.innerWallTime += wall;
+            s.outer.innerCpuTime += cpu;
+            s.outer.innerAllocated += allocated;
+        }
+
+        synchronized (this) {
+            accumUsage(goalUsage, goal, s, rerun, wall, cpu, allocated);
+            if (job != null) {
+                accumUsage(jobUsage,
+                           job.toString(),
+                           s,
+                           rerun,
+                           wall,
+                           cpu,
+                           allocated);
+            }
+        }
+    }
+
+    protected void accumUsage(Map<String, Usage> usage, String key, Sample s,
+            boolean rerun, long wall, long cpu, long allocated) {
+        Usage u = usage.get(key);
+        if (u == null) {
+            u = new Usage();
+            usage.put(key, u);
+        }
+        u.runs++;
+        if (rerun) u.reruns++;
+        u.wallTime += wall - s.innerWallTime;
+        u.inclusiveWallTime += wall;
+        u.cpuTime += cpu - s.innerCpuTime;
+        u.allocated += allocated - s.innerAllocated;
+    }
+
+    /** The CPU time used by the current thread, or 0 if not available. */
+    protected static long cpuTime() {
+        if (!threads.isCurrentThreadCpuTimeSupported()) return 0;
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    /** The bytes allocated by the current thread, or 0 if not available. */
+    protected static long allocatedBytes() {
+        if (threadAllocatedBytes == null) return 0;
+        try {
+            Object bytes =
+                    threadAllocatedBytes.invoke(threads, Thread.currentThread()
+                                                               .getId());
+            return bytes instanceof Long ? (Long) bytes : 0;
+        }
+        catch (IllegalAccessException | InvocationTargetException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Write the resources used by goal and by job, and the counters, as a
+     * JSON object.  Times are in nanoseconds.
+     */
+    public synchronized void writeJSON(Writer w) throws IOException {
+        w.write("{\"extension\": " + quote(ext.getClass().getName()));
+        w.write(",\n \"compiler\": " + quote(ext.compilerName()));
+        w.write(",\n \"goals\": ");
+        writeJSON(w, goalUsage);
+        w.write(",\n \"jobs\": ");
+        writeJSON(w, jobUsage);
+        w.write(",\n \"counts\": {");
+        String sep = "";
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            w.write(sep + "\n  " + quote(e.getKey()) + ": " + e.getValue());
+            sep = ",";
+        }
+        w.write("}}");
+    }
+
+    protected void writeJSON(Writer w, Map<String, Usage> usage)
+            throws IOException {
+        w.write("{");
+        String sep = "";
+        for (Map.Entry<String, Usage> e : usage.entrySet()) {
+            Usage u = e.getValue();
+            w.write(sep + "\n  " + quote(e.getKey()) + ": {\"runs\": "
+                    + u.runs + ", \"reruns\": " + u.reruns
+                    + ", \"wallTime\": " + u.wallTime
+                    + ", \"inclusiveWallTime\": " + u.inclusiveWallTime
+                    + ", \"cpuTime\": " + u.cpuTime + ", \"allocated\": "
+                    + u.allocated + "}");
+            sep = ",";
+        }
+        w.write("}");
+    }
+
+    /** Return {@code s} as a JSON string literal. */
+    protected static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            }
+            else if (c < ' ') {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+        return sb.toString();
+    }
+
     /** Report the stats. */
-    public void report() {
-        if (Report.should_report(Report.time, 1)) {
+    public synchronized void report() {
+        if (Report.should_report(Report.TIME, 1)) {
             Report.report(1, "\nStatistics for " + ext.compilerName() + " ("
                     + ext.getClass().getName() + ")");
             Report.report(1, "Inclusive Exclusive Key");
@@ -105,6 +372,14 @@ public class Stats {
                               t.inclusive + " " + t.exclusive + " "
                                       + key.toString());
             }
+
+            if (!counts.isEmpty()) {
+                Report.report(1, "\nCount Key");
+                Report.report(1, "----- ---");
+                for (Map.Entry<String, Long> e : counts.entrySet()) {
+                    Report.report(1, e.getValue() + " " + e.getKey());
+                }
+            }
         }
     }
 }
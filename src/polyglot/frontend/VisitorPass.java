@@ -75,7 +75,7 @@ public class VisitorPass extends AbstractPass {
             ErrorQueue q = goal.job().compiler().errorQueue();
             int nErrsBefore = q.errorCount();
 
-            if (Report.should_report(Report.frontend, 3))
+            if (Report.should_report(Report.FRONTEND, 3))
                 Report.report(3, "Running " + v_ + " on " + ast);
 
             ast = ast.visit(v_);
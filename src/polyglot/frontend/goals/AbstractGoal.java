@@ -47,7 +47,7 @@ import polyglot.util.StringUtil;
 public abstract class AbstractGoal implements Goal {
     protected Job job;
     protected String name;
-    protected int state;
+    protected volatile int state;
     protected Set<Goal> corequisites;
     protected Set<Goal> prerequisites;
 
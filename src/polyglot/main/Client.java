@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Client runs a compilation on a {@link Server} and relays its output and
+ * exit code.  If no server is running, the compilation is run in this VM
+ * by {@link Main}.  The port of the server is given by the system property
+ * {@code polyglot.server.port}.  The client authenticates itself with the
+ * token the server wrote to {@link Server#tokenFile}; if it cannot read
+ * the token, the compilation is run in this VM.
+ */
+public class Client {
+    /**
+     * Run the compilation {@code args} on the server at {@code port}.
+     * Return the exit code, or -1 if no server is running or its token
+     * cannot be read.
+     */
+    public static int compile(int port, String[] args) throws IOException {
+        String token;
+        try {
+            token =
+                    new String(Files.readAllBytes(Server.tokenFile(port).toPath()),
+                               StandardCharsets.US_ASCII).trim();
+        }
+        catch (IOException e) {
+            return -1;
+        }
+
+        Socket s;
+        try {
+            s = new Socket(InetAddress.getLoopbackAddress(), port);
+        }
+        catch (ConnectException e) {
+            return -1;
+        }
+
+        try {
+            DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            out.writeUTF(token);
+            out.writeUTF(new File("").getAbsolutePath());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            while (true) {
+                int tag = in.readByte();
+                if (tag == Server.EXIT) {
+                    System.out.flush();
+                    System.err.flush();
+                    return in.readInt();
+                }
+
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                PrintStream ps = tag == Server.ERR ? System.err : System.out;
+                ps.write(b, 0, b.length);
+            }
+        }
+        finally {
+            s.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        int port =
+                Integer.getInteger("polyglot.server.port", Server.DEFAULT_PORT);
+        int exitCode;
+        try {
+            exitCode = compile(port, args);
+        }
+        catch (IOException e) {
+            System.err.println("Polyglot client: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        if (exitCode < 0) {
+            Main.main(args);
+            return;
+        }
+        System.exit(exitCode);
+    }
+}
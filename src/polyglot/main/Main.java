@@ -186,6 +186,9 @@ public class Main {
 
         /* Now call javac or jikes, if necessary. */
         if (!invokePostCompiler(options, compiler, eq)) {
+            // The cached sources may not have been compiled to class files.
+            if (compiler.incrementalCache() != null)
+                compiler.incrementalCache().delete();
             throw new TerminationException(1);
         }
 
@@ -329,7 +332,7 @@ public class Main {
         return true;
     }
 
-    private static List<String> explodeOptions(String[] args)
+    static List<String> explodeOptions(String[] args)
             throws TerminationException {
         LinkedList<String> ll = new LinkedList<>();
 
@@ -125,12 +125,41 @@ public class Options {
     /** Use SimpleCodeWriter instead of OptimalCodeWriter */
     public boolean use_simple_code_writer;
 
+    /**
+     * Keep the scopes of contexts in arrays, using {@code FrameContext_c}
+     * in type systems that support it.
+     */
+    public boolean frame_contexts;
+
+    /**
+     * Number of threads on which to run independent per-job passes.  Only
+     * parsing and the goals returned by
+     * {@code Scheduler.parallelizableGoals} run concurrently; see there
+     * for what those passes may touch.
+     */
+    public int parallelism;
+
+    /** File in which to cache unchanged sources across builds, or null. */
+    public File incremental_cache;
+
+    /** Directory in which to save the index of class path archives, or null. */
+    public File classpath_index;
+
+    /** File to which to write per-goal and per-job statistics, or null. */
+    public File stats_file;
+
     /**
      * Parse "a" + "b" as "ab" to avoid very deep AST, e.g., for action tables,
      * and for serialization.
      */
     public boolean merge_strings;
 
+    /**
+     * Check that each quasiquoted AST instantiated from a cached template is
+     * the same as the one obtained by parsing the format string.
+     */
+    public boolean validate_templates;
+
     public boolean classpath_given;
     public boolean bootclasspath_given;
 
@@ -467,6 +496,45 @@ public class Options {
         flags.add(new Switch("-mergestrings",
                              "parse concatenated string literals as one single string literal"));
 
+        flags.add(new Switch("-framecontexts",
+                             "keep the scopes of contexts in arrays rather than hash maps"));
+
+        flags.add(new IntFlag("-parallel",
+                              "<num>",
+                              "parse and run the flow checks of different sources on <num> threads",
+                              1));
+
+        flags.add(new OptFlag<File>("-incremental",
+                                    "<file>",
+                                    "skip unchanged sources, caching their types in <file>") {
+            @Override
+            public Arg<File> handle(String[] args, int index) {
+                return createArg(index + 1, new File(args[index]));
+            }
+        });
+
+        flags.add(new OptFlag<File>("-classpath-index",
+                                    "<dir>",
+                                    "save the index of class path archives in <dir>") {
+            @Override
+            public Arg<File> handle(String[] args, int index) {
+                return createArg(index + 1, new File(args[index]));
+            }
+        });
+
+        flags.add(new OptFlag<File>("-stats-json",
+                                    "<file>",
+                                    "write the time and memory used by each goal and job to <file> as JSON") {
+            @Override
+            public Arg<File> handle(String[] args, int index) {
+                return createArg(index + 1, new File(args[index]));
+            }
+        });
+
+        flags.add(new Switch(Kind.SECRET,
+                             "-validatetemplates",
+                             "check quasiquote templates against parsing"));
+
         flags.add(new Switch(Kind.SECRET,
                              "-print-arguments",
                              "Check that no options try to handle the same command line flag."));
@@ -721,6 +789,24 @@ public class Options {
         else if (ids.contains("-mergestrings")) {
             setMergeStrings((Boolean) arg.value());
         }
+        else if (ids.contains("-framecontexts")) {
+            setFrameContexts((Boolean) arg.value());
+        }
+        else if (ids.contains("-parallel")) {
+            setParallelism((Integer) arg.value());
+        }
+        else if (ids.contains("-incremental")) {
+            setIncrementalCache((File) arg.value());
+        }
+        else if (ids.contains("-classpath-index")) {
+            setClasspathIndex((File) arg.value());
+        }
+        else if (ids.contains("-stats-json")) {
+            setStatsFile((File) arg.value());
+        }
+        else if (ids.contains("-validatetemplates")) {
+            validate_templates = (Boolean) arg.value();
+        }
         else if (ids.contains("-print-arguments")) {
             print_args = (Boolean) arg.value();
         }
@@ -869,6 +955,26 @@ public class Options {
         merge_strings = value;
     }
 
+    protected void setFrameContexts(boolean value) {
+        frame_contexts = value;
+    }
+
+    protected void setParallelism(Integer value) {
+        parallelism = value;
+    }
+
+    protected void setIncrementalCache(File value) {
+        incremental_cache = value;
+    }
+
+    protected void setClasspathIndex(File value) {
+        classpath_index = value;
+    }
+
+    protected void setStatsFile(File value) {
+        stats_file = value;
+    }
+
     /**
      * Parse a command
      * 
@@ -26,20 +26,66 @@
 
 package polyglot.main;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import polyglot.util.ErrorInfo;
 import polyglot.util.ErrorQueue;
 import polyglot.util.Position;
 import polyglot.util.SimpleErrorQueue;
 
-/** Class used for reporting debug messages. */
+/**
+ * Class used for reporting debug messages.
+ * <p>
+ * Whether to report a message is checked with {@code should_report}.  On
+ * hot paths, use a {@link Topic} handle, obtained once from
+ * {@link #topic(String...)}, rather than a topic name: a handle caches the
+ * level the user selected for its topics, so that checking it does not
+ * look up the topic, and when no reporting is selected at all, checking
+ * it reads a single static field.
+ */
 public class Report {
+    /**
+     * A handle for a report topic, or for a group of topics.  The handle
+     * caches the level at which the user selected its topics to be reported,
+     * and is updated when the selection changes.
+     */
+    public static final class Topic {
+        protected final String name;
+        protected final Topic[] members;
+        protected int level;
+
+        protected Topic(String name, Topic[] members) {
+            this.name = name;
+            this.members = members;
+        }
+
+        /**
+         * Return whether a message on this topic of obscurity {@code level}
+         * should be reported.
+         */
+        public boolean should_report(int level) {
+            if (noReporting) return false;
+            return this.level >= level || stackLevel >= level;
+        }
+
+        /** The level at which the user selected this topic, or 0. */
+        public int level() {
+            return level;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
     /** A collection of string names of topics which can be used with the
         -report command-line switch */
     public final static Collection<String> topics = new LinkedHashSet<>();
@@ -52,7 +98,18 @@ public class Report {
      * The topics that the user has selected to report, mapped to the level
      * they want to report them to.
      */
-    protected final static Map<String, Integer> reportTopics = new HashMap<>();
+    protected final static Map<String, Integer> reportTopics =
+            new ConcurrentHashMap<>();
+
+    /** The handles of single topics, by name. */
+    protected final static ConcurrentMap<String, Topic> handles =
+            new ConcurrentHashMap<>();
+
+    /** The handles of groups of topics. */
+    protected final static List<Topic> groups = new ArrayList<>();
+
+    /** The highest level of the topics in {@code should_report}. */
+    protected static int stackLevel;
 
     /** Error queue to which to write messages. */
     protected static ErrorQueue eq;
@@ -84,6 +141,22 @@ public class Report {
     // This topic is the level of detail that should be in messages.
     public final static String debug = "debug";
 
+    /** Handles for the report topics understood by the base compiler. */
+    public final static Topic CFG = topic(cfg);
+    public final static Topic CONTEXT = topic(context);
+    public final static Topic DATAFLOW = topic(dataflow);
+    public final static Topic ERRORS = topic(errors);
+    public final static Topic FRONTEND = topic(frontend);
+    public final static Topic IMPORTS = topic(imports);
+    public final static Topic LOADER = topic(loader);
+    public final static Topic RESOLVER = topic(resolver);
+    public final static Topic SERIALIZE = topic(serialize);
+    public final static Topic TIME = topic(time);
+    public final static Topic TYPES = topic(types);
+    public final static Topic VISIT = topic(visit);
+    public final static Topic VERBOSE = topic(verbose);
+    public final static Topic DEBUG = topic(debug);
+
     static {
         topics.add(cfg);
         topics.add(context);
@@ -103,6 +176,49 @@ public class Report {
         pushTopic(verbose);
     }
 
+    /**
+     * Return the handle for the topic {@code names[0]}, or, given several
+     * names, a handle for the group of these topics, which is reported if
+     * any of them is.  Handles should be obtained once and kept, for
+     * example in a static field.
+     */
+    public static Topic topic(String... names) {
+        if (names.length == 1) {
+            Topic t = handles.get(names[0]);
+            if (t == null) {
+                t = new Topic(names[0], null);
+                t.level = level(names[0]);
+                Topic u = handles.putIfAbsent(names[0], t);
+                if (u != null) t = u;
+            }
+            return t;
+        }
+
+        Topic[] members = new Topic[names.length];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            members[i] = topic(names[i]);
+            if (i > 0) sb.append(",");
+            sb.append(names[i]);
+        }
+        Topic t = new Topic(sb.toString(), members);
+        synchronized (groups) {
+            groups.add(t);
+            updateGroup(t);
+        }
+        return t;
+    }
+
+    /**
+     * Return whether a message on {@code topic} of obscurity
+     * {@code level} should be reported, based on use of the
+     * -report command-line switches given by the user.
+     */
+    public static boolean should_report(Topic topic, int level) {
+        if (noReporting) return false;
+        return topic.level >= level || stackLevel >= level;
+    }
+
     /**
      * Return whether a message on {@code topic} of obscurity
      * {@code level} should be reported, based on use of the
@@ -110,7 +226,7 @@ public class Report {
      */
     public static boolean should_report(String topic, int level) {
         if (noReporting) return false;
-        return should_report(Collections.singletonList(topic), level);
+        return level(topic) >= level || stackLevel >= level;
     }
 
     /**
@@ -120,11 +236,7 @@ public class Report {
      */
     public static boolean should_report(String[] topics, int level) {
         if (noReporting) return false;
-        synchronized (should_report) {
-            for (String topic : should_report) {
-                if (level(topic) >= level) return true;
-            }
-        }
+        if (stackLevel >= level) return true;
         if (topics != null) {
             for (String topic : topics) {
                 if (level(topic) >= level) return true;
@@ -134,12 +246,18 @@ public class Report {
     }
 
     public static void pushTopic(String topic) {
-        should_report.push(topic);
+        synchronized (should_report) {
+            should_report.push(topic);
+            updateStackLevel();
+        }
     }
 
     public static void popTopic() {
-        if (should_report.isEmpty()) return;
-        should_report.pop();
+        synchronized (should_report) {
+            if (should_report.isEmpty()) return;
+            should_report.pop();
+            updateStackLevel();
+        }
     }
 
     /**
@@ -149,11 +267,7 @@ public class Report {
      */
     public static boolean should_report(Collection<String> topics, int level) {
         if (noReporting) return false;
-        synchronized (should_report) {
-            for (String topic : should_report) {
-                if (level(topic) >= level) return true;
-            }
-        }
+        if (stackLevel >= level) return true;
         if (topics != null) {
             for (String topic : topics) {
                 if (level(topic) >= level) return true;
@@ -162,16 +276,61 @@ public class Report {
         return false;
     }
 
-    public static void addTopic(String topic, int level) {
+    public static synchronized void addTopic(String topic, int level) {
         Integer i = reportTopics.get(topic);
         if (i == null || i.intValue() < level) {
             reportTopics.put(topic, new Integer(level));
         }
+        updateLevels();
         noReporting = false;
     }
 
-    public static void setTopic(String topic, int level) {
+    public static synchronized void setTopic(String topic, int level) {
         if (reportTopics.containsKey(topic)) reportTopics.put(topic, level);
+        updateLevels();
+    }
+
+    /**
+     * Forget the topics selected with the -report command-line switch, so
+     * that a later compilation in the same VM starts without reporting.
+     */
+    public static synchronized void clearTopics() {
+        noReporting = true;
+        reportTopics.clear();
+        updateLevels();
+    }
+
+    /** Update the levels cached by the topic handles. */
+    protected static void updateLevels() {
+        for (Topic t : handles.values()) {
+            t.level = level(t.name);
+        }
+        synchronized (groups) {
+            for (Topic t : groups) {
+                updateGroup(t);
+            }
+        }
+        synchronized (should_report) {
+            updateStackLevel();
+        }
+    }
+
+    /** Update the level cached by the group handle {@code t}. */
+    protected static void updateGroup(Topic t) {
+        int level = 0;
+        for (Topic m : t.members) {
+            level = Math.max(level, m.level);
+        }
+        t.level = level;
+    }
+
+    /** Update the highest level of the topics in {@code should_report}. */
+    protected static void updateStackLevel() {
+        int level = 0;
+        for (String topic : should_report) {
+            level = Math.max(level, level(topic));
+        }
+        stackLevel = level;
     }
 
     /** Get the error queue, possibly creating it if not set. */
@@ -188,10 +347,10 @@ public class Report {
     }
 
     public static int level(String name) {
-        Object i = reportTopics.get(name);
+        Integer i = reportTopics.get(name);
         if (i == null)
             return 0;
-        else return ((Integer) i).intValue();
+        else return i.intValue();
     }
 
     /** This is the standard way to report debugging information in the
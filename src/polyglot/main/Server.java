@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.List;
+
+import polyglot.filemanager.ExtFileManager;
+import polyglot.frontend.AbstractExtensionInfo;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.IncrementalCache;
+import polyglot.main.Main.TerminationException;
+
+/**
+ * Server is a long-running compiler daemon.  It accepts compilations from
+ * {@link Client} over a socket on the loopback interface and runs each in
+ * the same VM, so that repeated builds do not pay for VM startup, class
+ * loading of the compiler, and JIT warmup.
+ *
+ * Compilations are run one at a time, each with a new {@code Main} and
+ * job set.  The extension of the previous compilation is kept, and is
+ * reused if the next compilation has the same configuration key (see
+ * {@link IncrementalCache#configurationKey}): the same extension, options
+ * other than the sources, and class path.  Archives on the class path are
+ * compared by size and modification time, and directories only by path,
+ * since a reused extension keeps only the class types loaded from the
+ * archives of the boot class path (see
+ * {@link AbstractExtensionInfo#prepareRebuild}); a change of any option or
+ * archive creates a new extension.  Between
+ * compilations, the reporting options and the file manager's class path
+ * caches are cleared.  Since relative paths in the arguments are resolved
+ * against the working directory of the server, only clients in the same
+ * directory are served.
+ *
+ * The socket is bound to the loopback interface, but any local user can
+ * connect to it.  The server therefore writes a random token to the file
+ * {@link #tokenFile}, readable only by its owner, and serves only clients
+ * that send that token first.
+ *
+ * Usage: {@code java polyglot.main.Server [port]}
+ */
+public class Server {
+    public static final int DEFAULT_PORT = 7117;
+
+    /** Frame tags of the response protocol. */
+    static final int EXIT = 0;
+    static final int OUT = 1;
+    static final int ERR = 2;
+
+    protected final int port;
+    protected final String directory;
+    protected byte[] token;
+
+    /** The extension of the previous compilation, if it may be reused. */
+    protected AbstractExtensionInfo warm;
+    /** The configuration key of {@code warm}. */
+    protected String warmKey;
+
+    public Server(int port) {
+        this.port = port;
+        this.directory = new File("").getAbsolutePath();
+    }
+
+    /**
+     * Return the file holding the token of the server at {@code port}, in
+     * the directory {@code .polyglot} of the home directory of the user.
+     */
+    public static File tokenFile(int port) {
+        return new File(new File(System.getProperty("user.home"), ".polyglot"),
+                        "server-" + port + ".token");
+    }
+
+    /**
+     * Create a random token and write it to {@link #tokenFile}, readable
+     * and writable only by the owner.
+     */
+    protected void writeToken() throws IOException {
+        byte[] b = new byte[16];
+        new SecureRandom().nextBytes(b);
+        StringBuilder sb = new StringBuilder();
+        for (byte x : b) {
+            sb.append(String.format("%02x", x & 0xff));
+        }
+        token = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        File f = tokenFile(port);
+        File dir = f.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create directory " + dir);
+        f.delete();
+        try {
+            Files.createFile(f.toPath(),
+                             PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        catch (UnsupportedOperationException e) {
+            // Not a POSIX file system.
+            if (!f.createNewFile())
+                throw new IOException("Cannot create token file " + f);
+            f.setReadable(false, false);
+            f.setWritable(false, false);
+            f.setReadable(true, true);
+            f.setWritable(true, true);
+        }
+        Files.write(f.toPath(), token);
+        f.deleteOnExit();
+    }
+
+    /** Accept and run compilations until the VM is terminated. */
+    public void run() throws IOException {
+        try (ServerSocket ss =
+                new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            writeToken();
+            System.err.println("Polyglot server listening on port "
+                    + ss.getLocalPort() + " in " + directory);
+            while (true) {
+                try (Socket s = ss.accept()) {
+                    serve(s);
+                }
+                catch (IOException e) {
+                    System.err.println("Polyglot server: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve one request: the token of the server, the working directory of
+     * the client, and its command-line arguments.  The output of the
+     * compilation is sent back in frames, followed by the exit code.
+     */
+    protected void serve(Socket s) throws IOException {
+        DataInputStream in =
+                new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+        byte[] clientToken = in.readUTF().getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(token, clientToken)) {
+            // Do not read or run anything for an unauthenticated client.
+            byte[] b = "Polyglot server: bad token\n".getBytes();
+            writeFrame(out, ERR, b, 0, b.length);
+            out.writeByte(EXIT);
+            out.writeInt(2);
+            out.flush();
+            return;
+        }
+
+        String cwd = in.readUTF();
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        int exitCode;
+        if (!directory.equals(cwd)) {
+            byte[] b =
+                    ("Polyglot server runs in " + directory
+                            + ", not in " + cwd + "\n").getBytes();
+            writeFrame(out, ERR, b, 0, b.length);
+            exitCode = 2;
+        }
+        else {
+            exitCode = compile(args, out);
+        }
+
+        out.writeByte(EXIT);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    /**
+     * Run the compiler on {@code args}, sending its standard output and
+     * error to {@code out}.  Return the exit code.
+     */
+    protected int compile(String[] args, DataOutputStream out) {
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        PrintStream stdout = new PrintStream(new FrameOutputStream(out, OUT));
+        PrintStream stderr = new PrintStream(new FrameOutputStream(out, ERR));
+
+        Report.clearTopics();
+        ExtFileManager.clearCaches();
+
+        System.setOut(stdout);
+        System.setErr(stderr);
+        ExtensionInfo ext = null;
+        String key = null;
+        try {
+            List<String> rest = Main.explodeOptions(args);
+            Main main = new Main();
+            ExtensionInfo probe = main.getExtensionInfo(rest);
+            String[] restArgs = rest.toArray(new String[rest.size()]);
+            key = configurationKey(probe, restArgs);
+
+            if (key != null && key.equals(warmKey) && warm.prepareRebuild()) {
+                ext = warm;
+            }
+            else {
+                ext = Main.loadExtension(probe.getClass().getName());
+            }
+            warm = null;
+            warmKey = null;
+
+            try {
+                main.start(restArgs, ext);
+            }
+            catch (TerminationException te) {
+                keepWarm(ext, key);
+                throw te;
+            }
+            keepWarm(ext, key);
+            return 0;
+        }
+        catch (TerminationException te) {
+            if (te.getMessage() != null)
+                (te.exitCode == 0 ? stdout : stderr).println(te.getMessage());
+            return te.exitCode;
+        }
+        catch (RuntimeException | Error e) {
+            e.printStackTrace(stderr);
+            return 1;
+        }
+        finally {
+            stdout.flush();
+            stderr.flush();
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+    }
+
+    /**
+     * Return the configuration key of a compilation with the extension
+     * {@code probe} and the arguments {@code args}, or null if the
+     * arguments are not valid.  The options of {@code probe} are set from
+     * {@code args}.
+     */
+    protected String configurationKey(ExtensionInfo probe, String[] args) {
+        try {
+            probe.getOptions().parseCommandLine(args, new HashSet<String>());
+        }
+        catch (UsageError e) {
+            return null;
+        }
+        return probe.getClass().getName() + " "
+                + IncrementalCache.configurationKey(probe, false);
+    }
+
+    /**
+     * Keep {@code ext} to be reused by the next compilation if it has the
+     * configuration key {@code key}.
+     */
+    protected void keepWarm(ExtensionInfo ext, String key) {
+        if (key != null && ext instanceof AbstractExtensionInfo) {
+            warm = (AbstractExtensionInfo) ext;
+            warmKey = key;
+        }
+    }
+
+    static void writeFrame(DataOutputStream out, int tag, byte[] b, int off,
+            int len) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(len);
+        out.write(b, off, len);
+    }
+
+    /** An output stream writing frames with the given tag. */
+    protected static class FrameOutputStream extends OutputStream {
+        protected final DataOutputStream out;
+        protected final int tag;
+
+        public FrameOutputStream(DataOutputStream out, int tag) {
+            this.out = out;
+            this.tag = tag;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                writeFrame(out, tag, b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        if (args.length > 0) {
+            try {
+                port = Integer.parseInt(args[0]);
+            }
+            catch (NumberFormatException e) {
+                System.err.println("usage: " + Server.class.getName()
+                        + " [port]");
+                System.exit(2);
+            }
+        }
+
+        try {
+            new Server(port).run();
+        }
+        catch (IOException e) {
+            System.err.println("Polyglot server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
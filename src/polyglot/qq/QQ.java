@@ -27,12 +27,18 @@
 package polyglot.qq;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import polyglot.ast.ClassDecl;
 import polyglot.ast.ClassMember;
 import polyglot.ast.Expr;
+import polyglot.ast.Lang;
 import polyglot.ast.Node;
 import polyglot.ast.NodeFactory;
 import polyglot.ast.SourceFile;
@@ -44,6 +50,7 @@ import polyglot.main.Report;
 import polyglot.types.Type;
 import polyglot.types.TypeSystem;
 import polyglot.util.ErrorQueue;
+import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
 
 /**
@@ -88,6 +95,11 @@ import polyglot.util.Position;
       TypeNode t;
       Stmt s = qq.parseStmt("%T %s = new %T(%E);", t, "tmp", t, e);
   </pre>
+
+  <p>
+  Each format string is parsed once per extension and shape of
+  substitutions into a {@link QQTemplate}; later calls copy the template,
+  substituting the holes.
  */
 public class QQ {
     protected ExtensionInfo ext;
@@ -211,7 +223,6 @@ public class QQ {
     /** Parse a string into an AST node of the given type,
      * applying substitutions. */
     protected Node parse(int kind, String fmt, Object... subst) {
-        TypeSystem ts = ext.typeSystem();
         NodeFactory nf = ext.nodeFactory();
         ErrorQueue eq = ext.compiler().errorQueue();
 
@@ -247,14 +258,120 @@ public class QQ {
             pos = Position.compilerGenerated(3);
         }
 
-        polyglot.lex.Lexer lexer = lexer(fmt, pos, subst);
-        QQParser grm = parser(lexer, ts, nf, eq);
-
         if (Report.should_report(polyglot.frontend.Topics.qq, 1)) {
             Report.report(1, "qq: " + fmt);
             Report.report(1, "subst: " + subst);
         }
 
+        Object[] parseSubst = subst;
+        if (ext.getOptions().validate_templates) {
+            // The lexer consumes the lists of substitutions.
+            parseSubst = subst.clone();
+            for (int i = 0; i < parseSubst.length; i++) {
+                if (parseSubst[i] instanceof List) {
+                    parseSubst[i] = new ArrayList<>((List<?>) parseSubst[i]);
+                }
+            }
+        }
+
+        Node n = instantiate(kind, fmt, pos, subst);
+        if (n == null) {
+            n = parse(kind, fmt, pos, eq, subst);
+        }
+        else if (ext.getOptions().validate_templates) {
+            validate(fmt, pos, n, parse(kind, fmt, pos, eq, parseSubst));
+        }
+
+        if (Report.should_report(polyglot.frontend.Topics.qq, 1))
+            Report.report(1, "result: " + n);
+        return n;
+    }
+
+    /**
+     * Return the template for {@code fmt} instantiated with the
+     * substitutions {@code subst}, or null if there is no usable template.
+     */
+    protected Node instantiate(int kind, String fmt, Position pos,
+            Object[] subst) {
+        String shape = QQTemplate.shape(subst);
+        if (shape == null) return null;
+
+        String key = getClass().getName() + " " + kind + " " + shape + " " + fmt;
+        Map<String, QQTemplate> cache = templates(ext);
+        QQTemplate t;
+        synchronized (cache) {
+            t = cache.get(key);
+        }
+        if (t == null) {
+            t = QQTemplate.compile(this, kind, fmt, pos, subst);
+            synchronized (cache) {
+                QQTemplate u = cache.get(key);
+                if (u != null) {
+                    t = u;
+                }
+                else {
+                    if (cache.size() >= MAX_TEMPLATES) {
+                        // Evict the least recently used template.
+                        Iterator<String> i = cache.keySet().iterator();
+                        i.next();
+                        i.remove();
+                    }
+                    cache.put(key, t);
+                }
+            }
+        }
+
+        return t.instantiate(ext.nodeFactory().lang(), fmt, pos, subst);
+    }
+
+    /**
+     * Check that {@code n}, instantiated from a template for {@code fmt},
+     * is the same as {@code m}, obtained by parsing {@code fmt}: the
+     * nodes, their printed forms and their positions must be equal.
+     */
+    protected void validate(String fmt, Position pos, Node n, Node m) {
+        Lang lang = ext.nodeFactory().lang();
+        List<String> ns = QQTemplate.describe(lang, n);
+        List<String> ms = QQTemplate.describe(lang, m);
+        if (!ns.equals(ms)) {
+            throw new InternalCompilerError("Quasiquote template for \""
+                    + fmt + "\" differs from parsing: " + ns + " instead of "
+                    + ms, pos);
+        }
+    }
+
+    /** The maximum number of templates cached for an extension. */
+    protected static final int MAX_TEMPLATES = 4096;
+
+    /**
+     * The templates compiled for each extension, by format string, in
+     * order of use.
+     */
+    protected static final Map<ExtensionInfo, Map<String, QQTemplate>> templates =
+            new WeakHashMap<>();
+
+    /** Return the templates compiled for {@code ext}. */
+    protected static Map<String, QQTemplate> templates(ExtensionInfo ext) {
+        synchronized (templates) {
+            Map<String, QQTemplate> cache = templates.get(ext);
+            if (cache == null) {
+                cache = new LinkedHashMap<>(64, 0.75f, true);
+                templates.put(ext, cache);
+            }
+            return cache;
+        }
+    }
+
+    /** Parse a string into an AST node of the given type,
+     * applying substitutions in the lexer. */
+    protected Node parse(int kind, String fmt, Position pos, ErrorQueue eq,
+            Object[] subst) {
+        TypeSystem ts = ext.typeSystem();
+        NodeFactory nf = ext.nodeFactory();
+
+        polyglot.lex.Lexer lexer = lexer(fmt, pos, subst);
+        QQParser grm = parser(lexer, ts, nf, eq);
+
         try {
             java_cup.runtime.Symbol sym;
 
@@ -282,10 +399,7 @@ public class QQ {
             }
 
             if (sym != null && sym.value instanceof Node) {
-                Node n = (Node) sym.value;
-                if (Report.should_report(polyglot.frontend.Topics.qq, 1))
-                    Report.report(1, "result: " + n);
-                return n;
+                return (Node) sym.value;
             }
 
             throw new QQError("Unable to parse: \"" + fmt + "\".", pos);
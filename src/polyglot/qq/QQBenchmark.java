@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.qq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import polyglot.ast.Expr;
+import polyglot.ast.IntLit;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.frontend.Compiler;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.JLExtensionInfo;
+import polyglot.main.Options;
+import polyglot.main.UsageError;
+import polyglot.types.Flags;
+import polyglot.types.TypeSystem;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.Position;
+import polyglot.util.StdErrorQueue;
+
+/**
+ * Measures quasiquoting with templates against parsing each format string,
+ * on the kind of code a translation generates for each member of a class.
+ * Before timing, it checks that each template produces the same AST as
+ * parsing, and exits with status 1 if one does not.
+ */
+public class QQBenchmark {
+    /** A quasiquoter that always parses. */
+    protected static class ParsingQQ extends QQ {
+        public ParsingQQ(ExtensionInfo ext) {
+            super(ext, Position.COMPILER_GENERATED);
+        }
+
+        @Override
+        protected Node instantiate(int kind, String fmt, Position pos,
+                Object[] subst) {
+            return null;
+        }
+    }
+
+    protected static final String[] FORMATS =
+            { "if (%E == %T.%s) return %E;", "%T %s = new %T(%LE);",
+                    "{ %LS }", "class %s extends %T { %LM }", "%s(%LE);",
+                    "return (%T) %E;", "for (int i = 0; i < %E; i++) %S",
+                    "public Object %s() { %LS }" };
+
+    protected final ExtensionInfo ext;
+    protected final NodeFactory nf;
+    protected final TypeSystem ts;
+    protected final Position pos = Position.COMPILER_GENERATED;
+
+    public QQBenchmark(ExtensionInfo ext) {
+        this.ext = ext;
+        this.nf = ext.nodeFactory();
+        this.ts = ext.typeSystem();
+    }
+
+    /**
+     * Return the substitutions for each use of format {@code i}.
+     */
+    protected Object[][] substitutions(int i) {
+        Expr x = nf.Local(pos, nf.Id(pos, "x"));
+        Expr one = nf.IntLit(pos, IntLit.INT, 1);
+        switch (i) {
+        case 0:
+            return new Object[][] { { x, ts.Object(), "RED", one },
+                    { one, ts.String(), "BLUE", x } };
+        case 1:
+            return new Object[][] {
+                    { ts.Object(), "v", ts.Object(), Arrays.asList(x, one) },
+                    { ts.String(), "w", ts.String(), Collections.emptyList() } };
+        case 2:
+            return new Object[][] { { Arrays.asList(nf.Eval(pos, x),
+                                                    nf.Return(pos, one)) } };
+        case 3:
+            return new Object[][] { { "C",
+                    ts.Object(),
+                    Arrays.asList(nf.FieldDecl(pos,
+                                               Flags.NONE,
+                                               nf.CanonicalTypeNode(pos,
+                                                                    ts.Int()),
+                                               nf.Id(pos, "f"))) } };
+        case 4:
+            return new Object[][] { { "foo", Arrays.asList(x) } };
+        case 5:
+            return new Object[][] { { ts.Object(), x } };
+        case 6:
+            return new Object[][] { { one, nf.Eval(pos, x) } };
+        case 7:
+            return new Object[][] { { "m", Arrays.asList(nf.Return(pos, x)) } };
+        default:
+            throw new InternalCompilerError("No format " + i);
+        }
+    }
+
+    /**
+     * Quasiquote format {@code i} with {@code qq}.  The substitutions are
+     * copied, since quasiquoting consumes their lists.
+     */
+    protected Node quote(QQ qq, int i, Object[] subst) {
+        Object[] s = subst.clone();
+        for (int j = 0; j < s.length; j++) {
+            if (s[j] instanceof List) s[j] = new ArrayList<>((List<?>) s[j]);
+        }
+        switch (i) {
+        case 3:
+            return qq.parseDecl(FORMATS[i], s);
+        case 7:
+            return qq.parseMember(FORMATS[i], s);
+        default:
+            return qq.parseStmt(FORMATS[i], s);
+        }
+    }
+
+    /**
+     * Check that the templates produce the same ASTs as parsing, returning
+     * the number of formats and substitutions that do not.
+     */
+    public int check() {
+        QQ templates = new QQ(ext, pos);
+        QQ parser = new ParsingQQ(ext);
+        int bad = 0;
+        // Check both the instantiation compiling each template and later
+        // ones.
+        for (int k = 0; k < 2; k++) {
+            for (int i = 0; i < FORMATS.length; i++) {
+                for (Object[] subst : substitutions(i)) {
+                    List<String> t =
+                            QQTemplate.describe(nf.lang(),
+                                                quote(templates, i, subst));
+                    List<String> p =
+                            QQTemplate.describe(nf.lang(),
+                                                quote(parser, i, subst));
+                    if (!t.equals(p)) {
+                        System.err.println("\"" + FORMATS[i]
+                                + "\" differs from parsing: " + t
+                                + " instead of " + p);
+                        bad++;
+                    }
+                }
+            }
+        }
+        return bad;
+    }
+
+    /**
+     * Return the time in milliseconds to quasiquote each format
+     * {@code iterations} times with {@code qq}.
+     */
+    public long time(QQ qq, int iterations) {
+        Object[][] subst = new Object[FORMATS.length][];
+        for (int i = 0; i < FORMATS.length; i++) {
+            subst[i] = substitutions(i)[0];
+        }
+        long start = System.nanoTime();
+        for (int k = 0; k < iterations; k++) {
+            for (int i = 0; i < FORMATS.length; i++) {
+                quote(qq, i, subst[i]);
+            }
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    public static void main(String args[]) {
+        int iterations = 20000;
+        if (args.length == 1) {
+            try {
+                iterations = Integer.parseInt(args[0]);
+            }
+            catch (NumberFormatException e) {
+                args = null;
+            }
+        }
+        if (args == null || args.length > 1) {
+            System.err.println("Usage: polyglot.qq.QQBenchmark [<iterations>]");
+            System.exit(1);
+        }
+
+        ExtensionInfo ext = new JLExtensionInfo();
+        Options options = ext.getOptions();
+        Options.global = options;
+        try {
+            options.parseCommandLine(new String[] { "-d", ".", "Dummy" },
+                                     new HashSet<String>());
+        }
+        catch (UsageError e) {
+            throw new InternalCompilerError(e);
+        }
+        new Compiler(ext, new StdErrorQueue(System.err,
+                                            100,
+                                            ext.compilerName()));
+
+        QQBenchmark b = new QQBenchmark(ext);
+        int bad = b.check();
+        if (bad != 0) {
+            System.err.println(bad + " quasiquotes differ from parsing.");
+            System.exit(1);
+        }
+
+        QQ templates = new QQ(ext, b.pos);
+        QQ parser = new ParsingQQ(ext);
+        // Warm up, then time.
+        b.time(parser, iterations / 10);
+        b.time(templates, iterations / 10);
+        long p = b.time(parser, iterations);
+        long t = b.time(templates, iterations);
+        System.out.println(FORMATS.length + " formats, " + iterations
+                + " iterations");
+        System.out.println("parsing:   " + p + " ms");
+        System.out.println("templates: " + t + " ms");
+        if (t > 0) {
+            System.out.println("speedup:   " + (double) p / t + "x");
+        }
+    }
+}
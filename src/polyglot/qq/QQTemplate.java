@@ -0,0 +1,442 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.qq;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import polyglot.ast.AmbExpr;
+import polyglot.ast.AmbTypeNode;
+import polyglot.ast.ClassDecl;
+import polyglot.ast.ClassMember;
+import polyglot.ast.Expr;
+import polyglot.ast.FieldDecl;
+import polyglot.ast.Formal;
+import polyglot.ast.Id;
+import polyglot.ast.Labeled;
+import polyglot.ast.Lang;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.ast.Stmt;
+import polyglot.ast.TypeNode;
+import polyglot.types.Flags;
+import polyglot.util.Position;
+import polyglot.util.SilentErrorQueue;
+import polyglot.visit.NodeVisitor;
+
+/**
+ * A format string compiled by the quasiquoter into an AST with holes.
+ * <p>
+ * The format string is parsed once, with a marker in place of each
+ * substitution: an identifier for a {@code String}, and a node for each
+ * {@code Node}, including each element of a {@code List}.  Each marker
+ * node implements the same AST interfaces as the node it stands for, so
+ * the format string parses just as it would with the substitutions.  A
+ * template is therefore compiled for a particular shape of substitutions,
+ * as computed by {@link #shape(Object[])}.
+ * <p>
+ * Instantiating the template copies the AST, replacing the markers with the
+ * substitutions, and the positions of the format string with positions for
+ * the current call.  If a marker does not end up in the AST exactly once,
+ * for example because the parser folded an identifier into a qualified
+ * name, the template is not usable, and the quasiquoter parses the format
+ * string instead.
+ */
+public class QQTemplate {
+    /** The prefix of the identifiers of markers. */
+    protected static final String HOLE = "qq$hole$";
+
+    protected static final char IDENT = 's';
+    protected static final char EXPR = 'E';
+    protected static final char STMT = 'S';
+    protected static final char TYPE = 'T';
+    protected static final char DECL = 'D';
+    protected static final char MEMB = 'M';
+    protected static final char FORM = 'F';
+
+    /** The AST, or null if the template is not usable. */
+    protected final Node node;
+
+    /** The kind of each hole, with list elements flattened. */
+    protected final char[] kinds;
+
+    /** The path and file of the positions in the AST. */
+    protected final String path;
+    protected final String file;
+
+    protected QQTemplate(Node node, char[] kinds, String path, String file) {
+        this.node = node;
+        this.kinds = kinds;
+        this.path = path;
+        this.file = file;
+    }
+
+    /**
+     * Return the shape of the substitutions {@code subst}: the kind of each
+     * substitution, with lists of kinds for lists.  Return null if some
+     * substitution has no marker.
+     */
+    public static String shape(Object[] subst) {
+        StringBuilder sb = new StringBuilder(subst.length);
+        for (Object o : subst) {
+            if (o instanceof List) {
+                sb.append('[');
+                for (Object p : (List<?>) o) {
+                    char k = kind(p);
+                    if (k == 0 || k == IDENT) return null;
+                    sb.append(k);
+                }
+                sb.append(']');
+            }
+            else {
+                char k = kind(o);
+                if (k == 0) return null;
+                sb.append(k);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the kind of the substitution {@code o}, or 0 if it does not
+     * implement exactly one of the AST interfaces checked by the lexer.
+     */
+    protected static char kind(Object o) {
+        if (o instanceof String) return IDENT;
+        if (!(o instanceof Node)) return 0;
+
+        boolean e = o instanceof Expr;
+        boolean s = o instanceof Stmt;
+        boolean t = o instanceof TypeNode;
+        boolean m = o instanceof ClassMember;
+        boolean f = o instanceof Formal;
+        int n = (e ? 1 : 0) + (s ? 1 : 0) + (t ? 1 : 0) + (m ? 1 : 0) + (f ? 1 : 0);
+        if (n != 1) return 0;
+
+        if (e) return EXPR;
+        if (s) return STMT;
+        if (t) return TYPE;
+        if (m) return o instanceof ClassDecl ? DECL : MEMB;
+        return FORM;
+    }
+
+    /**
+     * Compile the format string {@code fmt} into a template for
+     * substitutions of the same shape as {@code subst}.
+     */
+    public static QQTemplate compile(QQ qq, int kind, String fmt,
+            Position pos, Object[] subst) {
+        NodeFactory nf = qq.ext.nodeFactory();
+
+        List<Character> kinds = new ArrayList<>();
+        Object[] markers = new Object[subst.length];
+        for (int i = 0; i < subst.length; i++) {
+            Object o = subst[i];
+            if (o instanceof List) {
+                List<Node> l = new ArrayList<>();
+                for (Object p : (List<?>) o) {
+                    l.add((Node) marker(nf, pos, kind(p), kinds.size()));
+                    kinds.add(kind(p));
+                }
+                markers[i] = l;
+            }
+            else {
+                markers[i] = marker(nf, pos, kind(o), kinds.size());
+                kinds.add(kind(o));
+            }
+        }
+
+        char[] k = new char[kinds.size()];
+        for (int i = 0; i < k.length; i++) {
+            k[i] = kinds.get(i);
+        }
+
+        String file = file(fmt, pos, markers);
+
+        Node n;
+        try {
+            n = qq.parse(kind,
+                         fmt,
+                         pos,
+                         new SilentErrorQueue(1, "quasiquote"),
+                         markers);
+        }
+        catch (RuntimeException e) {
+            // Report the error when parsing with the substitutions.
+            return new QQTemplate(null, k, pos.path(), file);
+        }
+
+        QQTemplate t = new QQTemplate(n, k, pos.path(), file);
+
+        // Check that each marker occurs exactly once.
+        if (t.instantiate(nf.lang(), fmt, pos, markers) == null) {
+            return new QQTemplate(null, k, pos.path(), file);
+        }
+
+        return t;
+    }
+
+    /** Create the marker for hole {@code i} of kind {@code kind}. */
+    protected static Object marker(NodeFactory nf, Position pos, char kind,
+            int i) {
+        Id id = nf.Id(pos, HOLE + i);
+        switch (kind) {
+        case IDENT:
+            return id.id();
+        case EXPR:
+            return nf.AmbExpr(pos, id);
+        case STMT:
+            return nf.Labeled(pos, id, nf.Empty(pos));
+        case TYPE:
+            return nf.AmbTypeNode(pos, id);
+        case DECL:
+            return nf.ClassDecl(pos,
+                                Flags.NONE,
+                                id,
+                                null,
+                                new ArrayList<TypeNode>(),
+                                nf.ClassBody(pos, new ArrayList<ClassMember>()));
+        case MEMB:
+            return nf.FieldDecl(pos,
+                                Flags.NONE,
+                                nf.AmbTypeNode(pos, nf.Id(pos, "Object")),
+                                id);
+        case FORM:
+            return nf.Formal(pos,
+                             Flags.NONE,
+                             nf.AmbTypeNode(pos, nf.Id(pos, "Object")),
+                             id);
+        default:
+            throw new QQError("bad quasi-quoting substitution kind: " + kind,
+                              pos);
+        }
+    }
+
+    /**
+     * Instantiate the template with the substitutions {@code subst}, or
+     * return null if the template is not usable.
+     */
+    public Node instantiate(Lang lang, String fmt, Position pos,
+            Object[] subst) {
+        if (node == null) return null;
+
+        Object[] holes = new Object[kinds.length];
+        int j = 0;
+        for (Object o : subst) {
+            if (o instanceof List) {
+                for (Object p : (List<?>) o) {
+                    holes[j++] = p;
+                }
+            }
+            else {
+                holes[j++] = o;
+            }
+        }
+
+        Substitution v =
+                new Substitution(lang, holes, pos.path(), file(fmt, pos, subst));
+        Node n = node.visit(v);
+        return v.complete() ? n : null;
+    }
+
+    /**
+     * Return a description of each node of {@code n} in pre-order: its
+     * class, its printed form and its position, including offsets.
+     */
+    public static List<String> describe(Lang lang, Node n) {
+        final List<String> l = new ArrayList<>();
+        n.visit(new NodeVisitor(lang) {
+            @Override
+            public NodeVisitor enter(Node n) {
+                Position p = n.position();
+                l.add(n.getClass().getName() + " " + n + " @ " + p
+                        + (p == null ? "" : " [" + p.offset() + "-"
+                                + p.endOffset() + "]"));
+                return this;
+            }
+        });
+        return l;
+    }
+
+    /**
+     * Return the file of positions in the AST for {@code fmt}, as computed
+     * by the lexer.
+     */
+    protected static String file(String fmt, Position pos, Object[] subst) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(pos.toString());
+        sb.append(": quasiquote(");
+        int substIdx = 0;
+        for (int i = 0; i < fmt.length(); i++) {
+            if (fmt.charAt(i) == '%' && substIdx < subst.length) {
+                i++;
+                sb.append(subst[substIdx++]);
+            }
+            else {
+                sb.append(fmt.charAt(i));
+            }
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    /**
+     * Copies the AST of the template, substituting the holes.
+     */
+    protected class Substitution extends NodeVisitor {
+        protected final Object[] holes;
+        protected final int[] counts;
+        protected final String newPath;
+        protected final String newFile;
+        protected final Map<Position, Position> positions;
+        protected boolean stray;
+
+        protected Substitution(Lang lang, Object[] holes, String newPath,
+                String newFile) {
+            super(lang);
+            this.holes = holes;
+            this.counts = new int[holes.length];
+            this.newPath = newPath;
+            this.newFile = newFile;
+            this.positions = new IdentityHashMap<>();
+        }
+
+        /** Return true if each hole was substituted exactly once. */
+        public boolean complete() {
+            if (stray) return false;
+            for (int c : counts) {
+                if (c != 1) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Return the hole of the marker node {@code n}, or -1 if it is not
+         * a marker.
+         */
+        protected int hole(Node n) {
+            Id id;
+            char kind;
+            if (n instanceof AmbExpr) {
+                id = ((AmbExpr) n).id();
+                kind = EXPR;
+            }
+            else if (n instanceof Labeled) {
+                id = ((Labeled) n).labelNode();
+                kind = STMT;
+            }
+            else if (n instanceof AmbTypeNode) {
+                id = ((AmbTypeNode) n).id();
+                kind = TYPE;
+            }
+            else if (n instanceof ClassDecl) {
+                id = ((ClassDecl) n).id();
+                kind = DECL;
+            }
+            else if (n instanceof FieldDecl) {
+                id = ((FieldDecl) n).id();
+                kind = MEMB;
+            }
+            else if (n instanceof Formal) {
+                id = ((Formal) n).id();
+                kind = FORM;
+            }
+            else {
+                return -1;
+            }
+
+            int i = hole(id);
+            return i >= 0 && kinds[i] == kind ? i : -1;
+        }
+
+        /** Return the hole of the marker identifier {@code id}, or -1. */
+        protected int hole(Id id) {
+            String s = id.id();
+            if (!s.startsWith(HOLE)) return -1;
+            try {
+                int i = Integer.parseInt(s.substring(HOLE.length()));
+                return i < kinds.length ? i : -1;
+            }
+            catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public Node override(Node n) {
+            int i = hole(n);
+            if (i >= 0) {
+                counts[i]++;
+                return (Node) holes[i];
+            }
+            return null;
+        }
+
+        @Override
+        public Node leave(Node old, Node n, NodeVisitor v) {
+            if (n instanceof Id) {
+                int i = hole((Id) n);
+                if (i >= 0) {
+                    if (kinds[i] == IDENT) {
+                        counts[i]++;
+                        n = ((Id) n).id((String) holes[i]);
+                    }
+                    else {
+                        // A marker node was taken apart by the parser.
+                        stray = true;
+                    }
+                }
+            }
+
+            if (n == old) {
+                n = n.copy();
+            }
+
+            return n.position(position(n.position()));
+        }
+
+        /** Return the position for this instantiation of {@code p}. */
+        protected Position position(Position p) {
+            if (p == null || !file.equals(p.file())) return p;
+            Position q = positions.get(p);
+            if (q == null) {
+                q = new Position(newPath,
+                                 newFile,
+                                 p.line(),
+                                 p.column(),
+                                 p.endLine(),
+                                 p.endColumn(),
+                                 p.offset(),
+                                 p.endOffset());
+                positions.put(p, q);
+            }
+            return q;
+        }
+    }
+}
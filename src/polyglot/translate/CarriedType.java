@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.translate;
+
+import polyglot.types.MethodInstance;
+import polyglot.types.Type;
+import polyglot.types.TypeSystem;
+import polyglot.types.UnknownType_c;
+import polyglot.util.SerialVersionUID;
+
+/**
+ * A place-holder for the type carried over by an {@code ExtensionRewriter}
+ * that preserves types, until it is translated by a
+ * {@code CarriedTypeChecker}.  Like any unknown type, it is not canonical,
+ * so the expressions that carry it are not considered type checked.
+ */
+public class CarriedType extends UnknownType_c {
+    private static final long serialVersionUID = SerialVersionUID.generate();
+
+    /** The type carried over, in the type system of the source language. */
+    protected Type carried;
+
+    /**
+     * The method instance carried over with the type of a call, in the type
+     * system of the source language, or null.
+     */
+    protected MethodInstance carriedMethod;
+
+    /** Used for deserializing types. */
+    protected CarriedType() {
+    }
+
+    public CarriedType(TypeSystem ts, Type carried) {
+        super(ts);
+        this.carried = carried;
+    }
+
+    public CarriedType(TypeSystem ts, Type carried,
+            MethodInstance carriedMethod) {
+        this(ts, carried);
+        this.carriedMethod = carriedMethod;
+    }
+
+    public Type carried() {
+        return carried;
+    }
+
+    public MethodInstance carriedMethod() {
+        return carriedMethod;
+    }
+
+    @Override
+    public String toString() {
+        return "<carried " + carried + ">";
+    }
+}
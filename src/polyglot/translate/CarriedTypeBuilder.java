@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.translate;
+
+import polyglot.ast.Call;
+import polyglot.ast.Expr;
+import polyglot.ast.FieldDecl;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.frontend.Job;
+import polyglot.types.FieldInstance;
+import polyglot.types.Type;
+import polyglot.types.TypeSystem;
+import polyglot.visit.NodeVisitor;
+import polyglot.visit.TypeBuilder;
+
+/**
+ * A type builder for ASTs rewritten by an {@code ExtensionRewriter} that
+ * preserves types.  Expressions keep the type carried over from the source
+ * AST as a {@code CarriedType}, along with the method instance of a call,
+ * to be translated by a {@code CarriedTypeChecker}, and fields take their constant values from
+ * the fields they were rewritten from.
+ */
+public class CarriedTypeBuilder extends TypeBuilder {
+    public CarriedTypeBuilder(Job job, TypeSystem ts, NodeFactory nf) {
+        super(job, ts, nf);
+    }
+
+    @Override
+    public Node leave(Node old, Node n, NodeVisitor v) {
+        Node m = super.leave(old, n, v);
+
+        if (n instanceof Expr && m instanceof Expr) {
+            Type t = ((Expr) n).type();
+            if (n instanceof Call && t != null) {
+                m = ((Expr) m).type(new CarriedType(ts,
+                                                    t,
+                                                    ((Call) n).methodInstance()));
+            }
+            else if (t != null) {
+                m = ((Expr) m).type(new CarriedType(ts, t));
+            }
+        }
+
+        if (n instanceof FieldDecl && m instanceof FieldDecl) {
+            FieldInstance carried = ((FieldDecl) n).fieldInstance();
+            FieldInstance fi = ((FieldDecl) m).fieldInstance();
+            if (carried != null && fi != null && carried.constantValueSet()) {
+                if (carried.isConstant()) {
+                    fi.setConstantValue(carried.constantValue());
+                }
+                else {
+                    fi.setNotConstant();
+                }
+            }
+        }
+
+        return m;
+    }
+}
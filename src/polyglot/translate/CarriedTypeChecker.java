@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.translate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import polyglot.ast.Call;
+import polyglot.ast.ClassDecl;
+import polyglot.ast.Expr;
+import polyglot.ast.Field;
+import polyglot.ast.Local;
+import polyglot.ast.MethodDecl;
+import polyglot.ast.New;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.ast.Receiver;
+import polyglot.frontend.Job;
+import polyglot.types.ClassType;
+import polyglot.types.FieldInstance;
+import polyglot.types.LocalInstance;
+import polyglot.types.MethodInstance;
+import polyglot.types.Named;
+import polyglot.types.SemanticException;
+import polyglot.types.Type;
+import polyglot.types.TypeSystem;
+import polyglot.util.Position;
+import polyglot.visit.NodeVisitor;
+import polyglot.visit.TypeChecker;
+
+/**
+ * Translates the types carried over by an {@code ExtensionRewriter} that
+ * preserves types into the type system of the target extension, in place of
+ * type checking the rewritten AST.  This visitor runs after
+ * disambiguation, when the classes of the target program have their types.
+ * <p>
+ * The types of expressions and the method instances of calls are provided,
+ * and the implicit targets of calls are made explicit as by type checking;
+ * field and local instances are those found by disambiguation, if any.
+ * This is enough to serialize and output the rewritten AST.  Expressions
+ * without a carried type, such as those introduced by the rewriting of the
+ * source AST, and calls whose method cannot be found in the target type
+ * system are type checked as usual, as are the constant values of fields
+ * not carried over by the {@code CarriedTypeBuilder}.  Since the rewriting
+ * may change the signatures of methods, methods are still checked to
+ * override those they implement, and classes to conform to their
+ * superclasses and interfaces.
+ */
+public class CarriedTypeChecker extends TypeChecker {
+    public CarriedTypeChecker(Job job, TypeSystem ts, NodeFactory nf) {
+        super(job, ts, nf);
+    }
+
+    @Override
+    protected Node leaveCall(Node old, Node n, NodeVisitor v)
+            throws SemanticException {
+        if (n instanceof Call && ((Call) n).type() instanceof CarriedType) {
+            Call c = carriedCall((Call) n);
+            if (c != null) {
+                return c;
+            }
+            return super.leaveCall(old, n, v);
+        }
+
+        // The rewriting may change the signatures of methods, so check that
+        // they still override, and classes still conform, in the target
+        // language.
+        if (n instanceof MethodDecl
+                && ((MethodDecl) n).methodInstance() != null) {
+            MethodInstance mi = ((MethodDecl) n).methodInstance();
+            for (MethodInstance mj : mi.implemented()) {
+                ts.checkOverride(mi, mj);
+            }
+        }
+        if (n instanceof ClassDecl && ((ClassDecl) n).type() != null) {
+            ts.checkClassConformance(((ClassDecl) n).type());
+        }
+
+        if (n instanceof Expr) {
+            Expr e = (Expr) n;
+            Type t = null;
+
+            if (e instanceof New && ((New) e).anonType() != null) {
+                t = ((New) e).anonType();
+                if (((New) e).body() != null) {
+                    ts.checkClassConformance(((New) e).anonType());
+                }
+            }
+            else if (e.type() instanceof CarriedType) {
+                t = carriedType(((CarriedType) e.type()).carried());
+            }
+            else if (e instanceof Field) {
+                // Disambiguated from an expression with an implicit target.
+                FieldInstance fi = ((Field) e).fieldInstance();
+                if (fi != null && fi.isCanonical()) t = fi.type();
+            }
+            else if (e instanceof Local) {
+                LocalInstance li = ((Local) e).localInstance();
+                if (li != null && li.isCanonical()) t = li.type();
+            }
+
+            if (t != null) {
+                return e.type(t);
+            }
+            if (!e.isTypeChecked()) {
+                return super.leaveCall(old, n, v);
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Return the call {@code c} with the type and method instance carried
+     * over from the source AST, and with its implicit target, if any, made
+     * explicit, or null if they cannot be translated.
+     */
+    protected Call carriedCall(Call c) throws SemanticException {
+        CarriedType ct = (CarriedType) c.type();
+        if (ct.carriedMethod() == null) return null;
+        Type t = carriedType(ct.carried());
+        MethodInstance mi = carriedMethodInstance(ct.carriedMethod());
+        if (t == null || mi == null) return null;
+
+        if (c.target() == null) {
+            // As in Call_c.typeCheckNullTarget.
+            Position pos = c.position().startOf();
+            Receiver r;
+            if (mi.flags().isStatic()) {
+                Type container = lang().findContainer(c, ts, mi);
+                r = nf.CanonicalTypeNode(pos, container).type(container);
+            }
+            else {
+                ClassType scope = context().findMethodScope(mi.name());
+                if (!ts.equals(scope, context().currentClass())) {
+                    r =
+                            nf.This(pos, nf.CanonicalTypeNode(pos, scope))
+                              .type(scope);
+                }
+                else {
+                    r = nf.This(pos).type(scope);
+                }
+            }
+            c = c.targetImplicit(true).target(r);
+        }
+
+        return (Call) c.methodInstance(mi).type(t);
+    }
+
+    /**
+     * Return the method instance of the target type system corresponding to
+     * the method instance {@code mi} carried over from the source AST, or
+     * null if there is none.  The method is found in the translation of its
+     * container by its name and the translations of its formal types.
+     */
+    protected MethodInstance carriedMethodInstance(MethodInstance mi)
+            throws SemanticException {
+        Type container = carriedType(mi.container());
+        if (container == null || !container.isReference()) return null;
+
+        List<Type> formals = new ArrayList<>(mi.formalTypes().size());
+        for (Type f : mi.formalTypes()) {
+            Type t = carriedType(f);
+            if (t == null) return null;
+            formals.add(t);
+        }
+
+        for (MethodInstance m : container.toReference()
+                                         .methodsNamed(mi.name())) {
+            if (m.hasFormals(formals)) return m;
+        }
+        return null;
+    }
+
+    /**
+     * Return the type of the target type system corresponding to the type
+     * {@code t} carried over from the source AST, or null if there is none.
+     */
+    protected Type carriedType(Type t) throws SemanticException {
+        if (t.isNull()) return ts.Null();
+        if (t.isVoid()) return ts.Void();
+        if (t.isBoolean()) return ts.Boolean();
+        if (t.isByte()) return ts.Byte();
+        if (t.isChar()) return ts.Char();
+        if (t.isShort()) return ts.Short();
+        if (t.isInt()) return ts.Int();
+        if (t.isLong()) return ts.Long();
+        if (t.isFloat()) return ts.Float();
+        if (t.isDouble()) return ts.Double();
+
+        if (t.isArray()) {
+            Type base = carriedType(t.toArray().base());
+            return base != null ? ts.arrayOf(base) : null;
+        }
+
+        if (t.isClass()) {
+            ClassType ct = t.toClass();
+            if (ct.isTopLevel() || ct.isMember()) {
+                return ts.typeForName(ct.fullName());
+            }
+            if (ct.isLocal()) {
+                Named local = context().find(ct.name());
+                if (local instanceof ClassType) return (ClassType) local;
+            }
+            // An anonymous class: look for it among the enclosing classes.
+            for (ClassType c = context().currentClass(); c != null; c =
+                    c.outer()) {
+                if (c.isAnonymous() && c.position() == ct.position()) {
+                    return c;
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.translate;
+
+import polyglot.ast.Expr;
+import polyglot.ast.FieldDecl;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.frontend.Job;
+import polyglot.types.FieldInstance;
+import polyglot.types.SemanticException;
+import polyglot.types.Type;
+import polyglot.types.TypeSystem;
+import polyglot.util.ErrorInfo;
+import polyglot.visit.NodeVisitor;
+import polyglot.visit.TypeChecker;
+
+/**
+ * Type checks an AST whose types were carried over by an
+ * {@code ExtensionRewriter} that preserves types, and reports an internal
+ * error wherever the carried types and constant values disagree with those
+ * found by the type checker.  A carried type may be more precise than the
+ * type found, e.g., the return type of a method with a covariant return
+ * type, but must be a subtype of it.
+ */
+public class CarriedTypeValidator extends TypeChecker {
+    public CarriedTypeValidator(Job job, TypeSystem ts, NodeFactory nf) {
+        super(job, ts, nf);
+    }
+
+    @Override
+    protected Node leaveCall(Node old, Node n, NodeVisitor v)
+            throws SemanticException {
+        Type carried = null;
+        if (n instanceof Expr) {
+            carried = ((Expr) n).type();
+        }
+
+        boolean constantValueSet = false;
+        boolean constant = false;
+        Object constantValue = null;
+        if (n instanceof FieldDecl) {
+            FieldInstance fi = ((FieldDecl) n).fieldInstance();
+            if (fi != null && fi.constantValueSet()) {
+                constantValueSet = true;
+                constant = fi.isConstant();
+                constantValue = fi.constantValue();
+            }
+        }
+
+        Node m = super.leaveCall(old, n, v);
+
+        if (carried != null && carried.isCanonical() && m instanceof Expr) {
+            Type t = ((Expr) m).type();
+            if (t != null && t.isCanonical() && !ts.isSubtype(carried, t)) {
+                errorQueue().enqueue(ErrorInfo.INTERNAL_ERROR,
+                                     "The carried type " + carried + " of "
+                                             + m + " should be a subtype of "
+                                             + t + ".",
+                                     m.position());
+            }
+        }
+
+        if (constantValueSet && m instanceof FieldDecl) {
+            FieldInstance fi = ((FieldDecl) m).fieldInstance();
+            if (fi.constantValueSet()
+                    && (constant != fi.isConstant() || constant
+                            && !equals(constantValue, fi.constantValue()))) {
+                errorQueue().enqueue(ErrorInfo.INTERNAL_ERROR,
+                                     "The carried constant value of field "
+                                             + fi.name() + " should be "
+                                             + (fi.isConstant()
+                                                     ? fi.constantValue()
+                                                     : "none") + ".",
+                                     m.position());
+            }
+        }
+
+        return m;
+    }
+
+    protected static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+}
@@ -25,16 +25,22 @@
  ******************************************************************************/
 package polyglot.translate;
 
+import polyglot.ast.ArrayInit;
+import polyglot.ast.Call;
+import polyglot.ast.Expr;
+import polyglot.ast.FieldDecl;
 import polyglot.ast.Lang;
 import polyglot.ast.Node;
 import polyglot.ast.NodeFactory;
 import polyglot.ast.SourceCollection;
 import polyglot.ast.SourceFile;
+import polyglot.ast.Special;
 import polyglot.ast.TypeNode;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.Job;
 import polyglot.main.Report;
 import polyglot.qq.QQ;
+import polyglot.types.MethodInstance;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.types.TypeSystem;
@@ -57,6 +63,11 @@ import polyglot.visit.NodeVisitor;
  * pattern is to subclass the target extension's scheduler in order to
  * substitute an empty pass for the Parsed compiler goal.
  * @see JLOutputExtensionInfo for an example.
+ *
+ * If the target extension preserves types, each rewritten expression
+ * carries the type of the expression it was rewritten from, each call the
+ * method instance, and each field declaration the field instance, for the
+ * target extension to translate into its own type system.
  */
 public class ExtensionRewriter extends ContextVisitor {
     /** The ExtensionInfo of the source language */
@@ -71,6 +82,9 @@ public class ExtensionRewriter extends ContextVisitor {
     /** The language dispatcher for the AST */
     private Lang lang;
 
+    /** Whether to carry types over to the rewritten AST */
+    protected final boolean preserveTypes;
+
     public ExtensionRewriter(Job job, ExtensionInfo from_ext,
             ExtensionInfo to_ext) {
         super(job, from_ext.typeSystem(), to_ext.nodeFactory());
@@ -80,6 +94,9 @@ public class ExtensionRewriter extends ContextVisitor {
         qq = new QQ(to_ext);
         rethrowMissingDependencies = true;
         lang = from_ext.nodeFactory().lang();
+        preserveTypes =
+                to_ext instanceof JLOutputExtensionInfo
+                        && ((JLOutputExtensionInfo) to_ext).preserveTypes();
     }
 
     @Override
@@ -89,12 +106,12 @@ public class ExtensionRewriter extends ContextVisitor {
 
     @Override
     public Node override(Node parent, Node n) {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::override " + n);
 
         Node m = lang().extRewriteOverride(n, this);
 
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::override " + n + " -> " + m);
         if (m == null) {
             return super.override(parent, n);
@@ -128,7 +145,11 @@ public class ExtensionRewriter extends ContextVisitor {
     public Node leaveCall(Node old, Node n, NodeVisitor v)
             throws SemanticException {
         try {
-            return lang().extRewrite(n, this);
+            Node m = lang().extRewrite(n, this);
+            if (preserveTypes) {
+                m = carryTypes(n, m);
+            }
+            return m;
         }
         catch (SemanticException e) {
             Position position = e.position();
@@ -145,6 +166,57 @@ public class ExtensionRewriter extends ContextVisitor {
         }
     }
 
+    /**
+     * Carry the type information of {@code n} over to {@code m}, the node it
+     * was rewritten to.
+     */
+    protected Node carryTypes(Node n, Node m) {
+        if (n instanceof Expr && m instanceof Expr
+                && ((Expr) m).type() == null) {
+            Type t = carriedType((Expr) n);
+            if (t != null && t.isCanonical()) {
+                m = ((Expr) m).type(t);
+            }
+        }
+        if (n instanceof FieldDecl && m instanceof FieldDecl
+                && ((FieldDecl) m).fieldInstance() == null) {
+            m = ((FieldDecl) m).fieldInstance(((FieldDecl) n).fieldInstance());
+        }
+        if (n instanceof Call && m instanceof Call
+                && ((Call) m).methodInstance() == null
+                && ((Call) n).name().equals(((Call) m).name())) {
+            MethodInstance mi = carriedMethodInstance((Call) n);
+            if (mi != null && mi.isCanonical()) {
+                m = ((Call) m).methodInstance(mi);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * The method instance carried over to the rewriting of {@code c}, in the
+     * source type system, or null if the call should be type checked again.
+     * The target extension looks the method up by its container and formal
+     * types, so these must be those of the method as it is declared in the
+     * target language.
+     */
+    public MethodInstance carriedMethodInstance(Call c) {
+        return c.methodInstance();
+    }
+
+    /**
+     * The type carried over to the rewriting of {@code e}, in the source
+     * type system, or null if {@code e} should be type checked again.  The
+     * target extension translates it into its own type system by name.
+     */
+    public Type carriedType(Expr e) {
+        // The type of this and super is that of the enclosing class, and
+        // the type of an array initializer that of its elements, either of
+        // which the rewriting may change.
+        if (e instanceof Special || e instanceof ArrayInit) return null;
+        return e.type();
+    }
+
     @Override
     protected void addDecls(Node old, Node n) {
         // Use the old node to add the declarations, as the new node, n, doesn't
@@ -27,7 +27,10 @@ package polyglot.translate;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
+import polyglot.ast.NodeFactory;
+import polyglot.frontend.CyclicDependencyException;
 import polyglot.frontend.EmptyPass;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.JLExtensionInfo;
@@ -35,11 +38,18 @@ import polyglot.frontend.JLScheduler;
 import polyglot.frontend.Job;
 import polyglot.frontend.Pass;
 import polyglot.frontend.Scheduler;
+import polyglot.frontend.goals.EmptyGoal;
 import polyglot.frontend.goals.Goal;
 import polyglot.frontend.goals.SourceFileGoal;
+import polyglot.frontend.goals.VisitorGoal;
+import polyglot.main.OptFlag;
 import polyglot.main.OptFlag.Arg;
+import polyglot.main.OptFlag.Kind;
+import polyglot.main.OptFlag.Switch;
 import polyglot.main.Options;
 import polyglot.main.UsageError;
+import polyglot.types.TypeSystem;
+import polyglot.types.TypeSystem_c;
 import polyglot.util.InternalCompilerError;
 
 /**
@@ -49,6 +59,13 @@ import polyglot.util.InternalCompilerError;
  * 
  * It also provides a subclass of JLScheduler that does performs an 
  * empty pass for the Parsed goal, since no files are actually parsed.
+ *
+ * If the parent extension passes the {@code -preserveTypes} option, the
+ * ExtensionRewriter carries the types of the source AST over to the
+ * rewritten AST, and the scheduler translates these types instead of type
+ * checking and validating the rewritten AST again.  With the
+ * {@code -validatePreservedTypes} option, the rewritten AST is checked as
+ * usual, and the carried types are checked against those found.
  */
 public class JLOutputExtensionInfo extends JLExtensionInfo {
     final protected ExtensionInfo parent;
@@ -57,17 +74,71 @@ public class JLOutputExtensionInfo extends JLExtensionInfo {
         this.parent = parent;
     }
 
+    @Override
+    protected void initTypeSystem() {
+        // Names are resolved in the type systems of both extensions while
+        // translating, so they share a resolution lock.
+        if (ts instanceof TypeSystem_c) {
+            ((TypeSystem_c) ts).shareResolutionLock(parent.typeSystem());
+        }
+        super.initTypeSystem();
+    }
+
     @Override
     public Scheduler createScheduler() {
         return new JLOutputScheduler(this);
     }
 
+    /**
+     * Whether ASTs enqueued by an ExtensionRewriter carry their types, and
+     * need not be type checked again.
+     */
+    public boolean preserveTypes() {
+        return ((JLOutputOptions) getOptions()).preserveTypes;
+    }
+
+    /**
+     * Whether ASTs carrying their types should be type checked anyway, to
+     * check the carried types.
+     */
+    public boolean validatePreservedTypes() {
+        return ((JLOutputOptions) getOptions()).validatePreservedTypes;
+    }
+
     static protected class JLOutputOptions extends Options {
+        public boolean preserveTypes;
+        public boolean validatePreservedTypes;
 
         public JLOutputOptions(ExtensionInfo extension) {
             super(extension);
         }
 
+        @Override
+        protected void populateFlags(Set<OptFlag<?>> flags) {
+            super.populateFlags(flags);
+
+            // These must be the flags of the parent extension that
+            // enable type preservation.
+            flags.add(new Switch(new String[] { "-preserveTypes",
+                                         "--preserveTypes" },
+                                 "Carry the types of the source program over to the translated program"));
+            flags.add(new Switch(Kind.SECRET,
+                                 new String[] { "-validatePreservedTypes",
+                                         "--validatePreservedTypes" },
+                                 "Type check the translated program and check the types carried over"));
+        }
+
+        @Override
+        protected void handleArg(Arg<?> arg) throws UsageError {
+            if (arg.flag().ids().contains("-preserveTypes")) {
+                this.preserveTypes = (Boolean) arg.value();
+            }
+            else if (arg.flag().ids().contains("-validatePreservedTypes")) {
+                this.validatePreservedTypes = (Boolean) arg.value();
+            }
+            else super.handleArg(arg);
+        }
+
         /**
          * Skip checks regarding source files.
          */
@@ -107,5 +178,131 @@ public class JLOutputExtensionInfo extends JLExtensionInfo {
                 }
             });
         }
+
+        protected boolean preserveTypes() {
+            return ((JLOutputExtensionInfo) extInfo).preserveTypes();
+        }
+
+        protected boolean checkTypes() {
+            return !preserveTypes()
+                    || ((JLOutputExtensionInfo) extInfo).validatePreservedTypes();
+        }
+
+        @Override
+        public Goal TypesInitialized(Job job) {
+            if (!preserveTypes()) {
+                return super.TypesInitialized(job);
+            }
+            TypeSystem ts = extInfo.typeSystem();
+            NodeFactory nf = extInfo.nodeFactory();
+            Goal g =
+                    internGoal(new VisitorGoal(job,
+                                               new CarriedTypeBuilder(job,
+                                                                      ts,
+                                                                      nf)));
+            try {
+                g.addPrerequisiteGoal(Parsed(job), this);
+            }
+            catch (CyclicDependencyException e) {
+                throw new InternalCompilerError(e);
+            }
+            return g;
+        }
+
+        /**
+         * The goal of translating the types carried by the AST of
+         * {@code job} into this extension's type system.
+         */
+        public Goal TypesCarried(Job job) {
+            TypeSystem ts = extInfo.typeSystem();
+            NodeFactory nf = extInfo.nodeFactory();
+            Goal g =
+                    internGoal(new VisitorGoal(job,
+                                               new CarriedTypeChecker(job,
+                                                                      ts,
+                                                                      nf)));
+            try {
+                g.addPrerequisiteGoal(Disambiguated(job), this);
+            }
+            catch (CyclicDependencyException e) {
+                throw new InternalCompilerError(e);
+            }
+            return g;
+        }
+
+        @Override
+        public Goal TypeChecked(Job job) {
+            if (!preserveTypes()) {
+                return super.TypeChecked(job);
+            }
+            if (!checkTypes()) {
+                return TypesCarried(job);
+            }
+            TypeSystem ts = extInfo.typeSystem();
+            NodeFactory nf = extInfo.nodeFactory();
+            Goal g =
+                    internGoal(new VisitorGoal(job,
+                                               new CarriedTypeValidator(job,
+                                                                        ts,
+                                                                        nf)));
+            try {
+                g.addPrerequisiteGoal(TypesCarried(job), this);
+            }
+            catch (CyclicDependencyException e) {
+                throw new InternalCompilerError(e);
+            }
+            return g;
+        }
+
+        /**
+         * A goal that is reached without checking anything, for checks
+         * already performed on the source AST.
+         */
+        protected Goal Unchecked(Job job, String name) {
+            Goal g = internGoal(new EmptyGoal(job, name));
+            try {
+                g.addPrerequisiteGoal(TypeChecked(job), this);
+            }
+            catch (CyclicDependencyException e) {
+                throw new InternalCompilerError(e);
+            }
+            return g;
+        }
+
+        @Override
+        public Goal ReachabilityChecked(Job job) {
+            if (checkTypes()) return super.ReachabilityChecked(job);
+            return Unchecked(job, "ReachabilityChecked");
+        }
+
+        @Override
+        public Goal ExceptionsChecked(Job job) {
+            if (checkTypes()) return super.ExceptionsChecked(job);
+            return Unchecked(job, "ExceptionsChecked");
+        }
+
+        @Override
+        public Goal ExitPathsChecked(Job job) {
+            if (checkTypes()) return super.ExitPathsChecked(job);
+            return Unchecked(job, "ExitPathsChecked");
+        }
+
+        @Override
+        public Goal InitializationsChecked(Job job) {
+            if (checkTypes()) return super.InitializationsChecked(job);
+            return Unchecked(job, "InitializationsChecked");
+        }
+
+        @Override
+        public Goal ConstructorCallsChecked(Job job) {
+            if (checkTypes()) return super.ConstructorCallsChecked(job);
+            return Unchecked(job, "ConstructorCallsChecked");
+        }
+
+        @Override
+        public Goal ForwardReferencesChecked(Job job) {
+            if (checkTypes()) return super.ForwardReferencesChecked(job);
+            return Unchecked(job, "ForwardReferencesChecked");
+        }
     }
 }
@@ -28,10 +28,10 @@ package polyglot.types;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import polyglot.main.Report;
-import polyglot.util.CollectionUtil;
 import polyglot.util.Copy;
 import polyglot.util.InternalCompilerError;
 
@@ -43,6 +43,9 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
     private Map<String, CachedResult> cache;
     private boolean cacheNotFound;
 
+    /** The resolution lock under which the cache is read and updated. */
+    protected final Object lock;
+
     protected static class CachedResult {
         protected static final class Success extends CachedResult {
             final Named named;
@@ -74,19 +77,41 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
     /**
      * Create a caching resolver.
      * @param inner The resolver whose results this resolver caches.
+     * @param ts The type system whose resolution lock guards the cache.
+     */
+    public CachingResolver(Resolver inner, boolean cacheNotFound,
+            TypeSystem ts) {
+        this(inner, cacheNotFound, ts.resolutionLock());
+    }
+
+    public CachingResolver(Resolver inner, TypeSystem ts) {
+        this(inner, true, ts);
+    }
+
+    /**
+     * Create a caching resolver whose cache is guarded by a lock of its
+     * own.  Such a resolver must not be used by passes run concurrently by
+     * the {@code -parallel} option.
+     * @param inner The resolver whose results this resolver caches.
      */
     public CachingResolver(Resolver inner, boolean cacheNotFound) {
-        this.inner = inner;
-        this.cacheNotFound = cacheNotFound;
-        this.cache = new HashMap<>();
+        this(inner, cacheNotFound, new Object());
     }
 
     public CachingResolver(Resolver inner) {
         this(inner, true);
     }
 
+    private CachingResolver(Resolver inner, boolean cacheNotFound,
+            Object lock) {
+        this.inner = inner;
+        this.cacheNotFound = cacheNotFound;
+        this.cache = new HashMap<>();
+        this.lock = lock;
+    }
+
     protected boolean shouldReport(int level) {
-        return (Report.should_report("sysresolver", level) && this instanceof SystemResolver)
+        return (Report.should_report(SYSRESOLVER, level) && this instanceof SystemResolver)
                 || Report.should_report(TOPICS, level);
     }
 
@@ -118,12 +143,36 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
         return cache.values();
     }
 
+    /** Return the names found in the cache, with the type objects found. */
+    protected Map<String, Named> cachedNamed() {
+        Map<String, Named> m = new LinkedHashMap<>();
+        synchronized (lock) {
+            for (Map.Entry<String, CachedResult> e : cache.entrySet()) {
+                if (e.getValue() instanceof CachedResult.Success) {
+                    m.put(e.getKey(),
+                          ((CachedResult.Success) e.getValue()).named);
+                }
+            }
+        }
+        return m;
+    }
+
     /**
      * Find a type object by name.
      * @param name The name to search for.
      */
     @Override
     public Named find(String name) throws SemanticException {
+        synchronized (lock) {
+            return findCached(name);
+        }
+    }
+
+    /**
+     * Find a type object by name, with the resolution lock held.
+     * @param name The name to search for.
+     */
+    protected Named findCached(String name) throws SemanticException {
         if (shouldReport(2))
             Report.report(2, "CachingResolver: find: " + name);
 
@@ -171,7 +220,10 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
      * @param name The name to search for.
      */
     public Named check(String name) {
-        CachedResult cached = cache.get(name);
+        CachedResult cached;
+        synchronized (lock) {
+            cached = cache.get(name);
+        }
         if (!(cached instanceof CachedResult.Success)) return null;
         return ((CachedResult.Success) cached).named;
     }
@@ -187,7 +239,9 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
                     + " in resolver cache");
         if (shouldReport(5)) new Exception().printStackTrace();
 
-        cache.put(name, new CachedResult.Success(q));
+        synchronized (lock) {
+            cache.put(name, new CachedResult.Success(q));
+        }
     }
 
     /**
@@ -207,6 +261,8 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
         }
     }
 
-    private static final Collection<String> TOPICS =
-            CollectionUtil.list(Report.types, Report.resolver);
+    private static final Report.Topic TOPICS =
+            Report.topic(Report.types, Report.resolver);
+    private static final Report.Topic SYSRESOLVER =
+            Report.topic("sysresolver");
 }
@@ -64,7 +64,8 @@ public abstract class ClassType_c extends ReferenceType_c implements ClassType {
     public Resolver resolver() {
         if (memberCache == null) {
             memberCache =
-                    new CachingResolver(ts.createClassContextResolver(this));
+                    new CachingResolver(ts.createClassContextResolver(this),
+                                        ts);
         }
         return memberCache;
     }
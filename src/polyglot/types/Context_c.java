@@ -26,7 +26,6 @@
 
 package polyglot.types;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +33,6 @@ import java.util.Map;
 import polyglot.ast.JLangToJLDel;
 import polyglot.ast.Lang;
 import polyglot.main.Report;
-import polyglot.util.CollectionUtil;
 import polyglot.util.Enum;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.SerialVersionUID;
@@ -82,6 +80,24 @@ public class Context_c implements Context {
         this.kind = OUTER;
     }
 
+    /**
+     * Create a context for a new scope within {@code outer}, with the same
+     * kind, class, code and import table.  This is for contexts that push
+     * scopes without cloning.
+     */
+    protected Context_c(Context_c outer) {
+        this.lang = outer.lang;
+        this.ts = outer.ts;
+        this.outer = outer;
+        this.it = outer.it;
+        this.kind = outer.kind;
+        this.type = outer.type;
+        this.scope = outer.scope;
+        this.code = outer.code;
+        this.inCode = outer.inCode;
+        this.staticContext = outer.staticContext;
+    }
+
     public boolean isBlock() {
         return kind == BLOCK;
     }
@@ -670,7 +686,7 @@ public class Context_c implements Context {
         vars.put(var.name(), var);
     }
 
-    private static final Collection<String> TOPICS =
-            CollectionUtil.list(Report.types, Report.context);
+    private static final Report.Topic TOPICS =
+            Report.topic(Report.types, Report.context);
 
 }
@@ -27,11 +27,19 @@
 package polyglot.types;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import polyglot.util.InternalCompilerError;
 import polyglot.util.SerialVersionUID;
@@ -40,11 +48,61 @@ import polyglot.util.SerialVersionUID;
  * {@code Flags} is an immutable set of class, method, or field modifiers.
  * We represent package scope as the absence of private, public and protected
  * scope modifiers.
+ * <p>
+ * Each flag is assigned a bit when it is created, and a set of flags is a
+ * bit mask.  Flags objects are interned, so that setting and clearing
+ * flags does not allocate.  Flags are serialized by name, since the bits
+ * assigned depend on the order in which flags are created.
  */
 public class Flags implements Serializable {
-    private static final long serialVersionUID = SerialVersionUID.generate();
+    /**
+     * The serialVersionUID of the {@code Set<String>} representation of
+     * flags, whose serialized form is kept so that class files compiled by
+     * earlier versions can still be read.
+     */
+    private static final long serialVersionUID = 5096316219755735865L;
+
+    /**
+     * The names of the set flags, in printing order.  This is the
+     * serialized form of flags; it is only computed when the flags are
+     * serialized, and is otherwise null.
+     */
+    private Set<String> flags;
+
+    /** The set flags among the first 64, one bit per name in {@code names}. */
+    protected transient long bits;
+
+    /**
+     * The set flags beyond the first 64, or null if there are none.  Word
+     * {@code i} holds the flags {@code 64 * (i + 1)} to
+     * {@code 64 * (i + 2) - 1}; the last word is nonzero.
+     */
+    protected transient long[] moreBits;
+
+    /** The names of the flags, indexed by bit. */
+    protected static final List<String> names =
+            new CopyOnWriteArrayList<>();
 
-    protected Set<String> flags;
+    /** The bits of the flags, indexed by name. */
+    protected static final Map<String, Integer> bitsForName = new HashMap<>();
+
+    /**
+     * The number of low bits for which every combination is interned in
+     * {@code common}.
+     */
+    protected static final int COMMON_BITS = 16;
+
+    /** Interned flags with no bits set above {@code COMMON_BITS}. */
+    protected static final AtomicReferenceArray<Flags> common =
+            new AtomicReferenceArray<>(1 << COMMON_BITS);
+
+    /** Other interned flags. */
+    protected static final ConcurrentMap<Long, Flags> interned =
+            new ConcurrentHashMap<>();
+
+    /** Interned flags with some of the flags beyond the first 64 set. */
+    protected static final ConcurrentMap<List<Long>, Flags> internedMore =
+            new ConcurrentHashMap<>();
 
     protected static class FlagComparator implements Comparator<String>,
             Serializable {
@@ -71,7 +129,7 @@ public class Flags implements Serializable {
         }
     }
 
-    public static final Flags NONE = new Flags();
+    public static final Flags NONE = intern(0L);
     public static final Flags PUBLIC = createFlag("public", null);
     public static final Flags PROTECTED = createFlag("protected", null);
     public static final Flags PRIVATE = createFlag("private", null);
@@ -101,7 +159,100 @@ public class Flags implements Serializable {
     public static Flags createFlag(String name, Flags after) {
         addToOrder(name, after);
 
-        return new Flags(name);
+        return forBit(bit(name));
+    }
+
+    /**
+     * Return the bit of the flag named {@code name}, assigning the next bit
+     * if there is none.
+     */
+    protected static synchronized int bit(String name) {
+        Integer b = bitsForName.get(name);
+        if (b == null) {
+            b = names.size();
+            names.add(name);
+            bitsForName.put(name, b);
+        }
+        return b;
+    }
+
+    /**
+     * Return the flags with only bit {@code b} set.
+     */
+    protected static Flags forBit(int b) {
+        if (b < Long.SIZE) return intern(1L << b);
+
+        long[] moreBits = new long[b / Long.SIZE];
+        moreBits[moreBits.length - 1] = 1L << b;
+        return intern(0L, moreBits);
+    }
+
+    /**
+     * Return the flags with exactly the flags named in {@code names} set.
+     */
+    protected static Flags forNames(Collection<String> names) {
+        long bits = 0L;
+        long[] moreBits = null;
+        for (String name : names) {
+            int b = bit(name);
+            if (b < Long.SIZE) {
+                bits |= 1L << b;
+            }
+            else {
+                int i = b / Long.SIZE - 1;
+                if (moreBits == null || moreBits.length <= i) {
+                    moreBits =
+                            moreBits == null
+                                    ? new long[i + 1]
+                                    : Arrays.copyOf(moreBits, i + 1);
+                }
+                moreBits[i] |= 1L << b;
+            }
+        }
+        return intern(bits, moreBits);
+    }
+
+    /**
+     * Return the flags with exactly {@code bits} and {@code moreBits} set.
+     */
+    protected static Flags intern(long bits, long[] moreBits) {
+        if (moreBits == null) return intern(bits);
+
+        List<Long> key = new ArrayList<>(moreBits.length + 1);
+        key.add(bits);
+        for (long w : moreBits) {
+            key.add(w);
+        }
+        Flags f = internedMore.get(key);
+        if (f == null) {
+            Flags g =
+                    internedMore.putIfAbsent(key, f =
+                            new Flags(bits, moreBits));
+            if (g != null) f = g;
+        }
+        return f;
+    }
+
+    /**
+     * Return the flags with exactly {@code bits} set.
+     */
+    protected static Flags intern(long bits) {
+        if ((bits >>> COMMON_BITS) == 0) {
+            int i = (int) bits;
+            Flags f = common.get(i);
+            if (f == null) {
+                common.compareAndSet(i, null, new Flags(bits));
+                f = common.get(i);
+            }
+            return f;
+        }
+
+        Flags f = interned.get(bits);
+        if (f == null) {
+            Flags g = interned.putIfAbsent(bits, f = new Flags(bits));
+            if (g != null) f = g;
+        }
+        return f;
     }
 
     public static void addToOrder(String name, Flags after) {
@@ -115,7 +266,7 @@ public class Flags implements Serializable {
             index = ordering.size() + 1;
         else {
             index = 0;
-            for (String s : after.flags) {
+            for (String s : after.flags()) {
                 int si = ordering.get(s);
                 if (si > index) index = si;
             }
@@ -135,56 +286,91 @@ public class Flags implements Serializable {
      * Effects: returns a new access flags object with no access flags set.
      */
     protected Flags() {
-        this.flags = new TreeSet<>(FlagComparator.instance);
+        this(0L);
     }
 
     protected Flags(String name) {
-        this();
-        flags.add(name);
+        Flags f = forBit(bit(name));
+        this.bits = f.bits;
+        this.moreBits = f.moreBits;
+    }
+
+    protected Flags(long bits) {
+        this.bits = bits;
     }
 
+    protected Flags(long bits, long[] moreBits) {
+        this.bits = bits;
+        this.moreBits = moreBits;
+    }
+
+    /**
+     * Return the names of the flags set, in printing order.
+     */
     public Set<String> flags() {
-        return this.flags;
+        Set<String> flags = new TreeSet<>(FlagComparator.instance);
+        for (long b = bits; b != 0; b &= b - 1) {
+            flags.add(names.get(Long.numberOfTrailingZeros(b)));
+        }
+        if (moreBits != null) {
+            for (int i = 0; i < moreBits.length; i++) {
+                for (long b = moreBits[i]; b != 0; b &= b - 1) {
+                    flags.add(names.get((i + 1) * Long.SIZE
+                            + Long.numberOfTrailingZeros(b)));
+                }
+            }
+        }
+        return flags;
     }
 
     /**
      * Create new flags with the flags in {@code other} also set.
      */
     public Flags set(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.addAll(other.flags);
-        return f;
+        if (this.moreBits != null || other.moreBits != null) {
+            Set<String> flags = flags();
+            flags.addAll(other.flags());
+            return forNames(flags);
+        }
+        long b = this.bits | other.bits;
+        return b == this.bits ? this : intern(b);
     }
 
     /**
      * Create new flags with the flags in {@code other} cleared.
      */
     public Flags clear(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.removeAll(other.flags);
-        return f;
+        if (this.moreBits != null || other.moreBits != null) {
+            Set<String> flags = flags();
+            flags.removeAll(other.flags());
+            return forNames(flags);
+        }
+        long b = this.bits & ~other.bits;
+        return b == this.bits ? this : intern(b);
     }
 
     /**
      * Create new flags with only flags in {@code other} set.
      */
     public Flags retain(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.retainAll(other.flags);
-        return f;
+        if (this.moreBits != null || other.moreBits != null) {
+            Set<String> flags = flags();
+            flags.retainAll(other.flags());
+            return forNames(flags);
+        }
+        long b = this.bits & other.bits;
+        return b == this.bits ? this : intern(b);
     }
 
     /**
      * Check if <i>any</i> flags in {@code other} are set.
      */
     public boolean intersects(Flags other) {
-        for (String name : this.flags) {
-            if (other.flags.contains(name)) {
-                return true;
-            }
+        if ((this.bits & other.bits) != 0) return true;
+        if (this.moreBits == null || other.moreBits == null) return false;
+        int n = Math.min(this.moreBits.length, other.moreBits.length);
+        for (int i = 0; i < n; i++) {
+            if ((this.moreBits[i] & other.moreBits[i]) != 0) return true;
         }
         return false;
     }
@@ -193,7 +379,15 @@ public class Flags implements Serializable {
      * Check if <i>all</i> flags in {@code other} are set.
      */
     public boolean contains(Flags other) {
-        return this.flags.containsAll(other.flags);
+        if ((this.bits & other.bits) != other.bits) return false;
+        if (other.moreBits == null) return true;
+        if (this.moreBits == null
+                || this.moreBits.length < other.moreBits.length) return false;
+        for (int i = 0; i < other.moreBits.length; i++) {
+            if ((this.moreBits[i] & other.moreBits[i]) != other.moreBits[i])
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -518,9 +712,11 @@ public class Flags implements Serializable {
      * Return "" if no flags set, or toString() + " " if some flags are set.
      */
     public String translate() {
+        if (bits == 0 && moreBits == null) return "";
+
         StringBuffer sb = new StringBuffer();
 
-        for (String s : this.flags) {
+        for (String s : flags()) {
             sb.append(s);
             sb.append(" ");
         }
@@ -530,11 +726,31 @@ public class Flags implements Serializable {
 
     @Override
     public int hashCode() {
-        return flags.hashCode();
+        return (int) (bits ^ (bits >>> 32)) + Arrays.hashCode(moreBits);
     }
 
     @Override
     public boolean equals(Object o) {
-        return o instanceof Flags && flags.equals(((Flags) o).flags);
+        return o instanceof Flags && bits == ((Flags) o).bits
+                && Arrays.equals(moreBits, ((Flags) o).moreBits);
+    }
+
+    @SuppressWarnings("unused")
+    private static final long writeReplaceVersionUID = 1L;
+
+    private Object writeReplace() {
+        // If you update this method in an incompatible way, increment
+        // writeReplaceVersionUID.
+        if (flags == null) flags = flags();
+        return this;
+    }
+
+    @SuppressWarnings("unused")
+    private static final long readResolveVersionUID = 1L;
+
+    private Object readResolve() {
+        // If you update this method in an incompatible way, increment
+        // readResolveVersionUID.
+        return flags == null ? NONE : forNames(flags);
     }
 }
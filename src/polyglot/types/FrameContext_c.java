@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.types;
+
+import java.util.Arrays;
+
+import polyglot.ast.Lang;
+
+/**
+ * A context whose scopes are compact frames of names and entries, searched
+ * linearly, instead of hash maps.  Pushing a scope creates a new context
+ * with the fields of its outer context rather than cloning it, and
+ * allocates no frame until something is declared in the scope.
+ * <p>
+ * Lookups behave as in {@code Context_c}.  Since {@code push()} does not
+ * clone, a subclass that adds fields must override {@code push()} to create
+ * an instance of itself that copies them.  {@code TypeSystem_c} creates
+ * these contexts with the {@code -framecontexts} option; other extensions
+ * opt in by returning one from {@code TypeSystem.createContext()}.
+ */
+public class FrameContext_c extends Context_c {
+    /** The names and entries of one kind declared in a scope. */
+    public static class Frame<T> {
+        protected String[] names;
+        protected Object[] entries;
+        protected int size;
+
+        public Frame() {
+            names = new String[2];
+            entries = new Object[2];
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) return (T) entries[i];
+            }
+            return null;
+        }
+
+        public void put(String name, T entry) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    entries[i] = entry;
+                    return;
+                }
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, 2 * size);
+                entries = Arrays.copyOf(entries, 2 * size);
+            }
+            names[size] = name;
+            entries[size] = entry;
+            size++;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < size; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(names[i]).append("=").append(entries[i]);
+            }
+            return sb.append("}").toString();
+        }
+    }
+
+    protected Frame<Named> typeFrame;
+    protected Frame<VarInstance> varFrame;
+
+    public FrameContext_c(Lang lang, TypeSystem ts) {
+        super(lang, ts);
+    }
+
+    /**
+     * Create a context for a new scope within {@code outer}.
+     */
+    protected FrameContext_c(FrameContext_c outer) {
+        super(outer);
+    }
+
+    @Override
+    protected Context_c push() {
+        return new FrameContext_c(this);
+    }
+
+    @Override
+    public Named findInThisScope(String name) {
+        if (typeFrame != null) {
+            Named t = typeFrame.get(name);
+            if (t != null) return t;
+        }
+        return super.findInThisScope(name);
+    }
+
+    @Override
+    public void addNamedToThisScope(Named type) {
+        if (typeFrame == null) typeFrame = new Frame<>();
+        typeFrame.put(type.name(), type);
+    }
+
+    @Override
+    public VarInstance findVariableInThisScope(String name) {
+        if (varFrame != null) {
+            VarInstance vi = varFrame.get(name);
+            if (vi != null) return vi;
+        }
+        return super.findVariableInThisScope(name);
+    }
+
+    @Override
+    public void addVariableToThisScope(VarInstance var) {
+        if (varFrame == null) varFrame = new Frame<>();
+        varFrame.put(var.name(), var);
+    }
+
+    @Override
+    protected String mapsToString() {
+        return "types=" + typeFrame + " vars=" + varFrame;
+    }
+}
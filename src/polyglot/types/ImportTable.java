@@ -27,14 +27,12 @@
 package polyglot.types;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
 import polyglot.main.Report;
-import polyglot.util.CollectionUtil;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
 import polyglot.util.StringUtil;
@@ -552,7 +550,7 @@ public class ImportTable implements Resolver {
         }
     }
 
-    private static final Collection<String> TOPICS =
-            CollectionUtil.list(Report.types, Report.resolver, Report.imports);
+    private static final Report.Topic TOPICS =
+            Report.topic(Report.types, Report.resolver, Report.imports);
 
 }
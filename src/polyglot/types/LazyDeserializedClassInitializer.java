@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.types;
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.List;
+
+import polyglot.frontend.MissingDependencyException;
+import polyglot.frontend.SchedulerException;
+import polyglot.frontend.goals.Goal;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.TypeEncoder;
+
+/**
+ * A LazyClassInitializer for deserialized classes whose methods, fields and
+ * constructors were encoded as separate sections.  Each section is decoded
+ * the first time its members are accessed, so a class used only for its
+ * supertypes, or for one kind of member, never decodes the others.
+ * Member classes are encoded in their own classes and are already loaded
+ * on demand.
+ */
+public class LazyDeserializedClassInitializer extends
+        DeserializedClassInitializer {
+    protected byte[] methods;
+    protected byte[] fields;
+    protected byte[] constructors;
+
+    public LazyDeserializedClassInitializer(TypeSystem ts, byte[] methods,
+            byte[] fields, byte[] constructors) {
+        super(ts);
+        this.methods = methods;
+        this.fields = fields;
+        this.constructors = constructors;
+    }
+
+    @Override
+    public void initConstructors() {
+        if (constructors == null) return;
+        byte[] s = constructors;
+        List<ConstructorInstance> l = new ArrayList<>();
+        l.addAll(this.<ConstructorInstance> decode(s));
+        // Clear the section before accessing the members already added.
+        constructors = null;
+        l.addAll(ct.constructors());
+        ct.setConstructors(l);
+    }
+
+    @Override
+    public void initMethods() {
+        if (methods == null) return;
+        byte[] s = methods;
+        List<MethodInstance> l = new ArrayList<>();
+        l.addAll(this.<MethodInstance> decode(s));
+        methods = null;
+        l.addAll(ct.methods());
+        ct.setMethods(l);
+    }
+
+    @Override
+    public void initFields() {
+        if (fields == null) return;
+        byte[] s = fields;
+        List<FieldInstance> l = new ArrayList<>();
+        l.addAll(this.<FieldInstance> decode(s));
+        fields = null;
+        l.addAll(ct.fields());
+        ct.setFields(l);
+    }
+
+    /**
+     * Decode a section of members of the class.  If a type used by the
+     * members cannot be resolved yet, the goal that resolves it is reported
+     * as a missing dependency of the current goal, as the
+     * {@code SchedulerClassInitializer} does for members not yet built.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> List<T> decode(byte[] s) {
+        TypeEncoder te = new TypeEncoder(ts);
+        List<?> l;
+        try {
+            l = te.decodeMembers(s, ct.fullName());
+        }
+        catch (InvalidClassException e) {
+            throw new InternalCompilerError("Could not decode the members of "
+                    + ct + ": " + e.getMessage(), e);
+        }
+        if (l == null) {
+            Goal g = te.missingDependency();
+            if (g != null) throw new MissingDependencyException(g);
+            // A type is being decoded further up the stack; the goal
+            // decoding it has set up the dependencies.
+            throw new SchedulerException("Could not decode the members of "
+                    + ct);
+        }
+        return (List<T>) l;
+    }
+}
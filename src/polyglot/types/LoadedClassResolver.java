@@ -98,6 +98,8 @@ public class LoadedClassResolver implements TopLevelResolver {
         if (Report.should_report(report_topics, 3))
             Report.report(3, "LoadedCR.find(" + name + ")");
 
+        extInfo.getStats().accumCount("class resolutions", 1);
+
         Named result = null;
 
         // First try the class file.
@@ -111,12 +113,15 @@ public class LoadedClassResolver implements TopLevelResolver {
             if (Report.should_report(report_topics, 4))
                 Report.report(4, "Using encoded class type for " + name);
             result = getEncodedType(clazz, name);
+            extInfo.getStats().accumCount("classes loaded from encoded types",
+                                          1);
         }
 
         if (allowRawClasses) {
             if (Report.should_report(report_topics, 4))
                 Report.report(4, "Using raw class file for " + name);
             result = ts.classFileLazyClassInitializer(clazz).type();
+            extInfo.getStats().accumCount("classes loaded from class files", 1);
         }
 
         // Verify that the type we loaded has the right name. This prevents,
@@ -164,10 +169,22 @@ public class LoadedClassResolver implements TopLevelResolver {
         }
 
         // Alright, go with it!
+        return getEncodedType(clazz.encodedClassType(version.name()),
+                              name,
+                              clazz.name() + "@" + clazz.getClassFileURI());
+    }
+
+    /**
+     * Decode the class type {@code name} from {@code encoded}, the type
+     * information produced by {@code TypeEncoder}.  {@code location}
+     * describes where the encoded type was found, for error messages.
+     */
+    protected ClassType getEncodedType(String encoded, String name,
+            String location) throws SemanticException {
         TypeObject dt;
         SystemResolver oldResolver = null;
 
-        if (Report.should_report(Report.serialize, 1))
+        if (Report.should_report(Report.SERIALIZE, 1))
             Report.report(1, "Saving system resolver");
         oldResolver = ts.saveSystemResolver();
 
@@ -182,13 +199,13 @@ public class LoadedClassResolver implements TopLevelResolver {
         recursive = true;
 
         try {
-            if (Report.should_report(Report.serialize, 1))
-                Report.report(1, "Decoding " + name + " in " + clazz);
+            if (Report.should_report(Report.SERIALIZE, 1))
+                Report.report(1, "Decoding " + name + " in " + location);
 
-            dt = te.decode(clazz.encodedClassType(version.name()), name);
+            dt = te.decode(encoded, name);
 
             if (dt == null) {
-                if (Report.should_report(Report.serialize, 1))
+                if (Report.should_report(Report.SERIALIZE, 1))
                     Report.report(1, "* Decoding " + name + " failed");
 
                 // Deserialization failed because one or more types could
@@ -206,14 +223,14 @@ public class LoadedClassResolver implements TopLevelResolver {
                 // It will be installed into the old resolver below by putAll.
                 ts.systemResolver().addNamed(name, ct);
 
-                if (Report.should_report(Report.serialize, 1))
+                if (Report.should_report(Report.SERIALIZE, 1))
                     Report.report(1, "* Decoding " + name + " succeeded");
 
                 if (Report.should_report("typedump", 1)) {
                     new ObjectDumper(new SimpleCodeWriter(System.out, 72)).dump(dt);
                 }
 
-                if (Report.should_report(Report.serialize, 2)) {
+                if (Report.should_report(Report.SERIALIZE, 2)) {
                     LazyInitializer init = null;
 
                     // Save and restore the initializer to print the members.
@@ -297,32 +314,31 @@ public class LoadedClassResolver implements TopLevelResolver {
 
                 if (Report.should_report(report_topics, 2))
                     Report.report(2, "Returning serialized ClassType for "
-                            + clazz.name() + ".");
+                            + location + ".");
 
                 okay = true;
                 return ct;
             }
             else {
-                if (Report.should_report(Report.serialize, 2))
+                if (Report.should_report(Report.SERIALIZE, 2))
                     Report.report(2, "Failing to deserialize: Class " + name
-                            + " not found in " + clazz.name() + ".");
+                            + " not found in " + location + ".");
                 throw new SemanticException("Class " + name + " not found in "
-                        + clazz.name() + ".");
+                        + location + ".");
             }
         }
         catch (InvalidClassException e) {
-            if (Report.should_report(Report.serialize, 2))
+            if (Report.should_report(Report.SERIALIZE, 2))
                 Report.report(2, "Failing to deserialize: Bad serialization: "
-                        + clazz.name() + "@" + clazz.getClassFileURI());
+                        + location);
 
-            throw new BadSerializationException(clazz.name() + "@"
-                    + clazz.getClassFileURI());
+            throw new BadSerializationException(location);
         }
         catch (UnavailableTypeException e) {
             throw e;
         }
         catch (InternalCompilerError e) {
-            if (Report.should_report(Report.serialize, 2)) {
+            if (Report.should_report(Report.SERIALIZE, 2)) {
                 Report.report(2,
                               "Failing to deserialize: Internal compiler error: "
                                       + e.getMessage());
@@ -338,7 +354,7 @@ public class LoadedClassResolver implements TopLevelResolver {
             recursive = oldRecursive;
 
             if (okay) {
-                if (Report.should_report(Report.serialize, 1))
+                if (Report.should_report(Report.SERIALIZE, 1))
                     Report.report(1, "Deserialization successful.  Installing "
                             + ts.systemResolver().justAdded()
                             + " into restored system resolver.");
@@ -346,7 +362,7 @@ public class LoadedClassResolver implements TopLevelResolver {
                 oldResolver.putAll(ts.systemResolver());
             }
             else {
-                if (Report.should_report(Report.serialize, 1)) {
+                if (Report.should_report(Report.SERIALIZE, 1)) {
                     Report.report(1, "Deserialization failed for " + name
                             + ".  Restoring previous system resolver.");
                     Report.report(1, "Discarding "
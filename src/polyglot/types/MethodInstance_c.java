@@ -290,7 +290,7 @@ public class MethodInstance_c extends ProcedureInstance_c implements
         }
 
         if (!ts.typeEquals(mi.returnType(), mj.returnType())) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3,
                               "return type " + mi.returnType() + " != "
                                       + mj.returnType());
@@ -304,7 +304,7 @@ public class MethodInstance_c extends ProcedureInstance_c implements
         }
 
         if (!ts.throwsSubset(mi, mj)) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3,
                               mi.throwTypes() + " not subset of "
                                       + mj.throwTypes());
@@ -324,7 +324,7 @@ public class MethodInstance_c extends ProcedureInstance_c implements
         }
 
         if (mi.flags().moreRestrictiveThan(mj.flags())) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3,
                               mi.flags() + " more restrictive than "
                                       + mj.flags());
@@ -343,7 +343,7 @@ public class MethodInstance_c extends ProcedureInstance_c implements
         }
 
         if (mi.flags().isStatic() != mj.flags().isStatic()) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, mi.signature() + " is "
                         + (mi.flags().isStatic() ? "" : "not") + " static but "
                         + mj.signature() + " is "
@@ -368,7 +368,7 @@ public class MethodInstance_c extends ProcedureInstance_c implements
 
         if (mi != mj && !mi.equals(mj) && mj.flags().isFinal()) {
             // mi can "override" a final method mj if mi and mj are the same method instance.
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, mj.flags() + " final");
             if (quiet) return false;
             throw new SemanticException(mi.signature() + " in "
@@ -69,7 +69,8 @@ public class Package_c extends TypeObject_c implements Package {
     public Resolver resolver() {
         if (memberCache == null) {
             memberCache =
-                    new CachingResolver(ts.createPackageContextResolver(this));
+                    new CachingResolver(ts.createPackageContextResolver(this),
+                                        ts);
         }
         return memberCache;
     }
@@ -30,9 +30,12 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import polyglot.frontend.Job;
 import polyglot.frontend.Source;
@@ -40,7 +43,9 @@ import polyglot.main.Report;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
 import polyglot.util.SerialVersionUID;
+import polyglot.util.TypeEncoder;
 import polyglot.util.TypeInputStream;
+import polyglot.util.TypeOutputStream;
 
 /**
  * ParsedClassType
@@ -69,6 +74,45 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
 
     protected transient List<ClassType> memberClasses;
 
+    /**
+     * Indexes from names to members, built on demand and discarded when
+     * the members change.  The member lists may be shared with copies of
+     * this type, so an index is also rebuilt if its list has grown.
+     */
+    protected transient Map<String, List<MethodInstance>> methodsByName;
+    protected transient Map<String, FieldInstance> fieldsByName;
+    protected transient Map<String, ClassType> memberClassesByName;
+    protected transient int methodsIndexed;
+    protected transient int fieldsIndexed;
+    protected transient int memberClassesIndexed;
+
+    /**
+     * Identifier of this class in the ancestor sets of its subclasses,
+     * allocated on demand by the type system.  The identifier belongs to
+     * {@code subtypeIdOwner}, so that copies of this type get their own.
+     */
+    protected transient int subtypeId;
+    protected transient volatile ParsedClassType_c subtypeIdOwner;
+
+    /**
+     * Ancestors of this class, computed on demand and discarded when the
+     * supertypes of this class change.
+     */
+    protected transient volatile Ancestors ancestors;
+    protected transient boolean computingAncestors;
+
+    /**
+     * Version of the supertypes of this class, assigned by the type system
+     * when they change.
+     */
+    protected transient volatile int supertypesVersion;
+
+    /**
+     * Version of the members of this class, assigned by the type system
+     * when they change.
+     */
+    protected transient volatile int membersVersion;
+
     public LazyClassInitializer init() {
         return init;
     }
@@ -165,7 +209,9 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
     /** Get the class's super type. */
     @Override
     public Type superType() {
-        init.initSuperclass();
+        synchronized (ts.resolutionLock()) {
+            init.initSuperclass();
+        }
         return this.superType;
     }
 
@@ -185,11 +231,13 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
     @Override
     public void setFlags(Flags flags) {
         this.flags = flags;
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void flags(Flags flags) {
         this.flags = flags;
+        ts.supertypesChanged(this);
     }
 
     @Override
@@ -234,61 +282,76 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
     @Override
     public void superType(Type t) {
         this.superType = t;
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void addInterface(ReferenceType t) {
         interfaces.add(t);
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void addMethod(MethodInstance mi) {
         methods.add(mi);
+        methodsByName = null;
+        ts.membersChanged(this);
     }
 
     @Override
     public void addConstructor(ConstructorInstance ci) {
         constructors.add(ci);
+        ts.membersChanged(this);
     }
 
     @Override
     public void addField(FieldInstance fi) {
         fields.add(fi);
+        fieldsByName = null;
     }
 
     @Override
     public void addMemberClass(ClassType t) {
         memberClasses.add(t);
+        memberClassesByName = null;
     }
 
     @Override
     public void setInterfaces(List<? extends ReferenceType> l) {
         this.interfaces = new ArrayList<>(l);
+        ts.supertypesChanged(this);
     }
 
     @Override
     public void setMethods(List<? extends MethodInstance> l) {
         this.methods = new ArrayList<>(l);
+        this.methodsByName = null;
+        ts.membersChanged(this);
     }
 
     @Override
     public void setFields(List<? extends FieldInstance> l) {
         this.fields = new ArrayList<>(l);
+        this.fieldsByName = null;
     }
 
     @Override
     public void setConstructors(List<? extends ConstructorInstance> l) {
         this.constructors = new ArrayList<>(l);
+        ts.membersChanged(this);
     }
 
     @Override
     public void setMemberClasses(List<? extends ClassType> l) {
         this.memberClasses = new ArrayList<>(l);
+        this.memberClassesByName = null;
     }
 
     @Override
     public boolean defaultConstructorNeeded() {
-        init.initConstructors();
+        synchronized (ts.resolutionLock()) {
+            init.initConstructors();
+        }
         if (flags().isInterface()) {
             return false;
         }
@@ -298,23 +361,29 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
     /** Return an immutable list of constructors */
     @Override
     public List<? extends ConstructorInstance> constructors() {
-        init.initConstructors();
-        init.canonicalConstructors();
+        synchronized (ts.resolutionLock()) {
+            init.initConstructors();
+            init.canonicalConstructors();
+        }
         return Collections.unmodifiableList(constructors);
     }
 
     /** Return an immutable list of member classes */
     @Override
     public List<? extends ClassType> memberClasses() {
-        init.initMemberClasses();
+        synchronized (ts.resolutionLock()) {
+            init.initMemberClasses();
+        }
         return Collections.unmodifiableList(memberClasses);
     }
 
     /** Return an immutable list of methods. */
     @Override
     public List<? extends MethodInstance> methods() {
-        init.initMethods();
-        init.canonicalMethods();
+        synchronized (ts.resolutionLock()) {
+            init.initMethods();
+            init.canonicalMethods();
+        }
         return Collections.unmodifiableList(methods);
     }
 
@@ -324,28 +393,47 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
         // Override to NOT call methods(). Do not check that all
         // methods are canonical, just that the particular method
         // returned is canonical.
-        init.initMethods();
+        synchronized (ts.resolutionLock()) {
+            init.initMethods();
+
+            if (methodsByName == null || methodsIndexed != methods.size()) {
+                Map<String, List<MethodInstance>> m = new HashMap<>();
+                for (MethodInstance mi : methods) {
+                    List<MethodInstance> l = m.get(mi.name());
+                    if (l == null) {
+                        l = new ArrayList<>(1);
+                        m.put(mi.name(), l);
+                    }
+                    l.add(mi);
+                }
+                for (Map.Entry<String, List<MethodInstance>> e : m.entrySet()) {
+                    e.setValue(Collections.unmodifiableList(e.getValue()));
+                }
+                methodsByName = m;
+                methodsIndexed = methods.size();
+            }
 
-        List<MethodInstance> l = new LinkedList<>();
+            List<MethodInstance> l = methodsByName.get(name);
+            if (l == null) return Collections.emptyList();
 
-        for (MethodInstance mi : methods) {
-            if (mi.name().equals(name)) {
+            for (MethodInstance mi : l) {
                 if (!mi.isCanonical()) {
                     // Force an exception to get thrown.
                     init.canonicalMethods();
                 }
-                l.add(mi);
             }
-        }
 
-        return l;
+            return l;
+        }
     }
 
     /** Return an immutable list of fields */
     @Override
     public List<? extends FieldInstance> fields() {
-        init.initFields();
-        init.canonicalFields();
+        synchronized (ts.resolutionLock()) {
+            init.initFields();
+            init.canonicalFields();
+        }
         return Collections.unmodifiableList(fields);
     }
 
@@ -357,28 +445,189 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
         // returned is canonical.  This avoids an infinite loop
         // during disambiguation of path-dependent types like
         // in Jx or Jif.
-        init.initFields();
+        synchronized (ts.resolutionLock()) {
+            init.initFields();
 
-        for (FieldInstance fi : fields) {
-            if (fi.name().equals(name)) {
-                if (!fi.isCanonical()) {
-                    // Force an exception to get thrown.
-                    init.canonicalFields();
+            if (fieldsByName == null || fieldsIndexed != fields.size()) {
+                Map<String, FieldInstance> m = new HashMap<>();
+                for (FieldInstance fi : fields) {
+                    if (!m.containsKey(fi.name())) m.put(fi.name(), fi);
                 }
-                return fi;
+                fieldsByName = m;
+                fieldsIndexed = fields.size();
+            }
+
+            FieldInstance fi = fieldsByName.get(name);
+            if (fi != null && !fi.isCanonical()) {
+                // Force an exception to get thrown.
+                init.canonicalFields();
             }
+
+            return fi;
         }
+    }
+
+    /** Get a member class of the class by name. */
+    @Override
+    public ClassType memberClassNamed(String name) {
+        synchronized (ts.resolutionLock()) {
+            init.initMemberClasses();
+
+            if (memberClassesByName == null
+                    || memberClassesIndexed != memberClasses.size()) {
+                Map<String, ClassType> m = new HashMap<>();
+                for (ClassType t : memberClasses) {
+                    if (!m.containsKey(t.name())) m.put(t.name(), t);
+                }
+                memberClassesByName = m;
+                memberClassesIndexed = memberClasses.size();
+            }
 
-        return null;
+            return memberClassesByName.get(name);
+        }
     }
 
     /** Return an immutable list of interfaces */
     @Override
     public List<? extends ReferenceType> interfaces() {
-        init.initInterfaces();
+        synchronized (ts.resolutionLock()) {
+            init.initInterfaces();
+        }
         return Collections.unmodifiableList(interfaces);
     }
 
+    @Override
+    public boolean descendsFromImpl(Type ancestor) {
+        if (ancestor instanceof ParsedClassType_c && ancestor.isCanonical()
+                && !ts.typeEquals(this, ancestor)
+                && !ts.typeEquals(ancestor, ts.Object())) {
+            Ancestors a = ancestors();
+            int id = ((ParsedClassType_c) ancestor).assignedSubtypeId();
+            if (id > 0 && a.bits.get(id)) {
+                return true;
+            }
+            if (a.complete) {
+                return false;
+            }
+        }
+        return super.descendsFromImpl(ancestor);
+    }
+
+    /**
+     * The set of ancestors of a class, reachable through its superclass
+     * and interfaces.  The set is complete if every type reached is a
+     * {@code ParsedClassType_c}; otherwise, a type not in the set may
+     * still be an ancestor, and the subtype relation is checked by
+     * walking the supertypes.
+     */
+    protected static final class Ancestors {
+        protected final ParsedClassType_c owner;
+        protected final BitSet bits;
+        protected final boolean complete;
+        protected final int version;
+        protected final int ownerVersion;
+
+        protected Ancestors(ParsedClassType_c owner, BitSet bits,
+                boolean complete, int version, int ownerVersion) {
+            this.owner = owner;
+            this.bits = bits;
+            this.complete = complete;
+            this.version = version;
+            this.ownerVersion = ownerVersion;
+        }
+    }
+
+    /** Return the identifier of this class, allocating it if needed. */
+    protected int subtypeId() {
+        if (subtypeIdOwner != this) {
+            synchronized (this) {
+                if (subtypeIdOwner != this) {
+                    subtypeId = ts.nextClassTypeId();
+                    subtypeIdOwner = this;
+                }
+            }
+        }
+        return subtypeId;
+    }
+
+    /**
+     * Return the identifier of this class, or 0 if none has been
+     * allocated, in which case this class is in no set of ancestors.
+     */
+    protected int assignedSubtypeId() {
+        return subtypeIdOwner == this ? subtypeId : 0;
+    }
+
+    /**
+     * Return the ancestors of this class, recomputing them if the
+     * supertypes of this class or of one of its ancestors have changed
+     * since they were last computed.
+     */
+    protected Ancestors ancestors() {
+        int version = ts.supertypesVersion();
+        int ownerVersion = supertypesVersion;
+        Ancestors a = this.ancestors;
+        if (a != null && a.owner == this && a.version == version
+                && a.ownerVersion == ownerVersion) {
+            return a;
+        }
+        if (computingAncestors) {
+            // Cyclic inheritance; let the caller walk the supertypes.
+            return new Ancestors(this, new BitSet(), false, version,
+                                 ownerVersion);
+        }
+
+        computingAncestors = true;
+        try {
+            BitSet bits = new BitSet();
+            boolean complete = true;
+
+            // Mirror descendsFromImpl in ClassType_c: a class other than
+            // Object without a superclass has no ancestors.
+            if (!flags().isInterface()) {
+                if (ts.typeEquals(this, ts.Object()) || superType() == null) {
+                    a = new Ancestors(this, bits, true, version, ownerVersion);
+                    this.ancestors = a;
+                    return a;
+                }
+                complete &= addAncestors(bits, superType());
+            }
+            for (ReferenceType t : interfaces()) {
+                complete &= addAncestors(bits, t);
+            }
+
+            a = new Ancestors(this, bits, complete, version, ownerVersion);
+            this.ancestors = a;
+            return a;
+        }
+        finally {
+            computingAncestors = false;
+        }
+    }
+
+    /**
+     * Add {@code t} and its ancestors to {@code bits}, returning false if
+     * the ancestors of {@code t} cannot be fully represented.
+     */
+    protected boolean addAncestors(BitSet bits, Type t) {
+        if (t instanceof ParsedClassType_c && t.isCanonical()) {
+            ParsedClassType_c ct = (ParsedClassType_c) t;
+            // Compute the ancestors of ct before giving it an identifier,
+            // so that resolving its supertypes does not change the version
+            // of the whole class hierarchy.
+            Ancestors a = ct.ancestors();
+            bits.set(ct.subtypeId());
+            if (ct.ancestors != a) {
+                // The supertypes of ct changed before it had an identifier;
+                // any later change changes the version of the hierarchy.
+                a = ct.ancestors();
+            }
+            bits.or(a.bits);
+            return a.complete;
+        }
+        return false;
+    }
+
     protected boolean membersAdded;
     protected boolean supertypesResolved;
     protected boolean signaturesResolved;
@@ -527,7 +776,39 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
         else {
             out.writeBoolean(false);
         }
-        out.defaultWriteObject();
+
+        if (out instanceof TypeOutputStream
+                && ((TypeOutputStream) out).lazyMembers(this)) {
+            // Write the members as separate sections, to be decoded
+            // when first accessed.
+            TypeOutputStream tout = (TypeOutputStream) out;
+            TypeEncoder te = new TypeEncoder(ts);
+            byte[] m = te.encodeMembers(methods);
+            byte[] f = te.encodeMembers(fields);
+            byte[] c = te.encodeMembers(constructors);
+
+            List<MethodInstance> methods = this.methods;
+            List<FieldInstance> fields = this.fields;
+            List<ConstructorInstance> constructors = this.constructors;
+            this.methods = null;
+            this.fields = null;
+            this.constructors = null;
+            try {
+                out.defaultWriteObject();
+            }
+            finally {
+                this.methods = methods;
+                this.fields = fields;
+                this.constructors = constructors;
+            }
+
+            tout.writeMemberSection(m);
+            tout.writeMemberSection(f);
+            tout.writeMemberSection(c);
+        }
+        else {
+            out.defaultWriteObject();
+        }
     }
 
     @SuppressWarnings("unused")
@@ -563,6 +844,24 @@ public class ParsedClassType_c extends ClassType_c implements ParsedClassType {
         }
 
         in.defaultReadObject();
+
+        if (in instanceof TypeInputStream
+                && ((TypeInputStream) in).lazyMembers()) {
+            TypeInputStream tin = (TypeInputStream) in;
+            byte[] m = tin.readMemberSection();
+            byte[] f = tin.readMemberSection();
+            byte[] c = tin.readMemberSection();
+
+            methods = new ArrayList<>();
+            fields = new ArrayList<>();
+            constructors = new ArrayList<>();
+
+            init =
+                    tin.getTypeSystem().lazyDeserializedClassInitializer(m,
+                                                                         f,
+                                                                         c);
+            init.setClass(this);
+        }
     }
 
     @Override
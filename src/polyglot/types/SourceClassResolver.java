@@ -31,6 +31,7 @@ import java.io.File;
 import polyglot.frontend.Compiler;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.FileSource;
+import polyglot.frontend.IncrementalCache;
 import polyglot.frontend.Job;
 import polyglot.frontend.MissingDependencyException;
 import polyglot.frontend.Scheduler;
@@ -151,6 +152,28 @@ public class SourceClassResolver extends LoadedClassResolver {
         if (Report.should_report(report_topics, 3))
             Report.report(3, "SourceCR.find(" + name + ")");
 
+        ext.getStats().accumCount("class resolutions", 1);
+
+        // Use the cached type if its source is unchanged.
+        IncrementalCache cache = compiler.incrementalCache();
+        if (cache != null) {
+            String encoded = cache.encodedType(name);
+            if (encoded != null) {
+                if (Report.should_report(report_topics, 4))
+                    Report.report(4, "Using cached class type for " + name);
+                ext.getStats().accumCount("classes loaded from cache", 1);
+                ClassType ct =
+                        getEncodedType(encoded, name, cache.location(name));
+
+                // Deserialized class types do not record their member
+                // classes; load them so they are added to ct.
+                for (String member : cache.memberTypes(name)) {
+                    ts.systemResolver().find(member);
+                }
+                return ct;
+            }
+        }
+
         ClassFile clazz = null;
         ClassFile encodedClazz = null;
         FileSource source = null;
@@ -241,6 +264,8 @@ public class SourceClassResolver extends LoadedClassResolver {
                 Report.report(4, "Using encoded class type for " + name);
             try {
                 result = getEncodedType(encodedClazz, name);
+                ext.getStats().accumCount("classes loaded from encoded types",
+                                          1);
             }
             catch (BadSerializationException e) {
                 se = e;
@@ -257,11 +282,13 @@ public class SourceClassResolver extends LoadedClassResolver {
             if (Report.should_report(report_topics, 4))
                 Report.report(4, "Using raw class file for " + name);
             result = ts.classFileLazyClassInitializer(clazz).type();
+            ext.getStats().accumCount("classes loaded from class files", 1);
         }
 
         if (result == null && source != null) {
             if (Report.should_report(report_topics, 4))
                 Report.report(4, "Using source file for " + name);
+            ext.getStats().accumCount("classes loaded from source", 1);
             result = getTypeFromSource(source, name);
         }
 
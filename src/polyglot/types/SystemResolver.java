@@ -28,12 +28,18 @@ package polyglot.types;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import polyglot.frontend.Compiler;
 import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.IncrementalCache;
+import polyglot.frontend.Job;
 import polyglot.main.Report;
-import polyglot.util.CollectionUtil;
 import polyglot.util.Pair;
 import polyglot.util.StringUtil;
 import polyglot.util.Transformation;
@@ -49,16 +55,30 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     protected SystemResolver previous;
     protected Collection<Pair<String, Named>> justAdded;
 
+    /**
+     * The full names of the packages of the importables in the cache,
+     * together with all their prefixes.
+     */
+    protected Set<String> cachedPackages;
+
+    /**
+     * Importables in the cache whose package was not known when they were
+     * installed.
+     */
+    protected List<Importable> unindexed;
+
     /**
      * Create a caching resolver.
      * @param inner The resolver whose results this resolver caches.
      */
     public SystemResolver(TopLevelResolver inner, ExtensionInfo extInfo) {
-        super(inner);
+        super(inner, extInfo.typeSystem());
         this.extInfo = extInfo;
         this.packageCache = new HashMap<>();
         this.previous = null;
         this.justAdded = new LinkedList<>();
+        this.cachedPackages = new HashSet<>();
+        this.unindexed = new LinkedList<>();
     }
 
     public SystemResolver previous() {
@@ -71,6 +91,8 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
         r.packageCache = new HashMap<>(this.packageCache);
         r.previous = this;
         r.justAdded = new LinkedList<>();
+        r.cachedPackages = new HashSet<>(this.cachedPackages);
+        r.unindexed = new LinkedList<>(this.unindexed);
         return r;
     }
 
@@ -93,24 +115,51 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
 
     /** Check if a package exists in the resolver cache. */
     protected boolean packageExistsInCache(String name) {
-        for (CachedResult cr : cachedResults()) {
-            if (!(cr instanceof CachedResult.Success)) continue;
-
-            Named named = ((CachedResult.Success) cr).named;
-            if (named instanceof Importable) {
-                Importable im = (Importable) named;
-                if (im.package_() != null
-                        && im.package_().fullName() != null
-                        && (im.package_().fullName().equals(name) || im.package_()
-                                                                       .fullName()
-                                                                       .startsWith(name
-                                                                               + "."))) {
-                    return true;
+        if (!unindexed.isEmpty()) {
+            for (Iterator<Importable> i = unindexed.iterator(); i.hasNext();) {
+                if (indexPackage(i.next().package_())) {
+                    i.remove();
                 }
             }
         }
 
-        return false;
+        return cachedPackages.contains(name);
+    }
+
+    /**
+     * Record the package of an importable installed in the cache, so that
+     * {@code packageExistsInCache} need not scan the cache.
+     */
+    protected void indexImportable(Named q) {
+        if (q instanceof Importable) {
+            Importable im = (Importable) q;
+            if (!indexPackage(im.package_())) {
+                unindexed.add(im);
+            }
+        }
+    }
+
+    /**
+     * Add the full name of package {@code p} and its prefixes to
+     * {@code cachedPackages}.  A null package is the default package,
+     * indexed under the empty name.  Returns false if {@code p} has no
+     * name.
+     */
+    protected boolean indexPackage(Package p) {
+        if (p == null) {
+            cachedPackages.add("");
+            return true;
+        }
+        if (p.fullName() == null) {
+            return false;
+        }
+
+        // If a name is present, so are its prefixes.
+        String name = p.fullName();
+        while (!name.equals("") && cachedPackages.add(name)) {
+            name = StringUtil.getPackageComponent(name);
+        }
+        return true;
     }
 
     /**
@@ -118,6 +167,12 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
      */
     @Override
     public boolean packageExists(String name) {
+        synchronized (lock) {
+            return packageExistsLocked(name);
+        }
+    }
+
+    protected boolean packageExistsLocked(String name) {
         Boolean b = packageCache.get(name);
         if (b != null) {
             return b;
@@ -207,12 +262,24 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
      */
     @Override
     public Named find(String name) throws SemanticException {
+        synchronized (lock) {
+            return findLocked(name);
+        }
+    }
+
+    protected Named findLocked(String name) throws SemanticException {
         if (previous == null) {
             clearAdded();
         }
 
         Named n = super.find(name);
 
+        IncrementalCache cache = incrementalCache();
+        if (cache != null) {
+            Job job = extInfo.scheduler().currentJob();
+            if (job != null) cache.addDependency(job, n);
+        }
+
         if (previous == null) {
             if (Report.should_report(TOPICS, 2))
                 Report.report(2, "Returning from root-level SR.find(" + name
@@ -251,6 +318,11 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
         super.install(name, q);
 
         if (previous == null) {
+            IncrementalCache cache = incrementalCache();
+            if (cache != null && q instanceof ParsedClassType) {
+                cache.addType(name, (ParsedClassType) q);
+            }
+
             if (q instanceof ParsedTypeObject) {
                 if (!((ParsedTypeObject) q).initializer()
                                            .isTypeObjectInitialized()) {
@@ -263,6 +335,8 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
         else {
             justAdded.add(new Pair<>(name, q));
         }
+
+        indexImportable(q);
     }
 
     /**
@@ -317,6 +391,17 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
         }
     }
 
-    private static final Collection<String> TOPICS =
-            CollectionUtil.list(Report.types, Report.resolver, "sysresolver");
+    /**
+     * Return the incremental cache of the compilation if this resolver
+     * belongs to the source extension, or null.
+     */
+    protected IncrementalCache incrementalCache() {
+        Compiler compiler = extInfo.compiler();
+        if (compiler == null || compiler.sourceExtension() != extInfo)
+            return null;
+        return compiler.incrementalCache();
+    }
+
+    private static final Report.Topic TOPICS =
+            Report.topic(Report.types, Report.resolver, "sysresolver");
 }
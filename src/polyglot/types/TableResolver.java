@@ -26,12 +26,10 @@
 
 package polyglot.types;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 import polyglot.main.Report;
-import polyglot.util.CollectionUtil;
 import polyglot.util.InternalCompilerError;
 
 /** A class resolver implemented as a map from names to types. */
@@ -105,6 +103,6 @@ public class TableResolver implements TopLevelResolver {
         return "(table " + table + ")";
     }
 
-    private static final Collection<String> TOPICS =
-            CollectionUtil.list(Report.types, Report.resolver);
+    private static final Report.Topic TOPICS =
+            Report.topic(Report.types, Report.resolver);
 }
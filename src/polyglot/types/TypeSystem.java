@@ -470,6 +470,34 @@ public interface TypeSystem {
             List<? extends Type> argTypes, ClassType currClass,
             boolean fromClient) throws SemanticException;
 
+    /**
+     * Notify the type system that the members, supertypes, or flags of
+     * {@code ct} have changed, invalidating cached results of
+     * {@code findMethod} and {@code findConstructor}.
+     */
+    void membersChanged(ParsedClassType ct);
+
+    /**
+     * Notify the type system that the supertypes or flags of {@code ct}
+     * have changed, invalidating the cached ancestors of {@code ct}, and
+     * of its subclasses if {@code ct} may be among their ancestors, as well
+     * as the results invalidated by {@code membersChanged}.
+     */
+    void supertypesChanged(ParsedClassType ct);
+
+    /**
+     * Return the version of the class hierarchy, incremented by
+     * {@code supertypesChanged} when the supertypes of a class that may be
+     * among the ancestors of another class change.
+     */
+    int supertypesVersion();
+
+    /**
+     * Allocate a new identifier for a class type, used to index the sets
+     * of ancestors of class types.  Identifiers are small and dense.
+     */
+    int nextClassTypeId();
+
     /**
      * Deprecated version of the findConstructor method.
      * @deprecated
@@ -757,6 +785,12 @@ public interface TypeSystem {
      */
     Context createContext();
 
+    /**
+     * Return the lock held while a name is resolved or the members of a
+     * class are lazily initialized in this type system.
+     */
+    Object resolutionLock();
+
     /** Get a resolver for looking up a type in a package. */
     Resolver packageContextResolver(Package pkg, ClassType accessor);
 
@@ -785,6 +819,14 @@ public interface TypeSystem {
      */
     LazyClassInitializer deserializedClassInitializer();
 
+    /**
+     * The lazy class initializer for deserialized classes whose methods,
+     * fields and constructors are serialized as separate sections, decoded
+     * when first accessed.  A null section has no members.
+     */
+    LazyClassInitializer lazyDeserializedClassInitializer(byte[] methods,
+            byte[] fields, byte[] constructors);
+
     /**
      * Create a new empty class.
      */
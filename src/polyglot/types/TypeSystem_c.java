@@ -26,22 +26,31 @@
 
 package polyglot.types;
 
+import java.io.File;
 import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import polyglot.ast.JLang_c;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.Source;
+import polyglot.frontend.Stats;
 import polyglot.main.Report;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLazyClassInitializer;
@@ -59,6 +68,15 @@ import polyglot.util.SubtypeSet;
  *    A {@code TypeSystem_c} is a universe of types, including all Java types.
  */
 public class TypeSystem_c implements TypeSystem {
+    /**
+     * The lock held while a name is resolved or the members of a class are
+     * lazily initialized, so that goals run concurrently by the
+     * {@code -parallel} option neither load a class twice nor see a class
+     * half initialized.  A type system that resolves names through another
+     * one, such as that of an output extension, shares its lock.
+     */
+    protected Object resolutionLock = new Object();
+
     protected SystemResolver systemResolver;
     protected TopLevelResolver loadedResolver;
     protected Map<String, Flags> flagsForName;
@@ -71,7 +89,7 @@ public class TypeSystem_c implements TypeSystem {
     public void initialize(TopLevelResolver loadedResolver,
             ExtensionInfo extInfo) throws SemanticException {
 
-        if (Report.should_report(Report.types, 1))
+        if (Report.should_report(Report.TYPES, 1))
             Report.report(1, "Initializing " + getClass().getName());
 
         this.extInfo = extInfo;
@@ -87,11 +105,118 @@ public class TypeSystem_c implements TypeSystem {
         // import table and then in the system resolver.
         systemResolver = new SystemResolver(loadedResolver, extInfo);
 
+        if (retained != null) {
+            for (Map.Entry<String, Named> e : retained.entrySet()) {
+                systemResolver.install(e.getKey(), e.getValue());
+            }
+            retained = null;
+        }
+
         initEnums();
         initFlags();
         initTypes();
     }
 
+    /**
+     * The type objects kept by {@code prepareRebuild}, to be installed in
+     * the system resolver when this type system is initialized again.
+     */
+    protected Map<String, Named> retained;
+
+    /**
+     * Prepare this type system to be initialized again, with the same
+     * options, for another compilation in the same VM, as done by the
+     * compiler server.  The class types loaded from raw class files in
+     * the archives of the boot class path are kept, since they cannot
+     * depend on the sources of a compilation; all other types are dropped.
+     * Return false if the type system cannot be reused, which is the case
+     * if a dropped type belongs to the package of a kept type, since kept
+     * types may then refer to it.
+     */
+    public boolean prepareRebuild() {
+        // Nothing to keep if the type system was never initialized.
+        if (systemResolver == null) return true;
+
+        Set<File> boot = new HashSet<>();
+        for (File f : extInfo.getOptions().bootclasspathDirectories()) {
+            boot.add(f.getAbsoluteFile());
+        }
+
+        ClassType object = Object();
+        Map<String, Named> kept = new LinkedHashMap<>();
+        Set<String> keptPackages = new HashSet<>();
+        Set<String> droppedPackages = new HashSet<>();
+        Map<String, Named> cached = systemResolver.cachedNamed();
+        for (Map.Entry<String, Named> e : cached.entrySet()) {
+            Named n = e.getValue();
+            if (!(n instanceof ParsedClassType)) continue;
+            ParsedClassType ct = (ParsedClassType) n;
+            String pkg = ct.package_() != null ? ct.package_().fullName() : "";
+            if (isBootArchiveType(ct, boot)) {
+                kept.put(e.getKey(), n);
+                keptPackages.add(pkg);
+            }
+            else {
+                droppedPackages.add(pkg);
+            }
+        }
+
+        droppedPackages.retainAll(keptPackages);
+        if (!droppedPackages.isEmpty() || !kept.containsValue(object)) {
+            return false;
+        }
+
+        // Keep the packages of the kept types and their prefixes.
+        for (Map.Entry<String, Named> e : cached.entrySet()) {
+            if (e.getValue() instanceof Package) {
+                for (String pkg : keptPackages) {
+                    if (pkg.equals(e.getKey())
+                            || pkg.startsWith(e.getKey() + ".")) {
+                        kept.put(e.getKey(), e.getValue());
+                        break;
+                    }
+                }
+            }
+        }
+
+        retained = kept;
+        systemResolver = null;
+        loadedResolver = null;
+        synchronized (procedureCache) {
+            procedureCache.clear();
+        }
+        arrayTypeCache.clear();
+        OBJECT_ = null;
+        CLASS_ = null;
+        STRING_ = null;
+        THROWABLE_ = null;
+        return true;
+    }
+
+    /**
+     * Return true if {@code ct} was loaded from a raw class file in one of
+     * the archives {@code boot}.
+     */
+    protected boolean isBootArchiveType(ParsedClassType ct, Set<File> boot) {
+        if (ct.fromSource() != null
+                || !(ct.initializer() instanceof ClassFileLazyClassInitializer))
+            return false;
+        ClassFile cf =
+                ((ClassFileLazyClassInitializer) ct.initializer()).classFile();
+        URI uri = cf.getClassFileURI();
+        if (!"jar".equals(uri.getScheme())) return false;
+        String ssp = uri.getRawSchemeSpecificPart();
+        int bang = ssp.indexOf("!/");
+        if (bang < 0) return false;
+        try {
+            File archive = new File(new URI(ssp.substring(0, bang)));
+            return boot.contains(archive.getAbsoluteFile());
+        }
+        catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     protected void initEnums() {
         // Ensure the enums in the type system are initialized and interned
         // before any deserialization occurs.
@@ -243,8 +368,23 @@ public class TypeSystem_c implements TypeSystem {
         throw new InternalCompilerError("Unrecognized primitive type.");
     }
 
+    @Override
+    public Object resolutionLock() {
+        return resolutionLock;
+    }
+
+    /**
+     * Share the resolution lock of {@code ts}.  This must be called before
+     * this type system is initialized.
+     */
+    public void shareResolutionLock(TypeSystem ts) {
+        resolutionLock = ts.resolutionLock();
+    }
+
     @Override
     public Context createContext() {
+        if (extInfo.getOptions().frame_contexts)
+            return new FrameContext_c(JLang_c.instance, this);
         return new Context_c(JLang_c.instance, this);
     }
 
@@ -1059,6 +1199,262 @@ public class TypeSystem_c implements TypeSystem {
         return false;
     }
 
+    /** The maximum number of cached method and constructor resolutions. */
+    protected static final int PROCEDURE_CACHE_SIZE = 4096;
+
+    /**
+     * Cache of the results of {@code findMethod} and
+     * {@code findConstructor}, keyed on the identity of the types they were
+     * called with.  Each result records the versions of the classes it
+     * depends on, and is discarded once one of them changes.
+     */
+    protected final Map<ResolutionKey, CachedProcedure> procedureCache =
+            new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Source of the versions of classes.  Each change to the members or
+     * supertypes of a class gives it a fresh version.
+     */
+    protected final AtomicInteger classVersions = new AtomicInteger();
+
+    @Override
+    public void membersChanged(ParsedClassType ct) {
+        if (ct instanceof ParsedClassType_c) {
+            ((ParsedClassType_c) ct).membersVersion =
+                    classVersions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Version of the class hierarchy, incremented when the supertypes of a
+     * class that may be in the ancestors of another class change.
+     */
+    protected final AtomicInteger supertypesVersion = new AtomicInteger();
+
+    /** The last identifier allocated to a class type. */
+    protected final AtomicInteger classTypeIds = new AtomicInteger();
+
+    @Override
+    public void supertypesChanged(ParsedClassType ct) {
+        if (ct instanceof ParsedClassType_c) {
+            ParsedClassType_c pct = (ParsedClassType_c) ct;
+            pct.supertypesVersion = classVersions.incrementAndGet();
+            pct.ancestors = null;
+            // A class without an identifier is in no set of ancestors.
+            if (pct.assignedSubtypeId() != 0)
+                supertypesVersion.incrementAndGet();
+        }
+        else supertypesVersion.incrementAndGet();
+        membersChanged(ct);
+    }
+
+    @Override
+    public int supertypesVersion() {
+        return supertypesVersion.get();
+    }
+
+    @Override
+    public int nextClassTypeId() {
+        return classTypeIds.incrementAndGet();
+    }
+
+    /**
+     * The arguments of a method or constructor resolution.  Type objects
+     * are compared by identity, other objects by equality.
+     */
+    protected static class ResolutionKey {
+        protected final Object[] parts;
+        protected final int hash;
+
+        public ResolutionKey(Object... parts) {
+            this.parts = parts;
+            int h = 0;
+            for (Object o : parts) {
+                h = 31 * h + (o instanceof TypeObject
+                        ? System.identityHashCode(o) : o == null
+                                ? 0 : o.hashCode());
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ResolutionKey)) return false;
+            Object[] p = ((ResolutionKey) o).parts;
+            if (p.length != parts.length) return false;
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] instanceof TypeObject || p[i] instanceof TypeObject) {
+                    if (parts[i] != p[i]) return false;
+                }
+                else if (parts[i] == null ? p[i] != null
+                        : !parts[i].equals(p[i])) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The classes a resolution depends on, with the versions of their
+     * members when the resolution started.
+     */
+    protected static class ResolutionDependencies {
+        protected final ParsedClassType_c[] classes;
+        protected final int[] versions;
+
+        public ResolutionDependencies(Collection<ParsedClassType_c> classes) {
+            this.classes = classes.toArray(new ParsedClassType_c[0]);
+            this.versions = new int[this.classes.length];
+            for (int i = 0; i < this.classes.length; i++) {
+                versions[i] = this.classes[i].membersVersion;
+            }
+        }
+
+        /** Return true if none of the classes changed since. */
+        public boolean isCurrent() {
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i].membersVersion != versions[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /** A cached resolution and the classes it depends on. */
+    protected static class CachedProcedure {
+        protected final ProcedureInstance pi;
+        protected final ResolutionDependencies deps;
+
+        public CachedProcedure(ProcedureInstance pi,
+                ResolutionDependencies deps) {
+            this.pi = pi;
+            this.deps = deps;
+        }
+    }
+
+    /**
+     * Return a key for the resolution of a procedure.  Lists of types are
+     * flattened into the key, preceded by their size.
+     */
+    protected ResolutionKey resolutionKey(Object... parts) {
+        List<Object> l = new ArrayList<>(parts.length + 4);
+        for (Object o : parts) {
+            if (o instanceof List) {
+                List<?> types = (List<?>) o;
+                l.add(types.size());
+                l.addAll(types);
+            }
+            else l.add(o);
+        }
+        return new ResolutionKey(l.toArray());
+    }
+
+    /**
+     * Return the classes the resolution {@code key} depends on: the classes
+     * of the types in the key, their outer classes and their ancestors.
+     * Return null if the resolution cannot be cached.
+     */
+    protected ResolutionDependencies resolutionDependencies(ResolutionKey key) {
+        Set<Type> visited =
+                Collections.newSetFromMap(new IdentityHashMap<Type, Boolean>());
+        for (Object o : key.parts) {
+            if (o instanceof TypeObject
+                    && !addResolutionDependencies((TypeObject) o, visited))
+                return null;
+        }
+        List<ParsedClassType_c> classes = new ArrayList<>();
+        for (Type t : visited) {
+            if (t instanceof ParsedClassType_c)
+                classes.add((ParsedClassType_c) t);
+        }
+        return new ResolutionDependencies(classes);
+    }
+
+    /**
+     * Add {@code t} and the types its resolutions depend on to
+     * {@code visited}.  The supertypes of parsed classes are read without
+     * initializing the class; initializing them later changes the version
+     * of the class.  Return false if the dependencies of {@code t} are not
+     * known.
+     */
+    protected boolean addResolutionDependencies(TypeObject t,
+            Set<Type> visited) {
+        if (t == null) return true;
+        if (!(t instanceof Type)) return false;
+        Type type = (Type) t;
+        if (!visited.add(type)) return true;
+        if (type.isPrimitive() || type.isNull() || type.isVoid()) return true;
+        if (type.isArray())
+            return addResolutionDependencies(type.toArray().base(), visited);
+        if (type instanceof ParsedClassType_c) {
+            ParsedClassType_c ct = (ParsedClassType_c) type;
+            if (!addResolutionDependencies(ct.superType, visited)
+                    || !addResolutionDependencies(ct.outer, visited))
+                return false;
+            for (ReferenceType rt : ct.interfaces) {
+                if (!addResolutionDependencies(rt, visited)) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The hits and misses of {@code procedureCache} not yet added to the
+     * stats of the extension.  They are counted here rather than in the
+     * stats, whose counters are synchronized.
+     */
+    protected final AtomicLong procedureCacheHits = new AtomicLong();
+    protected final AtomicLong procedureCacheMisses = new AtomicLong();
+
+    /**
+     * Add the counts not yet added to {@code stats}, as at the end of a
+     * compilation.
+     */
+    public void publishStats(Stats stats) {
+        stats.accumCount("procedure cache hits", procedureCacheHits);
+        stats.accumCount("procedure cache misses", procedureCacheMisses);
+    }
+
+    /**
+     * Return the cached result of the resolution {@code key}, or null,
+     * counting hits and misses.
+     */
+    protected ProcedureInstance cachedProcedure(ResolutionKey key) {
+        ProcedureInstance pi = null;
+        synchronized (procedureCache) {
+            CachedProcedure cp = procedureCache.get(key);
+            if (cp != null) {
+                if (cp.deps.isCurrent())
+                    pi = cp.pi;
+                else procedureCache.remove(key);
+            }
+        }
+        (pi != null ? procedureCacheHits : procedureCacheMisses).incrementAndGet();
+        return pi;
+    }
+
+    /**
+     * Cache {@code pi} as the result of the resolution {@code key}, if none
+     * of the classes in {@code deps} changed since the resolution started.
+     */
+    protected void cacheProcedure(ResolutionKey key,
+            ResolutionDependencies deps, ProcedureInstance pi) {
+        if (deps == null || !deps.isCurrent()) return;
+        synchronized (procedureCache) {
+            if (procedureCache.size() >= PROCEDURE_CACHE_SIZE) {
+                // Evict the least recently used resolution.
+                Iterator<ResolutionKey> i = procedureCache.keySet().iterator();
+                i.next();
+                i.remove();
+            }
+            procedureCache.put(key, new CachedProcedure(pi, deps));
+        }
+    }
+
     @Deprecated
     @Override
     public MethodInstance findMethod(ReferenceType container, String name,
@@ -1075,6 +1471,17 @@ public class TypeSystem_c implements TypeSystem {
         assert_(container);
         assert_(argTypes);
 
+        ResolutionKey key =
+                resolutionKey("method",
+                              container,
+                              name,
+                              argTypes,
+                              currClass,
+                              fromClient);
+        MethodInstance cached = (MethodInstance) cachedProcedure(key);
+        if (cached != null) return cached;
+        ResolutionDependencies deps = resolutionDependencies(key);
+
         List<? extends MethodInstance> acceptable =
                 findAcceptableMethods(container,
                                       name,
@@ -1116,6 +1523,7 @@ public class TypeSystem_c implements TypeSystem {
         }
 
         MethodInstance mi = maximal.iterator().next();
+        cacheProcedure(key, deps, mi);
         return mi;
     }
 
@@ -1144,6 +1552,17 @@ public class TypeSystem_c implements TypeSystem {
         assert_(container);
         assert_(argTypes);
 
+        ResolutionKey key =
+                resolutionKey("constructor",
+                              container,
+                              argTypes,
+                              currClass,
+                              fromClient);
+        ConstructorInstance cached =
+                (ConstructorInstance) cachedProcedure(key);
+        if (cached != null) return cached;
+        ResolutionDependencies deps = resolutionDependencies(key);
+
         List<? extends ConstructorInstance> acceptable =
                 findAcceptableConstructors(container,
                                            argTypes,
@@ -1169,6 +1588,7 @@ public class TypeSystem_c implements TypeSystem {
         }
 
         ConstructorInstance ci = maximal.iterator().next();
+        cacheProcedure(key, deps, ci);
         return ci;
     }
 
@@ -1342,7 +1762,7 @@ public class TypeSystem_c implements TypeSystem {
 
             visitedTypes.add(type);
 
-            if (Report.should_report(Report.types, 2))
+            if (Report.should_report(Report.TYPES, 2))
                 Report.report(2, "Searching type " + type + " for method "
                         + name + "(" + listToString(argTypes) + ")");
 
@@ -1351,21 +1771,17 @@ public class TypeSystem_c implements TypeSystem {
                         + " non-reference type " + type + ".");
             }
 
-            for (MethodInstance mi : type.toReference().methods()) {
-                if (Report.should_report(Report.types, 3))
+            for (MethodInstance mi : type.toReference().methodsNamed(name)) {
+                if (Report.should_report(Report.TYPES, 3))
                     Report.report(3, "Trying " + mi);
 
-                if (!mi.name().equals(name)) {
-                    continue;
-                }
-
                 if (methodCallValid(mi, name, argTypes)) {
                     if (isMember(mi, container.toReference())
                             && isAccessible(mi,
                                             container,
                                             currClass,
                                             fromClient)) {
-                        if (Report.should_report(Report.types, 3)) {
+                        if (Report.should_report(Report.TYPES, 3)) {
                             Report.report(3, "->acceptable: " + mi + " in "
                                     + mi.container());
                         }
@@ -1462,18 +1878,18 @@ public class TypeSystem_c implements TypeSystem {
 
         List<ConstructorInstance> acceptable = new ArrayList<>();
 
-        if (Report.should_report(Report.types, 2))
+        if (Report.should_report(Report.TYPES, 2))
             Report.report(2, "Searching type " + container
                     + " for constructor " + container + "("
                     + listToString(argTypes) + ")");
 
         for (ConstructorInstance ci : container.constructors()) {
-            if (Report.should_report(Report.types, 3))
+            if (Report.should_report(Report.TYPES, 3))
                 Report.report(3, "Trying " + ci);
 
             if (callValid(ci, argTypes)) {
                 if (isAccessible(ci, currClass, fromClient)) {
-                    if (Report.should_report(Report.types, 3))
+                    if (Report.should_report(Report.TYPES, 3))
                         Report.report(3, "->acceptable: " + ci);
                     acceptable.add(ci);
                 }
@@ -1989,7 +2405,7 @@ public class TypeSystem_c implements TypeSystem {
         return arrayType(pos, type);
     }
 
-    Map<Type, ArrayType> arrayTypeCache = new HashMap<>();
+    Map<Type, ArrayType> arrayTypeCache = new ConcurrentHashMap<>();
 
     /**
      * Factory method for ArrayTypes.
@@ -2002,7 +2418,8 @@ public class TypeSystem_c implements TypeSystem {
         ArrayType t = arrayTypeCache.get(type);
         if (t == null) {
             t = createArrayType(pos, type);
-            arrayTypeCache.put(type, t);
+            ArrayType u = arrayTypeCache.putIfAbsent(type, t);
+            if (u != null) t = u;
         }
         return t;
     }
@@ -2126,6 +2543,15 @@ public class TypeSystem_c implements TypeSystem {
         return new DeserializedClassInitializer(this);
     }
 
+    @Override
+    public LazyClassInitializer lazyDeserializedClassInitializer(
+            byte[] methods, byte[] fields, byte[] constructors) {
+        return new LazyDeserializedClassInitializer(this,
+                                                    methods,
+                                                    fields,
+                                                    constructors);
+    }
+
     @Override
     public final ParsedClassType createClassType() {
         return createClassType(defaultClassInitializer(), null);
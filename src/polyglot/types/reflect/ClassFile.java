@@ -85,6 +85,12 @@ public interface ClassFile {
 
     Constant[] getConstants();
 
+    /**
+     * Return the constant at {@code index} in the constant pool, decoding
+     * only that constant if needed.
+     */
+    Constant constant(int index);
+
     Field[] getFields();
 
     InnerClasses getInnerClasses();
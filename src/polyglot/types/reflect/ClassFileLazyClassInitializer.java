@@ -88,6 +88,11 @@ public class ClassFileLazyClassInitializer implements LazyClassInitializer {
         this.ct = ct;
     }
 
+    /** The class file the class is initialized from. */
+    public ClassFile classFile() {
+        return clazz;
+    }
+
     @Override
     public boolean fromClassFile() {
         return true;
@@ -147,7 +152,7 @@ public class ClassFileLazyClassInitializer implements LazyClassInitializer {
                         String outerName = clazz.classNameCP(c.outerClassIndex);
                         // This will be "J"
                         className =
-                                (String) clazz.getConstants()[c.nameIndex].value();
+                                (String) clazz.constant(c.nameIndex).value();
 
                         // Load the outer class.
                         // This will recursively load its outer class, if any.
@@ -568,9 +573,8 @@ public class ClassFileLazyClassInitializer implements LazyClassInitializer {
      * @param ct The class containing the method.
      */
     protected MethodInstance methodInstance(Method method, ClassType ct) {
-        Constant[] constants = clazz.getConstants();
-        String name = (String) constants[method.getName()].value();
-        String type = (String) constants[method.getType()].value();
+        String name = (String) clazz.constant(method.getName()).value();
+        String type = (String) clazz.constant(method.getType()).value();
 
         if (type.charAt(0) != '(') {
             throw new ClassFormatError("Bad method type descriptor.");
@@ -647,9 +651,8 @@ public class ClassFileLazyClassInitializer implements LazyClassInitializer {
      * @param ct The class containing the field.
      */
     protected FieldInstance fieldInstance(Field field, ClassType ct) {
-        Constant[] constants = clazz.getConstants();
-        String name = (String) constants[field.getName()].value();
-        String type = (String) constants[field.getType()].value();
+        String name = (String) clazz.constant(field.getName()).value();
+        String type = (String) clazz.constant(field.getType()).value();
 
         FieldInstance fi =
                 ts.fieldInstance(ct.position(),
@@ -26,11 +26,14 @@
 
 package polyglot.types.reflect;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
 import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,6 +49,11 @@ import polyglot.types.SemanticException;
  * is modeled according to the Java Virtual Machine Specification. Methods are
  * provided to access the classfile at a very low level.
  * 
+ * The classfile is read lazily: constructing a {@code ClassFile_c} only
+ * locates the constants, fields, methods, and attributes in the class data.
+ * Constants are decoded when first used, and the fields, methods, and
+ * attributes when first requested.
+ * 
  * @see polyglot.types.reflect Attribute
  * @see polyglot.types.reflect ConstantValue
  * @see polyglot.types.reflect Field
@@ -54,11 +62,18 @@ import polyglot.types.SemanticException;
  * @author Nate Nystrom
  */
 public class ClassFile_c implements ClassFile {
-    protected Constant[] constants; // The constant pool
+    protected ByteBuffer code; // The class data
+    protected int[] constantOffsets; // Offset of each constant in the data
+    protected Constant[] constants; // The constant pool, decoded on demand
+    protected boolean constantsDecoded; // Are all the constants decoded?
     protected int modifiers; // This class's modifier bit field
     protected int thisClass;
     protected int superClass;
     protected int[] interfaces;
+    protected int fieldsOffset; // Offset of the fields in the data
+    protected int methodsOffset; // Offset of the methods in the data
+    protected int attrsOffset; // Offset of the attributes in the data
+    private int pos; // Offset of the next part to locate, while reading
     protected Field[] fields;
     protected Method[] methods;
     protected Attribute[] attrs;
@@ -83,12 +98,28 @@ public class ClassFile_c implements ClassFile {
      */
     public ClassFile_c(FileObject classFileSource, byte[] code,
             ExtensionInfo ext) throws IOException {
+        this(classFileSource, ByteBuffer.wrap(code), ext);
+    }
+
+    /**
+     * Constructor. This constructor locates the parts of the class file in
+     * the buffer, which must not be modified while the class file is used.
+     * 
+     * @param code
+     *            A buffer containing the class data, from position 0
+     * @throws IOException
+     */
+    public ClassFile_c(FileObject classFileSource, ByteBuffer code,
+            ExtensionInfo ext) throws IOException {
         this.classFileSource = classFileSource;
         this.extensionInfo = ext;
+        this.code = code;
 
-        try (ByteArrayInputStream bin = new ByteArrayInputStream(code);
-             DataInputStream in = new DataInputStream(bin)) {
-            read(in);
+        try {
+            read();
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new EOFException();
         }
     }
 
@@ -113,9 +144,15 @@ public class ClassFile_c implements ClassFile {
         jlc = new JLCInfo();
         jlcInfoCache.put(typeSystemKey, jlc);
 
+        if (!hasJLCFields()) {
+            // Avoid decoding the fields of classes not compiled by Polyglot.
+            return jlc;
+        }
+
         try {
             int mask = 0;
 
+            Field[] fields = getFields();
             for (Field field : fields) {
                 if (field.name().equals("jlc$SourceLastModified$"
                         + typeSystemKey)) {
@@ -204,17 +241,131 @@ public class ClassFile_c implements ClassFile {
     }
 
     /**
-     * Read the class file.
+     * Return true if the class has a field whose name starts with "jlc$",
+     * without decoding the fields.
      */
-    void read(DataInputStream in) throws IOException {
-        // Read in file contents from stream
-        readHeader(in);
-        readConstantPool(in);
-        readAccessFlags(in);
-        readClassInfo(in);
-        readFields(in);
-        readMethods(in);
-        readAttributes(in);
+    protected boolean hasJLCFields() {
+        if (fields != null) {
+            for (Field field : fields) {
+                if (field.name().startsWith("jlc$")) return true;
+            }
+            return false;
+        }
+
+        int pos = fieldsOffset;
+        int numFields = u2(pos);
+        pos += 2;
+        for (int i = 0; i < numFields; i++) {
+            Constant name = constant(u2(pos + 2));
+            if (name != null && name.tag() == Constant.UTF8
+                    && ((String) name.value()).startsWith("jlc$")) {
+                return true;
+            }
+            pos = skipMember(pos);
+        }
+        return false;
+    }
+
+    /**
+     * Locate the parts of the class file.
+     */
+    void read() throws IOException {
+        readHeader();
+        readConstantPool();
+        readAccessFlags();
+        readClassInfo();
+        fieldsOffset = pos;
+        pos = skipMembers(pos);
+        methodsOffset = pos;
+        pos = skipMembers(pos);
+        attrsOffset = pos;
+        skipAttributes(pos);
+    }
+
+    protected int u1(int offset) {
+        return code.get(offset) & 0xff;
+    }
+
+    protected int u2(int offset) {
+        return code.getShort(offset) & 0xffff;
+    }
+
+    /** Skip the fields or methods at {@code offset}. */
+    protected int skipMembers(int offset) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset = skipMember(offset);
+        }
+        return offset;
+    }
+
+    /** Skip the field or method at {@code offset}. */
+    protected int skipMember(int offset) {
+        // Skip the modifiers, name, and type.
+        return skipAttributes(offset + 6);
+    }
+
+    /** Skip the attributes at {@code offset}. */
+    protected int skipAttributes(int offset) {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            int length = code.getInt(offset + 2);
+            if (length < 0) {
+                throw new ClassFormatError("Invalid attribute length");
+            }
+            offset += 6 + length;
+        }
+        if (offset > code.limit()) {
+            throw new IndexOutOfBoundsException();
+        }
+        return offset;
+    }
+
+    /**
+     * Return a stream reading the class data from {@code offset}.
+     */
+    protected DataInputStream stream(int offset) {
+        ByteBuffer b = code.duplicate();
+        // Call Buffer.position, which exists in all versions of the JDK.
+        ((Buffer) b).position(offset);
+        return new DataInputStream(new BufferInputStream(b));
+    }
+
+    /** An input stream reading a buffer. */
+    protected static class BufferInputStream extends InputStream {
+        protected final ByteBuffer buf;
+
+        public BufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buf.hasRemaining()) return -1;
+            len = Math.min(len, buf.remaining());
+            buf.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            ((Buffer) buf).position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
     }
 
     /*
@@ -224,12 +375,12 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public String classNameCP(int index) {
-        Constant c = constants[index];
+        Constant c = constant(index);
 
         if (c != null && c.tag() == Constant.CLASS) {
             Integer nameIndex = (Integer) c.value();
             if (nameIndex != null) {
-                c = constants[nameIndex.intValue()];
+                c = constant(nameIndex.intValue());
                 if (c.tag() == Constant.UTF8) {
                     String s = (String) c.value();
                     return s.replace('/', '.');
@@ -247,11 +398,11 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public String name() {
-        Constant c = constants[thisClass];
+        Constant c = constant(thisClass);
         if (c.tag() == Constant.CLASS) {
             Integer nameIndex = (Integer) c.value();
             if (nameIndex != null) {
-                c = constants[nameIndex.intValue()];
+                c = constant(nameIndex.intValue());
                 if (c.tag() == Constant.UTF8) {
                     return (String) c.value();
                 }
@@ -261,24 +412,44 @@ public class ClassFile_c implements ClassFile {
         throw new ClassFormatError("Couldn't find class name in file");
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see polyglot.types.reflect.ClassFileI#constant(int)
+     */
+    @Override
+    public Constant constant(int index) {
+        Constant c = constants[index];
+        if (c == null && constantOffsets[index] != 0) {
+            try {
+                c = readConstant(constantOffsets[index]);
+            }
+            catch (UTFDataFormatException e) {
+                throw new ClassFormatError(e.getMessage());
+            }
+            constants[index] = c;
+        }
+        return c;
+    }
+
     /**
      * Read a constant from the constant pool.
      * 
-     * @param in
-     *            The stream from which to read.
+     * @param offset
+     *            The offset of the constant in the class data.
      * @return The constant.
-     * @exception IOException
-     *                If an error occurs while reading.
+     * @exception UTFDataFormatException
+     *                If a string constant is malformed.
      */
-    Constant readConstant(DataInputStream in) throws IOException {
-        int tag = in.readUnsignedByte();
+    Constant readConstant(int offset) throws UTFDataFormatException {
+        int tag = u1(offset);
         Object value;
 
         switch (tag) {
         case Constant.CLASS:
         case Constant.STRING:
         case Constant.METHOD_TYPE:
-            value = new Integer(in.readUnsignedShort());
+            value = new Integer(u2(offset + 1));
             break;
         case Constant.FIELD_REF:
         case Constant.METHOD_REF:
@@ -287,31 +458,31 @@ public class ClassFile_c implements ClassFile {
         case Constant.INVOKE_DYNAMIC:
             value = new int[2];
 
-            ((int[]) value)[0] = in.readUnsignedShort();
-            ((int[]) value)[1] = in.readUnsignedShort();
+            ((int[]) value)[0] = u2(offset + 1);
+            ((int[]) value)[1] = u2(offset + 3);
             break;
         case Constant.METHOD_HANDLE:
             value = new int[2];
 
-            ((int[]) value)[0] = in.readUnsignedByte();
-            ((int[]) value)[1] = in.readUnsignedShort();
+            ((int[]) value)[0] = u1(offset + 1);
+            ((int[]) value)[1] = u2(offset + 2);
             break;
         case Constant.INTEGER:
-            value = new Integer(in.readInt());
+            value = new Integer(code.getInt(offset + 1));
             break;
         case Constant.FLOAT:
-            value = new Float(in.readFloat());
+            value = new Float(code.getFloat(offset + 1));
             break;
         case Constant.LONG:
             // Longs take up 2 constant pool entries.
-            value = new Long(in.readLong());
+            value = new Long(code.getLong(offset + 1));
             break;
         case Constant.DOUBLE:
             // Doubles take up 2 constant pool entries.
-            value = new Double(in.readDouble());
+            value = new Double(code.getDouble(offset + 1));
             break;
         case Constant.UTF8:
-            value = in.readUTF();
+            value = readUTF(offset + 3, u2(offset + 1));
             break;
         default:
             throw new ClassFormatError("Invalid constant tag: " + tag);
@@ -320,58 +491,137 @@ public class ClassFile_c implements ClassFile {
         return new Constant(tag, value);
     }
 
+    /**
+     * Decode the modified UTF-8 string of {@code length} bytes at
+     * {@code offset}, as {@code DataInputStream.readUTF} does.
+     */
+    protected String readUTF(int offset, int length)
+            throws UTFDataFormatException {
+        char[] chars = new char[length];
+        int n = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int c = u1(offset);
+            switch (c >> 4) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                // 0xxxxxxx
+                offset++;
+                chars[n++] = (char) c;
+                break;
+            case 12:
+            case 13:
+                // 110x xxxx 10xx xxxx
+                if (offset + 2 > end) {
+                    throw new UTFDataFormatException("malformed input: partial character at end");
+                }
+                int c2 = u1(offset + 1);
+                if ((c2 & 0xC0) != 0x80) {
+                    throw new UTFDataFormatException("malformed input around byte "
+                            + offset);
+                }
+                chars[n++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                offset += 2;
+                break;
+            case 14:
+                // 1110 xxxx 10xx xxxx 10xx xxxx
+                if (offset + 3 > end) {
+                    throw new UTFDataFormatException("malformed input: partial character at end");
+                }
+                c2 = u1(offset + 1);
+                int c3 = u1(offset + 2);
+                if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80) {
+                    throw new UTFDataFormatException("malformed input around byte "
+                            + offset);
+                }
+                chars[n++] =
+                        (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+                offset += 3;
+                break;
+            default:
+                // 10xx xxxx, 1111 xxxx
+                throw new UTFDataFormatException("malformed input around byte "
+                        + offset);
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
     /**
      * Read the class file header.
      * 
-     * @param in
-     *            The stream from which to read.
      * @exception IOException
      *                If an error occurs while reading.
      */
-    void readHeader(DataInputStream in) throws IOException {
-        int magic = in.readInt();
+    void readHeader() throws IOException {
+        int magic = code.getInt(0);
 
         if (magic != 0xCAFEBABE) {
             throw new ClassFormatError("Bad magic number.");
         }
 
-        @SuppressWarnings("unused")
-        int minor = in.readUnsignedShort();
-
-        @SuppressWarnings("unused")
-        int major = in.readUnsignedShort();
+        // Skip the minor and major versions.
+        pos = 8;
     }
 
     /**
-     * Read the class's constant pool. Constants in the constant pool are
-     * modeled by an array of <tt>reflect.Constant</tt>/
+     * Locate the constants in the class's constant pool. Constants in the
+     * constant pool are modeled by an array of <tt>reflect.Constant</tt>,
+     * decoded on demand.
      * 
-     * @param in
-     *            The stream from which to read.
      * @exception IOException
      *                If an error occurs while reading.
      * 
      * @see Constant
      * @see #constants
      */
-    void readConstantPool(DataInputStream in) throws IOException {
-        int count = in.readUnsignedShort();
+    void readConstantPool() throws IOException {
+        int count = u2(pos);
+        pos += 2;
 
         constants = new Constant[count];
+        constantOffsets = new int[count];
 
         // The first constant is reserved for internal use by the JVM.
-        constants[0] = null;
-
-        // Read the constants.
         for (int i = 1; i < count; i++) {
-            constants[i] = readConstant(in);
-
-            switch (constants[i].tag()) {
+            constantOffsets[i] = pos;
+            int tag = u1(pos);
+
+            switch (tag) {
+            case Constant.CLASS:
+            case Constant.STRING:
+            case Constant.METHOD_TYPE:
+                pos += 3;
+                break;
+            case Constant.METHOD_HANDLE:
+                pos += 4;
+                break;
+            case Constant.FIELD_REF:
+            case Constant.METHOD_REF:
+            case Constant.INTERFACE_METHOD_REF:
+            case Constant.NAME_AND_TYPE:
+            case Constant.INVOKE_DYNAMIC:
+            case Constant.INTEGER:
+            case Constant.FLOAT:
+                pos += 5;
+                break;
             case Constant.LONG:
             case Constant.DOUBLE:
                 // Longs and doubles take up 2 constant pool entries.
-                constants[++i] = null;
+                pos += 9;
+                i++;
                 break;
+            case Constant.UTF8:
+                pos += 3 + u2(pos + 1);
+                break;
+            default:
+                throw new ClassFormatError("Invalid constant tag: " + tag);
             }
         }
     }
@@ -379,33 +629,32 @@ public class ClassFile_c implements ClassFile {
     /**
      * Read the class's access flags.
      * 
-     * @param in
-     *            The stream from which to read.
      * @exception IOException
      *                If an error occurs while reading.
      */
-    void readAccessFlags(DataInputStream in) throws IOException {
-        modifiers = in.readUnsignedShort();
+    void readAccessFlags() throws IOException {
+        modifiers = u2(pos);
+        pos += 2;
     }
 
     /**
      * Read the class's name, superclass, and interfaces.
      * 
-     * @param in
-     *            The stream from which to read.
      * @exception IOException
      *                If an error occurs while reading.
      */
-    void readClassInfo(DataInputStream in) throws IOException {
-        thisClass = in.readUnsignedShort();
-        superClass = in.readUnsignedShort();
+    void readClassInfo() throws IOException {
+        thisClass = u2(pos);
+        superClass = u2(pos + 2);
 
-        int numInterfaces = in.readUnsignedShort();
+        int numInterfaces = u2(pos + 4);
+        pos += 6;
 
         interfaces = new int[numInterfaces];
 
         for (int i = 0; i < numInterfaces; i++) {
-            interfaces[i] = in.readUnsignedShort();
+            interfaces[i] = u2(pos);
+            pos += 2;
         }
     }
 
@@ -460,7 +709,7 @@ public class ClassFile_c implements ClassFile {
         for (int i = 0; i < numAttributes; i++) {
             int nameIndex = in.readUnsignedShort();
             int length = in.readInt();
-            String name = (String) constants[nameIndex].value();
+            String name = (String) constant(nameIndex).value();
             Attribute a = createAttribute(in, name, nameIndex, length);
             if (a != null) {
                 attrs[i] = a;
@@ -524,6 +773,14 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public Attribute[] getAttrs() {
+        if (attrs == null) {
+            try {
+                readAttributes(stream(attrsOffset));
+            }
+            catch (IOException e) {
+                throw new ClassFormatError(e.getMessage());
+            }
+        }
         return attrs;
     }
 
@@ -534,6 +791,12 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public Constant[] getConstants() {
+        if (!constantsDecoded) {
+            for (int i = 1; i < constants.length; i++) {
+                constant(i);
+            }
+            constantsDecoded = true;
+        }
         return constants;
     }
 
@@ -544,6 +807,14 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public Field[] getFields() {
+        if (fields == null) {
+            try {
+                readFields(stream(fieldsOffset));
+            }
+            catch (IOException e) {
+                throw new ClassFormatError(e.getMessage());
+            }
+        }
         return fields;
     }
 
@@ -554,6 +825,7 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public InnerClasses getInnerClasses() {
+        getAttrs();
         return innerClasses;
     }
 
@@ -574,6 +846,14 @@ public class ClassFile_c implements ClassFile {
      */
     @Override
     public Method[] getMethods() {
+        if (methods == null) {
+            try {
+                readMethods(stream(methodsOffset));
+            }
+            catch (IOException e) {
+                throw new ClassFormatError(e.getMessage());
+            }
+        }
         return methods;
     }
 
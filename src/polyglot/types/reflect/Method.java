@@ -89,7 +89,7 @@ public class Method {
             int nameIndex = in.readUnsignedShort();
             int length = in.readInt();
 
-            Constant name = clazz.getConstants()[nameIndex];
+            Constant name = clazz.constant(nameIndex);
 
             if (name != null) {
                 if ("Exceptions".equals(name.value())) {
@@ -146,6 +146,6 @@ public class Method {
     }
 
     public String name() {
-        return (String) clazz.getConstants()[this.name].value();
+        return (String) clazz.constant(this.name).value();
     }
 }
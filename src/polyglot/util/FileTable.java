@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A table of the source files of a compilation.  Each position refers to
+ * the entry of its file in the table rather than holding the path and
+ * name of the file itself, so that the positions of a file share a single
+ * entry.
+ * <p>
+ * Each {@code Compiler} has its own table, which is the current table of
+ * the threads running its passes; positions created elsewhere get entries
+ * of their own.
+ */
+public class FileTable {
+    /** The path and name of a source file. */
+    public static final class Entry {
+        protected final String path;
+        protected final String file;
+
+        protected Entry(String path, String file) {
+            this.path = path;
+            this.file = file;
+        }
+
+        public String path() {
+            return path;
+        }
+
+        public String file() {
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return path != null ? path : file;
+        }
+    }
+
+    private static final ThreadLocal<FileTable> current = new ThreadLocal<>();
+
+    /**
+     * Return the table of the compilation running on the current thread, or
+     * null if there is none.
+     */
+    public static FileTable current() {
+        return current.get();
+    }
+
+    /**
+     * Make {@code table} the current table of this thread, returning the
+     * previous one.  If {@code table} is null, the thread has no current
+     * table.
+     */
+    public static FileTable setCurrent(FileTable table) {
+        FileTable previous = current.get();
+        if (table == null)
+            current.remove();
+        else current.set(table);
+        return previous;
+    }
+
+    /**
+     * Return the entry for {@code path} and {@code file} of the current
+     * table, or a new entry if this thread has no current table.
+     */
+    public static Entry entryOf(String path, String file) {
+        FileTable table = current.get();
+        if (table == null) return new Entry(path, file);
+        return table.entry(path, file);
+    }
+
+    protected final Map<Pair<String, String>, Entry> entries;
+
+    /** The entry most recently looked up, which usually is the next one. */
+    protected volatile Entry last;
+
+    public FileTable() {
+        entries = new HashMap<>();
+    }
+
+    /**
+     * Return the entry for {@code path} and {@code file}, adding it to the
+     * table if needed.
+     */
+    public Entry entry(String path, String file) {
+        Entry e = last;
+        if (e != null && e.path == path && e.file == file) return e;
+
+        synchronized (entries) {
+            Pair<String, String> key = new Pair<>(path, file);
+            e = entries.get(key);
+            if (e == null) {
+                e = new Entry(path, file);
+                entries.put(key, e);
+            }
+        }
+        last = e;
+        return e;
+    }
+
+    /** Return the number of entries in the table. */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
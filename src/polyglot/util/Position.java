@@ -26,19 +26,44 @@
 
 package polyglot.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+
 import polyglot.main.Options;
 
 /**
  * This class represents a position within a source file. It is used to record
  * where each AST node is located in a source file; this is used, for
  * example, for generating error messages.
+ * <p>
+ * A position refers to the entry of its source file in the
+ * {@code FileTable} of the compilation rather than holding the path and
+ * name of the file, so the positions of a file share a single entry.
  **/
 public class Position implements Serializable {
     static final long serialVersionUID = -4588386982624074261L;
 
-    private String path;
-    private String file;
+    /**
+     * The serialized fields, which still include the path and name of the
+     * file rather than the entry, so that the serialized form of positions
+     * is unchanged.
+     */
+    private static final ObjectStreamField[] serialPersistentFields =
+            { new ObjectStreamField("path", String.class),
+                    new ObjectStreamField("file", String.class),
+                    new ObjectStreamField("info", String.class),
+                    new ObjectStreamField("line", int.class),
+                    new ObjectStreamField("column", int.class),
+                    new ObjectStreamField("endLine", int.class),
+                    new ObjectStreamField("endColumn", int.class),
+                    new ObjectStreamField("compilerGenerated", boolean.class),
+                    new ObjectStreamField("offset", int.class),
+                    new ObjectStreamField("endOffset", int.class) };
+
+    private transient FileTable.Entry source;
     private String info;
 
     private int line;
@@ -103,6 +128,7 @@ public class Position implements Serializable {
 
     /** For deserialization. */
     protected Position() {
+        source = FileTable.entryOf(null, null);
         line = endLine = 0;
         column = endColumn = 0;
         offset = endOffset = 0;
@@ -137,8 +163,18 @@ public class Position implements Serializable {
 
     public Position(String path, String file, int line, int column,
             int endLine, int endColumn, int offset, int endOffset) {
-        this.file = file;
-        this.path = path;
+        this(FileTable.entryOf(path, file),
+             line,
+             column,
+             endLine,
+             endColumn,
+             offset,
+             endOffset);
+    }
+
+    private Position(FileTable.Entry source, int line, int column,
+            int endLine, int endColumn, int offset, int endOffset) {
+        this.source = source;
         this.line = line;
         this.column = column;
         this.endLine = endLine;
@@ -148,8 +184,7 @@ public class Position implements Serializable {
     }
 
     public Position(Position start, Position end) {
-        this(start.path(),
-             start.file(),
+        this(start.source,
              start.line,
              start.column,
              end.endLine,
@@ -183,13 +218,12 @@ public class Position implements Serializable {
             }
         }
 
-        return new Position(path, file, line, column, el, ec, offset, eo);
+        return new Position(source, line, column, el, ec, offset, eo);
     }
 
     public Position startOf() {
         if (this == COMPILER_GENERATED) return this;
-        return new Position(path,
-                            file,
+        return new Position(source,
                             line,
                             column,
                             line,
@@ -200,8 +234,7 @@ public class Position implements Serializable {
 
     public Position endOf() {
         if (this == COMPILER_GENERATED) return this;
-        return new Position(path,
-                            file,
+        return new Position(source,
                             endLine,
                             endColumn,
                             endLine,
@@ -245,19 +278,19 @@ public class Position implements Serializable {
     }
 
     public String file() {
-        return file;
+        return source.file();
     }
 
     public String path() {
-        return path;
+        return source.path();
     }
 
     public String nameAndLineString() {
         // Maybe we should use path here, if it isn't too long...
-        String s = path;
+        String s = path();
 
         if (s == null || s.length() == 0) {
-            s = file;
+            s = file();
         }
 
         if (s == null) {
@@ -280,10 +313,10 @@ public class Position implements Serializable {
 
     @Override
     public String toString() {
-        String s = path;
+        String s = path();
 
         if (s == null) {
-            s = file;
+            s = file();
         }
 
         if (s == null) {
@@ -312,4 +345,40 @@ public class Position implements Serializable {
 
         return s;
     }
+
+    @SuppressWarnings("unused")
+    private static final long readObjectVersionUID = 1L;
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("path", path());
+        fields.put("file", file());
+        fields.put("info", info);
+        fields.put("line", line);
+        fields.put("column", column);
+        fields.put("endLine", endLine);
+        fields.put("endColumn", endColumn);
+        fields.put("compilerGenerated", compilerGenerated);
+        fields.put("offset", offset);
+        fields.put("endOffset", endOffset);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        // If you update this method in an incompatible way, increment
+        // readObjectVersionUID.
+        ObjectInputStream.GetField fields = in.readFields();
+        source =
+                FileTable.entryOf((String) fields.get("path", null),
+                                  (String) fields.get("file", null));
+        info = (String) fields.get("info", null);
+        line = fields.get("line", 0);
+        column = fields.get("column", 0);
+        endLine = fields.get("endLine", 0);
+        endColumn = fields.get("endColumn", 0);
+        compilerGenerated = fields.get("compilerGenerated", false);
+        offset = fields.get("offset", 0);
+        endOffset = fields.get("endOffset", 0);
+    }
 }
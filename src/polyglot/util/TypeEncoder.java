@@ -28,14 +28,21 @@ package polyglot.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InvalidClassException;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import polyglot.frontend.SchedulerException;
+import polyglot.frontend.goals.Goal;
 import polyglot.main.Report;
 import polyglot.types.Named;
 import polyglot.types.TypeObject;
@@ -55,6 +62,29 @@ import polyglot.types.TypeSystem;
  * {@code PlaceHolder} that contains the name of the class. To aid
  * in the decoding process, placeholders for member classes user their 
  * "mangled" name; non-member classes use their fully qualified name.
+ * <p>
+ * Types are encoded in a compact format: a {@code FORMAT_MARKER}
+ * character and the format version, followed by the zipped serialization,
+ * with class descriptors reduced to their names, packed seven bits per
+ * character.  Each character then takes a single byte in the constant pool
+ * of a class file, except for the rare character 0.  Strings in the older
+ * format, the zipped serialization in Base64, are still decoded.
+ * <p>
+ * The encoding is Java serialization rather than a format of its own, so
+ * that the type objects of extensions, which define their serialized form
+ * with {@code writeObject}, {@code readObject} and
+ * {@code serialPersistentFields}, are encoded without change.  The format
+ * version covers the framing around the serialization: the compact class
+ * descriptors, the packing and the member sections.  The compact format
+ * is about a third smaller than the older one, but not faster to decode;
+ * decoding is dominated by the deserialization that both share.
+ * <p>
+ * The methods, fields and constructors of the class being encoded are
+ * written as separate sections, each a serialization on its own, and are
+ * decoded only when first accessed.  See
+ * {@link polyglot.types.LazyDeserializedClassInitializer}.  The class and
+ * its sections are zipped together, so the class descriptors and strings
+ * they have in common are stored once.
  */
 public class TypeEncoder {
     protected TypeSystem ts;
@@ -64,6 +94,21 @@ public class TypeEncoder {
     protected Map<Object, Object> placeHolderCache;
     protected int depth;
 
+    /**
+     * The goal to reach before the last decoding that failed can succeed,
+     * or null if it is not known.
+     */
+    protected Goal missingDependency;
+
+    /**
+     * The first character of a type encoded in the compact format; it
+     * cannot begin a Base64 string.
+     */
+    public static final char FORMAT_MARKER = '\0';
+
+    /** The version of the compact format, the only one decoded. */
+    public static final char FORMAT_VERSION = 3;
+
     public TypeEncoder(TypeSystem ts) {
         this.ts = ts;
         this.placeHolderCache = null;
@@ -78,38 +123,40 @@ public class TypeEncoder {
     public String encode(TypeObject t) throws IOException {
         ByteArrayOutputStream baos;
 
-        if (Report.should_report(Report.serialize, 1)) {
+        if (Report.should_report(Report.SERIALIZE, 1)) {
             Report.report(1, "Encoding type " + t);
         }
 
-        baos = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzos = zip ? new GZIPOutputStream(baos) : null;
-             ObjectOutputStream oos =
-                     new TypeOutputStream(zip ? gzos : baos, ts, t)) {
+        ByteArrayOutputStream main = new ByteArrayOutputStream();
+        List<byte[]> sections;
+        try (TypeOutputStream oos = new TypeOutputStream(main, ts, t, true)) {
+            oos.setLazyMembers(true);
             oos.writeObject(t);
             oos.flush();
+            sections = oos.memberSections();
         }
 
-        byte[] b = baos.toByteArray();
-
-        if (Report.should_report(Report.serialize, 2)) {
-            Report.report(2, "Size of serialization (with" + (zip ? "" : "out")
-                    + " zipping) is " + b.length + " bytes");
+        // Zip the class and its member sections together.
+        baos = new ByteArrayOutputStream();
+        try (DataOutputStream out =
+                new DataOutputStream(new GZIPOutputStream(baos))) {
+            writeSection(out, main.toByteArray());
+            out.writeInt(sections.size());
+            for (byte[] section : sections) {
+                writeSection(out, section);
+            }
         }
 
-        String s;
+        byte[] b = baos.toByteArray();
 
-        if (base64) {
-            s = Base64.encodeBytes(b);
-        }
-        else {
-            StringBuffer sb = new StringBuffer(b.length);
-            for (byte element : b)
-                sb.append((char) element);
-            s = sb.toString();
+        if (Report.should_report(Report.SERIALIZE, 2)) {
+            Report.report(2, "Size of serialization (with zipping) is "
+                    + b.length + " bytes");
         }
 
-        if (Report.should_report(Report.serialize, 2)) {
+        String s = pack(b);
+
+        if (Report.should_report(Report.SERIALIZE, 2)) {
             Report.report(2,
                           "Size of serialization after conversion to string is "
                                   + s.length() + " characters");
@@ -144,6 +191,65 @@ public class TypeEncoder {
      */
     public TypeObject decode(String s, String name)
             throws InvalidClassException {
+        return (TypeObject) decodeObject(s, name);
+    }
+
+    /**
+     * Serialize a section of the members of a class type, to be zipped
+     * with the class.  Class types are all replaced by place holders,
+     * including the container of the members.
+     * @param members The members to encode.
+     * @return The serialized members, or null if there are none.
+     * @throws IOException If the encoding fails.
+     */
+    public byte[] encodeMembers(List<? extends TypeObject> members)
+            throws IOException {
+        if (members.isEmpty()) return null;
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos =
+                new TypeOutputStream(baos, ts, null, true)) {
+            oos.writeObject(new ArrayList<>(members));
+            oos.flush();
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decode a section of members serialized by {@code encodeMembers}.  If
+     * deserialization fails because a type could not be resolved, the
+     * method returns null, and {@code missingDependency} returns the goal
+     * to reach first, if known.
+     * @param b The serialized members, or null.
+     * @param name The name of the class type containing the members.
+     * @return The decoded members, or null if deserialization fails.
+     * @throws InvalidClassException If the section is malformed.
+     */
+    public List<?> decodeMembers(byte[] b, String name)
+            throws InvalidClassException {
+        if (b == null) return new ArrayList<>();
+        return (List<?>) decodeObject(null, b, name);
+    }
+
+    /**
+     * Return the goal to reach before the last decoding that failed can
+     * succeed, or null if it is not known.
+     */
+    public Goal missingDependency() {
+        return missingDependency;
+    }
+
+    protected Object decodeObject(String s, String name)
+            throws InvalidClassException {
+        return decodeObject(s, null, name);
+    }
+
+    /**
+     * Decode the type encoded in {@code s}, or if {@code section} is not
+     * null, the members serialized in {@code section}.
+     */
+    protected Object decodeObject(String s, byte[] section, String name)
+            throws InvalidClassException {
 
         Map<Object, Object> oldCache = placeHolderCache;
         placeHolderCache = new HashMap<>();
@@ -151,11 +257,42 @@ public class TypeEncoder {
             placeHolderCache.putAll(oldCache);
         }
 
-        if (Report.should_report(Report.serialize, 1))
+        if (Report.should_report(Report.SERIALIZE, 1))
             Report.report(1, "TypeEncoder depth " + depth + " at " + name);
         depth++;
 
         try {
+            if (section != null) {
+                try (TypeInputStream ois =
+                        ois(new ByteArrayInputStream(section), true)) {
+                    return readObject(ois);
+                }
+            }
+
+            if (s.length() > 0 && s.charAt(0) == FORMAT_MARKER) {
+                if (s.length() < 2 || s.charAt(1) != FORMAT_VERSION) {
+                    throw new InvalidClassException(name,
+                                                    "unsupported type encoding version");
+                }
+                InputStream in =
+                        new GZIPInputStream(new ByteArrayInputStream(unpack(s)));
+                byte[] main;
+                byte[][] sections;
+                try (DataInputStream din = new DataInputStream(in)) {
+                    main = readSection(din);
+                    sections = new byte[din.readInt()][];
+                    for (int i = 0; i < sections.length; i++) {
+                        sections[i] = readSection(din);
+                    }
+                }
+                try (TypeInputStream ois =
+                        ois(new ByteArrayInputStream(main), true)) {
+                    ois.setLazyMembers(true);
+                    ois.setMemberSections(sections);
+                    return readObject(ois);
+                }
+            }
+
             byte[] b;
 
             if (base64) {
@@ -180,11 +317,7 @@ public class TypeEncoder {
 //                                            placeHolderCache);
 //            }
             try (TypeInputStream ois = ois(new ByteArrayInputStream(b))) {
-                TypeObject o = (TypeObject) ois.readObject();
-
-                if (ois.deserializationFailed()) return null;
-
-                return o;
+                return readObject(ois);
             }
         }
         catch (InvalidClassException e) {
@@ -210,7 +343,92 @@ public class TypeEncoder {
         }
     }
 
+    /**
+     * Read the object encoded in {@code ois}, returning null and recording
+     * the missing dependency if a type could not be resolved.
+     */
+    protected Object readObject(TypeInputStream ois) throws IOException,
+            ClassNotFoundException {
+        Object o = ois.readObject();
+
+        if (ois.deserializationFailed()) {
+            missingDependency = ois.missingDependency();
+            return null;
+        }
+
+        return o;
+    }
+
+    protected static void writeSection(DataOutputStream out, byte[] b)
+            throws IOException {
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    protected static byte[] readSection(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new InvalidClassException("malformed type encoding");
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return b;
+    }
+
     public TypeInputStream ois(ByteArrayInputStream bais) throws IOException {
         return new TypeInputStream(bais, ts, placeHolderCache);
     }
+
+    /**
+     * Return a stream decoding types from {@code in}, with compact class
+     * descriptors if {@code compact} is true.
+     */
+    public TypeInputStream ois(InputStream in, boolean compact)
+            throws IOException {
+        return new TypeInputStream(in, ts, placeHolderCache, compact);
+    }
+
+    /**
+     * Pack bytes seven bits per character, after the format marker and
+     * version.
+     */
+    protected static String pack(byte[] b) {
+        StringBuilder sb = new StringBuilder(2 + (b.length * 8 + 6) / 7);
+        sb.append(FORMAT_MARKER);
+        sb.append(FORMAT_VERSION);
+        int bits = 0;
+        int nbits = 0;
+        for (byte element : b) {
+            bits = (bits << 8) | (element & 0xff);
+            nbits += 8;
+            while (nbits >= 7) {
+                nbits -= 7;
+                sb.append((char) ((bits >>> nbits) & 0x7f));
+            }
+        }
+        if (nbits > 0) {
+            sb.append((char) ((bits << (7 - nbits)) & 0x7f));
+        }
+        return sb.toString();
+    }
+
+    /** Unpack the bytes packed by {@code pack}. */
+    protected static byte[] unpack(String s) throws InvalidClassException {
+        int n = s.length() - 2;
+        byte[] b = new byte[n * 7 / 8];
+        int bits = 0;
+        int nbits = 0;
+        int j = 0;
+        for (int i = 2; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c > 0x7f) {
+                throw new InvalidClassException("malformed type encoding");
+            }
+            bits = (bits << 7) | c;
+            nbits += 7;
+            if (nbits >= 8) {
+                nbits -= 8;
+                if (j < b.length) b[j++] = (byte) (bits >>> nbits);
+            }
+        }
+        return b;
+    }
 }
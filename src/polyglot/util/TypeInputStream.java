@@ -28,11 +28,15 @@ package polyglot.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import polyglot.frontend.MissingDependencyException;
+import polyglot.frontend.goals.Goal;
 import polyglot.main.Report;
 import polyglot.types.Named;
 import polyglot.types.NamedPlaceHolder;
@@ -47,10 +51,25 @@ public class TypeInputStream extends ObjectInputStream {
     protected boolean failed;
     protected boolean enableReplace;
     protected Set<Object> placeHoldersUsed;
+    protected boolean compact;
+    protected boolean lazyMembers;
+    protected byte[][] memberSections;
+    protected Goal missingDependency;
 
     public TypeInputStream(InputStream in, TypeSystem ts,
             Map<Object, Object> cache) throws IOException {
+        this(in, ts, cache, false);
+    }
+
+    /**
+     * Create a stream decoding types.  If {@code compact} is true, the
+     * class descriptors must have been written by a compact
+     * {@code TypeOutputStream}.
+     */
+    public TypeInputStream(InputStream in, TypeSystem ts,
+            Map<Object, Object> cache, boolean compact) throws IOException {
         super(in);
+        this.compact = compact;
 
         enableResolveObject(true);
 
@@ -61,6 +80,76 @@ public class TypeInputStream extends ObjectInputStream {
         this.placeHoldersUsed = new HashSet<>();
     }
 
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException,
+            ClassNotFoundException {
+        if (!compact) {
+            return super.readClassDescriptor();
+        }
+
+        String name = readUTF();
+        long suid = readLong();
+        Class<?> c;
+        try {
+            c = Class.forName(name, false, getClass().getClassLoader());
+        }
+        catch (ClassNotFoundException e) {
+            ClassLoader l = Thread.currentThread().getContextClassLoader();
+            if (l == null) throw e;
+            c = Class.forName(name, false, l);
+        }
+
+        // The local class must be the one that was written.
+        ObjectStreamClass desc = ObjectStreamClass.lookupAny(c);
+        if (desc.getSerialVersionUID() != suid) {
+            throw new InvalidClassException(name,
+                                            "local class incompatible: stream classdesc serialVersionUID = "
+                                                    + suid
+                                                    + ", local class serialVersionUID = "
+                                                    + desc.getSerialVersionUID());
+        }
+        return desc;
+    }
+
+    /**
+     * Set whether the members of class types were written as separately
+     * encoded sections.
+     */
+    public void setLazyMembers(boolean lazyMembers) {
+        this.lazyMembers = lazyMembers;
+    }
+
+    public boolean lazyMembers() {
+        return lazyMembers;
+    }
+
+    /** Set the sections of members stored after the stream. */
+    public void setMemberSections(byte[][] memberSections) {
+        this.memberSections = memberSections;
+    }
+
+    /**
+     * Read a section of serialized members written by
+     * {@code TypeOutputStream.writeMemberSection}, or null if there are no
+     * members.
+     */
+    public byte[] readMemberSection() throws IOException,
+            ClassNotFoundException {
+        int i = readInt();
+        if (memberSections == null || i < -1 || i >= memberSections.length) {
+            throw new InvalidClassException("malformed member section");
+        }
+        return i == -1 ? null : memberSections[i];
+    }
+
+    /**
+     * Return the goal to reach before the deserialization that failed can
+     * succeed, or null if it is not known.
+     */
+    public Goal missingDependency() {
+        return missingDependency;
+    }
+
     public Set<Object> placeHoldersUsed() {
         return placeHoldersUsed;
     }
@@ -80,14 +169,14 @@ public class TypeInputStream extends ObjectInputStream {
 
         if (t instanceof Named && p instanceof NamedPlaceHolder) {
             NamedPlaceHolder pp = (NamedPlaceHolder) p;
-            if (Report.should_report(Report.serialize, 2))
+            if (Report.should_report(Report.SERIALIZE, 2))
                 Report.report(2, "Forcing " + pp.name()
                         + " into system resolver");
             ts.systemResolver().install(pp.name(), (Named) t);
         }
 
         String s = "";
-        if (Report.should_report(Report.serialize, 2)) {
+        if (Report.should_report(Report.SERIALIZE, 2)) {
             try {
                 s = t.toString();
             }
@@ -96,7 +185,7 @@ public class TypeInputStream extends ObjectInputStream {
             }
         }
 
-        if (Report.should_report(Report.serialize, 2)) {
+        if (Report.should_report(Report.SERIALIZE, 2)) {
             Report.report(2, "- Installing " + p + " -> " + s
                     + " in place holder cache");
         }
@@ -112,7 +201,7 @@ public class TypeInputStream extends ObjectInputStream {
             return o;
         }
         String s = "";
-        if (Report.should_report(Report.serialize, 2)) {
+        if (Report.should_report(Report.SERIALIZE, 2)) {
             try {
                 s = o.toString();
             }
@@ -150,7 +239,7 @@ public class TypeInputStream extends ObjectInputStream {
                                 + " to null.");
                     }
                     cache.put(o, t);
-                    if (Report.should_report(Report.serialize, 2)) {
+                    if (Report.should_report(Report.SERIALIZE, 2)) {
                         Report.report(2,
                                       "- Resolving " + s + " : " + o.getClass()
                                               + " to " + t + " : "
@@ -159,7 +248,17 @@ public class TypeInputStream extends ObjectInputStream {
                 }
                 catch (CannotResolvePlaceHolderException e) {
                     failed = true;
-                    if (Report.should_report(Report.serialize, 2)) {
+                    if (e.getCause() instanceof MissingDependencyException) {
+                        missingDependency =
+                                ((MissingDependencyException) e.getCause()).goal();
+                    }
+                    else if (o instanceof NamedPlaceHolder) {
+                        missingDependency =
+                                ts.extensionInfo()
+                                  .scheduler()
+                                  .TypeExists(((NamedPlaceHolder) o).name());
+                    }
+                    if (Report.should_report(Report.SERIALIZE, 2)) {
                         Report.report(2,
                                       "- Resolving " + s + " : " + o.getClass()
                                               + " to " + e);
@@ -167,7 +266,7 @@ public class TypeInputStream extends ObjectInputStream {
                 }
             }
             else {
-                if (Report.should_report(Report.serialize, 2)) {
+                if (Report.should_report(Report.SERIALIZE, 2)) {
                     Report.report(2, "- Resolving " + s + " : " + o.getClass()
                             + " to (cached) " + t + " : " + t.getClass());
                 }
@@ -175,13 +274,13 @@ public class TypeInputStream extends ObjectInputStream {
             return t;
         }
         else if (o instanceof Internable) {
-            if (Report.should_report(Report.serialize, 2)) {
+            if (Report.should_report(Report.SERIALIZE, 2)) {
                 Report.report(2, "- Interning " + s + " : " + o.getClass());
             }
             return ((Internable) o).intern();
         }
         else {
-            if (Report.should_report(Report.serialize, 2)) {
+            if (Report.should_report(Report.SERIALIZE, 2)) {
                 Report.report(2, "- " + s + " : " + o.getClass());
             }
 
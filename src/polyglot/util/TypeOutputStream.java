@@ -28,9 +28,12 @@ package polyglot.util;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,22 +46,86 @@ public class TypeOutputStream extends ObjectOutputStream {
     protected TypeSystem ts;
     protected Set<? extends TypeObject> roots;
     protected Map<IdentityKey, Object> placeHolders;
+    protected boolean compact;
+    protected boolean lazyMembers;
+    protected List<byte[]> memberSections;
 
     public TypeOutputStream(OutputStream out, TypeSystem ts, TypeObject root)
             throws IOException {
+        this(out, ts, root, false);
+    }
+
+    /**
+     * Create a stream encoding types.  If {@code compact} is true, class
+     * descriptors are written as just the class name and serial version
+     * UID, and must be read by a compact {@code TypeInputStream}.
+     */
+    public TypeOutputStream(OutputStream out, TypeSystem ts, TypeObject root,
+            boolean compact) throws IOException {
         super(out);
 
         this.ts = ts;
-        this.roots = ts.getTypeEncoderRootSet(root);
+        this.compact = compact;
+        this.roots =
+                root != null
+                        ? ts.getTypeEncoderRootSet(root)
+                        : Collections.<TypeObject> emptySet();
         this.placeHolders = new HashMap<>();
+        this.memberSections = new ArrayList<>();
 
-        if (Report.should_report(Report.serialize, 2)) {
+        if (Report.should_report(Report.SERIALIZE, 2)) {
             Report.report(2, "Began TypeOutputStream with roots: " + roots);
         }
 
         enableReplaceObject(true);
     }
 
+    /**
+     * Set whether the members of the root class types should be written
+     * as separately encoded sections.
+     */
+    public void setLazyMembers(boolean lazyMembers) {
+        this.lazyMembers = lazyMembers;
+    }
+
+    /**
+     * Return true if the members of {@code o} should be written as
+     * separately encoded sections.
+     */
+    public boolean lazyMembers(TypeObject o) {
+        return lazyMembers && roots.contains(o);
+    }
+
+    /**
+     * Write a reference to a section of serialized members, or null, to be
+     * stored after the stream by the {@code TypeEncoder}.
+     */
+    public void writeMemberSection(byte[] section) throws IOException {
+        if (section == null) {
+            writeInt(-1);
+        }
+        else {
+            writeInt(memberSections.size());
+            memberSections.add(section);
+        }
+    }
+
+    /** Return the sections of members written. */
+    public List<byte[]> memberSections() {
+        return memberSections;
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc)
+            throws IOException {
+        if (!compact) {
+            super.writeClassDescriptor(desc);
+            return;
+        }
+        writeUTF(desc.getName());
+        writeLong(desc.getSerialVersionUID());
+    }
+
     protected Object placeHolder(TypeObject o, boolean useRoots) {
         IdentityKey k = new IdentityKey(o);
         Object p = placeHolders.get(k);
@@ -79,7 +146,7 @@ public class TypeOutputStream extends ObjectOutputStream {
             Object r;
 
             if (roots.contains(o)) {
-                if (Report.should_report(Report.serialize, 2)) {
+                if (Report.should_report(Report.SERIALIZE, 2)) {
                     Report.report(2, "+ In roots: " + o + " : " + o.getClass());
                 }
 
@@ -89,7 +156,7 @@ public class TypeOutputStream extends ObjectOutputStream {
                 r = placeHolder((TypeObject) o, true);
             }
 
-            if (Report.should_report(Report.serialize, 2)) {
+            if (Report.should_report(Report.SERIALIZE, 2)) {
                 if (r != o) {
                     Report.report(2, "+ Replacing: " + o + " : " + o.getClass()
                             + " with " + r);
@@ -102,7 +169,7 @@ public class TypeOutputStream extends ObjectOutputStream {
             return r;
         }
         else {
-            if (Report.should_report(Report.serialize, 2)) {
+            if (Report.should_report(Report.SERIALIZE, 2)) {
                 Report.report(2, "+ " + o + " : " + o.getClass());
             }
             return o;
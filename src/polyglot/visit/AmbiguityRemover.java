@@ -26,7 +26,6 @@
 
 package polyglot.visit;
 
-import java.util.Arrays;
 import java.util.Collection;
 
 import polyglot.ast.ClassDecl;
@@ -87,13 +86,13 @@ public class AmbiguityRemover extends DisambiguationDriver {
         }
 
         try {
-            if (Report.should_report(Report.visit, 2))
+            if (Report.should_report(Report.VISIT, 2))
                 Report.report(2, ">> " + this + "::override " + n + " ("
                         + n.getClass().getName() + ")");
 
             Node m = lang().disambiguateOverride(n, parent, this);
 
-            if (Report.should_report(Report.visit, 2))
+            if (Report.should_report(Report.VISIT, 2))
                 Report.report(2, "<< "
                         + this
                         + "::override "
@@ -106,7 +105,7 @@ public class AmbiguityRemover extends DisambiguationDriver {
             return m;
         }
         catch (MissingDependencyException e) {
-            if (Report.should_report(Report.frontend, 3)) e.printStackTrace();
+            if (Report.should_report(Report.FRONTEND, 3)) e.printStackTrace();
             Scheduler scheduler = job.extensionInfo().scheduler();
             Goal g = scheduler.currentGoal();
             scheduler.addDependencyAndEnqueue(g, e.goal(), e.prerequisite());
@@ -139,14 +138,14 @@ public class AmbiguityRemover extends DisambiguationDriver {
 
     @Override
     protected NodeVisitor enterCall(Node n) throws SemanticException {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::enter " + n + " ("
                     + n.getClass().getName() + ")");
 
         AmbiguityRemover v =
                 (AmbiguityRemover) lang().disambiguateEnter(n, this);
 
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::enter " + n + " ("
                     + n.getClass().getName() + ")" + " -> " + v);
 
@@ -172,7 +171,7 @@ public class AmbiguityRemover extends DisambiguationDriver {
     @Override
     protected Node leaveCall(Node old, Node n, NodeVisitor v)
             throws SemanticException {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::leave " + n + " ("
                     + n.getClass().getName() + ")");
 
@@ -186,7 +185,7 @@ public class AmbiguityRemover extends DisambiguationDriver {
 
         Node m = lang().disambiguate(n, (AmbiguityRemover) v);
 
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::leave " + n + " -> " + m
                     + (m != null ? (" (" + m.getClass().getName() + ")") : ""));
 
@@ -219,6 +218,9 @@ public class AmbiguityRemover extends DisambiguationDriver {
     }
 
     protected static class AmbChecker extends NodeVisitor {
+        private static final Report.Topic TOPICS =
+                Report.topic(Report.types, Report.frontend, "disam-check");
+
         public int notOkCount;
 
         public AmbChecker(JLang lang) {
@@ -227,10 +229,6 @@ public class AmbiguityRemover extends DisambiguationDriver {
 
         @Override
         public Node override(Node parent, Node n) {
-            final Collection<String> TOPICS =
-                    Arrays.asList(new String[] { Report.types, Report.frontend,
-                            "disam-check" });
-
             // Don't check if New is disambiguated; this is handled
             // during type-checking.
             if (n instanceof New) {
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.visit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import polyglot.ast.NodeFactory;
+import polyglot.frontend.Job;
+import polyglot.types.TypeSystem;
+import polyglot.types.VarInstance;
+import polyglot.visit.FlowGraph.Peer;
+
+/**
+ * A dataflow analysis whose items map variables to small lattice values
+ * packed into bit vectors.  The variables tracked by the analysis are
+ * numbered afresh for each flow graph, and the value of variable {@code i}
+ * occupies the {@code width} bits starting at bit {@code i * width} of an
+ * item.  A value of zero means the variable is not tracked by the item.
+ * 
+ * Items are joined by the bitwise disjunction of their bit vectors, so the
+ * values of a lattice must be encoded such that the disjunction of two
+ * encodings is the encoding of their join, with zero as its identity.
+ */
+public abstract class BitVectorDataFlow<FlowItem extends BitVectorDataFlow.BitVectorItem>
+        extends DataFlow<FlowItem> {
+    /**
+     * The number of bits encoding the value of each variable.
+     */
+    protected final int width;
+
+    /**
+     * The numbering of the variables tracked in the flow graph currently
+     * being analyzed.
+     */
+    protected Variables variables;
+
+    public BitVectorDataFlow(Job job, TypeSystem ts, NodeFactory nf,
+            boolean forward, boolean dataflowOnEntry, int width) {
+        super(job, ts, nf, forward, dataflowOnEntry);
+        this.width = width;
+    }
+
+    /**
+     * A numbering of the variables tracked in a flow graph.
+     */
+    protected static class Variables {
+        protected final Map<VarInstance, Integer> indices = new HashMap<>();
+        protected final List<VarInstance> vars = new ArrayList<>();
+
+        /** The number of bits encoding the value of each variable. */
+        protected final int width;
+
+        public Variables(int width) {
+            this.width = width;
+        }
+
+        /**
+         * Return the number of {@code v}, numbering it if needed.
+         */
+        public int index(VarInstance v) {
+            Integer i = indices.get(v);
+            if (i == null) {
+                i = vars.size();
+                indices.put(v, i);
+                vars.add(v);
+            }
+            return i;
+        }
+
+        /**
+         * Return the number of {@code v}, or -1 if it has not been numbered.
+         */
+        public int indexOf(VarInstance v) {
+            Integer i = indices.get(v);
+            return i == null ? -1 : i;
+        }
+
+        public VarInstance var(int i) {
+            return vars.get(i);
+        }
+
+        public int size() {
+            return vars.size();
+        }
+
+        @Override
+        public String toString() {
+            return vars.toString();
+        }
+    }
+
+    /**
+     * A dataflow item holding a bit vector, and the numbering of the
+     * variables it encodes, if any.  Items are immutable: the flow
+     * operations copy the bit vector before changing it.
+     */
+    public static abstract class BitVectorItem extends DataFlow.Item {
+        protected final BitSet bits;
+        protected final Variables variables;
+
+        protected BitVectorItem(BitSet bits) {
+            this(bits, null);
+        }
+
+        protected BitVectorItem(BitSet bits, Variables variables) {
+            this.bits = bits;
+            this.variables = variables;
+        }
+
+        /**
+         * Return the variables this item has a value for, in the order they
+         * are numbered, or an empty list if the item has no numbering.
+         */
+        protected List<VarInstance> variables() {
+            List<VarInstance> l = new ArrayList<>();
+            if (variables != null) {
+                for (int i = 0; i < variables.size(); i++) {
+                    if (value(i) != 0) l.add(variables.var(i));
+                }
+            }
+            return l;
+        }
+
+        /**
+         * Return the value of variable {@code v} in this item, or zero if it
+         * is not tracked.
+         */
+        protected int value(VarInstance v) {
+            int i = variables == null ? -1 : variables.indexOf(v);
+            return i < 0 ? 0 : value(i);
+        }
+
+        /**
+         * Return the value of the variable numbered {@code i} in this item.
+         */
+        protected int value(int i) {
+            int value = 0;
+            int width = variables.width;
+            for (int b = 0, j = i * width; b < width; b++, j++) {
+                if (bits.get(j)) value |= 1 << b;
+            }
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return bits.toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o != null && o.getClass() == getClass()) {
+                return this.bits.equals(((BitVectorItem) o).bits);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return bits.hashCode();
+        }
+    }
+
+    /**
+     * Create an item with the bit vector {@code bits}.
+     */
+    protected abstract FlowItem createItem(BitSet bits);
+
+    /**
+     * The item flowing along the paths not reached by the analysis.  It is
+     * the identity of the confluence operator.
+     */
+    protected abstract FlowItem bottom();
+
+    /**
+     * Number the variables of {@code graph} afresh before performing the
+     * dataflow on it.
+     */
+    @Override
+    protected void dataflow(FlowGraph<FlowItem> graph) {
+        variables = new Variables(width);
+        super.dataflow(graph);
+    }
+
+    /**
+     * The confluence operator is the bitwise disjunction of the items that
+     * are not bottom.
+     */
+    @Override
+    public FlowItem confluence(List<FlowItem> items, Peer<FlowItem> peer,
+            FlowGraph<FlowItem> graph) {
+        BitSet bits = null;
+        for (FlowItem item : items) {
+            if (item == bottom()) continue;
+            if (bits == null) {
+                bits = (BitSet) item.bits.clone();
+            }
+            else {
+                bits.or(item.bits);
+            }
+        }
+
+        if (bits == null) return bottom();
+
+        return createItem(bits);
+    }
+
+    /**
+     * Return a copy of the bit vector of {@code item}, to be changed and
+     * made into a new item.
+     */
+    protected BitSet bits(FlowItem item) {
+        return (BitSet) item.bits.clone();
+    }
+
+    /**
+     * Return the value of variable {@code v} in {@code item}.
+     */
+    protected int value(FlowItem item, VarInstance v) {
+        int i = variables.indexOf(v);
+        return i < 0 ? 0 : value(item.bits, i);
+    }
+
+    /**
+     * Return the value of the variable numbered {@code i} in {@code bits}.
+     */
+    protected int value(BitSet bits, int i) {
+        int value = 0;
+        for (int b = 0, j = i * width; b < width; b++, j++) {
+            if (bits.get(j)) value |= 1 << b;
+        }
+        return value;
+    }
+
+    /**
+     * Set the value of variable {@code v} in {@code bits} to {@code value}.
+     */
+    protected void setValue(BitSet bits, VarInstance v, int value) {
+        int i = value == 0 ? variables.indexOf(v) : variables.index(v);
+        if (i >= 0) {
+            for (int b = 0, j = i * width; b < width; b++, j++) {
+                bits.set(j, (value & 1 << b) != 0);
+            }
+        }
+    }
+
+    /**
+     * Return the variables tracked by {@code item}, i.e., those with a
+     * nonzero value.
+     */
+    protected List<VarInstance> trackedVariables(FlowItem item) {
+        List<VarInstance> l = new ArrayList<>();
+        for (int i = 0; i < variables.size(); i++) {
+            if (value(item.bits, i) != 0) l.add(variables.var(i));
+        }
+        return l;
+    }
+}
@@ -27,6 +27,7 @@
 package polyglot.visit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -208,6 +209,25 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
         return ts;
     }
 
+    /**
+     * A key identifying the control flow graphs this builder constructs:
+     * builders with equal keys construct the same graph for a term, up to
+     * the direction of its edges, so the graph can be shared by their
+     * dataflow analyses.  Subclasses whose construction depends on further
+     * state should extend the key, or return null to never share graphs.
+     */
+    public Object graphKey() {
+        return Arrays.<Object> asList(getClass(),
+                                      graph.getClass(),
+                                      graph.alwaysHaveSuccEdgeKey,
+                                      skipInnermostCatches,
+                                      skipDeadIfBranches,
+                                      skipDeadLoopBodies,
+                                      errorEdgesToExitNode,
+                                      trackImplicitErrors,
+                                      exceptionEdgesToFinally);
+    }
+
     /** Copy the CFGBuilder. */
     @Override
     public CFGBuilder<FlowItem> copy() {
@@ -363,7 +383,7 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
         String name = StringUtil.getShortNameComponent(df.getClass().getName());
         name += counter++;
 
-        if (Report.should_report(Report.cfg, 2)) {
+        if (Report.should_report(Report.CFG, 2)) {
             String rootName = "";
             if (graph.root() instanceof CodeNode) {
                 CodeNode cd = (CodeNode) graph.root();
@@ -391,7 +411,7 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
 
         this.visitCFG(graph.root(), Collections.<EdgeKeyTermPair> emptyList());
 
-        if (Report.should_report(Report.cfg, 2)) Report.report(2, "}");
+        if (Report.should_report(Report.CFG, 2)) Report.report(2, "}");
     }
 
     /**
@@ -566,7 +586,7 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
                  FlowGraph.EDGE_KEY_OTHER);
         }
 
-        if (Report.should_report(Report.cfg, 2))
+        if (Report.should_report(Report.CFG, 2))
             Report.report(2, "// node " + a + " -> " + succs);
 
         succs = lang().acceptCFG(a, this, succs);
@@ -801,10 +821,10 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
 
     protected void edge(Peer<FlowItem> pp, Peer<FlowItem> pq,
             FlowGraph.EdgeKey edgeKey) {
-        if (Report.should_report(Report.cfg, 2))
+        if (Report.should_report(Report.CFG, 2))
             Report.report(2, "//     edge " + pp.node() + " -> " + pq.node());
 
-        if (Report.should_report(Report.cfg, 3)) {
+        if (Report.should_report(Report.CFG, 3)) {
             // at level 3, use Peer.toString() as the label for the nodes
             Report.report(2,
                           pp.hashCode() + " [ label = \""
@@ -813,7 +833,7 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
                           pq.hashCode() + " [ label = \""
                                   + StringUtil.escape(pq.toString()) + "\" ];");
         }
-        else if (Report.should_report(Report.cfg, 2)) {
+        else if (Report.should_report(Report.CFG, 2)) {
             // at level 2, use Node.toString() as the label for the nodes
             // which is more readable than Peer.toString(), but not as unique.
             Report.report(2,
@@ -826,8 +846,10 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
                                   + "\" ];");
         }
 
+        graph.index = null;
+
         if (graph.forward()) {
-            if (Report.should_report(Report.cfg, 2)) {
+            if (Report.should_report(Report.CFG, 2)) {
                 Report.report(2, pp.hashCode() + " -> " + pq.hashCode()
                         + " [label=\"" + edgeKey + "\"];");
             }
@@ -835,7 +857,7 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements
             pq.preds.add(new Edge<>(edgeKey, pp));
         }
         else {
-            if (Report.should_report(Report.cfg, 2)) {
+            if (Report.should_report(Report.CFG, 2)) {
                 Report.report(2, pq.hashCode() + " -> " + pp.hashCode()
                         + " [label=\"" + edgeKey + "\"];");
             }
@@ -240,7 +240,7 @@ public class ClassSerializer extends NodeVisitor {
             return newMembers;
         }
         catch (IOException e) {
-            if (Report.should_report(Report.serialize, 1)) e.printStackTrace();
+            if (Report.should_report(Report.SERIALIZE, 1)) e.printStackTrace();
             eq.enqueue(ErrorInfo.IO_ERROR,
                        "Unable to serialize class information: "
                                + e.getMessage());
@@ -52,12 +52,12 @@ public class ConstantChecker extends ContextVisitor {
 
     /*
     protected NodeVisitor enterCall(Node n) throws SemanticException {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::enter " + n);
         
         ConstantChecker v = (ConstantChecker) n.del().checkConstantsEnter(this);
         
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::enter " + n + " -> " + v);
         
         return v;
@@ -83,7 +83,7 @@ public class ConstantChecker extends ContextVisitor {
     @Override
     protected Node leaveCall(Node old, Node n, NodeVisitor v)
             throws SemanticException {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::leave " + n);
 
         TypeCheckChecker tcc = new TypeCheckChecker(lang());
@@ -110,7 +110,7 @@ public class ConstantChecker extends ContextVisitor {
             throw new MissingDependencyException(g);
         }
 
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::leave " + n + " -> " + m);
 
         return m;
@@ -152,7 +152,7 @@ public class ContextVisitor extends ErrorHandlingVisitor {
 
     @Override
     public final NodeVisitor enter(Node parent, Node n) {
-        if (Report.should_report(Report.visit, 5))
+        if (Report.should_report(Report.VISIT, 5))
             Report.report(5, "enter(" + n + ")");
 
         if (prune) {
@@ -174,7 +174,7 @@ public class ContextVisitor extends ErrorHandlingVisitor {
             return v.superEnter(parent, n);
         }
         catch (MissingDependencyException e) {
-            if (Report.should_report(Report.frontend, 3)) e.printStackTrace();
+            if (Report.should_report(Report.FRONTEND, 3)) e.printStackTrace();
             Scheduler scheduler = job.extensionInfo().scheduler();
             Goal g = scheduler.currentGoal();
             scheduler.addDependencyAndEnqueue(g, e.goal(), e.prerequisite());
@@ -213,7 +213,7 @@ public class ContextVisitor extends ErrorHandlingVisitor {
             return m;
         }
         catch (MissingDependencyException e) {
-            if (Report.should_report(Report.frontend, 3)) e.printStackTrace();
+            if (Report.should_report(Report.FRONTEND, 3)) e.printStackTrace();
             Scheduler scheduler = job.extensionInfo().scheduler();
             Goal g = scheduler.currentGoal();
             scheduler.addDependencyAndEnqueue(g, e.goal(), e.prerequisite());
@@ -466,7 +466,7 @@ public class CopyPropagator extends DataFlow<CopyPropagator.DataFlowItem> {
     public void post(FlowGraph<DataFlowItem> graph, Term root)
             throws SemanticException {
         // No need to do any checking.
-        if (Report.should_report(Report.cfg, 2)) {
+        if (Report.should_report(Report.CFG, 2)) {
             dumpFlowGraph(graph, root);
         }
     }
@@ -27,7 +27,6 @@
 package polyglot.visit;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -103,6 +102,13 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
      */
     protected LinkedList<FlowGraphSource<FlowItem>> flowgraphStack;
 
+    /**
+     * The keys of the flow graphs this analysis has taken from the flow
+     * graph cache of the job, whose left-over graphs it discards when it
+     * finishes.
+     */
+    protected Set<Object> takenGraphKeys;
+
     protected static class FlowGraphSource<FlowItem extends Item> {
         FlowGraphSource(FlowGraph<FlowItem> g, CodeDecl s) {
             this(g, (CodeNode) s);
@@ -152,6 +158,7 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
         if (dataflowOnEntry)
             this.flowgraphStack = new LinkedList<>();
         else this.flowgraphStack = null;
+        this.takenGraphKeys = new HashSet<>();
     }
 
     @Override
@@ -240,13 +247,14 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
             // and record the results in a list.
             // Since there is an edge from inItemPeer to the current peer p, the edge
             // is a back edge if the post-order number of inItemPeer is less than
-            // the post-order number of the peer p.
+            // the post-order number of the peer p. The reachable peers of
+            // the graph index are numbered in postorder.
             List<Boolean> isBackEdges = new ArrayList<>(inItemPeers.size());
 
-            int currentPeerOrder = postordering.get(p).intValue();
+            int currentPeerOrder = p.id();
 
             for (Peer<FlowItem> inPeer : inItemPeers) {
-                int inPeerOrder = postordering.get(inPeer).intValue();
+                int inPeerOrder = inPeer.id();
                 isBackEdges.add(Boolean.valueOf(inPeerOrder < currentPeerOrder));
             }
             return flow(inItems, inItemKeys, inItemPeers, isBackEdges, graph, p);
@@ -595,7 +603,7 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
                 CFGBuilder<FlowItem> v = createCFGBuilder(ts, g);
 
                 try {
-                    v.visitGraph();
+                    g = buildGraph(g, v);
                 }
                 catch (CFGBuildError e) {
                     throw new SemanticException(e.message(), e.position());
@@ -612,12 +620,21 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
         }
     }
 
+    /**
+     * @deprecated {@link #findSCCs(FlowGraph.Index)} walks the graph without
+     * frames; this is no longer called.
+     */
+    @Deprecated
     protected Frame<FlowItem> createFrame(Peer<FlowItem> p, boolean forward,
             FlowGraph<FlowItem> grahp) {
         return new Frame<>(p, forward);
     }
 
-    /** A "stack frame" for recursive DFS */
+    /**
+     * A "stack frame" for recursive DFS
+     * @deprecated No longer used by {@code findSCCs}.
+     */
+    @Deprecated
     static protected class Frame<FlowItem extends Item> {
         protected Peer<FlowItem> peer;
         protected Iterator<Edge<FlowItem>> edges;
@@ -633,101 +650,103 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
         }
     }
 
-    /** Returns the linked list [by_scc, scc_head] where
-     *  by_scc is an array in which SCCs occur in topologically
-     *  sorted order.
-     *  scc_head[n] where n is the first peer in an SCC is set to -1.
-     *  scc_head[n] where n is the last peer in a (non-singleton) SCC is set
-     *  to the index of the first peer. Otherwise it is -2. */
+    /**
+     * Returns the pair [by_scc, scc_head] of
+     * {@link #findSCCs(FlowGraph.Index)}, with the peers rather than their
+     * numbers in by_scc.
+     * @deprecated Use {@link #findSCCs(FlowGraph.Index)} on
+     * {@code graph.index()}; this is no longer called by {@code dataflow}.
+     */
+    @Deprecated
     protected Pair<Peer<FlowItem>[], int[]> findSCCs(FlowGraph<FlowItem> graph) {
-        Collection<Peer<FlowItem>> peers = graph.peers();
+        FlowGraph.Index<FlowItem> index = graph.index();
+        Pair<int[], int[]> pair = findSCCs(index);
+        int[] by_scc = pair.part1();
         @SuppressWarnings("unchecked")
-        Peer<FlowItem>[] sorted = new Peer[peers.size()];
-        Collection<Peer<FlowItem>> start = graph.startPeers();
-        // if start == peers, making all nodes reachable,
-        // the problem still arises.
-
-        //System.out.println("scc: npeers = " + peers.size());
-
-// First, topologically sort the nodes (put in postorder)
-        int n = 0;
-        LinkedList<Frame<FlowItem>> stack = new LinkedList<>();
-        HashSet<Peer<FlowItem>> reachable = new HashSet<>();
-        for (Peer<FlowItem> peer : start) {
-            if (!reachable.contains(peer)) {
-                reachable.add(peer);
-                stack.addFirst(createFrame(peer, true, graph));
-                while (stack.size() != 0) {
-                    Frame<FlowItem> top = stack.getFirst();
-                    if (top.edges.hasNext()) {
-                        Edge<FlowItem> e = top.edges.next();
-                        Peer<FlowItem> q = e.getTarget();
-                        if (!reachable.contains(q)) {
-                            reachable.add(q);
-                            stack.addFirst(createFrame(q, true, graph));
-                        }
-                    }
-                    else {
-                        stack.removeFirst();
-                        sorted[n++] = top.peer;
-                    }
-                }
-            }
+        Peer<FlowItem>[] peers = new Peer[by_scc.length];
+        for (int i = 0; i < by_scc.length; i++) {
+            peers[i] = index.peers[by_scc[i]];
         }
+        return new Pair<>(peers, pair.part2());
+    }
+
+    /**
+     * Map from {@code Peer}s to {@code Integer}s that contains a post-ordering
+     * of {@code Peer}s if {@code this.detectBackEdges} is true.
+     * @deprecated The post-order number of a reachable peer is its
+     * {@link Peer#id()}.
+     */
+    @Deprecated
+    protected Map<Peer<FlowItem>, Integer> postordering = null;
+
+    /** Returns the pair [by_scc, scc_head] where
+     *  by_scc is an array of the numbers of the reachable peers of
+     *  {@code index}, in which SCCs occur in topologically sorted order.
+     *  scc_head[n] where n is the first peer in an SCC is set to -1.
+     *  scc_head[n] where n is the last peer in a (non-singleton) SCC is set
+     *  to the index of the first peer. Otherwise it is -2. */
+    protected Pair<int[], int[]> findSCCs(FlowGraph.Index<FlowItem> index) {
+        // The reachable peers are numbered in postorder, i.e.,
+        // topologically sorted.
+        int n = index.reachable;
+
         //System.out.println("scc: reached " + n);
 // Now, walk the transposed graph picking nodes in reverse
 // postorder, thus picking out one SCC at a time and
 // appending it to "by_scc".
-        @SuppressWarnings("unchecked")
-        Peer<FlowItem>[] by_scc = new Peer[n];
+        int[] by_scc = new int[n];
         int[] scc_head = new int[n];
-        HashSet<Peer<FlowItem>> visited = new HashSet<>();
+        boolean[] visited = new boolean[n];
+        boolean[] revisited = new boolean[n];
+        int[] scc = new int[n];
+        int[] stack = new int[n];
+        int[] next = new int[n];
         int head = 0;
         for (int i = n - 1; i >= 0; i--) {
-            if (!visited.contains(sorted[i])) {
+            if (!visited[i]) {
                 // First, find all the nodes in the SCC
-                HashSet<Peer<FlowItem>> SCC = new HashSet<>();
-                visited.add(sorted[i]);
-                stack.add(createFrame(sorted[i], false, graph));
-                while (stack.size() != 0) {
-                    Frame<FlowItem> top = stack.getFirst();
-                    if (top.edges.hasNext()) {
-                        Edge<FlowItem> e = top.edges.next();
-                        Peer<FlowItem> q = e.getTarget();
-                        if (reachable.contains(q) && !visited.contains(q)) {
-                            visited.add(q);
-                            Frame<FlowItem> f = createFrame(q, false, graph);
-                            stack.addFirst(f);
+                int scc_size = 0;
+                int sp = 0;
+                visited[i] = true;
+                stack[sp] = i;
+                next[sp++] = index.predStart[i];
+                while (sp != 0) {
+                    int top = stack[sp - 1];
+                    if (next[sp - 1] < index.predStart[top + 1]) {
+                        int q = index.preds[next[sp - 1]++];
+                        if (q < n && !visited[q]) {
+                            visited[q] = true;
+                            stack[sp] = q;
+                            next[sp++] = index.predStart[q];
                         }
                     }
                     else {
-                        stack.removeFirst();
-                        SCC.add(top.peer);
+                        sp--;
+                        scc[top] = i;
+                        scc_size++;
                     }
                 }
                 // Now, topologically sort the SCC (as much as possible)
                 // and place into by_scc[head..head+scc_size-1]
-                stack.add(createFrame(sorted[i], true, graph));
-                HashSet<Peer<FlowItem>> revisited = new HashSet<>();
-                revisited.add(sorted[i]);
-                int scc_size = SCC.size();
+                revisited[i] = true;
+                stack[sp] = i;
+                next[sp++] = index.succStart[i];
                 int nsorted = 0;
-                while (stack.size() != 0) {
-                    Frame<FlowItem> top = stack.getFirst();
-                    if (top.edges.hasNext()) {
-                        Edge<FlowItem> e = top.edges.next();
-                        Peer<FlowItem> q = e.getTarget();
-                        if (SCC.contains(q) && !revisited.contains(q)) {
-                            revisited.add(q);
-                            Frame<FlowItem> f = createFrame(q, true, graph);
-                            stack.addFirst(f);
+                while (sp != 0) {
+                    int top = stack[sp - 1];
+                    if (next[sp - 1] < index.succStart[top + 1]) {
+                        int q = index.succs[next[sp - 1]++];
+                        if (scc[q] == i && visited[q] && !revisited[q]) {
+                            revisited[q] = true;
+                            stack[sp] = q;
+                            next[sp++] = index.succStart[q];
                         }
                     }
                     else {
-                        stack.removeFirst();
+                        sp--;
                         int n3 = head + scc_size - nsorted - 1;
                         scc_head[n3] = -2;
-                        by_scc[n3] = top.peer;
+                        by_scc[n3] = top;
                         nsorted++;
                     }
                 }
@@ -736,20 +755,20 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
                 head = head + scc_size;
             }
         }
-        if (Report.should_report(Report.dataflow, 2)) {
+        if (Report.should_report(Report.DATAFLOW, 2)) {
             for (int j = 0; j < n; j++) {
+                Peer<FlowItem> p = index.peers[by_scc[j]];
                 switch (scc_head[j]) {
                 case -1:
-                    Report.report(2, j + "[HEAD] : " + by_scc[j]);
+                    Report.report(2, j + "[HEAD] : " + p);
                     break;
                 case -2:
-                    Report.report(2, j + "       : " + by_scc[j]);
+                    Report.report(2, j + "       : " + p);
                     break;
                 default:
-                    Report.report(2, j + " ->" + scc_head[j] + " : "
-                            + by_scc[j]);
+                    Report.report(2, j + " ->" + scc_head[j] + " : " + p);
                 }
-                for (Edge<FlowItem> e : by_scc[j].succs()) {
+                for (Edge<FlowItem> e : p.succs()) {
                     Report.report(3, "     successor: " + e.getTarget());
                 }
             }
@@ -757,102 +776,75 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
         return new Pair<>(by_scc, scc_head);
     }
 
-    /**
-     * Map from {@code Peer}s to {@code Integer}s that contains a post-ordering
-     * of {@code Peer}s if {@code this.detectBackEdges} is true.
-     */
-    protected Map<Peer<FlowItem>, Integer> postordering = null;
-
-    /**
-     * Create a postorder on {@code Peer p} and all {@code Peer}s 
-     * reachable from {@code p} (that are reachable without going through any 
-     * peer in the set {@code visited}). The postorder will start from 
-     * {@code count}.
-     * 
-     * @param p
-     * @param count
-     * @param visited Set of Peer
-     * @return
-     */
-    private int postorder(Peer<FlowItem> p, int count,
-            Set<Peer<FlowItem>> visited) {
-        if (visited.contains(p)) return count;
-
-        // visit p
-        visited.add(p);
-
-        // visit all the successors of p
-        for (Edge<FlowItem> e : p.succs()) {
-            count = postorder(e.getTarget(), count, visited);
-        }
-
-        // number p
-        this.postordering.put(p, Integer.valueOf(count++));
-
-        return count;
-    }
-
     /**
      * Perform the dataflow on flow graph {@code graph}.
      */
     protected void dataflow(FlowGraph<FlowItem> graph) {
-        if (Report.should_report(Report.dataflow, 1)) {
+        if (Report.should_report(Report.DATAFLOW, 1)) {
             Report.report(1, "Finding strongly connected components");
         }
-        Pair<Peer<FlowItem>[], int[]> pair = findSCCs(graph);
-        Peer<FlowItem>[] by_scc = pair.part1();
+        FlowGraph.Index<FlowItem> index = graph.index();
+        Pair<int[], int[]> pair = findSCCs(index);
+        int[] by_scc = pair.part1();
         int[] scc_head = pair.part2();
         int npeers = by_scc.length;
 
-        /* by_scc contains the peers grouped by SCC.
+        /* by_scc contains the numbers of the peers grouped by SCC.
            scc_head marks where the SCCs are. The SCC
            begins with a -1 and ends with the index of
            the beginning of the SCC.
         */
 
         if (this.detectBackEdges) {
-            // construct a postordering of the peers by visiting each peer in a depth first manner
+            // Keep the post-ordering for subclasses that still read it.
             this.postordering = new HashMap<>();
-            int count = 0;
-            Set<Peer<FlowItem>> visited = new HashSet<>();
-            for (Peer<FlowItem> p : graph.startPeers()) {
-                count = postorder(p, count, visited);
+            for (int i = 0; i < index.reachable; i++) {
+                this.postordering.put(index.peers[i], Integer.valueOf(i));
             }
         }
 
-        if (Report.should_report(Report.dataflow, 1)) {
+        if (Report.should_report(Report.DATAFLOW, 1)) {
             Report.report(1, "Iterating dataflow equations");
         }
 
+        // The out items of the peers, by slot of the index.
+        @SuppressWarnings("unchecked")
+        FlowItem[] outItems = (FlowItem[]) new Item[index.keys.length];
+
         int current = 0;
         boolean change = false;
 
         while (current < npeers) {
-            Peer<FlowItem> p = by_scc[current];
+            int i = by_scc[current];
+            Peer<FlowItem> p = index.peers[i];
             if (scc_head[current] == -1) {
                 change = false; // just started working on a new SCC
             }
 
             // get the in items by examining the out items of all
             // the predecessors of p
-            List<FlowItem> inItems = new ArrayList<>(p.preds.size());
-            List<EdgeKey> inItemKeys = new ArrayList<>(p.preds.size());
-            List<Peer<FlowItem>> inItemPeers = new ArrayList<>(p.preds.size());
-            for (Edge<FlowItem> e : p.preds) {
-                Peer<FlowItem> o = e.getTarget();
-                if (o.outItems != null) {
-                    if (!o.outItems.keySet().contains(e.getKey())) {
+            int npreds = index.predStart[i + 1] - index.predStart[i];
+            List<FlowItem> inItems = new ArrayList<>(npreds);
+            List<EdgeKey> inItemKeys = new ArrayList<>(npreds);
+            List<Peer<FlowItem>> inItemPeers = new ArrayList<>(npreds);
+            for (int j = index.predStart[i]; j < index.predStart[i + 1]; j++) {
+                Peer<FlowItem> o = index.peers[index.preds[j]];
+                int slot = index.predSlots[j];
+                if (slot < 0) {
+                    if (o.outItems != null) {
                         throw new InternalCompilerError("There should have "
-                                + "an out Item with edge key " + e.getKey()
+                                + "an out Item with edge key "
+                                + p.preds.get(j - index.predStart[i]).getKey()
                                 + "; instead there were only "
                                 + o.outItems.keySet());
                     }
-                    FlowItem it = o.outItems.get(e.getKey());
-                    if (it != null) {
-                        inItems.add(it);
-                        inItemKeys.add(e.getKey());
-                        inItemPeers.add(o);
-                    }
+                    continue;
+                }
+                FlowItem it = outItems[slot];
+                if (it != null) {
+                    inItems.add(it);
+                    inItemKeys.add(index.keys[slot]);
+                    inItemPeers.add(o);
                 }
             }
 
@@ -870,6 +862,9 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
                         + "define outputs for all of: " + p.succEdgeKeys()
                         + " for node " + p.node, p.node.position());
             }
+            for (int j = index.keyStart[i]; j < index.keyStart[i + 1]; j++) {
+                outItems[j] = p.outItems.get(index.keys[j]);
+            }
 
             if (oldOutItems != p.outItems
                     && (oldOutItems == null || !oldOutItems.equals(p.outItems))) {
@@ -885,7 +880,7 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
                 current++;
             }
         }
-        if (Report.should_report(Report.dataflow, 1)) {
+        if (Report.should_report(Report.DATAFLOW, 1)) {
             Report.report(1, "Done.");
         }
     }
@@ -914,6 +909,48 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
         return initGraph((CodeNode) code, root);
     }
 
+    /**
+     * Build the control flow graph {@code g} with the CFGBuilder {@code v}.
+     * If an analysis of the job has already built the same graph for the
+     * root of {@code g}, that graph is taken from the cache and returned
+     * instead, rid of the items of the previous analysis.
+     */
+    protected FlowGraph<FlowItem> buildGraph(FlowGraph<FlowItem> g,
+            CFGBuilder<FlowItem> v) {
+        Object key = job != null ? v.graphKey() : null;
+
+        if (key != null) {
+            FlowGraph<FlowItem> cached =
+                    job.flowGraphCache().<FlowItem> take(g.root(), key);
+            if (cached != null) {
+                takenGraphKeys.add(key);
+                if (Report.should_report(Report.CFG, 1)) {
+                    Report.report(1, "Reusing flow graph for " + g.root());
+                }
+                cached.reset(g.forward());
+                return cached;
+            }
+        }
+
+        v.visitGraph();
+
+        if (key != null) {
+            job.flowGraphCache().put(key, g);
+        }
+        return g;
+    }
+
+    @Override
+    public void finish(Node ast) {
+        if (job != null) {
+            // This analysis was the last to use the graphs it took.
+            for (Object key : takenGraphKeys) {
+                job.flowGraphCache().discard(key);
+            }
+        }
+        super.finish(ast);
+    }
+
     /**
      * Construct a CFGBuilder.
      * 
@@ -969,6 +1006,10 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
     protected Node leaveCall(Node old, Node n, NodeVisitor v)
             throws SemanticException {
         if (n instanceof CodeNode) {
+            if (n != old && job != null) {
+                // The flow graphs of the old code will not be used again.
+                job.flowGraphCache().remove((CodeNode) old);
+            }
             if (!dataflowOnEntry) {
                 dataflow((CodeNode) n);
             }
@@ -990,35 +1031,49 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends
      */
     protected void post(FlowGraph<FlowItem> graph, Term root)
             throws SemanticException {
-        if (Report.should_report(Report.cfg, 2)) {
+        if (Report.should_report(Report.CFG, 2)) {
             dumpFlowGraph(graph, root);
         }
 
-        // Check the nodes in approximately flow order.
-        Set<Peer<FlowItem>> uncheckedPeers = new HashSet<>(graph.peers());
-        LinkedList<Peer<FlowItem>> peersToCheck =
-                new LinkedList<>(graph.startPeers());
-        while (!peersToCheck.isEmpty()) {
-            Peer<FlowItem> p = peersToCheck.removeFirst();
-            uncheckedPeers.remove(p);
+        // Check the nodes in approximately flow order. A peer is queued
+        // at most once, so queued peers are either checked or waiting in
+        // peersToCheck[head..tail-1].
+        FlowGraph.Index<FlowItem> index = graph.index();
+        int n = index.peers.length;
+        boolean[] queued = new boolean[n];
+        int[] peersToCheck = new int[n];
+        int head = 0, tail = 0;
+        int unqueued = 0;
+        for (Peer<FlowItem> p : graph.startPeers()) {
+            if (!queued[p.id()]) {
+                queued[p.id()] = true;
+                peersToCheck[tail++] = p.id();
+            }
+        }
+        while (head < tail) {
+            int i = peersToCheck[head++];
 
-            this.check(graph, p);
+            this.check(graph, index.peers[i]);
 
-            for (Edge<FlowItem> e : p.succs) {
-                Peer<FlowItem> q = e.getTarget();
-                if (uncheckedPeers.contains(q) && !peersToCheck.contains(q)) {
+            for (int j = index.succStart[i]; j < index.succStart[i + 1]; j++) {
+                int q = index.succs[j];
+                if (!queued[q]) {
                     // q hasn't been checked yet.
-                    peersToCheck.addLast(q);
+                    queued[q] = true;
+                    peersToCheck[tail++] = q;
                 }
             }
 
-            if (peersToCheck.isEmpty() && !uncheckedPeers.isEmpty()) {
+            if (head == tail) {
                 // done all the we can reach...
-                Iterator<Peer<FlowItem>> i = uncheckedPeers.iterator();
-                peersToCheck.add(i.next());
-                i.remove();
+                while (unqueued < n && queued[unqueued]) {
+                    unqueued++;
+                }
+                if (unqueued < n) {
+                    queued[unqueued] = true;
+                    peersToCheck[tail++] = unqueued;
+                }
             }
-
         }
     }
 
@@ -247,7 +247,7 @@ public class DeadCodeEliminator extends
     public void post(FlowGraph<DataFlowItem> graph, Term root)
             throws SemanticException {
         // No need to do any checking.
-        if (Report.should_report(Report.cfg, 2)) {
+        if (Report.should_report(Report.CFG, 2)) {
             dumpFlowGraph(graph, root);
         }
     }
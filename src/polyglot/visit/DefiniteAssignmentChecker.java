@@ -27,6 +27,7 @@
 package polyglot.visit;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -89,9 +90,9 @@ import polyglot.visit.FlowGraph.Peer;
  * 
  */
 public class DefiniteAssignmentChecker extends
-        DataFlow<DefiniteAssignmentChecker.FlowItem> {
+        BitVectorDataFlow<DefiniteAssignmentChecker.FlowItem> {
     public DefiniteAssignmentChecker(Job job, TypeSystem ts, NodeFactory nf) {
-        super(job, ts, nf, true /* forward analysis */, false /* perform dataflow when leaving CodeDecls, not when entering */);
+        super(job, ts, nf, true /* forward analysis */, false /* perform dataflow when leaving CodeDecls, not when entering */, 3 /* bits per AssignmentStatus */);
     }
 
     protected ClassBodyInfo currCBI = null;
@@ -245,54 +246,108 @@ public class DefiniteAssignmentChecker extends
             if (!defAss && defUnass) return UNASS;
             return NEITHER;
         }
+
+        /**
+         * The encoding of this status in the bit vectors of the dataflow.
+         * The first bit is set for every tracked variable, and the other
+         * two are the negations of {@code definitelyAssigned} and
+         * {@code definitelyUnassigned}, so that the disjunction of two
+         * encodings is the encoding of their join.
+         */
+        protected int bits() {
+            return 1 | (definitelyAssigned ? 0 : 2)
+                    | (definitelyUnassigned ? 0 : 4);
+        }
+
+        /**
+         * Decode a status from the bit vectors of the dataflow, or return
+         * null if {@code bits} is zero, i.e., the variable is not tracked.
+         */
+        protected static AssignmentStatus fromBits(int bits) {
+            if (bits == 0) return null;
+            return construct((bits & 2) == 0, (bits & 4) == 0);
+        }
     }
 
     /**
-     * Dataflow items for this dataflow are maps of VarInstances to counts
-     * of the min and max number of times those variables/fields have
-     * been initialized. These min and max counts are then used to determine
-     * if variables have been initialized before use, and that final variables
-     * are not initialized too many times.
+     * Dataflow items for this dataflow map VarInstances to their
+     * AssignmentStatus, encoded in a bit vector. These statuses are then
+     * used to determine if variables have been initialized before use,
+     * and that final variables are not initialized too many times.
      * 
      * This class is immutable.
      */
-    protected static class FlowItem extends DataFlow.Item {
-        public Map<VarInstance, AssignmentStatus> assignmentStatus;
+    protected static class FlowItem extends BitVectorDataFlow.BitVectorItem {
         public final boolean normalTermination;
 
-        FlowItem(Map<VarInstance, AssignmentStatus> m) {
-            this.assignmentStatus = Collections.unmodifiableMap(m);
+        FlowItem(BitSet bits) {
+            this(bits, null);
+        }
+
+        FlowItem(BitSet bits, Variables variables) {
+            super(bits, variables);
             this.normalTermination = true;
         }
 
-        FlowItem(Map<VarInstance, AssignmentStatus> m,
+        FlowItem(BitSet bits, Variables variables,
                 boolean canTerminateNormally) {
-            this.assignmentStatus = Collections.unmodifiableMap(m);
+            super(bits, variables);
             this.normalTermination = canTerminateNormally;
         }
 
-        @Override
-        public String toString() {
-            return assignmentStatus.toString();
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (o instanceof FlowItem) {
-                return this.assignmentStatus.equals(((FlowItem) o).assignmentStatus);
+        /**
+         * Return the map of VarInstances to AssignmentStatuses that this
+         * item encodes.
+         * @deprecated Use
+         *             {@code DefiniteAssignmentChecker.assignmentStatus(item, v)},
+         *             which does not decode the whole item.
+         */
+        @Deprecated
+        public Map<VarInstance, AssignmentStatus> assignmentStatus() {
+            Map<VarInstance, AssignmentStatus> m = new HashMap<>();
+            for (VarInstance v : variables()) {
+                m.put(v, AssignmentStatus.fromBits(value(v)));
             }
-            return false;
+            return Collections.unmodifiableMap(m);
         }
 
         @Override
-        public int hashCode() {
-            return (assignmentStatus.hashCode());
+        public String toString() {
+            if (variables == null) return super.toString();
+            return assignmentStatus().toString();
         }
+    }
+
+    protected static final FlowItem BOTTOM = new FlowItem(new BitSet());
+
+    @Override
+    protected FlowItem createItem(BitSet bits) {
+        return new FlowItem(bits, variables);
+    }
+
+    @Override
+    protected FlowItem bottom() {
+        return BOTTOM;
+    }
 
+    /**
+     * Return the AssignmentStatus of {@code v} in {@code item}, or null if
+     * {@code v} is not tracked.
+     */
+    protected AssignmentStatus assignmentStatus(FlowItem item, VarInstance v) {
+        return AssignmentStatus.fromBits(value(item, v));
     }
 
-    protected static final FlowItem BOTTOM =
-            new FlowItem(Collections.<VarInstance, AssignmentStatus> emptyMap());
+    /**
+     * Return an item that is {@code item} with the AssignmentStatus of
+     * {@code v} set to {@code as}, or removed if {@code as} is null.
+     */
+    protected FlowItem assignmentStatus(FlowItem item, VarInstance v,
+            AssignmentStatus as) {
+        BitSet bits = bits(item);
+        setValue(bits, v, as == null ? 0 : as.bits());
+        return new FlowItem(bits, variables);
+    }
 
     /**
      * Initialize the FlowGraph to be used in the dataflow analysis.
@@ -528,7 +583,7 @@ public class DefiniteAssignmentChecker extends
         // Build the control flow graph.
         FlowGraph<FlowItem> g = new FlowGraph<>(root, forward);
         CFGBuilder<FlowItem> v = createCFGBuilder(ts, g);
-        v.visitGraph();
+        g = buildGraph(g, v);
         dataflow(g);
         post(g, root);
     }
@@ -547,7 +602,15 @@ public class DefiniteAssignmentChecker extends
     }
 
     private FlowItem createInitDFI() {
-        return new FlowItem(new HashMap<VarInstance, AssignmentStatus>(currCBI.currClassFinalFieldAssStatuses));
+        return createInitDFI(true);
+    }
+
+    private FlowItem createInitDFI(boolean canTerminateNormally) {
+        BitSet bits = new BitSet();
+        for (Entry<FieldInstance, AssignmentStatus> e : currCBI.currClassFinalFieldAssStatuses.entrySet()) {
+            setValue(bits, e.getKey(), e.getValue().bits());
+        }
+        return new FlowItem(bits, variables, canTerminateNormally);
     }
 
     @Override
@@ -578,8 +641,7 @@ public class DefiniteAssignmentChecker extends
             if (filtered.isEmpty()) {
                 // record the fact that this dataflow item was not produced for a node
                 // that can be reached by normal termination.
-                return new FlowItem(new HashMap<VarInstance, AssignmentStatus>(currCBI.currClassFinalFieldAssStatuses),
-                                    false);
+                return createInitDFI(false);
             }
             else if (filtered.size() == 1) {
                 return filtered.get(0);
@@ -591,39 +653,6 @@ public class DefiniteAssignmentChecker extends
         return confluence(items, peer, graph);
     }
 
-    /**
-     * The confluence operator is essentially the union of all of the
-     * inItems. However, if two or more of the AssignmentStatus maps from
-     * the inItems each have a DefiniteAssignments entry for the same
-     * VarInstance, the conflict must be resolved, by using the
-     * minimum of all mins and the maximum of all maxs. 
-     */
-    @Override
-    public FlowItem confluence(List<FlowItem> inItems, Peer<FlowItem> peer,
-            FlowGraph<FlowItem> graph) {
-        // Resolve any conflicts pairwise.
-        Map<VarInstance, AssignmentStatus> m = null;
-        for (FlowItem itm : inItems) {
-            if (itm == BOTTOM) continue;
-            if (m == null) {
-                m = new HashMap<>(itm.assignmentStatus);
-            }
-            else {
-                Map<VarInstance, AssignmentStatus> n = itm.assignmentStatus;
-                for (Entry<VarInstance, AssignmentStatus> e : n.entrySet()) {
-                    VarInstance v = e.getKey();
-                    AssignmentStatus as1 = m.get(v);
-                    AssignmentStatus as2 = e.getValue();
-                    m.put(v, AssignmentStatus.join(as1, as2));
-                }
-            }
-        }
-
-        if (m == null) return BOTTOM;
-
-        return new FlowItem(m);
-    }
-
     @Override
     protected Map<EdgeKey, FlowItem> flow(List<FlowItem> inItems,
             List<EdgeKey> inItemKeys, FlowGraph<FlowItem> graph,
@@ -662,12 +691,8 @@ public class DefiniteAssignmentChecker extends
         if (peer.isEntry()) {
             if (n instanceof LocalDecl) {
                 LocalDecl ld = (LocalDecl) n;
-                if (inItem.assignmentStatus.containsKey(ld.localInstance())) {
-                    Map<VarInstance, AssignmentStatus> newAssStatus =
-                            new HashMap<>(inItem.assignmentStatus);
-
-                    newAssStatus.remove(ld.localInstance());
-                    inItem = new FlowItem(newAssStatus);
+                if (assignmentStatus(inItem, ld.localInstance()) != null) {
+                    inItem = assignmentStatus(inItem, ld.localInstance(), null);
                 }
             }
             return itemToMap(inItem, peer.succEdgeKeys());
@@ -755,19 +780,19 @@ public class DefiniteAssignmentChecker extends
         return ret;
     }
 
-    private static Map<EdgeKey, FlowItem> remap(Map<EdgeKey, FlowItem> m,
+    private Map<EdgeKey, FlowItem> remap(Map<EdgeKey, FlowItem> m,
             EdgeKey ek, AssignmentStatus assStatus) {
         FlowItem fi = m.get(ek);
         if (fi == null) {
             return m;
         }
 
-        Map<VarInstance, AssignmentStatus> assignmentStatus = new HashMap<>();
-        for (VarInstance vi : fi.assignmentStatus.keySet()) {
-            assignmentStatus.put(vi, assStatus);
+        BitSet bits = new BitSet();
+        for (VarInstance vi : trackedVariables(fi)) {
+            setValue(bits, vi, assStatus.bits());
         }
 
-        FlowItem newFI = new FlowItem(assignmentStatus, fi.normalTermination);
+        FlowItem newFI = new FlowItem(bits, variables, fi.normalTermination);
         Map<EdgeKey, FlowItem> newM = new HashMap<>(m);
         newM.put(ek, newFI);
         return newM;
@@ -779,15 +804,16 @@ public class DefiniteAssignmentChecker extends
      */
     protected Map<EdgeKey, FlowItem> flowFormal(FlowItem inItem,
             FlowGraph<FlowItem> graph, Formal f, Set<EdgeKey> succEdgeKeys) {
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
         // a formal argument is always defined.            
-        m.put(f.localInstance().orig(), AssignmentStatus.ASS);
+        FlowItem item =
+                assignmentStatus(inItem,
+                                 f.localInstance().orig(),
+                                 AssignmentStatus.ASS);
 
         // record the fact that we have seen the formal declaration
         currCBI.localDeclarations.add(f.localInstance().orig());
 
-        return DataFlow.<FlowItem> itemToMap(new FlowItem(m), succEdgeKeys);
+        return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
     }
 
     /**
@@ -796,9 +822,7 @@ public class DefiniteAssignmentChecker extends
      */
     protected Map<EdgeKey, FlowItem> flowLocalDecl(FlowItem inItem,
             FlowGraph<FlowItem> graph, LocalDecl ld, Set<EdgeKey> succEdgeKeys) {
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
-        AssignmentStatus assStatus = m.get(ld.localInstance().orig());
+        AssignmentStatus assStatus;
         if (ld.init() != null) {
             // declaration of local var with initialization.
             assStatus = AssignmentStatus.ASS;
@@ -808,7 +832,8 @@ public class DefiniteAssignmentChecker extends
             assStatus = AssignmentStatus.UNASS;
         }
 
-        m.put(ld.localInstance().orig(), assStatus);
+        FlowItem item =
+                assignmentStatus(inItem, ld.localInstance().orig(), assStatus);
 //        }
 //        else {
         // the initCount is not null. We now have a problem. Why is the
@@ -823,7 +848,7 @@ public class DefiniteAssignmentChecker extends
         // record the fact that we have seen a local declaration
         currCBI.localDeclarations.add(ld.localInstance());
 
-        return DataFlow.<FlowItem> itemToMap(new FlowItem(m), succEdgeKeys);
+        return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
     }
 
     /**
@@ -833,14 +858,11 @@ public class DefiniteAssignmentChecker extends
     protected Map<EdgeKey, FlowItem> flowLocalAssign(FlowItem inItem,
             FlowGraph<FlowItem> graph, LocalAssign a, Set<EdgeKey> succEdgeKeys) {
         Local l = a.left();
-        Map<VarInstance, AssignmentStatus> m =
-                new HashMap<>(inItem.assignmentStatus);
-        AssignmentStatus initCount = m.get(l.localInstance().orig());
-
-        initCount = AssignmentStatus.ASS;
-
-        m.put(l.localInstance().orig(), initCount);
-        return DataFlow.<FlowItem> itemToMap(new FlowItem(m), succEdgeKeys);
+        FlowItem item =
+                assignmentStatus(inItem,
+                                 l.localInstance().orig(),
+                                 AssignmentStatus.ASS);
+        return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
     }
 
     /**
@@ -854,14 +876,14 @@ public class DefiniteAssignmentChecker extends
         if (fi.flags().isFinal() && isFieldsTargetAppropriate(f)) {
             // this field is final and the target for this field is 
             // appropriate for what we are interested in.
-            Map<VarInstance, AssignmentStatus> m =
-                    new HashMap<>(inItem.assignmentStatus);
-            // m.get(fi.orig()) may be null if the field is defined in an
-            // outer class. If so, ignore this assignment.
-            if (m.get(fi.orig()) != null) {
-                m.put(fi.orig(), AssignmentStatus.ASS);
-                return DataFlow.<FlowItem> itemToMap(new FlowItem(m),
-                                                     succEdgeKeys);
+            // the status of fi.orig() may be null if the field is defined
+            // in an outer class. If so, ignore this assignment.
+            if (assignmentStatus(inItem, fi.orig()) != null) {
+                FlowItem item =
+                        assignmentStatus(inItem,
+                                         fi.orig(),
+                                         AssignmentStatus.ASS);
+                return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
             }
         }
         return null;
@@ -1021,15 +1043,16 @@ public class DefiniteAssignmentChecker extends
         // We need to copy back the init counts of any fields back into
         // currClassFinalFieldInitCounts, so that the counts are 
         // correct for the next field declaration, initializer, or constructor.
-        for (Entry<VarInstance, AssignmentStatus> e : dfOut.assignmentStatus.entrySet()) {
-            if (e.getKey() instanceof FieldInstance) {
-                FieldInstance fi = (FieldInstance) e.getKey();
+        for (VarInstance vi : trackedVariables(dfOut)) {
+            if (vi instanceof FieldInstance) {
+                FieldInstance fi = (FieldInstance) vi;
                 if (fi.flags().isFinal()) {
                     // we don't need to join the init counts, as all
                     // dataflows will go through all of the 
                     // initializers
                     currCBI.currClassFinalFieldAssStatuses.put(fi.orig(),
-                                                               e.getValue());
+                                                               assignmentStatus(dfOut,
+                                                                                vi));
                 }
             }
         }
@@ -1059,13 +1082,13 @@ public class DefiniteAssignmentChecker extends
         Set<FieldInstance> s = new HashSet<>();
 
         // go through every final non-static field in dfOut.initStatus
-        for (Entry<VarInstance, AssignmentStatus> e : dfOut.assignmentStatus.entrySet()) {
-            if (e.getKey() instanceof FieldInstance
-                    && ((FieldInstance) e.getKey()).flags().isFinal()
-                    && !((FieldInstance) e.getKey()).flags().isStatic()) {
+        for (VarInstance vi : trackedVariables(dfOut)) {
+            if (vi instanceof FieldInstance
+                    && ((FieldInstance) vi).flags().isFinal()
+                    && !((FieldInstance) vi).flags().isStatic()) {
                 // we have a final non-static field                           
-                FieldInstance fi = (FieldInstance) e.getKey();
-                AssignmentStatus initCount = e.getValue();
+                FieldInstance fi = (FieldInstance) vi;
+                AssignmentStatus initCount = assignmentStatus(dfOut, vi);
                 AssignmentStatus origInitCount =
                         currCBI.currClassFinalFieldAssStatuses.get(fi);
                 if (initCount.definitelyAssigned
@@ -1094,15 +1117,16 @@ public class DefiniteAssignmentChecker extends
         // We need to copy back the init counts of any fields back into
         // currClassFinalFieldInitCounts, so that the counts are 
         // correct for the next field declaration, initializer, or constructor.
-        for (Entry<VarInstance, AssignmentStatus> e : dfOut.assignmentStatus.entrySet()) {
-            if (e.getKey() instanceof FieldInstance) {
-                FieldInstance fi = (FieldInstance) e.getKey();
+        for (VarInstance vi : trackedVariables(dfOut)) {
+            if (vi instanceof FieldInstance) {
+                FieldInstance fi = (FieldInstance) vi;
                 if (fi.flags().isFinal()) {
                     // we don't need to join the init counts, as all
                     // dataflows will go through all of the 
                     // initializers
                     currCBI.currClassFinalFieldAssStatuses.put(fi.orig(),
-                                                               e.getValue());
+                                                               assignmentStatus(dfOut,
+                                                                                vi));
                 }
             }
         }
@@ -1124,7 +1148,7 @@ public class DefiniteAssignmentChecker extends
                     || currCBI.currCodeDecl instanceof ConstructorDecl || currCBI.currCodeDecl instanceof Initializer)
                     && isFieldsTargetAppropriate(f)) {
                 AssignmentStatus initCount =
-                        dfIn.assignmentStatus.get(fi.orig());
+                        assignmentStatus(dfIn, fi.orig());
                 if (initCount == null || !initCount.definitelyAssigned) {
                     throw new SemanticException("Final field \""
                                                         + f.name()
@@ -1153,7 +1177,7 @@ public class DefiniteAssignmentChecker extends
         }
         else {
             AssignmentStatus initCount =
-                    dfIn.assignmentStatus.get(l.localInstance().orig());
+                    assignmentStatus(dfIn, l.localInstance().orig());
             if (initCount == null || !initCount.definitelyAssigned) {
                 // the local variable may not have been initialized. 
                 // However, we only want to complain if the local is reachable
@@ -1167,7 +1191,7 @@ public class DefiniteAssignmentChecker extends
 
     protected void checkLocalInstanceInit(LocalInstance li, FlowItem dfIn,
             Position pos) throws SemanticException {
-        AssignmentStatus initCount = dfIn.assignmentStatus.get(li.orig());
+        AssignmentStatus initCount = assignmentStatus(dfIn, li.orig());
         if (initCount != null && !initCount.definitelyAssigned) {
             // the local variable may not have been initialized. 
             throw new SemanticException("Local variable \"" + li.name()
@@ -1186,7 +1210,7 @@ public class DefiniteAssignmentChecker extends
                     + "\" cannot be assigned to in an inner class.", pos);
         }
 
-        AssignmentStatus initCount = dfIn.assignmentStatus.get(li.orig());
+        AssignmentStatus initCount = assignmentStatus(dfIn, li.orig());
 
         if (li.flags().isFinal() && initCount != null
                 && !initCount.definitelyUnassigned) {
@@ -1214,7 +1238,7 @@ public class DefiniteAssignmentChecker extends
                 // So a final field in this situation can be 
                 // assigned to at most once.                    
                 AssignmentStatus initCount =
-                        dfIn.assignmentStatus.get(fi.orig());
+                        assignmentStatus(dfIn, fi.orig());
                 if (initCount == null) {
                     // This should not happen.
                     throw new InternalCompilerError("Dataflow information not found for field \""
@@ -1267,7 +1291,7 @@ public class DefiniteAssignmentChecker extends
             ClassBody cb, Set<LocalInstance> localsUsed, FlowItem dfIn,
             FlowItem dfOut) throws SemanticException {
         for (LocalInstance li : localsUsed) {
-            AssignmentStatus initCount = dfOut.assignmentStatus.get(li.orig());
+            AssignmentStatus initCount = assignmentStatus(dfOut, li.orig());
             if (!currCBI.localDeclarations.contains(li.orig())) {
                 // the local wasn't defined in this scope.
                 currCBI.outerLocalsUsed.add(li.orig());
@@ -126,7 +126,7 @@ public class ErrorHandlingVisitor extends HaltingVisitor {
      */
     protected NodeVisitor enterCall(Node parent, Node n)
             throws SemanticException {
-        if (Report.should_report(Report.visit, 3))
+        if (Report.should_report(Report.VISIT, 3))
             Report.report(3, "enter: " + parent + " -> " + n);
         return enterCall(n);
     }
@@ -212,7 +212,7 @@ public class ErrorHandlingVisitor extends HaltingVisitor {
      */
     @Override
     public NodeVisitor enter(Node parent, Node n) {
-        if (Report.should_report(Report.visit, 5))
+        if (Report.should_report(Report.VISIT, 5))
             Report.report(5, "enter(" + n + ")");
 
         if (catchErrors(n)) {
@@ -283,7 +283,7 @@ public class ErrorHandlingVisitor extends HaltingVisitor {
             if (v instanceof ErrorHandlingVisitor
                     && ((ErrorHandlingVisitor) v).error) {
 
-                if (Report.should_report(Report.visit, 5))
+                if (Report.should_report(Report.VISIT, 5))
                     Report.report(5, "leave(" + n + "): error below");
 
                 if (catchErrors(n)) {
@@ -299,7 +299,7 @@ public class ErrorHandlingVisitor extends HaltingVisitor {
                 return n;
             }
 
-            if (Report.should_report(Report.visit, 5))
+            if (Report.should_report(Report.VISIT, 5))
                 Report.report(5, "leave(" + n + "): calling leaveCall");
 
             return leaveCall(parent, old, n, v);
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +66,11 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
      */
     protected Map<IdentityKey, Map<PeerKey, Peer<FlowItem>>> peerMap;
 
+    /**
+     * The {@code Peer}s of this flow graph, in order of creation.
+     */
+    protected List<Peer<FlowItem>> peerList;
+
     /**
      * The root of the AST that this is a flow graph for.
      */
@@ -81,6 +87,13 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
      */
     protected final boolean alwaysHaveSuccEdgeKey;
 
+    /**
+     * The indexed form of this flow graph, built on demand by
+     * {@code index()}, or null if it has not been built since the graph
+     * last changed.
+     */
+    protected Index<FlowItem> index;
+
     public FlowGraph(Term root, boolean forward) {
         this(root, forward, true);
     }
@@ -89,6 +102,7 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
         this.root = root;
         this.forward = forward;
         this.peerMap = new HashMap<>();
+        this.peerList = new ArrayList<>();
         this.alwaysHaveSuccEdgeKey = alwaysHaveSuccEdgeKey;
     }
 
@@ -96,6 +110,36 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
         return root;
     }
 
+    /**
+     * Prepare this flow graph, which has been used by a dataflow analysis,
+     * for another analysis in the direction {@code forward}. The items of
+     * the previous analysis are discarded, and the edges are reversed if the
+     * direction changes.
+     */
+    public void reset(boolean forward) {
+        Set<Map<PeerKey, Peer<FlowItem>>> pathMaps =
+                Collections.newSetFromMap(new IdentityHashMap<Map<PeerKey, Peer<FlowItem>>, Boolean>());
+        // A path map may be shared by several nodes, if a term was rewritten
+        // by the previous analysis.
+        pathMaps.addAll(peerMap.values());
+        for (Map<PeerKey, Peer<FlowItem>> m : pathMaps) {
+            for (Peer<FlowItem> p : m.values()) {
+                p.inItem = null;
+                p.outItems = null;
+                if (forward != this.forward) {
+                    List<Edge<FlowItem>> succs = p.succs;
+                    p.succs = p.preds;
+                    p.preds = succs;
+                    p.succEdgeKeys = null;
+                }
+            }
+        }
+        if (forward != this.forward) {
+            index = null;
+        }
+        this.forward = forward;
+    }
+
     public boolean forward() {
         return forward;
     }
@@ -124,17 +168,22 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
         return peerMap.get(new IdentityKey(n));
     }
 
+    /**
+     * Return the indexed form of this flow graph, building it if needed.
+     * The graph must not change while the index is in use.
+     */
+    public Index<FlowItem> index() {
+        if (index == null) {
+            index = new Index<>(this);
+        }
+        return index;
+    }
+
     /**
      * Return a collection of all {@code Peer}s in this flow graph.
      */
     public Collection<Peer<FlowItem>> peers() {
-        Collection<Peer<FlowItem>> c = new ArrayList<>();
-        for (Map<PeerKey, Peer<FlowItem>> m : peerMap.values()) {
-            for (Peer<FlowItem> p : m.values()) {
-                c.add(p);
-            }
-        }
-        return c;
+        return new ArrayList<>(peerList);
     }
 
     /**
@@ -214,6 +263,8 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
                                peerKey.entry,
                                this.alwaysHaveSuccEdgeKey);
             pathMap.put(peerKey, p);
+            peerList.add(p);
+            index = null;
         }
 
         return p;
@@ -368,6 +419,12 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
 
         protected int entry; // Term.ENTRY or Term.EXIT
 
+        /**
+         * The number of this Peer in the index of its flow graph, or -1 if
+         * the graph has not been indexed.
+         */
+        protected int id = -1;
+
         /**
          * Set of all the different EdgeKeys that occur in the Edges in the 
          * succs. This Set is lazily constructed, as needed, by the 
@@ -435,6 +492,14 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
             return entry == Term.ENTRY;
         }
 
+        /**
+         * The number of this Peer in the index of its flow graph.  Should
+         * only be called after the graph has been indexed.
+         */
+        public int id() {
+            return id;
+        }
+
         public Set<EdgeKey> succEdgeKeys() {
             if (this.succEdgeKeys == null) {
                 // the successor edge keys have not yet been calculated. do it
@@ -454,6 +519,151 @@ public class FlowGraph<FlowItem extends DataFlow.Item> {
         }
     }
 
+    /**
+     * An indexed form of a flow graph, for the dataflow algorithms.  The
+     * peers are numbered densely from 0: first the peers reachable from the
+     * start peers, in depth-first postorder, then the unreachable peers.
+     * The edges are stored in arrays in compressed sparse row form, e.g.,
+     * the successors of peer {@code i} are {@code succs[j]} for
+     * {@code succStart[i] <= j < succStart[i + 1]}, in the order of
+     * {@code Peer.succs()}.
+     * 
+     * The output items of peer {@code i} are indexed by the slots
+     * {@code keyStart[i]} to {@code keyStart[i + 1] - 1}, one for each of
+     * its successor edge keys, and {@code predSlots} gives, for each
+     * predecessor edge, the slot of the item flowing along it.
+     */
+    public static class Index<FlowItem extends DataFlow.Item> {
+        /** The peers, by number. */
+        public final Peer<FlowItem>[] peers;
+
+        /** The number of peers reachable from the start peers. */
+        public final int reachable;
+
+        public final int[] succStart;
+        public final int[] succs;
+
+        public final int[] predStart;
+        public final int[] preds;
+
+        public final int[] keyStart;
+        public final EdgeKey[] keys;
+
+        /**
+         * The slot of the source's output item for each predecessor edge,
+         * or -1 if the source has no successor edge with the same key.
+         */
+        public final int[] predSlots;
+
+        protected Index(FlowGraph<FlowItem> graph) {
+            List<Peer<FlowItem>> all = graph.peerList;
+            int n = all.size();
+            @SuppressWarnings("unchecked")
+            Peer<FlowItem>[] peers = new Peer[n];
+            this.peers = peers;
+            this.succStart = new int[n + 1];
+            this.predStart = new int[n + 1];
+            this.keyStart = new int[n + 1];
+
+            for (Peer<FlowItem> p : all) {
+                p.id = -1;
+            }
+
+            // Number the reachable peers in postorder, with an explicit
+            // stack to cope with long methods. A peer on the stack has
+            // id -2.
+            @SuppressWarnings("unchecked")
+            Peer<FlowItem>[] stack = new Peer[n];
+            int[] next = new int[n];
+            int count = 0;
+            for (Peer<FlowItem> start : graph.startPeers()) {
+                if (start.id != -1) continue;
+                int sp = 0;
+                start.id = -2;
+                stack[sp] = start;
+                next[sp++] = 0;
+                while (sp > 0) {
+                    Peer<FlowItem> top = stack[sp - 1];
+                    if (next[sp - 1] < top.succs.size()) {
+                        Peer<FlowItem> q =
+                                top.succs.get(next[sp - 1]++).getTarget();
+                        if (q.id == -1) {
+                            q.id = -2;
+                            stack[sp] = q;
+                            next[sp++] = 0;
+                        }
+                    }
+                    else {
+                        sp--;
+                        number(top, count++);
+                    }
+                }
+            }
+            this.reachable = count;
+            for (Peer<FlowItem> p : all) {
+                if (p.id == -1) {
+                    number(p, count++);
+                }
+            }
+
+            this.succs = new int[succStart[n]];
+            this.keys = new EdgeKey[keyStart[n]];
+            for (int i = 0; i < n; i++) {
+                addSuccs(i);
+            }
+            this.preds = new int[predStart[n]];
+            this.predSlots = new int[predStart[n]];
+            for (int i = 0; i < n; i++) {
+                addPreds(i);
+            }
+        }
+
+        /**
+         * Give peer {@code p} the number {@code i}, which must be the next
+         * number, and reserve its rows.
+         */
+        protected void number(Peer<FlowItem> p, int i) {
+            p.id = i;
+            peers[i] = p;
+            succStart[i + 1] = succStart[i] + p.succs.size();
+            predStart[i + 1] = predStart[i] + p.preds.size();
+            keyStart[i + 1] = keyStart[i] + p.succEdgeKeys().size();
+        }
+
+        protected void addSuccs(int i) {
+            Peer<FlowItem> p = peers[i];
+            int j = succStart[i];
+            for (Edge<FlowItem> e : p.succs) {
+                succs[j++] = e.getTarget().id;
+            }
+            j = keyStart[i];
+            for (EdgeKey k : p.succEdgeKeys()) {
+                keys[j++] = k;
+            }
+        }
+
+        protected void addPreds(int i) {
+            Peer<FlowItem> p = peers[i];
+            int j = predStart[i];
+            for (Edge<FlowItem> e : p.preds) {
+                int o = e.getTarget().id;
+                preds[j] = o;
+                predSlots[j++] = slot(o, e.getKey());
+            }
+        }
+
+        /**
+         * Return the slot of the output item of peer {@code i} for the edge
+         * key {@code key}, or -1 if there is none.
+         */
+        public int slot(int i, EdgeKey key) {
+            for (int j = keyStart[i]; j < keyStart[i + 1]; j++) {
+                if (keys[j].equals(key)) return j;
+            }
+            return -1;
+        }
+    }
+
     /**
      * Class to be used for inserting Lists in hash tables using collection
      * equality (as defined in
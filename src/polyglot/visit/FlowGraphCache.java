@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.visit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import polyglot.ast.Term;
+import polyglot.util.IdentityKey;
+
+/**
+ * A cache of the flow graphs built for the code of a job, so that dataflow
+ * analyses that construct the same control flow graph for a term can share
+ * it rather than each building its own.  Flow graphs are keyed on the key
+ * of the {@code CFGBuilder} that built them, and on the identity of their
+ * root, so a term rewritten by a pass gets a new flow graph.
+ * <p>
+ * A graph is handed from the analysis that builds it to the next analysis
+ * that asks for it, which takes it out of the cache.  That analysis is the
+ * last to use the graphs built with its key, and discards any left over,
+ * such as those of code rewritten in between, when it finishes.
+ */
+public class FlowGraphCache {
+    protected Map<Object, Map<IdentityKey, FlowGraph<?>>> graphs;
+
+    public FlowGraphCache() {
+        this.graphs = new HashMap<>();
+    }
+
+    /**
+     * Remove and return the flow graph built for {@code root} by a
+     * CFGBuilder with key {@code key}, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public <FlowItem extends DataFlow.Item> FlowGraph<FlowItem> take(
+            Term root, Object key) {
+        Map<IdentityKey, FlowGraph<?>> m = graphs.get(key);
+        if (m == null) return null;
+        return (FlowGraph<FlowItem>) m.remove(new IdentityKey(root));
+    }
+
+    /**
+     * Record the flow graph {@code g} built for its root by a CFGBuilder
+     * with key {@code key}.
+     */
+    public void put(Object key, FlowGraph<?> g) {
+        Map<IdentityKey, FlowGraph<?>> m = graphs.get(key);
+        if (m == null) {
+            m = new HashMap<>();
+            graphs.put(key, m);
+        }
+        m.put(new IdentityKey(g.root()), g);
+    }
+
+    /** Discard the flow graphs built for {@code root}. */
+    public void remove(Term root) {
+        IdentityKey k = new IdentityKey(root);
+        for (Map<IdentityKey, FlowGraph<?>> m : graphs.values()) {
+            m.remove(k);
+        }
+    }
+
+    /** Discard the flow graphs built by CFGBuilders with key {@code key}. */
+    public void discard(Object key) {
+        graphs.remove(key);
+    }
+
+    /** Discard all flow graphs. */
+    public void clear() {
+        graphs.clear();
+    }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ * 
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan 
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+
+package polyglot.visit;
+
+import java.util.Arrays;
+import java.util.List;
+
+import polyglot.ast.Lang;
+import polyglot.ast.Node;
+
+/**
+ * A {@code FusedVisitor} runs several visitors over an AST in a single
+ * traversal.  Each node is entered by each of the visitors in turn, the
+ * children are visited, and then the {@code leave} method of each visitor is
+ * called in turn, each being passed the node returned by the one before.
+ * <p>
+ * The result is the same as running the visitors one after another only
+ * for visitors that are compatible.  A visitor must not depend on how the
+ * visitors before it rewrite the ancestors of a node when entering the node,
+ * nor on the {@code old} node passed to {@code leave}, which is always the
+ * node before any of the visitors rewrote it.  A node created by the
+ * {@code leave} method of a visitor is left by the visitors after it, but
+ * its descendants are not visited by them, so they must not need rewriting
+ * by those visitors.
+ * <p>
+ * If any of the visitors overrides the traversal of a subtree, the visitors
+ * are run one after another on that subtree.  The {@code override} method of
+ * a fused visitor must therefore have no side effects.
+ */
+public class FusedVisitor extends NodeVisitor {
+    /** The visitors, in the order in which they leave each node. */
+    protected NodeVisitor[] visitors;
+
+    public FusedVisitor(Lang lang, NodeVisitor... visitors) {
+        super(lang);
+        this.visitors = visitors.clone();
+    }
+
+    /** The visitors fused by this visitor. */
+    public List<NodeVisitor> visitors() {
+        return Arrays.asList(visitors);
+    }
+
+    protected FusedVisitor visitors(NodeVisitor[] visitors) {
+        FusedVisitor v = (FusedVisitor) this.copy();
+        v.visitors = visitors;
+        return v;
+    }
+
+    @Override
+    public NodeVisitor begin() {
+        NodeVisitor[] vs = new NodeVisitor[visitors.length];
+        for (int i = 0; i < visitors.length; i++) {
+            vs[i] = visitors[i].begin();
+            if (vs[i] == null) return null;
+        }
+        return visitors(vs);
+    }
+
+    @Override
+    public void finish(Node ast) {
+        for (NodeVisitor v : visitors) {
+            v.finish(ast);
+        }
+    }
+
+    @Override
+    public Node override(Node parent, Node n) {
+        for (NodeVisitor v : visitors) {
+            if (v.override(parent, n) != null) {
+                // Visit the subtree with each visitor in turn.
+                Node m = n;
+                for (NodeVisitor w : visitors) {
+                    m = w.visitEdge(parent, m);
+                }
+                return m;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public NodeVisitor enter(Node parent, Node n) {
+        NodeVisitor[] vs = new NodeVisitor[visitors.length];
+        for (int i = 0; i < visitors.length; i++) {
+            vs[i] = visitors[i].enter(parent, n);
+        }
+        return visitors(vs);
+    }
+
+    @Override
+    public Node leave(Node parent, Node old, Node n, NodeVisitor v) {
+        NodeVisitor[] vs = ((FusedVisitor) v).visitors;
+        for (int i = 0; i < visitors.length; i++) {
+            n = visitors[i].leave(parent, old, n, vs[i]);
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (NodeVisitor v : visitors) {
+            if (sb.length() > 0) sb.append("+");
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+}
@@ -27,6 +27,7 @@
 package polyglot.visit;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -87,9 +88,9 @@ import polyglot.visit.FlowGraph.Peer;
  * the new construct's initialization behavior.
  * 
  */
-public class InitChecker extends DataFlow<InitChecker.FlowItem> {
+public class InitChecker extends BitVectorDataFlow<InitChecker.FlowItem> {
     public InitChecker(Job job, TypeSystem ts, NodeFactory nf) {
-        super(job, ts, nf, true /* forward analysis */, false /* perform dataflow when leaving CodeDecls, not when entering */);
+        super(job, ts, nf, true /* forward analysis */, false /* perform dataflow when leaving CodeDecls, not when entering */, 4 /* bits per MinMaxInitCount */);
     }
 
     protected ClassBodyInfo currCBI = null;
@@ -305,56 +306,97 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
             return t;
 
         }
+
+        /**
+         * The encoding of this count in the bit vectors of the dataflow.
+         * The first two bits are set if the min count is less than one and
+         * less than many, respectively, and the other two are set if the max
+         * count is at least one and at least many, so that the disjunction
+         * of two encodings is the encoding of their join.  Every count has
+         * a nonzero encoding.
+         */
+        protected int bits() {
+            return (min.count < 1 ? 1 : 0) | (min.count < 2 ? 2 : 0)
+                    | (max.count >= 1 ? 4 : 0) | (max.count >= 2 ? 8 : 0);
+        }
+
+        /**
+         * Decode a count from the bit vectors of the dataflow, or return
+         * null if {@code bits} is zero, i.e., the variable is not tracked.
+         */
+        protected static MinMaxInitCount fromBits(int bits) {
+            if (bits == 0) return null;
+            InitCount min =
+                    (bits & 1) != 0 ? InitCount.ZERO : (bits & 2) != 0
+                            ? InitCount.ONE : InitCount.MANY;
+            InitCount max =
+                    (bits & 8) != 0 ? InitCount.MANY : (bits & 4) != 0
+                            ? InitCount.ONE : InitCount.ZERO;
+            return new MinMaxInitCount(min, max);
+        }
     }
 
-    protected static abstract class FlowItem extends DataFlow.Item {
+    protected static abstract class FlowItem extends
+            BitVectorDataFlow.BitVectorItem {
+        protected FlowItem(BitSet bits) {
+            super(bits);
+        }
+
+        protected FlowItem(BitSet bits, Variables variables) {
+            super(bits, variables);
+        }
     }
 
     /**
-     * Dataflow items for this dataflow are maps of VarInstances to counts
+     * Dataflow items for this dataflow map VarInstances to counts
      * of the min and max number of times those variables/fields have
-     * been initialized. These min and max counts are then used to determine
-     * if variables have been initialized before use, and that final variables
-     * are not initialized too many times.
+     * been initialized, encoded in a bit vector. These min and max counts
+     * are then used to determine if variables have been initialized before
+     * use, and that final variables are not initialized too many times.
      * 
      * This class is immutable.
      */
     protected static class DataFlowItem extends FlowItem {
-        public Map<VarInstance, MinMaxInitCount> initStatus; // map of VarInstances to MinMaxInitCount
         public final boolean normalTermination;
 
-        DataFlowItem(Map<VarInstance, MinMaxInitCount> m) {
-            this.initStatus = Collections.unmodifiableMap(m);
+        DataFlowItem(BitSet bits, Variables variables) {
+            super(bits, variables);
             this.normalTermination = true;
         }
 
-        DataFlowItem(Map<VarInstance, MinMaxInitCount> m,
+        DataFlowItem(BitSet bits, Variables variables,
                 boolean canTerminateNormally) {
-            this.initStatus = Collections.unmodifiableMap(m);
+            super(bits, variables);
             this.normalTermination = canTerminateNormally;
         }
 
-        @Override
-        public String toString() {
-            return initStatus.toString();
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (o instanceof DataFlowItem) {
-                return this.initStatus.equals(((DataFlowItem) o).initStatus);
+        /**
+         * Return the map of VarInstances to MinMaxInitCounts that this item
+         * encodes.
+         * @deprecated Use {@code InitChecker.initCount(item, v)}, which
+         *             does not decode the whole item.
+         */
+        @Deprecated
+        public Map<VarInstance, MinMaxInitCount> initStatus() {
+            Map<VarInstance, MinMaxInitCount> m = new HashMap<>();
+            for (VarInstance v : variables()) {
+                m.put(v, MinMaxInitCount.fromBits(value(v)));
             }
-            return false;
+            return Collections.unmodifiableMap(m);
         }
 
         @Override
-        public int hashCode() {
-            return (initStatus.hashCode());
+        public String toString() {
+            if (variables == null) return super.toString();
+            return initStatus().toString();
         }
-
     }
 
     protected static class BottomItem extends FlowItem {
+        protected BottomItem() {
+            super(new BitSet());
+        }
+
         @Override
         public boolean equals(Object i) {
             return i == this;
@@ -368,6 +410,35 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
 
     protected static final FlowItem BOTTOM = new BottomItem();
 
+    @Override
+    protected FlowItem createItem(BitSet bits) {
+        return new DataFlowItem(bits, variables);
+    }
+
+    @Override
+    protected FlowItem bottom() {
+        return BOTTOM;
+    }
+
+    /**
+     * Return the MinMaxInitCount of {@code v} in {@code item}, or null if
+     * {@code v} is not tracked.
+     */
+    protected MinMaxInitCount initCount(FlowItem item, VarInstance v) {
+        return MinMaxInitCount.fromBits(value(item, v));
+    }
+
+    /**
+     * Return an item that is {@code item} with the MinMaxInitCount of
+     * {@code v} set to {@code initCount}.
+     */
+    protected DataFlowItem initCount(FlowItem item, VarInstance v,
+            MinMaxInitCount initCount) {
+        BitSet bits = bits(item);
+        setValue(bits, v, initCount.bits());
+        return new DataFlowItem(bits, variables);
+    }
+
     /**
      * Initialise the FlowGraph to be used in the dataflow analysis.
      * @return null if no dataflow analysis should be performed for this
@@ -606,7 +677,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         // Build the control flow graph.
         FlowGraph<FlowItem> g = new FlowGraph<>(root, forward);
         CFGBuilder<FlowItem> v = createCFGBuilder(ts, g);
-        v.visitGraph();
+        g = buildGraph(g, v);
         dataflow(g);
         post(g, root);
     }
@@ -625,7 +696,15 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
     }
 
     private DataFlowItem createInitDFI() {
-        return new DataFlowItem(new HashMap<VarInstance, MinMaxInitCount>(currCBI.currClassFinalFieldInitCounts));
+        return createInitDFI(true);
+    }
+
+    private DataFlowItem createInitDFI(boolean canTerminateNormally) {
+        BitSet bits = new BitSet();
+        for (Entry<FieldInstance, MinMaxInitCount> e : currCBI.currClassFinalFieldInitCounts.entrySet()) {
+            setValue(bits, e.getKey(), e.getValue().bits());
+        }
+        return new DataFlowItem(bits, variables, canTerminateNormally);
     }
 
     /**
@@ -646,8 +725,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
             if (filtered.isEmpty()) {
                 // record the fact that this dataflow item was not produced for a node
                 // that can be reached by normal termination.
-                return new DataFlowItem(new HashMap<VarInstance, MinMaxInitCount>(currCBI.currClassFinalFieldInitCounts),
-                                        false);
+                return createInitDFI(false);
             }
             else if (filtered.size() == 1) {
                 return filtered.get(0);
@@ -659,40 +737,6 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         return confluence(items, peer, graph);
     }
 
-    /**
-     * The confluence operator is essentially the union of all of the
-     * inItems. However, if two or more of the initCount maps from
-     * the inItems each have a MinMaxInitCounts entry for the same
-     * VarInstance, the conflict must be resolved, by using the
-     * minimum of all mins and the maximum of all maxs. 
-     */
-    @Override
-    public FlowItem confluence(List<FlowItem> inItems, Peer<FlowItem> peer,
-            FlowGraph<FlowItem> graph) {
-        // Resolve any conflicts pairwise.
-        Map<VarInstance, MinMaxInitCount> m = null;
-        for (FlowItem itm : inItems) {
-            if (itm == BOTTOM) continue;
-            if (m == null) {
-                m = new HashMap<>(((DataFlowItem) itm).initStatus);
-            }
-            else {
-                Map<VarInstance, MinMaxInitCount> n =
-                        ((DataFlowItem) itm).initStatus;
-                for (Entry<VarInstance, MinMaxInitCount> e : n.entrySet()) {
-                    VarInstance v = e.getKey();
-                    MinMaxInitCount initCount1 = m.get(v);
-                    MinMaxInitCount initCount2 = e.getValue();
-                    m.put(v, MinMaxInitCount.join(initCount1, initCount2));
-                }
-            }
-        }
-
-        if (m == null) return BOTTOM;
-
-        return new DataFlowItem(m);
-    }
-
     @Override
     protected Map<EdgeKey, FlowItem> flow(List<FlowItem> inItems,
             List<EdgeKey> inItemKeys, FlowGraph<FlowItem> graph,
@@ -797,15 +841,16 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
      */
     protected Map<EdgeKey, FlowItem> flowFormal(DataFlowItem inItem,
             FlowGraph<FlowItem> graph, Formal f, Set<EdgeKey> succEdgeKeys) {
-        Map<VarInstance, MinMaxInitCount> m = new HashMap<>(inItem.initStatus);
         // a formal argument is always defined.            
-        m.put(f.localInstance().orig(), new MinMaxInitCount(InitCount.ONE,
-                                                            InitCount.ONE));
+        DataFlowItem item =
+                initCount(inItem,
+                          f.localInstance().orig(),
+                          new MinMaxInitCount(InitCount.ONE, InitCount.ONE));
 
         // record the fact that we have seen the formal declaration
         currCBI.localDeclarations.add(f.localInstance().orig());
 
-        return DataFlow.<FlowItem> itemToMap(new DataFlowItem(m), succEdgeKeys);
+        return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
     }
 
     /**
@@ -814,8 +859,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
      */
     protected Map<EdgeKey, FlowItem> flowLocalDecl(DataFlowItem inItem,
             FlowGraph<FlowItem> graph, LocalDecl ld, Set<EdgeKey> succEdgeKeys) {
-        Map<VarInstance, MinMaxInitCount> m = new HashMap<>(inItem.initStatus);
-        MinMaxInitCount initCount = m.get(ld.localInstance().orig());
+        MinMaxInitCount initCount;
         //if (initCount == null) {
         if (ld.init() != null) {
             // declaration of local var with initialization.
@@ -826,7 +870,8 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
             initCount = new MinMaxInitCount(InitCount.ZERO, InitCount.ZERO);
         }
 
-        m.put(ld.localInstance().orig(), initCount);
+        DataFlowItem item =
+                initCount(inItem, ld.localInstance().orig(), initCount);
 //        }
 //        else {
         // the initCount is not null. We now have a problem. Why is the
@@ -841,7 +886,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         // record the fact that we have seen a local declaration
         currCBI.localDeclarations.add(ld.localInstance());
 
-        return DataFlow.<FlowItem> itemToMap(new DataFlowItem(m), succEdgeKeys);
+        return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
     }
 
     /**
@@ -851,8 +896,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
     protected Map<EdgeKey, FlowItem> flowLocalAssign(DataFlowItem inItem,
             FlowGraph<FlowItem> graph, LocalAssign a, Set<EdgeKey> succEdgeKeys) {
         Local l = a.left();
-        Map<VarInstance, MinMaxInitCount> m = new HashMap<>(inItem.initStatus);
-        MinMaxInitCount initCount = m.get(l.localInstance().orig());
+        MinMaxInitCount initCount = initCount(inItem, l.localInstance().orig());
 
         // initcount could be null if the local is defined in the outer
         // class, or if we have not yet seen its declaration (i.e. the
@@ -865,8 +909,9 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
                 new MinMaxInitCount(initCount.getMin().increment(),
                                     initCount.getMax().increment());
 
-        m.put(l.localInstance().orig(), initCount);
-        return DataFlow.<FlowItem> itemToMap(new DataFlowItem(m), succEdgeKeys);
+        DataFlowItem item =
+                initCount(inItem, l.localInstance().orig(), initCount);
+        return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
     }
 
     /**
@@ -880,18 +925,15 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         if (fi.flags().isFinal() && isFieldsTargetAppropriate(f)) {
             // this field is final and the target for this field is 
             // appropriate for what we are interested in.
-            Map<VarInstance, MinMaxInitCount> m =
-                    new HashMap<>(inItem.initStatus);
-            MinMaxInitCount initCount = m.get(fi.orig());
+            MinMaxInitCount initCount = initCount(inItem, fi.orig());
             // initCount may be null if the field is defined in an
             // outer class.
             if (initCount != null) {
                 initCount =
                         new MinMaxInitCount(initCount.getMin().increment(),
                                             initCount.getMax().increment());
-                m.put(fi.orig(), initCount);
-                return DataFlow.<FlowItem> itemToMap(new DataFlowItem(m),
-                                                     succEdgeKeys);
+                DataFlowItem item = initCount(inItem, fi.orig(), initCount);
+                return DataFlow.<FlowItem> itemToMap(item, succEdgeKeys);
             }
         }
         return null;
@@ -1034,15 +1076,16 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         // We need to copy back the init counts of any fields back into
         // currClassFinalFieldInitCounts, so that the counts are 
         // correct for the next initializer or constructor.
-        for (Entry<VarInstance, MinMaxInitCount> e : dfOut.initStatus.entrySet()) {
-            if (e.getKey() instanceof FieldInstance) {
-                FieldInstance fi = (FieldInstance) e.getKey();
+        for (VarInstance vi : trackedVariables(dfOut)) {
+            if (vi instanceof FieldInstance) {
+                FieldInstance fi = (FieldInstance) vi;
                 if (fi.flags().isFinal()) {
                     // we don't need to join the init counts, as all
                     // dataflows will go through all of the 
                     // initializers
                     currCBI.currClassFinalFieldInitCounts.put(fi.orig(),
-                                                              e.getValue());
+                                                              initCount(dfOut,
+                                                                        vi));
                 }
             }
         }
@@ -1060,7 +1103,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         // It is meant to contain the non-static final fields that the
         // constructor ci initializes.
         //
-        // Note that dfOut.initStatus contains only the MinMaxInitCounts
+        // Note that dfOut contains only the MinMaxInitCounts
         // for _normal_ termination of the constructor (see the
         // method confluence). This means that if dfOut says the min
         // count of the initialization for a final non-static field
@@ -1071,14 +1114,14 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
 
         Set<FieldInstance> s = new HashSet<>();
 
-        // go through every final non-static field in dfOut.initStatus
-        for (Entry<VarInstance, MinMaxInitCount> e : dfOut.initStatus.entrySet()) {
-            if (e.getKey() instanceof FieldInstance
-                    && ((FieldInstance) e.getKey()).flags().isFinal()
-                    && !((FieldInstance) e.getKey()).flags().isStatic()) {
+        // go through every final non-static field in dfOut
+        for (VarInstance vi : trackedVariables(dfOut)) {
+            if (vi instanceof FieldInstance
+                    && ((FieldInstance) vi).flags().isFinal()
+                    && !((FieldInstance) vi).flags().isStatic()) {
                 // we have a final non-static field                           
-                FieldInstance fi = (FieldInstance) e.getKey();
-                MinMaxInitCount initCount = e.getValue();
+                FieldInstance fi = (FieldInstance) vi;
+                MinMaxInitCount initCount = initCount(dfOut, vi);
                 MinMaxInitCount origInitCount =
                         currCBI.currClassFinalFieldInitCounts.get(fi);
                 if (initCount.getMin() == InitCount.ONE
@@ -1115,7 +1158,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
         }
         else {
             MinMaxInitCount initCount =
-                    dfIn.initStatus.get(l.localInstance().orig());
+                    initCount(dfIn, l.localInstance().orig());
             if (initCount != null && InitCount.ZERO.equals(initCount.getMin())) {
                 // the local variable may not have been initialized. 
                 // However, we only want to complain if the local is reachable
@@ -1129,7 +1172,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
 
     protected void checkLocalInstanceInit(LocalInstance li, DataFlowItem dfIn,
             Position pos) throws SemanticException {
-        MinMaxInitCount initCount = dfIn.initStatus.get(li.orig());
+        MinMaxInitCount initCount = initCount(dfIn, li.orig());
         if (initCount != null && InitCount.ZERO.equals(initCount.getMin())) {
             // the local variable may not have been initialized. 
             throw new SemanticException("Local variable \"" + li.name()
@@ -1150,7 +1193,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
                                         a.position());
         }
 
-        MinMaxInitCount initCount = dfOut.initStatus.get(li.orig());
+        MinMaxInitCount initCount = initCount(dfOut, li.orig());
 
         if (li.flags().isFinal() && InitCount.MANY.equals(initCount.getMax())) {
             throw new SemanticException("Final variable \"" + li.name()
@@ -1175,7 +1218,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
                 // target of the field is this. 
                 // So a final field in this situation can be 
                 // assigned to at most once.                    
-                MinMaxInitCount initCount = dfOut.initStatus.get(fi.orig());
+                MinMaxInitCount initCount = initCount(dfOut, fi.orig());
                 if (initCount == null) {
                     // This should not happen.
                     throw new InternalCompilerError("Dataflow information not found for field \""
@@ -1228,7 +1271,7 @@ public class InitChecker extends DataFlow<InitChecker.FlowItem> {
             ClassBody cb, Set<LocalInstance> localsUsed, DataFlowItem dfIn,
             DataFlowItem dfOut) throws SemanticException {
         for (LocalInstance li : localsUsed) {
-            MinMaxInitCount initCount = dfOut.initStatus.get(li.orig());
+            MinMaxInitCount initCount = initCount(dfOut, li.orig());
             if (!currCBI.localDeclarations.contains(li.orig())) {
                 // the local wasn't defined in this scope.
                 currCBI.outerLocalsUsed.add(li.orig());
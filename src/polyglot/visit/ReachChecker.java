@@ -267,7 +267,7 @@ public class ReachChecker extends DataFlow<ReachChecker.DataFlowItem> {
             throws SemanticException {
         // There is no need to do any checking in this method, as this will
         // be handled by leaveCall and checkReachability.
-        if (Report.should_report(Report.cfg, 2)) {
+        if (Report.should_report(Report.CFG, 2)) {
             dumpFlowGraph(graph, root);
         }
     }
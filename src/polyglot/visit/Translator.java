@@ -43,6 +43,7 @@ import polyglot.ast.PackageNode;
 import polyglot.ast.SourceCollection;
 import polyglot.ast.SourceFile;
 import polyglot.ast.TopLevelDecl;
+import polyglot.frontend.IncrementalCache;
 import polyglot.frontend.Job;
 import polyglot.frontend.TargetFactory;
 import polyglot.types.Context;
@@ -233,6 +234,8 @@ public class Translator extends PrettyPrinter implements Copy<Translator> {
 
             String opfPath = of.getName();
             if (!opfPath.endsWith("$")) outputFiles.add(of);
+            IncrementalCache cache = job.compiler().incrementalCache();
+            if (cache != null) cache.addOutput(sf.source(), of);
             try (CodeWriter w = tf.outputCodeWriter(of, outputWidth)) {
                 writeHeader(sf, w);
 
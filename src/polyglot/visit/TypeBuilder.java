@@ -180,7 +180,7 @@ public class TypeBuilder extends NodeVisitor {
     }
 
     public TypeBuilder pushPackage(Package p) {
-        if (Report.should_report(Report.visit, 4))
+        if (Report.should_report(Report.VISIT, 4))
             Report.report(4, "TB pushing package " + p + ": " + context());
         TypeBuilder tb = push();
         tb.inCode = false;
@@ -189,7 +189,7 @@ public class TypeBuilder extends NodeVisitor {
     }
 
     public TypeBuilder pushCode() {
-        if (Report.should_report(Report.visit, 4))
+        if (Report.should_report(Report.VISIT, 4))
             Report.report(4, "TB pushing code: " + context());
         TypeBuilder tb = push();
         tb.inCode = true;
@@ -202,7 +202,7 @@ public class TypeBuilder extends NodeVisitor {
      */
     protected TypeBuilder pushClass(ParsedClassType type)
             throws SemanticException {
-        if (Report.should_report(Report.visit, 4))
+        if (Report.should_report(Report.VISIT, 4))
             Report.report(4, "TB pushing class " + type + ": " + context());
 
         TypeBuilder tb = push();
@@ -294,7 +294,7 @@ public class TypeBuilder extends NodeVisitor {
     }
 
     public TypeBuilder pushAnonClass(Position pos) throws SemanticException {
-        if (Report.should_report(Report.visit, 4))
+        if (Report.should_report(Report.VISIT, 4))
             Report.report(4, "TB pushing anon class: " + this);
 
         if (!inCode) {
@@ -59,18 +59,18 @@ public class TypeChecker extends DisambiguationDriver {
     @Override
     public Node override(Node parent, Node n) {
         try {
-            if (Report.should_report(Report.visit, 2))
+            if (Report.should_report(Report.VISIT, 2))
                 Report.report(2, ">> " + this + "::override " + n);
 
             Node m = lang().typeCheckOverride(n, parent, this);
 
-            if (Report.should_report(Report.visit, 2))
+            if (Report.should_report(Report.VISIT, 2))
                 Report.report(2, "<< " + this + "::override " + n + " -> " + m);
 
             return m;
         }
         catch (MissingDependencyException e) {
-            if (Report.should_report(Report.frontend, 3)) e.printStackTrace();
+            if (Report.should_report(Report.FRONTEND, 3)) e.printStackTrace();
             Scheduler scheduler = job.extensionInfo().scheduler();
             Goal g = scheduler.currentGoal();
             scheduler.addDependencyAndEnqueue(g, e.goal(), e.prerequisite());
@@ -103,12 +103,12 @@ public class TypeChecker extends DisambiguationDriver {
 
     @Override
     protected NodeVisitor enterCall(Node n) throws SemanticException {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::enter " + n);
 
         TypeChecker v = (TypeChecker) lang().typeCheckEnter(n, this);
 
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::enter " + n + " -> " + v);
 
         return v;
@@ -136,7 +136,7 @@ public class TypeChecker extends DisambiguationDriver {
     @Override
     protected Node leaveCall(Node old, Node n, NodeVisitor v)
             throws SemanticException {
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, ">> " + this + "::leave " + n);
 
         AmbChecker ac = new AmbChecker(lang());
@@ -165,7 +165,7 @@ public class TypeChecker extends DisambiguationDriver {
             g.setUnreachableThisRun();
         }
 
-        if (Report.should_report(Report.visit, 2))
+        if (Report.should_report(Report.VISIT, 2))
             Report.report(2, "<< " + this + "::leave " + n + " -> " + m);
 
         return m;
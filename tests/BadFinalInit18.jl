@@ -0,0 +1,9 @@
+public class BadFinalInit18 {
+    final int a;
+
+    BadFinalInit18(boolean c) {
+        if (c) {
+            a = 1;
+        }
+    } // BAD
+}
@@ -0,0 +1,9 @@
+public class BadFinalInit19 {
+    final int a;
+
+    BadFinalInit19(int n) {
+        for (int i = 0; i < n; i++) {
+            a = i; // BAD
+        }
+    }
+}
@@ -0,0 +1,12 @@
+public class BadFinalInit20 {
+    final int a;
+
+    BadFinalInit20() {
+        try {
+            a = 1;
+        }
+        finally {
+            a = 2; // BAD
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// Control flow out of try blocks through finally blocks.
+public class FlowFinally01 {
+    boolean b;
+
+    int m1() {
+        int x;
+        while (true) {
+            try {
+                if (b) break;
+            }
+            finally {
+                x = 1;
+            }
+        }
+        return x;
+    }
+
+    int m2() {
+        for (;;) {
+            try {
+                return 1;
+            }
+            finally {
+                if (b) continue;
+            }
+        }
+    }
+
+    int m3() {
+        int x;
+        try {
+            try {
+                foo();
+            }
+            finally {
+                x = 1;
+            }
+        }
+        catch (RuntimeException e) {
+            return 0;
+        }
+        return x;
+    }
+
+    void m4() {
+        l: try {
+            try {
+                break l;
+            }
+            finally {
+                foo();
+            }
+        }
+        finally {
+            foo();
+        }
+        foo();
+    }
+
+    void foo() {
+    }
+}
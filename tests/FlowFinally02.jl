@@ -0,0 +1,16 @@
+public class FlowFinally02 {
+    void m() {
+        while (true) {
+            try {
+                break;
+            }
+            finally {
+                return;
+            }
+        }
+        foo(); // BAD: the finally block discards the break.
+    }
+
+    void foo() {
+    }
+}
@@ -0,0 +1,21 @@
+public class FlowFinally03 {
+    boolean b;
+
+    int m() {
+        int x;
+        while (true) {
+            try {
+                if (b) break;
+                x = 1;
+            }
+            finally {
+                foo();
+            }
+            if (x > 0) break;
+        }
+        return x; // BAD: not assigned when breaking from the try block.
+    }
+
+    void foo() {
+    }
+}
@@ -0,0 +1,72 @@
+// Dataflow through nested loops left and re-entered from several places:
+// labeled continues to an outer loop, breaks out of several loops, and
+// loops within try and finally blocks.
+public class FlowLoop01 {
+    boolean b;
+
+    int m1(int n) {
+        int x;
+        outer: while (true) {
+            inner: for (int i = 0; i < n; i++) {
+                if (b) continue outer;
+                do {
+                    if (i == 2) continue inner;
+                    if (i == 3) {
+                        x = i;
+                        break outer;
+                    }
+                } while (b);
+            }
+        }
+        return x;
+    }
+
+    int m2(int n) {
+        int x;
+        a: for (;;) {
+            b: for (;;) {
+                c: for (;;) {
+                    if (n == 0) continue a;
+                    if (n == 1) continue b;
+                    if (n == 2) continue c;
+                    x = n;
+                    break a;
+                }
+            }
+        }
+        return x;
+    }
+
+    int m3(int n) {
+        while (true) {
+            try {
+                if (n > 0) continue;
+                while (b) {
+                    try {
+                        if (n < 0) break;
+                    }
+                    finally {
+                        n++;
+                    }
+                }
+            }
+            finally {
+                if (n == 10) return n;
+            }
+        }
+    }
+
+    int m4() {
+        final int x;
+        l: do {
+            try {
+                if (b) continue l;
+            }
+            finally {
+                b = !b;
+            }
+        } while (b);
+        x = 1;
+        return x;
+    }
+}
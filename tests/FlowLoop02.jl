@@ -0,0 +1,12 @@
+public class FlowLoop02 {
+    boolean b;
+
+    int m() {
+        a: for (;;) {
+            for (;;) {
+                if (b) break a;
+                if (!b) continue a;
+            }
+        }
+    } // BAD: missing return, since the outer loop can be left.
+}
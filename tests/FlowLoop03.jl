@@ -0,0 +1,14 @@
+public class FlowLoop03 {
+    final int a;
+
+    FlowLoop03(boolean c) {
+        while (c) {
+            try {
+                a = 1; // BAD: assigned again on the next iteration.
+            }
+            finally {
+                c = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+// Variables assigned on every path out of a loop are definitely assigned
+// after it.
+public class Init16 {
+    boolean b;
+
+    int m1() {
+        int x;
+        while (true) {
+            if (b) {
+                x = 1;
+                break;
+            }
+        }
+        return x;
+    }
+
+    int m2() {
+        int x;
+        do {
+            x = 2;
+        } while (b);
+        return x;
+    }
+
+    int m3() {
+        final int x;
+        for (int i = 0;; i++) {
+            if (i > 3) {
+                x = i;
+                break;
+            }
+        }
+        return x;
+    }
+
+    int m4() {
+        int x;
+        while (!(b && (x = 4) > 0)) {
+        }
+        return x;
+    }
+}
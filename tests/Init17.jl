@@ -0,0 +1,54 @@
+// Definite assignment through try, catch and finally blocks.
+public class Init17 {
+    int m1() {
+        int x;
+        try {
+            foo();
+        }
+        finally {
+            x = 1;
+        }
+        return x;
+    }
+
+    int m2() {
+        int x;
+        try {
+            foo();
+            x = 1;
+        }
+        catch (RuntimeException e) {
+            x = 2;
+        }
+        return x;
+    }
+
+    int m3() {
+        int x;
+        try {
+            x = 1;
+            return x;
+        }
+        finally {
+            foo();
+        }
+    }
+
+    int m4() {
+        int x;
+        try {
+            foo();
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        finally {
+            foo();
+        }
+        x = 4;
+        return x;
+    }
+
+    void foo() {
+    }
+}
@@ -0,0 +1,41 @@
+// Definite assignment through switch statements.
+public class Init18 {
+    int m1(int k) {
+        int x;
+        switch (k) {
+        case 0:
+            x = 0;
+            break;
+        case 1:
+        case 2:
+            x = 1;
+            break;
+        default:
+            x = 2;
+        }
+        return x;
+    }
+
+    int m2(int k) {
+        int x;
+        switch (k) {
+        case 0:
+        case 1:
+        default:
+            x = 3;
+        }
+        return x;
+    }
+
+    int m3(int k) {
+        final int x;
+        switch (k) {
+        case 0:
+            return 0;
+        default:
+            x = k;
+            break;
+        }
+        return x;
+    }
+}
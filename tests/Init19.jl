@@ -0,0 +1,41 @@
+// Definite assignment with labeled breaks and continues.
+public class Init19 {
+    boolean b;
+
+    int m1() {
+        int x;
+        outer: while (true) {
+            while (true) {
+                if (b) {
+                    x = 1;
+                    break outer;
+                }
+            }
+        }
+        return x;
+    }
+
+    int m2() {
+        int x;
+        l: {
+            if (b) {
+                x = 1;
+                break l;
+            }
+            x = 2;
+        }
+        return x;
+    }
+
+    int m3() {
+        int x;
+        outer: for (;;) {
+            for (;;) {
+                if (b) continue outer;
+                x = 3;
+                break outer;
+            }
+        }
+        return x;
+    }
+}
@@ -0,0 +1,50 @@
+// Final fields assigned exactly once on every path through each
+// constructor.
+public class Init20 {
+    final int a;
+    final int b;
+
+    Init20(boolean c) {
+        if (c) {
+            a = 1;
+        }
+        else {
+            a = 2;
+        }
+        b = a;
+    }
+
+    Init20() {
+        this(true);
+    }
+
+    Init20(int k) {
+        switch (k) {
+        case 0:
+            a = 0;
+            break;
+        default:
+            a = k;
+        }
+        try {
+            b = k / 2;
+        }
+        finally {
+            foo();
+        }
+    }
+
+    Init20(String s) {
+        while (true) {
+            if (s != null) {
+                a = s.length();
+                break;
+            }
+            s = "";
+        }
+        b = a;
+    }
+
+    void foo() {
+    }
+}
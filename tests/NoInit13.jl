@@ -0,0 +1,12 @@
+public class NoInit13 {
+    boolean b;
+
+    int m() {
+        int x;
+        do {
+            if (b) continue;
+            x = 1;
+        } while (b);
+        return x; // BAD
+    }
+}
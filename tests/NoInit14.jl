@@ -0,0 +1,18 @@
+public class NoInit14 {
+    int m() {
+        int x;
+        try {
+            foo();
+            x = 1;
+        }
+        catch (RuntimeException e) {
+        }
+        finally {
+            foo();
+        }
+        return x; // BAD
+    }
+
+    void foo() {
+    }
+}
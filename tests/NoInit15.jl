@@ -0,0 +1,13 @@
+public class NoInit15 {
+    int m(int k) {
+        int x;
+        switch (k) {
+        case 0:
+            x = 0;
+            break;
+        case 1:
+            x = 1;
+        }
+        return x; // BAD
+    }
+}
@@ -0,0 +1,12 @@
+public class NoInit16 {
+    boolean b;
+
+    int m() {
+        int x;
+        l: {
+            if (b) break l;
+            x = 1;
+        }
+        return x; // BAD
+    }
+}
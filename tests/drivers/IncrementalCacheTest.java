@@ -0,0 +1,187 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.ToolProvider;
+
+import polyglot.main.Main;
+import polyglot.util.ErrorInfo;
+import polyglot.util.SilentErrorQueue;
+
+/**
+ * Compile with -incremental several times, changing sources and the class
+ * path in between, and check which sources are compiled again.  A source
+ * is compiled again if its generated file is rewritten; the generated
+ * files are given an old modification time after each compilation.
+ */
+public class IncrementalCacheTest {
+    static final long OLD = 1000000000000L;
+
+    static final String[] SOURCES = { "A", "B", "C", "E" };
+
+    static File tmp, src, dep, out, cache;
+
+    /** The sources whose generated files the last compilation wrote. */
+    static List<String> compiled = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        tmp = Files.createTempDirectory("pth-incremental").toFile();
+        try {
+            run();
+        }
+        finally {
+            delete(tmp);
+        }
+    }
+
+    static void run() throws Exception {
+        src = new File(tmp, "src");
+        dep = new File(tmp, "dep");
+        out = new File(tmp, "out");
+        cache = new File(tmp, "cache");
+        src.mkdir();
+        dep.mkdir();
+        out.mkdir();
+
+        write("A", "class A { int f() { return 1; } }");
+        write("B", "class B { int g() { return new A().f(); } }");
+        write("C", "class C { }");
+        write("E", "class E { int k() { return new Dep().h(); } }");
+        writeDep("public class Dep { public int h() { return 1; } }");
+
+        // The first compilation compiles every source.
+        check(compile() == null, "first compilation");
+        check(cache.exists(), "cache written");
+        checkCompiled("first compilation", "A", "B", "C", "E");
+
+        // Unchanged sources are skipped.
+        check(compile() == null, "unchanged compilation");
+        checkCompiled("unchanged compilation");
+
+        // A changed source is compiled, with the sources depending on it.
+        write("A", "class A { int f() { return 2; } }");
+        check(compile() == null, "compilation after A changed");
+        checkCompiled("compilation after A changed", "A", "B");
+
+        // Rewriting a source without changing it does not invalidate it.
+        write("C", "class C { }");
+        check(compile() == null, "compilation after C was rewritten");
+        checkCompiled("compilation after C was rewritten");
+
+        // A source whose generated file was deleted is compiled.
+        new File(out, "C.java").delete();
+        check(compile() == null, "compilation after C.java was deleted");
+        checkCompiled("compilation after C.java was deleted", "C");
+
+        // A change to a class on the class path invalidates every source.
+        writeDep("public class Dep { public int h() { return 2; } int x; }");
+        check(compile() == null, "compilation after Dep changed");
+        checkCompiled("compilation after Dep changed", "A", "B", "C", "E");
+
+        // A source using a class that changed incompatibly is not skipped.
+        writeDep("public class Dep { public long j() { return 2; } }");
+        String error = compile();
+        check(error != null && error.contains("h("),
+              "error after Dep changed incompatibly: " + error);
+        writeDep("public class Dep { public int h() { return 1; } }");
+        check(compile() == null, "compilation after Dep was restored");
+
+        // A failing post-compiler deletes the cache.
+        write("C", "class C { int y; }");
+        check(compile("-postcompiler", new File(tmp, "missing").getPath()) != null,
+              "compilation with a missing post-compiler");
+        check(!cache.exists(), "cache deleted after the post-compiler failed");
+        check(compile() == null, "compilation after the post-compiler failed");
+        checkCompiled("compilation after the post-compiler failed",
+                      "A",
+                      "B",
+                      "C",
+                      "E");
+    }
+
+    /**
+     * Compile the sources and age the generated files.  Return null, or
+     * the errors if the compilation failed.
+     */
+    static String compile(String... extra) throws IOException {
+        List<String> args = new ArrayList<>();
+        args.addAll(Arrays.asList("-incremental",
+                                  cache.getPath(),
+                                  "-d",
+                                  out.getPath(),
+                                  "-cp",
+                                  dep.getPath()));
+        args.addAll(Arrays.asList(extra));
+        for (String name : SOURCES) {
+            args.add(new File(src, name + ".jl").getPath());
+        }
+
+        SilentErrorQueue eq = new SilentErrorQueue(100, "test");
+        String result = null;
+        try {
+            new Main().start(args.toArray(new String[args.size()]), eq);
+        }
+        catch (Main.TerminationException e) {
+            StringBuilder sb = new StringBuilder("exit " + e.exitCode);
+            for (ErrorInfo err : eq.getErrors()) {
+                sb.append("; ").append(err.getMessage());
+            }
+            result = sb.toString();
+        }
+
+        compiled.clear();
+        for (String name : SOURCES) {
+            File f = new File(out, name + ".java");
+            if (f.exists() && f.lastModified() != OLD) compiled.add(name);
+        }
+        for (File f : out.listFiles()) {
+            f.setLastModified(OLD);
+        }
+        return result;
+    }
+
+    /** Check that the last compilation compiled exactly {@code names}. */
+    static void checkCompiled(String what, String... names) {
+        for (String name : SOURCES) {
+            check(new File(out, name + ".java").exists(), what + ": " + name
+                    + ".java exists");
+        }
+        check(compiled.equals(Arrays.asList(names)), what + ": compiled "
+                + compiled + ", expected " + Arrays.asList(names));
+    }
+
+    static void write(String name, String text) throws IOException {
+        Files.write(new File(src, name + ".jl").toPath(),
+                    text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeDep(String text) throws IOException {
+        File f = new File(tmp, "Dep.java");
+        Files.write(f.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        check(ToolProvider.getSystemJavaCompiler().run(null,
+                                                       null,
+                                                       null,
+                                                       "-d",
+                                                       dep.getPath(),
+                                                       f.getPath()) == 0,
+              "javac Dep.java");
+    }
+
+    static void check(boolean b, String what) {
+        if (!b) throw new AssertionError("failed: " + what);
+    }
+
+    static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                delete(g);
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Run the first compiler block of the pthScript in the current directory
+ * with pth in two VMs, one with -Djava_cup.runtime.optimized=true, and
+ * check that every test has the same result in both.  The block runs with
+ * the default parser and the optimized one, and neither can be chosen
+ * within a VM once the parser runtime is loaded.
+ */
+public class OptimizedParserTest {
+    public static void main(String[] args) throws Exception {
+        String block = firstCompilerBlock(new File("pthScript"));
+        File tmp = Files.createTempDirectory("pth-optimized").toFile();
+        try {
+            String normal = pth(new File(tmp, "normal"), block, false);
+            String optimized = pth(new File(tmp, "optimized"), block, true);
+            check(normal.contains(": OK"), "tests run:\n" + normal);
+            if (!normal.equals(optimized)) {
+                String[] a = normal.split("\n");
+                String[] b = optimized.split("\n");
+                for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                    check(a[i].equals(b[i]), "results differ:\n  " + a[i]
+                            + "\nwith the optimized parser:\n  " + b[i]);
+                }
+                check(false, "results differ in length");
+            }
+        }
+        finally {
+            delete(tmp);
+        }
+    }
+
+    /** Return the first block of {@code script} that runs an extension. */
+    static String firstCompilerBlock(File script) throws IOException {
+        List<String> lines =
+                Files.readAllLines(script.toPath(), StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder();
+        boolean in = false;
+        for (String line : lines) {
+            // An extension is named by its class; javac and java are not.
+            if (!in && line.matches("[A-Za-z_$][\\w$.]*\\.\\w+ .*\\{\\s*")) {
+                in = true;
+            }
+            if (in) {
+                sb.append(line).append('\n');
+                if (line.startsWith("}")) return sb.toString();
+            }
+        }
+        throw new AssertionError("no compiler block in " + script);
+    }
+
+    /**
+     * Run pth on {@code block} in a new VM, with the tests in the current
+     * directory, and return its output.
+     */
+    static String pth(File dir, String block, boolean optimized)
+            throws IOException, InterruptedException {
+        dir.mkdir();
+        File script = new File(dir, "pthScript");
+        Files.write(script.toPath(), block.getBytes(StandardCharsets.UTF_8));
+        File log = new File(dir, "log");
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        cmd.add("-ea");
+        if (optimized) cmd.add("-Djava_cup.runtime.optimized=true");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("polyglot.pth.Main");
+        cmd.add(script.getPath());
+        Process p =
+                new ProcessBuilder(cmd).redirectErrorStream(true)
+                                       .redirectOutput(log)
+                                       .start();
+        p.waitFor();
+
+        // Drop the lines naming the script or the options of the VM.
+        StringBuilder sb = new StringBuilder();
+        for (String line : Files.readAllLines(log.toPath(),
+                                              StandardCharsets.UTF_8)) {
+            if (line.startsWith("Test script ")
+                    || line.startsWith("Picked up ")) continue;
+            sb.append(line.replace(script.getPath(), script.getName()));
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static void check(boolean b, String what) {
+        if (!b) throw new AssertionError("failed: " + what);
+    }
+
+    static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                delete(g);
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import polyglot.frontend.IncrementalCache;
+import polyglot.frontend.JLExtensionInfo;
+import polyglot.main.Client;
+import polyglot.main.Server;
+
+/**
+ * Run a Polyglot server in a separate VM and compile with the client:
+ * a good compilation, a compilation reusing the warm extension, a
+ * compilation with an error, a client with a bad token, and a client with
+ * no server.  Also check that the configuration key of the server does not
+ * depend on the contents of class path directories.
+ */
+public class ServerClientTest {
+    static class KeyServer extends Server {
+        KeyServer() {
+            super(0);
+        }
+
+        String key(String... args) {
+            return configurationKey(new JLExtensionInfo(), args);
+        }
+    }
+
+    static String out;
+    static String err;
+
+    public static void main(String[] args) throws Exception {
+        File tmp = Files.createTempDirectory("pth-server").toFile();
+        String home = System.getProperty("user.home");
+        System.setProperty("user.home", tmp.getPath());
+        Process server = null;
+        try {
+            testConfigurationKey(tmp);
+
+            int port;
+            try (ServerSocket ss = new ServerSocket(0)) {
+                port = ss.getLocalPort();
+            }
+            File src = new File(tmp, "src");
+            File dest = new File(tmp, "out");
+            src.mkdir();
+            dest.mkdir();
+            write(new File(src, "Good.jl"),
+                  "class Good { int f() { return 1; } }");
+            write(new File(src, "Bad.jl"),
+                  "class Bad { int f() { return true; } }");
+            String[] good =
+                    { "-d", dest.getPath(), new File(src, "Good.jl").getPath() };
+            String[] bad =
+                    { "-d", dest.getPath(), new File(src, "Bad.jl").getPath() };
+
+            check(compile(port, good) == -1, "client without a server");
+
+            server =
+                    new ProcessBuilder(new File(System.getProperty("java.home"),
+                                                "bin/java").getPath(),
+                                       "-Duser.home=" + tmp.getPath(),
+                                       "-cp",
+                                       System.getProperty("java.class.path"),
+                                       Server.class.getName(),
+                                       String.valueOf(port)).redirectErrorStream(true)
+                                                            .redirectOutput(new File(tmp,
+                                                                                     "server.log"))
+                                                            .start();
+            File token = Server.tokenFile(port);
+            for (int i = 0; i < 600 && !token.exists(); i++) {
+                Thread.sleep(100);
+            }
+            check(token.exists(), "server token " + token);
+            // The token file may be created before the token is written.
+            Thread.sleep(200);
+
+            check(compile(port, good) == 0, "good compilation: " + err);
+            check(new File(dest, "Good.class").exists(), "Good.class");
+            new File(dest, "Good.class").delete();
+            check(compile(port, good) == 0, "warm compilation: " + err);
+            check(new File(dest, "Good.class").exists(), "warm Good.class");
+            check(compile(port, bad) == 1, "bad compilation");
+            check(err.contains("Bad.jl"), "error of the bad compilation: "
+                    + err);
+
+            byte[] t = Files.readAllBytes(token.toPath());
+            write(token, "not the token");
+            check(compile(port, good) == 2, "client with a bad token");
+            check(err.contains("bad token"), "bad token message: " + err);
+            Files.write(token.toPath(), t);
+            check(compile(port, good) == 0, "compilation after a bad token: "
+                    + err);
+        }
+        finally {
+            if (server != null) {
+                server.destroy();
+                server.waitFor();
+            }
+            System.setProperty("user.home", home);
+            delete(tmp);
+        }
+    }
+
+    static void testConfigurationKey(File tmp) throws Exception {
+        File dir = new File(tmp, "classes");
+        File jar = new File(tmp, "lib.jar");
+        File source = new File(tmp, "A.jl");
+        dir.mkdir();
+        writeJar(jar, "a");
+        write(source, "class A { }");
+
+        KeyServer ks = new KeyServer();
+        String[] args =
+                { "-cp", dir.getPath() + File.pathSeparator + jar.getPath(),
+                        source.getPath() };
+        String key = ks.key(args);
+        JLExtensionInfo ext = new JLExtensionInfo();
+        ext.getOptions().parseCommandLine(args, new java.util.HashSet<String>());
+        String deepKey = IncrementalCache.configurationKey(ext);
+
+        write(new File(dir, "B.class"), "not a class file");
+        check(key.equals(ks.key(args)), "key after a class file is added");
+        check(!deepKey.equals(IncrementalCache.configurationKey(ext)),
+              "incremental key after a class file is added");
+
+        writeJar(jar, "ab");
+        check(!key.equals(ks.key(args)), "key after the archive changes");
+    }
+
+    static int compile(int port, String[] args) throws IOException {
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ByteArrayOutputStream berr = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bout));
+        System.setErr(new PrintStream(berr));
+        try {
+            return Client.compile(port, args);
+        }
+        finally {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+            out = bout.toString();
+            err = berr.toString();
+        }
+    }
+
+    static void check(boolean b, String what) {
+        if (!b) throw new AssertionError("failed: " + what);
+    }
+
+    static void write(File f, String s) throws IOException {
+        Files.write(f.toPath(), s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeJar(File f, String contents) throws IOException {
+        try (ZipOutputStream zip =
+                new ZipOutputStream(Files.newOutputStream(f.toPath()))) {
+            zip.putNextEntry(new ZipEntry("r"));
+            zip.write(contents.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                delete(g);
+            }
+        }
+        f.delete();
+    }
+}
@@ -1,9 +1,12 @@
 package java_cup.runtime;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.WeakHashMap;
 
 import java_cup.runtime.ComplexSymbolFactory.ComplexSymbol;
 
@@ -302,6 +305,37 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** Direct-indexed form of the action table, or null if the parser is
+     *  not running in optimized mode (see dense_table()).
+     */
+    protected short[][] action_dense;
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Direct-indexed form of the reduce-goto table, or null if the parser
+     *  is not running in optimized mode (see dense_table()).
+     */
+    protected short[][] reduce_dense;
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Whether parsers run in optimized mode by default; set with the
+     *  java_cup.runtime.optimized system property.
+     */
+    protected static final boolean _optimized =
+            Boolean.getBoolean("java_cup.runtime.optimized");
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Direct-indexed tables, keyed by the (identity of the) compacted
+     *  tables they were built from.  Generated parsers keep their tables in
+     *  static fields, so each table is expanded once per parser class.
+     */
+    private static final Map<short[][], short[][]> _dense_tables =
+            new WeakHashMap<>();
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** This is the scanner object used by the default implementation
      *  of scan() to get Symbols.  To avoid name conflicts with existing
      *  code, this field is private. [CSA/davidm] */
@@ -562,6 +596,14 @@ public abstract class lr_parser {
     protected final short get_action(int state, int sym) {
         short tag;
         int first, last, probe;
+
+        /* index directly in optimized mode */
+        if (action_dense != null) {
+            short[] dense = action_dense[state];
+            last = dense.length - 1;
+            return sym < last ? dense[sym] : dense[last];
+        }
+
         short[] row = action_tab[state];
 
         /* linear search if we are < 10 entries */
@@ -610,6 +652,14 @@ public abstract class lr_parser {
      */
     protected final short get_reduce(int state, int sym) {
         short tag;
+
+        /* index directly in optimized mode */
+        if (reduce_dense != null) {
+            short[] dense = reduce_dense[state];
+            int last = dense.length - 1;
+            return sym < last ? dense[sym] : dense[last];
+        }
+
         short[] row = reduce_tab[state];
 
         /* if we have a null row we go with the default */
@@ -629,6 +679,83 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** Whether this parser runs in optimized mode: the parse stack is a
+     *  parse_stack rather than a synchronized java.util.Stack, and actions
+     *  and gotos are looked up in direct-indexed tables rather than searched
+     *  for in the compacted ones.  Parsing behaves identically either way.
+     *  By default this is set by the java_cup.runtime.optimized system
+     *  property; generated parsers may override it.
+     */
+    protected boolean optimized() {
+        return _optimized;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Set up the parse stack and tables for the mode of this parser.  This
+     *  is called at the start of each parse, after the direct references to
+     *  the tables have been set up.
+     */
+    protected void init_mode() {
+        if (optimized()) {
+            if (!(stack instanceof parse_stack)) stack = new parse_stack();
+            action_dense = dense_table(action_tab, (short) 0);
+            reduce_dense = dense_table(reduce_tab, (short) -1);
+        }
+        else {
+            action_dense = null;
+            reduce_dense = null;
+        }
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Return the direct-indexed form of a compacted action or reduce-goto
+     *  table.  Row i of the result has one entry for each Symbol index up to
+     *  the largest one in row i of the compacted table, followed by the
+     *  default entry of the row; Symbols past the end of the row take the
+     *  default.  Tables are expanded once and shared between parsers.
+     *
+     * @param tab  the compacted table.
+     * @param none the entry for rows without a default (error).
+     */
+    protected static short[][] dense_table(short[][] tab, short none) {
+        synchronized (_dense_tables) {
+            short[][] result = _dense_tables.get(tab);
+            if (result != null) return result;
+
+            result = new short[tab.length][];
+            for (int state = 0; state < tab.length; state++) {
+                short[] row = tab[state];
+
+                /* find the extent and default of the row */
+                int size = 0;
+                short def = none;
+                int end = row == null ? 0 : row.length - 1;
+                for (int probe = 0; probe < end; probe += 2) {
+                    if (row[probe] == -1) {
+                        def = row[probe + 1];
+                        end = probe;
+                        break;
+                    }
+                    size = Math.max(size, row[probe] + 1);
+                }
+
+                /* fill in the row, with the default last */
+                short[] dense = new short[size + 1];
+                Arrays.fill(dense, def);
+                for (int probe = 0; probe < end; probe += 2)
+                    dense[row[probe]] = row[probe + 1];
+                result[state] = dense;
+            }
+
+            _dense_tables.put(tab, result);
+            return result;
+        }
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** This method provides the main parsing routine.  It returns only when
      *  done_parsing() has been called (typically because the parser has
      *  accepted, or a fatal error has been reported).  See the header
@@ -650,6 +777,7 @@ public abstract class lr_parser {
         production_tab = production_table();
         action_tab = action_table();
         reduce_tab = reduce_table();
+        init_mode();
 
         /* initialize the action encapsulation object */
         init_actions();
@@ -823,6 +951,7 @@ public abstract class lr_parser {
         production_tab = production_table();
         action_tab = action_table();
         reduce_tab = reduce_table();
+        init_mode();
 
         debug_message("# Initializing parser");
 
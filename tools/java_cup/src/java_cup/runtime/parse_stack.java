@@ -0,0 +1,118 @@
+package java_cup.runtime;
+
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+/** This class implements the parse stack used by the optimized mode of
+ *  lr_parser.  It is a drop-in replacement for java.util.Stack (so that
+ *  generated action code, which is written against Stack, continues to
+ *  work), but the operations used by the parser are not synchronized.
+ *  A parse stack is only ever accessed by the thread running the parse.
+ *
+ * @see     java_cup.runtime.lr_parser
+ */
+
+public class parse_stack extends Stack<Symbol> {
+    private static final long serialVersionUID = 1L;
+
+    /*-----------------------------------------------------------*/
+    /*--- Constructor(s) ----------------------------------------*/
+    /*-----------------------------------------------------------*/
+
+    /** Constructor for an empty stack. */
+    public parse_stack() {
+        super();
+        elementData = new Object[64];
+    }
+
+    /*-----------------------------------------------------------*/
+    /*--- General Methods ---------------------------------------*/
+    /*-----------------------------------------------------------*/
+
+    /** Push a Symbol onto the top of the stack. */
+    @Override
+    public Symbol push(Symbol item) {
+        if (elementCount == elementData.length) {
+            Object[] data = new Object[2 * elementData.length];
+            System.arraycopy(elementData, 0, data, 0, elementCount);
+            elementData = data;
+        }
+        elementData[elementCount++] = item;
+        modCount++;
+        return item;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Pop the Symbol off the top of the stack. */
+    @Override
+    public Symbol pop() {
+        if (elementCount == 0) throw new EmptyStackException();
+        Symbol item = (Symbol) elementData[--elementCount];
+        elementData[elementCount] = null;
+        modCount++;
+        return item;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Return the Symbol on the top of the stack. */
+    @Override
+    public Symbol peek() {
+        if (elementCount == 0) throw new EmptyStackException();
+        return (Symbol) elementData[elementCount - 1];
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Return the Symbol at the given index from the bottom of the stack. */
+    @Override
+    public Symbol elementAt(int index) {
+        if (index >= elementCount)
+            throw new ArrayIndexOutOfBoundsException(index + " >= "
+                    + elementCount);
+        return (Symbol) elementData[index];
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    @Override
+    public Symbol get(int index) {
+        return elementAt(index);
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    @Override
+    public boolean empty() {
+        return elementCount == 0;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    @Override
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    @Override
+    public int size() {
+        return elementCount;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Remove all Symbols from the stack. */
+    @Override
+    public void removeAllElements() {
+        for (int i = 0; i < elementCount; i++)
+            elementData[i] = null;
+        elementCount = 0;
+        modCount++;
+    }
+
+    /*-----------------------------------------------------------*/
+
+}
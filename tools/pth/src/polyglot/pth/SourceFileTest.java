@@ -26,6 +26,11 @@
 package polyglot.pth;
 
 import java.io.File;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -44,6 +49,12 @@ import polyglot.util.SilentErrorQueue;
  */
 public class SourceFileTest extends AbstractTest {
     private static final String JAVAC = "javac";
+    /**
+     * Compile the files with javac against the class path of pth, then run
+     * the {@code main} method of the class of each file.  A test driver
+     * reports a failure by throwing an exception.
+     */
+    private static final String JAVA = "java";
     private static final JavaCompiler javaCompiler =
             polyglot.main.Main.javaCompiler();
     /**
@@ -162,6 +173,10 @@ public class SourceFileTest extends AbstractTest {
                         // invoke javac on the program
                         invokeJavac(cmdLine);
                     }
+                    else if (JAVA.equals(getExtensionClassname())) {
+                        // compile and run the test drivers
+                        invokeJava(cmdLine, list, destDir);
+                    }
                     else {
                         invokePolyglot(cmdLine);
                     }
@@ -278,6 +293,61 @@ public class SourceFileTest extends AbstractTest {
                          cmdLine.toArray(new String[cmdLine.size()]));
     }
 
+    protected void invokeJava(List<String> cmdLine, List<String> sources,
+            File destDir) {
+        List<String> args = new LinkedList<>(cmdLine);
+        args.removeAll(sources);
+        String classpath = System.getProperty("java.class.path");
+        int i = args.indexOf("-cp");
+        if (i >= 0) {
+            args.remove(i);
+            classpath = args.remove(i) + File.pathSeparator + classpath;
+        }
+        args.add("-cp");
+        args.add(classpath);
+        if (!args.contains("-d")) {
+            args.add("-d");
+            args.add(destDir.getPath());
+        }
+
+        StringWriter out = new StringWriter();
+        if (!javaCompiler.getTask(out,
+                                  null,
+                                  null,
+                                  args,
+                                  null,
+                                  javaCompiler.getStandardFileManager(null,
+                                                                      null,
+                                                                      null)
+                                              .getJavaFileObjectsFromStrings(sources))
+                         .call()) {
+            eq.enqueue(ErrorInfo.POST_COMPILER_ERROR, out.toString());
+            return;
+        }
+
+        String dir = args.get(args.indexOf("-d") + 1);
+        try (URLClassLoader loader =
+                new URLClassLoader(new URL[] { new File(dir).toURI().toURL() },
+                                   getClass().getClassLoader())) {
+            for (String source : sources) {
+                String name = new File(source).getName();
+                name = name.substring(0, name.lastIndexOf('.'));
+                Method main =
+                        loader.loadClass(name).getMethod("main",
+                                                         String[].class);
+                try {
+                    main.invoke(null, (Object) new String[0]);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+        catch (Throwable e) {
+            eq.enqueue(ErrorInfo.INTERNAL_ERROR, String.valueOf(e));
+        }
+    }
+
     protected static void deleteDir(File dir) {
 //        System.out.println("Deleting " + dir.toString());
         for (File f : dir.listFiles()) {
@@ -304,7 +374,8 @@ public class SourceFileTest extends AbstractTest {
         String s;
         String[] sa;
 
-        if ((s = getExtensionClassname()) != null && !s.equals(JAVAC)) {
+        if ((s = getExtensionClassname()) != null && !s.equals(JAVAC)
+                && !s.equals(JAVA)) {
             args.add("-extclass");
             args.add(s);
         }